@@ -167,11 +167,89 @@ public class APEllipseAppletForJar  extends JFrame implements ActionListener {
 		return apEllipsesFrame;
 	}
 
-	public static final String cmdlineOptions = "[{-i,--input} an_els_file_path] [{-o,--output} a_dir_path] [{-l, --showlabels} yes_or_no] [{-c, --showincolour} yes_or_no] [{--curves} ellipses_or_circles] [{-s, --silent}]";	
+	public static final String cmdlineOptions = "[{-i,--input} an_els_file_path | {--input-dir} an_els_dir_path [{-t, --threads} no_of_threads] [{--cache-dir} a_dir_path]] [{-o,--output} a_dir_path] [{-l, --showlabels} yes_or_no] [{-c, --showincolour} yes_or_no] [{--curves} ellipses_or_circles] [{-s, --silent}] [{--metrics-interval} secs]";	
 	private static void printUsage() {
         System.err.println("Usage: Options "+cmdlineOptions);    
     }
 
+	// ... same checks as those in main for -i (or --input), but for a directory of .els files, and no eulerAPE window is started
+	private static void runBatchFromCmd(String inputElsDirPath, String inputElsFilePath, String outputDirPath, String showLabelsValue, String showInColourValue, String curvesValue, boolean silent, int noOfThreads, String cacheDirPath, String[] otherArgs) {
+		
+		System.out.println();
+		
+		if (((otherArgs!=null)&&(otherArgs.length>0)) || (inputElsFilePath!=null)){
+			System.err.println("Error in command-line arguments: invalid usage of command-line arguments; use either -i (or --input) or --input-dir, not both.");
+			System.out.println();
+			printUsage();
+			System.exit(2);	
+		}
+		
+		File inputElsDir = new File(inputElsDirPath);
+		if (!inputElsDir.exists()){
+			System.err.println("Error in command-line arguments: "+ inputElsDirPath + " for --input-dir does not exist.");
+			System.exit(2);
+		}
+		if (!inputElsDir.isDirectory()){
+			System.err.println("Error in command-line arguments: " + inputElsDirPath + " is not a directory; --input-dir must be followed by the path to a directory with .els files.");
+			System.exit(2);
+		}
+		
+		File outputDir;
+		if (outputDirPath == null){
+			outputDir = new File(Utilities.getCurrentWorkingDirPath());
+		} else {
+			outputDir = new File(outputDirPath);
+			if (outputDir.exists() && !outputDir.isDirectory()){
+				System.err.println("Error in command-line arguments: " + outputDirPath + " is not a directory; -o (or --output) must be followed by the path to a directory.");
+				System.exit(2);   	    	
+			}
+			if (!outputDir.exists()){
+				System.err.println("Error in command-line arguments: "+ outputDirPath + " for -o (or --output) does not exist.");
+				System.exit(2);			
+			}
+		}
+		
+		if ((cacheDirPath != null) && new File(cacheDirPath).exists() && !new File(cacheDirPath).isDirectory()){
+			System.err.println("Error in command-line arguments: " + cacheDirPath + " is not a directory; --cache-dir must be followed by the path to a directory (which is created if it does not exist).");
+			System.exit(2);
+		}
+		
+		if (noOfThreads < 1){
+			System.err.println("Error in command-line arguments: incorrect value for option -t (or --threads); a number >= 1 is expected (e.g., -t 4). When -t (or --threads) is missing, one thread per processor is used.");
+			System.exit(2);
+		}
+		
+		String showLabelsFormatted = showLabelsValue.trim().toLowerCase();
+		String showInColourFormatted = showInColourValue.trim().toLowerCase();
+		String curvesFormatted = curvesValue.trim().toLowerCase();
+		if (!(showLabelsFormatted.equals("yes")||showLabelsFormatted.equals("true")||showLabelsFormatted.equals("no")||showLabelsFormatted.equals("false"))){
+			System.err.println("Error in command-line arguments: incorrect value for option -l (or --showlabels); yes or no is expected (e.g., -l yes). When -l (or --showlabels) is missing, the generated diagram is labelled.");
+			System.exit(2);	
+		}
+		if (!(showInColourFormatted.equals("yes")||showInColourFormatted.equals("true")||showInColourFormatted.equals("no")||showInColourFormatted.equals("false"))){
+			System.err.println("Error in command-line arguments: incorrect value for option -c (or --showincolour); yes or no is expected (e.g., -c yes). When -c (or --showincolour) is missing, the generated diagram is coloured.");
+			System.exit(2);	
+		}
+		if (!(curvesFormatted.equals("ellipse")||curvesFormatted.equals("ellipses")||curvesFormatted.equals("circle")||curvesFormatted.equals("circles"))){
+			System.err.println("Error in command-line arguments: incorrect value for option --curves; ellipses or circles is expected (e.g., --curves ellipses). When --curves is missing, the curves of the generated diagram will be ellipses.");
+			System.exit(2);	
+		}
+		
+		BatchDiagramRunner batchRunner = new BatchDiagramRunner(inputElsDir, outputDir);
+		batchRunner.setNoOfWorkers(noOfThreads);
+		batchRunner.setShowLabels(showLabelsFormatted.equals("yes")||showLabelsFormatted.equals("true"));
+		batchRunner.setShowInColour(showInColourFormatted.equals("yes")||showInColourFormatted.equals("true"));
+		batchRunner.setRestrictToCircles(curvesFormatted.startsWith("circle"));
+		batchRunner.setSilent(silent);
+		if (cacheDirPath != null){
+			batchRunner.setDiagramCache(new DiagramCache(DiagramCache.DEFAULT_CAPACITY, new File(cacheDirPath)));
+		}
+		if (!batchRunner.run()){
+			System.exit(2);
+		}
+		System.exit(batchRunner.getFailures().isEmpty() ? 0 : 1);
+	}
+
 	public static void main(String[] args) {
 
 		boolean runningInCmd = false;
@@ -192,6 +270,10 @@ public class APEllipseAppletForJar  extends JFrame implements ActionListener {
 		CmdLineParser.Option parserShowInColour = parser.addStringOption('c', "showincolour");
 		CmdLineParser.Option parserCurves = parser.addStringOption("curves");
 		CmdLineParser.Option parserSilent = parser.addBooleanOption('s', "silent");
+		CmdLineParser.Option parserInputElsDirPath = parser.addStringOption("input-dir");
+		CmdLineParser.Option parserThreads = parser.addIntegerOption('t', "threads");
+		CmdLineParser.Option parserCacheDirPath = parser.addStringOption("cache-dir");
+		CmdLineParser.Option parserMetricsInterval = parser.addIntegerOption("metrics-interval");
 		
 		// retrieve args
 		try {
@@ -223,6 +305,25 @@ public class APEllipseAppletForJar  extends JFrame implements ActionListener {
         String parserCurvesValue = (String)parser.getOptionValue(parserCurves, "ellipses");
        Boolean parserSilentValue = (Boolean)parser.getOptionValue(parserSilent, Boolean.FALSE);
         String[] parserOtherArgs = parser.getRemainingArgs();
+        String parserInputElsDirPathValue = (String)parser.getOptionValue(parserInputElsDirPath);
+        Integer parserThreadsValue = (Integer)parser.getOptionValue(parserThreads, Integer.valueOf(Runtime.getRuntime().availableProcessors()));
+        Integer parserMetricsIntervalValue = (Integer)parser.getOptionValue(parserMetricsInterval);
+        
+        // ... the metrics of the hill climber (see OptimiserMetrics) as a line of JSON on stderr every --metrics-interval seconds
+        if (parserMetricsIntervalValue != null){
+        	if (parserMetricsIntervalValue.intValue() < 1){
+        		System.err.println("Error in command-line arguments: incorrect value for option --metrics-interval; a number of seconds >= 1 is expected (e.g., --metrics-interval 10).");
+        		System.exit(2);
+        	}
+        	OptimiserMetrics.getInstance().startReporting(1000L * parserMetricsIntervalValue.intValue());
+        }
+        
+        // batch mode -> all the .els files in a directory are run by BatchDiagramRunner without the eulerAPE window
+        if (parserInputElsDirPathValue != null){
+        	runBatchFromCmd(parserInputElsDirPathValue, parserInputElseFilePathValue, parserOutputEldDirPathValue, parserShowLabelsValue, parserShowInColourValue, parserCurvesValue, parserSilentValue, parserThreadsValue, 
+        			        (String)parser.getOptionValue(parserCacheDirPath), parserOtherArgs);
+        	return;
+        }
         
         // check input 
     	File inputElsFile = null;
@@ -0,0 +1,587 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import jargs.gnu.CmdLineParser;  // this command-line parser by Steve Purcell (2005) is available at http://jargs.sourceforge.net
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * To compute the area specification (the zone areas) of every diagram (.eld) in a directory and save them to an .eldl file, e.g.
+ *
+ * 		java uk.ac.kent.elliptic.areaproptool.AreaspecExtractor {-i,--input} a_dir_path {-o,--output} an_eldl_file_path [{-t,--threads} no_of_threads] ...
+ *
+ * The diagrams go through a pipeline:
+ *  - a parser reads the .eld files one by one (in the order of their names, as in the .eldl file, see EllipseDiagramOps.saveAreaSpecsToFile)
+ *  - a pool of workers checks that the diagrams are valid and computes their zone areas
+ *  - the calling thread writes the area specs in the order of the files (the worker that finishes first does not have to wait for the others)
+ * => at most QUEUED_DIAGS_PER_WORKER diagrams per worker are in the pipeline at any time (parsed, being computed or waiting to be written),
+ *    so the memory used does not grow with the no of files in the directory
+ *
+ * The .eldl file is flushed every FLUSH_INTERVAL_NO_OF_DIAGS diagrams and is only appended to
+ * -> if a run is stopped (or crashes), the next run with the same .eldl file resumes after the last area spec written (see setResume)
+ *    rather than computing the finished files again
+ *
+ */
+
+
+public class AreaspecExtractor {
+
+	// Static class fields
+
+	// ... no of diagrams in the pipeline for every worker -> the parser waits when they are all in the pipeline
+	public static final int QUEUED_DIAGS_PER_WORKER = 16;
+
+	public static final int FLUSH_INTERVAL_NO_OF_DIAGS = 256;
+	public static final long PROGRESS_INTERVAL_MILLISECS = 5000;
+
+	public static final String AREASPECS_FILE_HEADER = "//a | b | c | ab | ac | bc | abc : diagram file name";
+
+	public static final String cmdlineOptions = "{-i,--input} a_dir_path {-o,--output} an_eldl_file_path [{-e,--ellipses} no_of_ellipses] [{-t,--threads} no_of_threads] [{--from} a_diag_no] [{--to} a_diag_no] [{--restart}] [{-s,--silent}]";
+
+
+
+	// Data fields
+
+	// ... settings
+	protected File diagsDir;
+	protected String startFromDiagNo = null; // the first diagram is the first file with this in its name (all the files if null)
+	protected String endWithDiagNo = null; // the last diagram is the first file with this in its name (until the last file if null)
+	protected boolean considerLessPrecisePossibleIntPnts = false;
+	protected boolean computeZoneAreas = true; // if false, the diagrams are only parsed (e.g. to convert them, see BinaryDiagramLib)
+	protected int noOfWorkers = Runtime.getRuntime().availableProcessors();
+	protected boolean resume = true; // if false, an existing .eldl file is overwritten
+	protected boolean silent = false;
+
+	// ... details of the last run
+	protected int noOfDiagFiles = 0; // those from startFromDiagNo to endWithDiagNo
+	protected int noOfResumedDiagFiles = 0; // those that were done by an earlier run
+	protected AtomicLong noOfComputedDiags = new AtomicLong();
+	protected long noOfWrittenDiags = 0;
+	protected ArrayList<String> failures = new ArrayList<String>();
+	protected long wallTimeMillisecs = 0;
+
+
+
+	// Constructor
+
+	public AreaspecExtractor (File diagsDir){
+		this.diagsDir = diagsDir;
+	}
+
+
+
+	// Properties -> getters and setters
+
+	public int getNoOfWorkers() {
+		return noOfWorkers;
+	}
+	public void setNoOfWorkers(int noOfWorkers) {
+		this.noOfWorkers = Math.max(1, noOfWorkers);
+	}
+	public void setStartFromDiagNo(String startFromDiagNo) {
+		this.startFromDiagNo = startFromDiagNo;
+	}
+	public void setEndWithDiagNo(String endWithDiagNo) {
+		this.endWithDiagNo = endWithDiagNo;
+	}
+	public void setConsiderLessPrecisePossibleIntPnts(boolean considerLessPrecisePossibleIntPnts) {
+		this.considerLessPrecisePossibleIntPnts = considerLessPrecisePossibleIntPnts;
+	}
+	public void setComputeZoneAreas(boolean computeZoneAreas) {
+		this.computeZoneAreas = computeZoneAreas;
+	}
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+	public void setSilent(boolean silent) {
+		this.silent = silent;
+	}
+	public int getNoOfDiagFiles() {
+		return noOfDiagFiles;
+	}
+	public int getNoOfResumedDiagFiles() {
+		return noOfResumedDiagFiles;
+	}
+	public long getNoOfWrittenDiags() {
+		return noOfWrittenDiags;
+	}
+	public long getWallTimeMillisecs() {
+		return wallTimeMillisecs;
+	}
+	public double getDiagsPerSec() {
+		return ((wallTimeMillisecs > 0) ? (noOfComputedDiags.get() * 1000.0 / wallTimeMillisecs) : 0);
+	}
+	public ArrayList<String> getFailures() {
+		synchronized (failures){
+			return new ArrayList<String>(failures);
+		}
+	}
+
+
+
+	// Methods
+
+	// ... a diagram in the pipeline
+	protected static class DiagInPipeline {
+		protected int index;
+		protected String name; // the file name without .eld
+		protected EllipseDiagram diagram = null; // null once its area spec is computed (or if the file is not a proper diagram)
+		protected ArrayList<Ellipse> ellipses = null; // those of the diagram (null if the file is not a proper diagram)
+		protected HashMap<String, Double> areaspec = null; // null if the diagram is not valid
+		protected String failure = null;
+
+		protected DiagInPipeline (int index, String name){
+			this.index = index;
+			this.name = name;
+		}
+	}
+
+	// ... what is done with the area specs, in the order of the files
+	protected static abstract class AreaspecWriter {
+		protected abstract void write (DiagInPipeline diag) throws IOException;
+		protected void flush () throws IOException {}
+	}
+
+
+	/* Save the area specs of the diagrams to eldlFile, as lines of zone areas (in the order of the zones of noOfEllsPerDiag ellipses) followed by the diagram's name
+	 *    if eldlFile exists and resume is true, the diagrams up to the last one in eldlFile are skipped and the others are appended to it
+	 *    the diagrams that are not valid are not saved -> false is returned if there are any such diagrams or if the file cannot be written (see getFailures)
+	 */
+	public boolean saveAreaspecs (File eldlFile, int noOfEllsPerDiag){
+		resetRun();
+		long startTime = System.currentTimeMillis();
+
+		String[] diagNames = getDiagNames();
+		if (diagNames == null){return false;}
+
+		// resume after the last area spec in the file
+		String lastWrittenDiagName = null;
+		boolean writeHeader = true;
+		try {
+			if (resume && eldlFile.exists()){
+				lastWrittenDiagName = truncateToLastCompleteLine(eldlFile);
+				writeHeader = (eldlFile.length() == 0);
+			} else if (eldlFile.exists() && !eldlFile.delete()){
+				System.out.println("AreaspecExtractor.saveAreaspecs: could not overwrite " + eldlFile.getAbsolutePath());
+				return false;
+			}
+		} catch (IOException e) {
+			System.out.println("AreaspecExtractor.saveAreaspecs: could not resume from " + eldlFile.getAbsolutePath() + " -> " + e);
+			return false;
+		}
+		if (lastWrittenDiagName != null){
+			int insertionInd = Arrays.binarySearch(diagNames, lastWrittenDiagName);
+			noOfResumedDiagFiles = (insertionInd >= 0) ? (insertionInd + 1) : (-insertionInd - 1);
+			diagNames = Arrays.copyOfRange(diagNames, noOfResumedDiagFiles, diagNames.length);
+		}
+
+		final String[] zoneNames = EllipseDiagramOps.getZoneLabels(noOfEllsPerDiag, false);
+		final BufferedWriter b;
+		try {
+			b = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(eldlFile, true)));
+		} catch (IOException e) {
+			System.out.println("AreaspecExtractor.saveAreaspecs: could not open " + eldlFile.getAbsolutePath() + " -> " + e);
+			return false;
+		}
+
+		boolean completed;
+		try {
+			if (writeHeader){
+				b.append(AREASPECS_FILE_HEADER); b.newLine();
+			}
+			if (!silent){
+				System.out.println("eulerAPE is computing the area specs of " + diagNames.length + " diagrams in " + diagsDir.getAbsolutePath() + " with " + noOfWorkers + " workers" +
+						           ((noOfResumedDiagFiles > 0) ? " (resuming after " + lastWrittenDiagName + ", " + noOfResumedDiagFiles + " diagrams done)" : "") + " ...");
+			}
+			completed = run(diagNames, new AreaspecWriter() {
+				protected void write (DiagInPipeline diag) throws IOException {
+					if (diag.areaspec == null){return;}
+					b.append(EllipseDiagramOps.areaSpecToString(diag.areaspec, zoneNames, diag.name)); b.newLine();
+				}
+				protected void flush () throws IOException {
+					b.flush();
+				}
+			});
+			b.close();
+		} catch (IOException e) {
+			addFailure("could not write to " + eldlFile.getAbsolutePath() + " -> " + e);
+			try { b.close(); } catch (IOException e1) {}
+			completed = false;
+		}
+
+		wallTimeMillisecs = System.currentTimeMillis() - startTime;
+		if (!silent){
+			printSummary(eldlFile.getAbsolutePath());
+		}
+		synchronized (failures){
+			return (completed && failures.isEmpty());
+		}
+	}
+
+	/* Compute the area specs of the diagrams (diagram name -> zone areas, or null if the diagram is not valid), as EllipseDiagramOps.computeAreaspecOfDiagsInDir
+	 *    null is returned if the directory cannot be read
+	 */
+	public HashMap<String, HashMap<String, Double>> computeAreaspecs (){
+		resetRun();
+		long startTime = System.currentTimeMillis();
+
+		String[] diagNames = getDiagNames();
+		if (diagNames == null){return null;}
+
+		final HashMap<String, HashMap<String, Double>> areaspecs = new HashMap<String, HashMap<String,Double>>();
+		try {
+			run(diagNames, new AreaspecWriter() {
+				protected void write (DiagInPipeline diag){
+					areaspecs.put(diag.name, diag.areaspec);
+				}
+			});
+		} catch (IOException e) {
+			// nothing is written to a file
+		}
+
+		wallTimeMillisecs = System.currentTimeMillis() - startTime;
+		return areaspecs;
+	}
+
+
+	protected void resetRun (){
+		noOfDiagFiles = 0;
+		noOfResumedDiagFiles = 0;
+		noOfComputedDiags.set(0);
+		noOfWrittenDiags = 0;
+		synchronized (failures){
+			failures.clear();
+		}
+	}
+
+	// ... the names of the .eld files (without .eld) from startFromDiagNo to endWithDiagNo, in the order of the names (that of the TreeSet in EllipseDiagramOps.saveAreaSpecsToFile)
+	protected String[] getDiagNames (){
+		if (!diagsDir.isDirectory()){
+			System.out.println("AreaspecExtractor.getDiagNames: Directory with diagram files, " + diagsDir.getAbsolutePath() + ", does not exist.");
+			return null;
+		}
+		String[] diagFileNames = diagsDir.list(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".eld");
+			}
+		});
+		if (diagFileNames == null){
+			System.out.println("AreaspecExtractor.getDiagNames: could not list the files in " + diagsDir.getAbsolutePath());
+			return null;
+		}
+		for (int i = 0; i < diagFileNames.length; i++){
+			diagFileNames[i] = diagFileNames[i].substring(0, diagFileNames[i].lastIndexOf(".eld"));
+		}
+		Arrays.sort(diagFileNames);
+
+		// filter to start from a specific diag
+		boolean filterStart = (startFromDiagNo != null) && !startFromDiagNo.trim().equals("");
+		boolean filterEnd = (endWithDiagNo != null) && !endWithDiagNo.trim().equals("");
+		int startInd = filterStart ? diagFileNames.length : 0;
+		int endInd = diagFileNames.length;
+		for (int i = 0; i < diagFileNames.length; i++){
+			if (filterStart && (startInd == diagFileNames.length) && (diagFileNames[i] + ".eld").contains(startFromDiagNo)){
+				startInd = i;
+			}
+			if (filterEnd && (diagFileNames[i] + ".eld").contains(endWithDiagNo)){
+				endInd = i+1;
+				break;
+			}
+		}
+		String[] diagNames = Arrays.copyOfRange(diagFileNames, Math.min(startInd, endInd), endInd);
+		noOfDiagFiles = diagNames.length;
+		return diagNames;
+	}
+
+	// ... the name of the diagram in the last complete line of the file (null if there is none) -> a line that was being written when the earlier run stopped is removed
+	protected static String truncateToLastCompleteLine (File eldlFile) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(eldlFile, "rw");
+		try {
+			long endOfLastLine = raf.length();
+			while ((endOfLastLine > 0) && (readByte(raf, endOfLastLine-1) != '\n')){
+				endOfLastLine--;
+			}
+			if (endOfLastLine < raf.length()){
+				raf.setLength(endOfLastLine);
+			}
+
+			long startOfLastLine = endOfLastLine - 1;
+			while ((startOfLastLine > 0) && (readByte(raf, startOfLastLine-1) != '\n')){
+				startOfLastLine--;
+			}
+			if (startOfLastLine < 0){return null;}
+
+			byte[] lastLine = new byte[(int)(endOfLastLine - startOfLastLine)];
+			raf.seek(startOfLastLine);
+			raf.readFully(lastLine);
+			String line = new String(lastLine).trim();
+			int nameInd = line.lastIndexOf(" : ");
+			if (line.startsWith("//") || (nameInd < 0)){return null;}
+			return line.substring(nameInd + 3).trim();
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static int readByte (RandomAccessFile raf, long pos) throws IOException {
+		raf.seek(pos);
+		return raf.read();
+	}
+
+
+	// ... the pipeline -> returns when all the diagrams are written (true) or if this thread is interrupted (false)
+	protected boolean run (final String[] diagNames, AreaspecWriter writer) throws IOException {
+		final int noOfWorkersForRun = Math.max(1, Math.min(noOfWorkers, diagNames.length));
+		final Semaphore diagsInPipeline = new Semaphore(QUEUED_DIAGS_PER_WORKER * noOfWorkersForRun);
+		final ArrayBlockingQueue<DiagInPipeline> parsedDiags = new ArrayBlockingQueue<DiagInPipeline>(QUEUED_DIAGS_PER_WORKER * noOfWorkersForRun + noOfWorkersForRun);
+		final HashMap<Integer, DiagInPipeline> computedDiags = new HashMap<Integer, DiagInPipeline>();
+
+		// parse the files in order -> a permit is taken for every diagram and given back once it is written
+		ExecutorService parserPool = Executors.newSingleThreadExecutor();
+		parserPool.execute(new Runnable() {
+			public void run() {
+				try {
+					parseDiags(diagNames, diagsInPipeline, parsedDiags);
+					for (int w = 0; w < noOfWorkersForRun; w++){
+						parsedDiags.put(new DiagInPipeline(-1, null)); // no more diagrams for this worker
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		parserPool.shutdown();
+
+		// compute the zone areas
+		ExecutorService pool = Executors.newFixedThreadPool(noOfWorkersForRun);
+		for (int w = 0; w < noOfWorkersForRun; w++){
+			pool.execute(new Runnable() {
+				public void run() {
+					try {
+						computeDiags(parsedDiags, computedDiags);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+		pool.shutdown();
+
+		// ... this thread writes the area specs in order and reports the progress
+		long startTime = System.currentTimeMillis();
+		long lastProgressTime = startTime;
+		DiagInPipeline diag;
+		try {
+			for (int index = 0; index < diagNames.length; index++){
+				synchronized (computedDiags){
+					while ((diag = computedDiags.remove(index)) == null){
+						computedDiags.wait(PROGRESS_INTERVAL_MILLISECS);
+						if (!silent && (System.currentTimeMillis() - lastProgressTime >= PROGRESS_INTERVAL_MILLISECS)){
+							lastProgressTime = System.currentTimeMillis();
+							printProgress(diagNames.length, lastProgressTime - startTime);
+						}
+					}
+				}
+				if (diag.failure != null){
+					addFailure(diag.name + " -> " + diag.failure);
+				}
+				writer.write(diag);
+				noOfWrittenDiags++;
+				diagsInPipeline.release();
+
+				if ((noOfWrittenDiags % FLUSH_INTERVAL_NO_OF_DIAGS) == 0){
+					writer.flush();
+				}
+			}
+			writer.flush();
+		} catch (InterruptedException e) {
+			System.out.println("AreaspecExtractor.run: interrupted while computing the area specs -> " + e);
+			Thread.currentThread().interrupt();
+			writer.flush();
+			return false;
+		} finally {
+			parserPool.shutdownNow();
+			pool.shutdownNow();
+		}
+		return true;
+	}
+
+	// ... the parser
+	protected void parseDiags (String[] diagNames, Semaphore diagsInPipeline, ArrayBlockingQueue<DiagInPipeline> parsedDiags) throws InterruptedException {
+		DiagInPipeline diag;
+		for (int index = 0; index < diagNames.length; index++){
+			diagsInPipeline.acquire();
+			diag = new DiagInPipeline(index, diagNames[index]);
+			try {
+				diag.diagram = EllipseDiagramOps.loadDiagFromFile(new File(diagsDir, diagNames[index] + ".eld"), considerLessPrecisePossibleIntPnts);
+				if (diag.diagram == null){
+					diag.failure = "not a proper diagram file";
+				} else {
+					diag.ellipses = diag.diagram.getEllipses();
+				}
+			} catch (RuntimeException e) {
+				diag.failure = "could not be read -> " + e;
+			}
+			parsedDiags.put(diag);
+		}
+	}
+
+	// ... one worker -> until it gets the end of the diagrams
+	protected void computeDiags (ArrayBlockingQueue<DiagInPipeline> parsedDiags, HashMap<Integer, DiagInPipeline> computedDiags) throws InterruptedException {
+		DiagInPipeline diag;
+		while (true){
+			diag = parsedDiags.take();
+			if (diag.index < 0){return;}
+
+			if ((diag.diagram != null) && computeZoneAreas){
+				try {
+					if (Boolean.TRUE.equals(diag.diagram.isValid())){
+						diag.areaspec = diag.diagram.getZoneAreas();
+					} else {
+						diag.failure = "not a valid diagram";
+					}
+				} catch (RuntimeException e) {
+					diag.failure = "its zone areas could not be computed -> " + e;
+				}
+				noOfComputedDiags.incrementAndGet();
+			}
+			diag.diagram = null;
+
+			synchronized (computedDiags){
+				computedDiags.put(diag.index, diag);
+				computedDiags.notifyAll();
+			}
+		}
+	}
+
+	protected void addFailure (String reason){
+		synchronized (failures){
+			failures.add(reason);
+		}
+		if (!silent){
+			System.out.println("Failed: " + reason);
+		}
+	}
+
+	protected void printProgress (int noOfDiags, long elapsedMillisecs){
+		System.out.println(noOfWrittenDiags + " of " + noOfDiags + " area specs written" +
+				           ((elapsedMillisecs > 0) ? ", " + String.format("%.1f", noOfComputedDiags.get() * 1000.0 / elapsedMillisecs) + " diagrams/s" : ""));
+	}
+
+	protected void printSummary (String eldlFilePath){
+		ArrayList<String> failuresOfRun = getFailures();
+
+		System.out.println();
+		System.out.println("eulerAPE computed the area specs of " + noOfComputedDiags.get() + " of " + (noOfDiagFiles - noOfResumedDiagFiles) + " diagrams" +
+				           ((noOfResumedDiagFiles > 0) ? " (" + noOfResumedDiagFiles + " were done by an earlier run)" : "") + ": area specs are in " + eldlFilePath);
+		System.out.println("Wall time: " + wallTimeMillisecs + "ms" +
+				           ((wallTimeMillisecs > 0) ? ", throughput: " + String.format("%.1f", getDiagsPerSec()) + " diagrams/s" : ""));
+		if (!failuresOfRun.isEmpty()){
+			System.out.println("Failed (" + failuresOfRun.size() + " diagrams, not saved):");
+			for (String failure : failuresOfRun){
+				System.out.println("  " + failure);
+			}
+		}
+	}
+
+
+
+	// Main
+
+	public static void main (String[] args){
+
+		CmdLineParser parser = new CmdLineParser();
+		CmdLineParser.Option parserInput = parser.addStringOption('i', "input");
+		CmdLineParser.Option parserOutput = parser.addStringOption('o', "output");
+		CmdLineParser.Option parserEllipses = parser.addIntegerOption('e', "ellipses");
+		CmdLineParser.Option parserThreads = parser.addIntegerOption('t', "threads");
+		CmdLineParser.Option parserFrom = parser.addStringOption("from");
+		CmdLineParser.Option parserTo = parser.addStringOption("to");
+		CmdLineParser.Option parserRestart = parser.addBooleanOption("restart");
+		CmdLineParser.Option parserSilent = parser.addBooleanOption('s', "silent");
+		try {
+			parser.parse(args);
+		} catch (CmdLineParser.OptionException e) {
+			System.err.println("Error in command-line arguments: " + e.getMessage());
+			System.err.println("Usage: Options " + cmdlineOptions);
+			System.exit(2);
+		}
+
+		String inputDirPath = (String)parser.getOptionValue(parserInput);
+		String outputFilePath = (String)parser.getOptionValue(parserOutput);
+		int noOfElls = (Integer)parser.getOptionValue(parserEllipses, Integer.valueOf(3));
+		int noOfThreads = (Integer)parser.getOptionValue(parserThreads, Integer.valueOf(Runtime.getRuntime().availableProcessors()));
+		if ((inputDirPath == null) || (outputFilePath == null) || (noOfElls < 2) || (noOfElls > EllipseDiagramOps.MAX_NO_OF_ELLIPSES) || (noOfThreads < 1)){
+			System.err.println("Error in command-line arguments: -i (or --input) and -o (or --output) are required, -e (or --ellipses) must be between 2 and " + EllipseDiagramOps.MAX_NO_OF_ELLIPSES +
+					           " and -t (or --threads) >= 1");
+			System.err.println("Usage: Options " + cmdlineOptions);
+			System.exit(2);
+		}
+
+		File outputFile = new File(outputFilePath);
+		if ((outputFile.getAbsoluteFile().getParentFile() != null) && !outputFile.getAbsoluteFile().getParentFile().exists()){
+			Utilities.createDir(outputFile.getAbsoluteFile().getParent());
+		}
+
+		AreaspecExtractor extractor = new AreaspecExtractor(new File(inputDirPath));
+		extractor.setNoOfWorkers(noOfThreads);
+		extractor.setStartFromDiagNo((String)parser.getOptionValue(parserFrom));
+		extractor.setEndWithDiagNo((String)parser.getOptionValue(parserTo));
+		extractor.setResume(!(Boolean)parser.getOptionValue(parserRestart, Boolean.FALSE));
+		extractor.setSilent((Boolean)parser.getOptionValue(parserSilent, Boolean.FALSE));
+
+		if (!extractor.saveAreaspecs(outputFile, noOfElls)){
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,307 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * To generate the diagrams for all the .els files in a directory in one JVM and without the eulerAPE window, e.g.
+ *
+ * 		java -jar eulerAPE.jar --input-dir an_els_dir_path [{-o,--output} a_dir_path] [{-t,--threads} no_of_threads] [{--cache-dir} a_dir_path]
+ *
+ * The .els files are streamed through a bounded pool of workers (one HeadlessDiagramEngine per file, by default one worker per core),
+ * the .eld and .png files of every diagram are saved as soon as its file is done, and the throughput and the failures are printed at the end
+ * -> the files with the same (or scaled) areas are solved once, as the engines share a DiagramCache
+ *
+ */
+
+
+public class BatchDiagramRunner {
+
+	// Static class fields
+
+	public static final String ELS_FILE_EXT = ".els";
+	public static final String ELD_FILE_EXT = ".eld";
+	public static final String PNG_FILE_EXT = ".png";
+
+	// ... no of files waiting for a worker for every worker -> the rest of the files are only listed (the submitting thread runs a file itself when the queue is full)
+	public static final int QUEUED_FILES_PER_WORKER = 2;
+
+
+
+	// Data fields
+
+	// ... settings
+	protected File inputDir;
+	protected File outputDir;
+	protected int noOfWorkers = Runtime.getRuntime().availableProcessors();
+	protected boolean restrictToCircles = false;
+	protected boolean showLabels = true;
+	protected boolean showInColour = true;
+	protected boolean silent = false;
+	protected DiagramCache diagramCache = new DiagramCache(DiagramCache.DEFAULT_CAPACITY);
+
+	// ... details of the last run
+	protected AtomicInteger noOfExactDiags = new AtomicInteger();
+	protected AtomicInteger noOfInexactDiags = new AtomicInteger();
+	protected AtomicLong totRunTimeMillisecs = new AtomicLong();
+	protected ArrayList<String> failures = new ArrayList<String>();
+	protected long wallTimeMillisecs = 0;
+
+
+
+	// Constructor
+
+	public BatchDiagramRunner (File inputDir, File outputDir){
+		this.inputDir = inputDir;
+		this.outputDir = outputDir;
+	}
+
+
+
+	// Properties -> getters and setters
+
+	public int getNoOfWorkers() {
+		return noOfWorkers;
+	}
+	public void setNoOfWorkers(int noOfWorkers) {
+		this.noOfWorkers = Math.max(1, noOfWorkers);
+	}
+	public void setRestrictToCircles(boolean restrictToCircles) {
+		this.restrictToCircles = restrictToCircles;
+	}
+	public void setShowLabels(boolean showLabels) {
+		this.showLabels = showLabels;
+	}
+	public void setShowInColour(boolean showInColour) {
+		this.showInColour = showInColour;
+	}
+	public void setSilent(boolean silent) {
+		this.silent = silent;
+	}
+	public DiagramCache getDiagramCache() {
+		return diagramCache;
+	}
+	public void setDiagramCache(DiagramCache diagramCache) {
+		this.diagramCache = diagramCache;
+	}
+	public int getNoOfExactDiags() {
+		return noOfExactDiags.get();
+	}
+	public int getNoOfInexactDiags() {
+		return noOfInexactDiags.get();
+	}
+	public ArrayList<String> getFailures() {
+		synchronized (failures){
+			return new ArrayList<String>(failures);
+		}
+	}
+
+
+
+	// Methods
+
+	public static File[] getElsFiles (File dir){
+		File[] elsFiles = dir.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.endsWith(ELS_FILE_EXT);
+			}
+		});
+		if (elsFiles == null){return null;}
+		Arrays.sort(elsFiles);
+		return elsFiles;
+	}
+
+
+	/* Generate the diagrams of all the .els files in inputDir
+	 *    false is returned if inputDir cannot be read, otherwise true (even if some of the diagrams could not be generated -> see getFailures)
+	 */
+	public boolean run (){
+
+		noOfExactDiags.set(0);
+		noOfInexactDiags.set(0);
+		totRunTimeMillisecs.set(0);
+		synchronized (failures){
+			failures.clear();
+		}
+
+		File[] elsFiles = getElsFiles(inputDir);
+		if (elsFiles == null){
+			System.out.println("BatchDiagramRunner.run: could not list the files in " + inputDir.getAbsolutePath());
+			return false;
+		}
+		if (!silent){
+			System.out.println("eulerAPE is generating the diagrams for the " + elsFiles.length + " .els files in " + inputDir.getAbsolutePath() + " with " + noOfWorkers + " workers ...");
+		}
+
+		long startTime = System.currentTimeMillis();
+
+		// the queue is bounded -> when it is full, the file is run by this thread, so that the files are streamed to the workers rather than all queued at once
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(noOfWorkers, noOfWorkers, 0L, TimeUnit.MILLISECONDS,
+				                                         new ArrayBlockingQueue<Runnable>(QUEUED_FILES_PER_WORKER * noOfWorkers),
+				                                         new ThreadPoolExecutor.CallerRunsPolicy());
+		for (final File elsFile : elsFiles){
+			pool.execute(new Runnable() {
+				public void run() {
+					runFile(elsFile);
+				}
+			});
+		}
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.SECONDS)){}
+		} catch (InterruptedException e) {
+			System.out.println("BatchDiagramRunner.run: interrupted while waiting for the workers -> " + e);
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		wallTimeMillisecs = System.currentTimeMillis() - startTime;
+
+		if (!silent){
+			printSummary(elsFiles.length);
+		}
+		return true;
+	}
+
+
+	// ... one .els file -> its own engine, so that the workers share no state
+	protected void runFile (File elsFile){
+
+		long startTime = System.currentTimeMillis();
+		String diagName = elsFile.getName().substring(0, elsFile.getName().length() - ELS_FILE_EXT.length());
+
+		try {
+			HashMap<String, Double> requiredAreaSpecs = EllipseDiagramOps.loadAreaSpecsFromFile(elsFile);
+			if (requiredAreaSpecs == null){
+				addFailure(elsFile, "could not load the region areas", startTime);
+				return;
+			}
+
+			// every worker is a core already -> the moves of a hill climber are evaluated sequentially
+			HeadlessDiagramEngine engine = new HeadlessDiagramEngine(restrictToCircles, EllipseDiagram.DEFAULT_FITNESS_MEASURE);
+			engine.setEvaluateMovesInParallel(false);
+			engine.setDiagramCache(diagramCache);
+			EllipseDiagram diag = engine.generateDiagram(requiredAreaSpecs);
+			if (diag == null){
+				addFailure(elsFile, engine.getReasonForTermination(), startTime);
+				return;
+			}
+
+			if (!EllipseDiagramOps.saveDiagToFile(diag, new File(outputDir, diagName + ELD_FILE_EXT))){
+				addFailure(elsFile, "could not save " + diagName + ELD_FILE_EXT, startTime);
+				return;
+			}
+
+			// EllipseDiagramPanel draws diagrams with 3 ellipses only -> no .png for other diagrams
+			if (diag.getEllipses().size() == 3){
+				EllipseDiagramPanel diagPanel = new EllipseDiagramPanel(diag, engine.getScaledRequiredAreaSpecs());
+				diagPanel.setSize(EllipseDiagramPanel.ellipsePanelSize);
+				diagPanel.useColor = showInColour;
+				diagPanel.labelsDisplayMode = showLabels ? EllipseDiagramPanel.LABELS_SIMPLE : EllipseDiagramPanel.LABELS_HIDE;
+				if (!EllipseDiagramOps.saveDiagImgToFile(diagPanel, new File(outputDir, diagName + PNG_FILE_EXT))){
+					addFailure(elsFile, "could not save " + diagName + PNG_FILE_EXT, startTime);
+					return;
+				}
+			}
+
+			// EllipseDiagram.diagError is computed for the 7 zones of 3 ellipses only
+			String diagErrorStr = ((diag.getEllipses().size() == 3) && diag.hasAllZones()) ? " (diagError=" + diag.diagError(engine.getScaledRequiredAreaSpecs()) + ")" : "";
+
+			long runTime = System.currentTimeMillis() - startTime;
+			totRunTimeMillisecs.addAndGet(runTime);
+			if (engine.isExact()){
+				noOfExactDiags.incrementAndGet();
+			} else {
+				noOfInexactDiags.incrementAndGet();
+			}
+			if (!silent){
+				printLine(elsFile.getName() + ": " + (engine.isExact() ? "exact" : "inexact") + " diagram" + diagErrorStr + (engine.isInitDiagWarmStart() ? " warm-started" : "") + " in " + runTime + "ms");
+			}
+
+		} catch (RuntimeException e) {
+			addFailure(elsFile, e.toString(), startTime);
+		}
+	}
+
+	protected void addFailure (File elsFile, String reason, long startTime){
+		long runTime = System.currentTimeMillis() - startTime;
+		totRunTimeMillisecs.addAndGet(runTime);
+		synchronized (failures){
+			failures.add(elsFile.getName() + ": " + reason);
+		}
+		if (!silent){
+			printLine(elsFile.getName() + ": failed (" + reason + ") in " + runTime + "ms");
+		}
+	}
+
+	protected static synchronized void printLine (String line){
+		System.out.println(line);
+	}
+
+	protected void printSummary (int noOfFiles){
+		ArrayList<String> failuresOfRun = getFailures();
+		int noOfDiags = noOfExactDiags.get() + noOfInexactDiags.get();
+
+		System.out.println();
+		System.out.println("eulerAPE generated " + noOfDiags + " of " + noOfFiles + " diagrams (" + noOfExactDiags.get() + " exact, " + noOfInexactDiags.get() + " inexact, " + failuresOfRun.size() + " failed)" +
+				           ": files are in " + outputDir.getAbsolutePath());
+		System.out.println("Wall time: " + wallTimeMillisecs + "ms" +
+				           ((wallTimeMillisecs > 0) ? ", throughput: " + String.format("%.3f", noOfFiles * 1000.0 / wallTimeMillisecs) + " diagrams/s" : "") +
+				           ((noOfFiles > 0) ? ", mean time per file: " + (totRunTimeMillisecs.get() / noOfFiles) + "ms" : ""));
+		if (diagramCache != null){
+			System.out.println(diagramCache);
+		}
+		System.out.println(EllipseDiagram.getValidityStats());
+		if (!failuresOfRun.isEmpty()){
+			System.out.println("Failed:");
+			for (String failure : failuresOfRun){
+				System.out.println("  " + failure);
+			}
+		}
+	}
+
+}
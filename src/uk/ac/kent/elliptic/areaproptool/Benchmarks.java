@@ -0,0 +1,515 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Random;
+
+import uk.ac.kent.elliptic.areaproptool.EllipseDiagram.FitnessMeasure;
+
+import jargs.gnu.CmdLineParser;  // this command-line parser by Steve Purcell (2005) is available at http://jargs.sourceforge.net
+
+
+/**
+ * To time the hot paths of eulerAPE (intersection points, roots, zone areas, fitness and a full run of the hill climber)
+ * so that any change to these can be checked for regressions, e.g.
+ *
+ * 		java -cp eulerAPE.jar:lib/* uk.ac.kent.elliptic.areaproptool.Benchmarks [{-i,--input} an_els_file_path]* [{-f,--filter} text] [{-w,--warmup} millisecs] [{-m,--measure} millisecs]
+ *
+ * Every benchmark is run for the warm-up time (so that the code is compiled by the JIT) and then for the measurement time in batches,
+ * and the mean time per operation (with the standard deviation of the batches) is printed as a line per benchmark
+ *
+ * With {-v,--verify} no_of_pairs, nothing is timed: the intersection points found by EllipseIntersectionKernel are compared (bit-for-bit)
+ * with those of Ellipse.getIntPnts_WithEllipse_AsConics for that many random pairs of ellipses (and circles) in both precision modes,
+ * and the exit status is 1 if any pair differs
+ *
+ */
+
+
+public class Benchmarks {
+
+	// Static class fields
+
+	public static final long DEFAULT_WARMUP_MILLISECS = 2000;
+	public static final long DEFAULT_MEASURE_MILLISECS = 5000;
+	public static final int NO_OF_BATCHES = 10;
+	public static final int NO_OF_SAMPLE_DIAGS = 64;
+	public static final long SAMPLE_DIAGS_SEED = 1;
+	public static final long VERIFY_PAIRS_SEED = 1;
+	public static final int MAX_NO_OF_MISMATCHES_PRINTED = 10;
+
+	// ... the area specification used for a full run of the hill climber when no .els file is given (the example in the usage of eulerAPE)
+	public static final double[] DEFAULT_AREA_SPECS = {35754.05, 19659.1, 25875.2, 31804.0, 12767.7, 6146.55, 10660.6};
+
+	public static final FitnessMeasure[] FITNESS_MEASURES = {FitnessMeasure.BIASED_FOR_SMALL_AREA_NOTDIMENSIONLESS, FitnessMeasure.CHOWRODGERS_IDEAL_SUMREGFIT,
+		                                                     FitnessMeasure.RELATIVE_ERROR_MAXREGFIT, FitnessMeasure.LOG_NORMALIZED_MEANREGFIT, FitnessMeasure.STRESS};
+
+
+
+	// Benchmark
+	// ... an operation which is timed -> the result is accumulated so that the JIT cannot remove the operation
+
+	public static abstract class Benchmark {
+		protected String name;
+
+		public Benchmark (String name){
+			this.name = name;
+		}
+		public String getName() {
+			return name;
+		}
+
+		// one operation -> any value computed by the operation
+		public abstract double run (int opIndex);
+
+		// invoked once before the benchmark is warmed up
+		public void setUp (){
+		}
+	}
+
+
+
+	// Data fields
+
+	protected long warmupMilliSecs = DEFAULT_WARMUP_MILLISECS;
+	protected long measureMilliSecs = DEFAULT_MEASURE_MILLISECS;
+	protected String filter = null;
+	protected double sink = 0;
+
+	protected ArrayList<ArrayList<Ellipse>> sampleDiags;
+	protected ArrayList<File> elsFiles = new ArrayList<File>();
+
+
+
+	// Constructor
+
+	public Benchmarks (long warmupMilliSecs, long measureMilliSecs, String filter){
+		this.warmupMilliSecs = warmupMilliSecs;
+		this.measureMilliSecs = measureMilliSecs;
+		this.filter = filter;
+		this.sampleDiags = generateSampleDiags(NO_OF_SAMPLE_DIAGS, SAMPLE_DIAGS_SEED);
+	}
+
+
+
+	// Methods
+
+	public void addElsFile (File elsFile){
+		elsFiles.add(elsFile);
+	}
+
+
+	public ArrayList<Benchmark> getBenchmarks (){
+		ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		// ... intersection points of two ellipses
+		for (final int precision : new int[]{0, 1}){
+			benchmarks.add(new Benchmark("Ellipse.getIntPnts_WithEllipse [" + ((precision == 0) ? "precise" : "less precise") + "]"){
+				public double run (int opIndex){
+					ArrayList<Ellipse> es = sampleDiags.get(opIndex % sampleDiags.size());
+					ArrayList<Point2D.Double> ips = es.get(0).getIntPnts_WithEllipse(es.get(1), precision);
+					return (ips == null) ? 0 : ips.size();
+				}
+			});
+			benchmarks.add(new Benchmark("EllipseIntersectionKernel.getIntPnts_WithEllipse [" + ((precision == 0) ? "precise" : "less precise") + "]"){
+				double[] work = EllipseIntersectionKernel.newWorkBuffer();
+				double[] intPnts = EllipseIntersectionKernel.newIntPntsBuffer();
+				public double run (int opIndex){
+					ArrayList<Ellipse> es = sampleDiags.get(opIndex % sampleDiags.size());
+					return EllipseIntersectionKernel.getIntPnts_WithEllipse(es.get(0), es.get(1), precision, work, intPnts);
+				}
+			});
+		}
+		benchmarks.add(new Benchmark("Ellipse.getIntPnts_WithEllipse [precise and less precise passes]"){
+			public double run (int opIndex){
+				ArrayList<Ellipse> es = sampleDiags.get(opIndex % sampleDiags.size());
+				return es.get(0).getIntPnts_WithEllipse(es.get(1), true).size();
+			}
+		});
+		benchmarks.add(new Benchmark("EllipseIntersectionKernel.getIntPnts_WithEllipse_Quartic"){
+			double[] work = EllipseIntersectionKernel.newWorkBuffer();
+			double[] intPnts = EllipseIntersectionKernel.newIntPntsBuffer();
+			public double run (int opIndex){
+				ArrayList<Ellipse> es = sampleDiags.get(opIndex % sampleDiags.size());
+				return EllipseIntersectionKernel.getIntPnts_WithEllipse_Quartic(es.get(0), es.get(1), work, intPnts);
+			}
+		});
+
+		// ... roots
+		benchmarks.add(new Benchmark("RootFinder.solveCubic"){
+			double[][] cs = {{-6, 11, -6, 1}, {2, -3, 0, 1}, {-1, 0, 0, 1}, {0.5, 1.25, -2.5, 1}};
+			public double run (int opIndex){
+				ArrayList<ArrayList<Double>> roots = RootFinder.solveCubic(cs[opIndex % cs.length]);
+				return (roots == null) ? 0 : roots.size();
+			}
+		});
+		benchmarks.add(new Benchmark("RootFinder.solveCubic [double[]]"){
+			double[][] cs = {{-6, 11, -6, 1}, {2, -3, 0, 1}, {-1, 0, 0, 1}, {0.5, 1.25, -2.5, 1}};
+			double[] s = new double[3];
+			public double run (int opIndex){
+				return RootFinder.solveCubic(cs[opIndex % cs.length], s);
+			}
+		});
+		benchmarks.add(new Benchmark("RootFinder.solveQuartic [double[]]"){
+			double[][] cs = {{24, -50, 35, -10, 1}, {4, -12, 13, -6, 1}, {1, 0, 0, 0, 1}, {-1, 0.5, 2, -0.25, 1}};
+			double[] s = new double[4];
+			public double run (int opIndex){
+				return RootFinder.solveQuartic(cs[opIndex % cs.length], s);
+			}
+		});
+		benchmarks.add(new Benchmark("RootFinder.solveQuadric"){
+			double[][] cs = {{6, -5, 1}, {1, 2, 1}, {1, 0, 1}, {-2.5, 0.5, 3}};
+			public double run (int opIndex){
+				ArrayList<Double> roots = RootFinder.solveQuadric(cs[opIndex % cs.length]);
+				return (roots == null) ? 0 : roots.size();
+			}
+		});
+
+		// ... zone areas -> the centres are moved by a tiny distance in every operation so that all the intersection points and areas are recomputed
+		String[] methodNames = {"POLYGONS", "INTEGRATION", "SEGMENTS", "ARCS"};
+		int[] methods = {EllipseDiagram.POLYGONS, EllipseDiagram.INTEGRATION, EllipseDiagram.SEGMENTS, EllipseDiagram.ARCS};
+		for (int m=0; m<methods.length; m++){
+			final int method = methods[m];
+			benchmarks.add(new Benchmark("EllipseDiagram.computeZoneAreas [" + methodNames[m] + "]"){
+				ArrayList<EllipseDiagram> diags;
+				public void setUp (){
+					diags = getSampleDiags(method);
+				}
+				public double run (int opIndex){
+					EllipseDiagram diag = diags.get(opIndex % diags.size());
+					nudgeEllipses(diag, opIndex);
+					if (method == EllipseDiagram.SEGMENTS){
+						diag.computeIntPntsOfEllipses(); // computeZoneAreas_BySeg does not recompute the intersection points which it uses
+					}
+					diag.computeZoneAreas(true);
+					return Boolean.TRUE.equals(diag.zoneAreasComputedSuccessfully) ? 1 : 0; // not set when computing the areas in terms of polygons
+				}
+			});
+		}
+
+		// ... empty-like or disconnected-like zones -> the faces of the arrangement and the polygons of the zones
+		benchmarks.add(new Benchmark("EllipseDiagram.getZoneCondition [arrangement]"){
+			ArrayList<EllipseDiagram> diags;
+			public void setUp (){
+				diags = getSampleDiags(EllipseDiagram.ARCS);
+			}
+			public double run (int opIndex){
+				EllipseDiagram diag = diags.get(opIndex % diags.size());
+				nudgeEllipses(diag, opIndex);
+				diag.computeIntPntsOfEllipses();
+				return diag.getArrangement().getZoneCondition(diag.getZoneIds(), 1.0).ordinal();
+			}
+		});
+		benchmarks.add(new Benchmark("TestingWithPolygons.doesDiagramContainEmptyLikeOrDisconnectedZones"){
+			ArrayList<EllipseDiagram> diags;
+			public void setUp (){
+				diags = getSampleDiags(EllipseDiagram.ARCS);
+			}
+			public double run (int opIndex){
+				EllipseDiagram diag = diags.get(opIndex % diags.size());
+				nudgeEllipses(diag, opIndex);
+				return TestingWithPolygons.doesDiagramContainEmptyLikeOrDisconnectedZones(diag, 1.0).ordinal();
+			}
+		});
+
+		// ... fitness (the zone areas are computed once in setUp)
+		for (final FitnessMeasure fitnessMeasure : FITNESS_MEASURES){
+			benchmarks.add(new Benchmark("EllipseDiagram.computeFitnessOfDiagram [" + fitnessMeasure + "]"){
+				ArrayList<EllipseDiagram> diags;
+				ZoneVector requiredAreaSpecs;
+				public void setUp (){
+					diags = getSampleDiags(EllipseDiagram.INTEGRATION);
+					requiredAreaSpecs = new ZoneVector(getDefaultAreaSpecs(), 3);
+				}
+				public double run (int opIndex){
+					EllipseDiagram diag = diags.get(opIndex % diags.size());
+					Double fitness = diag.computeFitnessOfDiagram(requiredAreaSpecs, diag.computeFitnessOfAllRegions(requiredAreaSpecs, fitnessMeasure), fitnessMeasure);
+					return (fitness == null) ? 0 : fitness.doubleValue();
+				}
+			});
+		}
+
+		// ... full run of the hill climber for every .els file (or for the default area specification)
+		ArrayList<File> hcElsFiles = new ArrayList<File>(elsFiles);
+		if (hcElsFiles.size() == 0){
+			hcElsFiles.add(null);
+		}
+		for (final File elsFile : hcElsFiles){
+			benchmarks.add(new Benchmark("HillClimber.run_multipleChangesPerIter [" + ((elsFile == null) ? "default area specs" : elsFile.getName()) + "]"){
+				HashMap<String, Double> requiredAreaSpecs;
+				public void setUp (){
+					requiredAreaSpecs = (elsFile == null) ? getDefaultAreaSpecs() : EllipseDiagramOps.loadAreaSpecsFromFile(elsFile);
+				}
+				public double run (int opIndex){
+					if (requiredAreaSpecs == null){return 0;}
+					EllipseDiagram diag = new HeadlessDiagramEngine().generateDiagram(requiredAreaSpecs);
+					return (diag == null) ? 0 : diag.getEllipses().get(0).getXc();
+				}
+			});
+		}
+
+		return benchmarks;
+	}
+
+
+	public void runAll (){
+		System.out.println(String.format(Locale.ENGLISH, "%-80s %15s %12s %12s", "Benchmark", "ns/op", "+/- ns/op", "ops"));
+		for (Benchmark benchmark : getBenchmarks()){
+			if ((filter != null) && !benchmark.getName().toLowerCase().contains(filter.toLowerCase())){continue;}
+			run(benchmark);
+		}
+	}
+
+
+	public double[] run (Benchmark benchmark){
+		// returns the mean and standard deviation of the time per operation (in nanoseconds) over the batches and the no of operations timed
+
+		benchmark.setUp();
+
+		// warm up
+		int opIndex = 0;
+		long endTime = System.nanoTime() + (warmupMilliSecs*1000000);
+		while (System.nanoTime() < endTime){
+			sink += benchmark.run(opIndex);
+			opIndex++;
+		}
+
+		// measure in batches
+		double[] nsPerOp = new double[NO_OF_BATCHES];
+		long noOfOps = 0;
+		long batchNanoSecs = (measureMilliSecs*1000000)/NO_OF_BATCHES;
+		long batchStartTime;
+		long batchOps;
+		for (int b=0; b<NO_OF_BATCHES; b++){
+			batchOps = 0;
+			batchStartTime = System.nanoTime();
+			endTime = batchStartTime + batchNanoSecs;
+			do {
+				sink += benchmark.run(opIndex);
+				opIndex++;
+				batchOps++;
+			} while (System.nanoTime() < endTime);
+			nsPerOp[b] = (double)(System.nanoTime() - batchStartTime) / batchOps;
+			noOfOps += batchOps;
+		}
+
+		double mean = 0;
+		for (double t : nsPerOp){
+			mean += t;
+		}
+		mean = mean / NO_OF_BATCHES;
+		double stdDev = 0;
+		for (double t : nsPerOp){
+			stdDev += Math.pow(t - mean, 2);
+		}
+		stdDev = Math.sqrt(stdDev / NO_OF_BATCHES);
+
+		System.out.println(String.format(Locale.ENGLISH, "%-80s %15.1f %12.1f %12d", benchmark.getName(), mean, stdDev, noOfOps));
+		return new double[]{mean, stdDev, noOfOps};
+	}
+
+
+	// ... verification of EllipseIntersectionKernel against the reference method with objects
+
+	public static long verifyIntersectionKernel (int noOfPairs, long seed){
+		// returns the number of pairs (over both precision modes) whose intersection points differ in number or in any bit of any coordinate
+		// -> every 4th pair is a pair of circles (which have more degenerate cases) and the same pairs are generated for the same seed
+		Random random = new Random(seed);
+		double[] work = EllipseIntersectionKernel.newWorkBuffer();
+		double[] intPnts = EllipseIntersectionKernel.newIntPntsBuffer();
+		long noOfMismatches = 0;
+		Ellipse e1;
+		Ellipse e2;
+		boolean restrictToCircles;
+		int noOfIntPnts;
+		ArrayList<Point2D.Double> refIntPnts;
+		boolean same;
+		for (int precision : new int[]{0, 1}){
+			long noOfMismatchesInMode = 0;
+			long noOfIntPntsInMode = 0;
+			for (int p=0; p<noOfPairs; p++){
+				restrictToCircles = ((p % 4) == 3);
+				e1 = Ellipse.generateARandomEllipse("a", 20, 120, new Point2D.Double(-60, -60), new Point2D.Double(60, 60), restrictToCircles, random);
+				e2 = Ellipse.generateARandomEllipse("b", 20, 120, new Point2D.Double(-60, -60), new Point2D.Double(60, 60), restrictToCircles, random);
+				
+				noOfIntPnts = EllipseIntersectionKernel.getIntPnts_WithEllipse(e1, e2, precision, work, intPnts);
+				refIntPnts = e1.getIntPnts_WithEllipse_AsConics(e2, precision);
+				if (refIntPnts == null){
+					refIntPnts = new ArrayList<Point2D.Double>(0); // no roots -> the kernel returns 0 points
+				}
+				
+				same = (noOfIntPnts == refIntPnts.size());
+				for (int i=0; same && (i<noOfIntPnts); i++){
+					same = (Double.doubleToLongBits(intPnts[2*i]) == Double.doubleToLongBits(refIntPnts.get(i).x)) &&
+						   (Double.doubleToLongBits(intPnts[2*i+1]) == Double.doubleToLongBits(refIntPnts.get(i).y));
+				}
+				noOfIntPntsInMode += noOfIntPnts;
+				if (same){continue;}
+				
+				noOfMismatchesInMode++;
+				if (noOfMismatches + noOfMismatchesInMode <= MAX_NO_OF_MISMATCHES_PRINTED){
+					StringBuffer kernelIntPnts = new StringBuffer();
+					for (int i=0; i<noOfIntPnts; i++){
+						kernelIntPnts.append(" (" + intPnts[2*i] + ", " + intPnts[2*i+1] + ")");
+					}
+					System.out.println("Mismatch [precision " + precision + "] for " + getParams(e1) + " and " + getParams(e2) + ": kernel" + kernelIntPnts + " => reference " + refIntPnts);
+				}
+			}
+			System.out.println(String.format(Locale.ENGLISH, "EllipseIntersectionKernel.getIntPnts_WithEllipse [%s]: %d pairs, %d intersection points, %d pairs differ from Ellipse.getIntPnts_WithEllipse_AsConics",
+					                         (precision == 0) ? "precise" : "less precise", noOfPairs, noOfIntPntsInMode, noOfMismatchesInMode));
+			noOfMismatches += noOfMismatchesInMode;
+		}
+		return noOfMismatches;
+	}
+
+	protected static String getParams (Ellipse e){
+		// every parameter is printed with all its digits so that the pair can be reproduced
+		return e.getLabel() + "(a=" + e.getA() + ", b=" + e.getB() + ", xc=" + e.getXc() + ", yc=" + e.getYc() + ", rot=" + e.getRot() + ")";
+	}
+
+
+	// ... sample diagrams
+
+	public static ArrayList<ArrayList<Ellipse>> generateSampleDiags (int noOfDiags, long seed){
+		// random 3-ellipse diagrams whose zone areas can be computed (i.e. every zone exists) -> the same diagrams for the same seed
+		Random random = new Random(seed);
+		String[] labels = {"a", "b", "c"};
+		ArrayList<ArrayList<Ellipse>> diags = new ArrayList<ArrayList<Ellipse>>(noOfDiags);
+		ArrayList<Ellipse> es;
+		EllipseDiagram diag;
+		while (diags.size() < noOfDiags){
+			es = new ArrayList<Ellipse>(labels.length);
+			for (String label : labels){
+				es.add(Ellipse.generateARandomEllipse(label, 20, 120, new Point2D.Double(-60, -60), new Point2D.Double(60, 60), false, random));
+			}
+			diag = new EllipseDiagram(es, false, EllipseDiagram.INTEGRATION);
+			diag.recomputeZoneAreas();
+			if (diag.zoneAreasComputedSuccessfully){
+				diags.add(es);
+			}
+		}
+		return diags;
+	}
+
+	protected ArrayList<EllipseDiagram> getSampleDiags (int methodToComputeRegionAreas){
+		ArrayList<EllipseDiagram> diags = new ArrayList<EllipseDiagram>(sampleDiags.size());
+		EllipseDiagram diag;
+		for (ArrayList<Ellipse> es : sampleDiags){
+			// a copy of the ellipses for every benchmark since the ellipses are moved (see nudgeEllipses)
+			diag = new EllipseDiagram(new EllipseDiagram(es, false).getEllipsesClone(), false, methodToComputeRegionAreas);
+			diag.recomputeZoneAreas();
+			diags.add(diag);
+		}
+		return diags;
+	}
+
+	protected static void nudgeEllipses (EllipseDiagram diag, int opIndex){
+		// every operation moves the centres back and forth by 1e-9 so that the diagram is effectively the same, but nothing computed before can be reused
+		double dx = ((opIndex % 2) == 0) ? 1e-9 : -1e-9;
+		for (Ellipse e : diag.getEllipses()){
+			e.setXc(e.getXc() + dx);
+		}
+	}
+
+	public static HashMap<String, Double> getDefaultAreaSpecs (){
+		String[] zoneLabels = EllipseDiagramOps.getZoneLabels(3, false);
+		HashMap<String, Double> areaSpecs = new HashMap<String, Double>();
+		for (int i=0; i<zoneLabels.length; i++){
+			areaSpecs.put(zoneLabels[i], DEFAULT_AREA_SPECS[i]);
+		}
+		return areaSpecs;
+	}
+
+
+
+	// Main
+
+	public static final String cmdlineOptions = "[{-i,--input} an_els_file_path]* [{-f,--filter} text_in_benchmark_name] [{-w,--warmup} millisecs] [{-m,--measure} millisecs] [{-v,--verify} no_of_pairs]";
+	private static void printUsage() {
+		System.err.println("Usage: Options "+cmdlineOptions);
+	}
+
+	public static void main(String[] args) {
+
+		CmdLineParser parser = new CmdLineParser();
+		CmdLineParser.Option parserInputElsFilePath = parser.addStringOption('i', "input");
+		CmdLineParser.Option parserFilter = parser.addStringOption('f', "filter");
+		CmdLineParser.Option parserWarmup = parser.addLongOption('w', "warmup");
+		CmdLineParser.Option parserMeasure = parser.addLongOption('m', "measure");
+		CmdLineParser.Option parserVerify = parser.addIntegerOption('v', "verify");
+
+		try {
+			parser.parse(args);
+		} catch (CmdLineParser.OptionException e) {
+			System.err.println("Error in command-line arguments: "+e.getMessage());
+			printUsage();
+			System.exit(2);
+		}
+
+		// the verification of the intersection kernel is run instead of the benchmarks
+		Integer noOfVerifyPairs = (Integer)parser.getOptionValue(parserVerify);
+		if (noOfVerifyPairs != null){
+			if (noOfVerifyPairs.intValue() <= 0){
+				System.err.println("Error in command-line arguments: " + noOfVerifyPairs + " for -v (or --verify) is not a positive number of pairs.");
+				System.exit(2);
+			}
+			System.exit((verifyIntersectionKernel(noOfVerifyPairs.intValue(), VERIFY_PAIRS_SEED) == 0) ? 0 : 1);
+		}
+
+		Benchmarks benchmarks = new Benchmarks(((Long)parser.getOptionValue(parserWarmup, Long.valueOf(DEFAULT_WARMUP_MILLISECS))).longValue(),
+				                               ((Long)parser.getOptionValue(parserMeasure, Long.valueOf(DEFAULT_MEASURE_MILLISECS))).longValue(),
+				                               (String)parser.getOptionValue(parserFilter));
+
+		for (Object elsFilePath : parser.getOptionValues(parserInputElsFilePath)){
+			File elsFile = new File((String)elsFilePath);
+			if (!elsFile.isFile() || !elsFile.getName().endsWith(".els")){
+				System.err.println("Error in command-line arguments: " + elsFilePath + " for -i (or --input) is not a .els file.");
+				System.exit(2);
+			}
+			benchmarks.addElsFile(elsFile);
+		}
+
+		benchmarks.runAll();
+
+		// print the sink so that none of the operations can be removed
+		System.out.println("(checksum " + benchmarks.sink + ")");
+	}
+
+}
@@ -0,0 +1,501 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import jargs.gnu.CmdLineParser;  // this command-line parser by Steve Purcell (2005) is available at http://jargs.sourceforge.net
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+
+/**
+ * A library of diagrams in a single binary file (.eldb) rather than a directory with an .eld file for every diagram (see EllipseDiagramOps.generateAValidRandomDiagramLib)
+ * -> the file is memory-mapped, so any diagram is read in O(1) without listing a directory or parsing text, and the ellipses and zone areas of all the diagrams
+ *    can be scanned straight from the mapped file (see getEllipseProp and getZoneArea) without creating any objects
+ *
+ * The file (big-endian) has
+ *  - a header of HEADER_SIZE bytes: MAGIC | VERSION | no of ellipses per diagram | flags (FLAG_ZONE_AREAS) | no of diagrams | record size | offset of the records | offset of the names index | offset of the names
+ *  - a fixed-width record for every diagram: for every ellipse, its label (char -> labels of more than one character cannot be saved) | a | b | xc | yc | rot (doubles), followed, if FLAG_ZONE_AREAS, by the area of every zone
+ *    in the order of EllipseDiagramOps.getZoneLabels (NaN if the diagram is not valid)
+ *  - the names index: the offset of the name of every diagram (ints, relative to the offset of the names, with one more for the end of the last name)
+ *  - the names of the diagrams (UTF-8, e.g. the names of the .eld files that they were converted from)
+ * => the record of diagram i starts at recordsOffset + i*recordSize
+ *
+ * To convert a directory of .eld files to an .eldb file (the files are parsed and their zone areas computed in parallel, see AreaspecExtractor) and back, e.g.
+ *
+ * 		java uk.ac.kent.elliptic.areaproptool.BinaryDiagramLib {-i,--input} an_eld_dir_path {-o,--output} an_eldb_file_path [{-e,--ellipses} no_of_ellipses] [--zone-areas] [{-t,--threads} no_of_threads] [{-s,--silent}]
+ * 		java uk.ac.kent.elliptic.areaproptool.BinaryDiagramLib {-i,--input} an_eldb_file_path {-o,--output} an_eld_dir_path [{-s,--silent}]
+ *
+ */
+
+
+public class BinaryDiagramLib {
+
+	// Static class fields
+
+	public static final String FILE_EXTENSION = ".eldb";
+	public static final String LIB_FILE_NAME = "diagrams" + FILE_EXTENSION; // the binary library in a library directory (see EllipseDiagramOps.getARandomDiagFromLib)
+
+	public static final int MAGIC = 0x454C4442; // "ELDB"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 64;
+	public static final int FLAG_ZONE_AREAS = 1;
+
+	// ... the properties of an ellipse in a record
+	public static final int PROP_A = 0;
+	public static final int PROP_B = 1;
+	public static final int PROP_XC = 2;
+	public static final int PROP_YC = 3;
+	public static final int PROP_ROT = 4;
+	public static final int NO_OF_PROPS = 5;
+	public static final int ELLIPSE_SIZE = 2 + 8*NO_OF_PROPS; // label + props
+
+	public static final String cmdlineOptions = "{-i,--input} an_eld_dir_path|an_eldb_file_path {-o,--output} an_eldb_file_path|an_eld_dir_path [{-e,--ellipses} no_of_ellipses] [{--zone-areas}] [{-t,--threads} no_of_threads] [{-s,--silent}]";
+
+
+
+	// Data fields
+
+	protected File file;
+	protected long lastModified; // that of the file when it was mapped
+	protected MappedByteBuffer buffer;
+	protected int noOfElls;
+	protected boolean hasZoneAreas;
+	protected int noOfDiags;
+	protected int recordSize;
+	protected int recordsOffset;
+	protected int namesIndexOffset;
+	protected int namesOffset;
+	protected String[] zoneLabels;
+
+
+
+	// Constructor
+
+	protected BinaryDiagramLib (File file, MappedByteBuffer buffer){
+		this.file = file;
+		this.lastModified = file.lastModified();
+		this.buffer = buffer;
+	}
+
+	/* Map an .eldb file -> null if it cannot be read or is not a proper .eldb file
+	 *    the file is mapped read-only and can be read by any number of threads at the same time
+	 */
+	public static BinaryDiagramLib open (File file){
+		if (!file.isFile()){
+			System.out.println("BinaryDiagramLib.open: " + file.getAbsolutePath() + " does not exist");
+			return null;
+		}
+		if (file.length() > Integer.MAX_VALUE){
+			System.out.println("BinaryDiagramLib.open: " + file.getAbsolutePath() + " is too large to be mapped (" + file.length() + " bytes)");
+			return null;
+		}
+
+		MappedByteBuffer buffer;
+		try {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				FileChannel channel = in.getChannel();
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // the mapping stays valid after the channel is closed
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			System.out.println("BinaryDiagramLib.open: An IO exception occured with file " + file + " -> " + e);
+			return null;
+		}
+
+		BinaryDiagramLib lib = new BinaryDiagramLib(file, buffer);
+		if (!lib.readHeader()){return null;}
+		return lib;
+	}
+
+	private boolean readHeader (){
+		if ((buffer.capacity() < HEADER_SIZE) || (buffer.getInt(0) != MAGIC)){
+			System.out.println("BinaryDiagramLib.readHeader: " + file.getAbsolutePath() + " is not an " + FILE_EXTENSION + " file");
+			return false;
+		}
+		if (buffer.getInt(4) != VERSION){
+			System.out.println("BinaryDiagramLib.readHeader: " + file.getAbsolutePath() + " has version " + buffer.getInt(4) + " rather than " + VERSION);
+			return false;
+		}
+		noOfElls = buffer.getInt(8);
+		hasZoneAreas = ((buffer.getInt(12) & FLAG_ZONE_AREAS) != 0);
+		noOfDiags = buffer.getInt(16);
+		recordSize = buffer.getInt(20);
+		recordsOffset = (int)buffer.getLong(24);
+		namesIndexOffset = (int)buffer.getLong(32);
+		namesOffset = (int)buffer.getLong(40);
+
+		if ((noOfElls < 2) || (noOfElls > EllipseDiagramOps.MAX_NO_OF_ELLIPSES) || (noOfDiags < 0) || (recordSize != getRecordSize(noOfElls, hasZoneAreas)) ||
+			((long)recordsOffset + (long)noOfDiags*recordSize > namesIndexOffset) || ((long)namesIndexOffset + 4L*(noOfDiags+1) > namesOffset) || (namesOffset > buffer.capacity())){
+			System.out.println("BinaryDiagramLib.readHeader: the header of " + file.getAbsolutePath() + " is not consistent with its size");
+			return false;
+		}
+		zoneLabels = EllipseDiagramOps.getZoneLabels(noOfElls, false);
+		return true;
+	}
+
+	public static int getRecordSize (int noOfElls, boolean withZoneAreas){
+		return (noOfElls*ELLIPSE_SIZE + (withZoneAreas ? 8*((1 << noOfElls) - 1) : 0));
+	}
+
+
+
+	// Properties -> getters
+
+	public File getFile() {
+		return file;
+	}
+	public boolean isUpToDate() {
+		// false if the file was changed after it was mapped (e.g. converted again)
+		return (file.lastModified() == lastModified);
+	}
+	public int getNoOfDiags() {
+		return noOfDiags;
+	}
+	public int getNoOfElls() {
+		return noOfElls;
+	}
+	public boolean hasZoneAreas() {
+		return hasZoneAreas;
+	}
+	public String[] getZoneLabels() {
+		return zoneLabels.clone();
+	}
+
+
+
+	// Methods
+
+	// ... straight from the mapped file (the absolute gets of the buffer do not change its position, so these can be invoked by any thread)
+
+	public double getEllipseProp (int diagIndex, int ellIndex, int prop){
+		return buffer.getDouble(recordsOffset + diagIndex*recordSize + ellIndex*ELLIPSE_SIZE + 2 + 8*prop);
+	}
+	public char getEllipseLabel (int diagIndex, int ellIndex){
+		return buffer.getChar(recordsOffset + diagIndex*recordSize + ellIndex*ELLIPSE_SIZE);
+	}
+	public double getZoneArea (int diagIndex, int zoneIndex){
+		// zoneIndex in the order of getZoneLabels -> NaN if the library has no zone areas
+		if (!hasZoneAreas){return Double.NaN;}
+		return buffer.getDouble(recordsOffset + diagIndex*recordSize + noOfElls*ELLIPSE_SIZE + 8*zoneIndex);
+	}
+
+	public String getName (int diagIndex){
+		int start = buffer.getInt(namesIndexOffset + 4*diagIndex);
+		int end = buffer.getInt(namesIndexOffset + 4*(diagIndex+1));
+		byte[] nameBytes = new byte[end - start];
+		for (int i = 0; i < nameBytes.length; i++){
+			nameBytes[i] = buffer.get(namesOffset + start + i);
+		}
+		try {
+			return new String(nameBytes, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			return new String(nameBytes);
+		}
+	}
+
+
+	// ... as objects
+
+	public ArrayList<Ellipse> getEllipses (int diagIndex){
+		ArrayList<Ellipse> ellipses = new ArrayList<Ellipse>(noOfElls);
+		for (int e = 0; e < noOfElls; e++){
+			ellipses.add(new Ellipse(String.valueOf(getEllipseLabel(diagIndex, e)),
+									 getEllipseProp(diagIndex, e, PROP_A), getEllipseProp(diagIndex, e, PROP_B),
+									 getEllipseProp(diagIndex, e, PROP_XC), getEllipseProp(diagIndex, e, PROP_YC),
+									 getEllipseProp(diagIndex, e, PROP_ROT)));
+		}
+		return ellipses;
+	}
+
+	public EllipseDiagram getDiagram (int diagIndex, boolean considerLessPrecisePossibleIntPnts){
+		if ((diagIndex < 0) || (diagIndex >= noOfDiags)){
+			System.out.println("BinaryDiagramLib.getDiagram: there is no diagram " + diagIndex + " in " + file.getAbsolutePath() + " (" + noOfDiags + " diagrams)");
+			return null;
+		}
+		return (new EllipseDiagram(getEllipses(diagIndex), considerLessPrecisePossibleIntPnts));
+	}
+
+	public EllipseDiagram getRandomDiagram (boolean considerLessPrecisePossibleIntPnts){
+		if (noOfDiags == 0){return null;}
+		return getDiagram(Utilities.randomIntegerInRange(0, noOfDiags-1), considerLessPrecisePossibleIntPnts);
+	}
+	public EllipseDiagram getRandomDiagram (Random random, boolean considerLessPrecisePossibleIntPnts){
+		if (noOfDiags == 0){return null;}
+		return getDiagram(random.nextInt(noOfDiags), considerLessPrecisePossibleIntPnts);
+	}
+
+	public HashMap<String, Double> getZoneAreas (int diagIndex){
+		// zone label -> area (null if the library has no zone areas)
+		if (!hasZoneAreas){return null;}
+		HashMap<String, Double> zoneAreas = new HashMap<String, Double>();
+		for (int z = 0; z < zoneLabels.length; z++){
+			zoneAreas.put(zoneLabels[z], getZoneArea(diagIndex, z));
+		}
+		return zoneAreas;
+	}
+
+
+	// ... to write a library -> the records are streamed to the file and the names index and the header are written by close
+	public static class Writer {
+
+		protected File file;
+		protected int noOfElls;
+		protected boolean withZoneAreas;
+		protected String[] zoneLabels;
+		protected DataOutputStream out;
+		protected int noOfDiags = 0;
+		protected ByteArrayOutputStream names = new ByteArrayOutputStream();
+		protected ArrayList<Integer> nameOffsets = new ArrayList<Integer>();
+
+		public Writer (File file, int noOfElls, boolean withZoneAreas) throws IOException {
+			this.file = file;
+			this.noOfElls = noOfElls;
+			this.withZoneAreas = withZoneAreas;
+			this.zoneLabels = EllipseDiagramOps.getZoneLabels(noOfElls, false);
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			out.write(new byte[HEADER_SIZE]); // written by close
+			nameOffsets.add(0);
+		}
+
+		public int getNoOfDiags() {
+			return noOfDiags;
+		}
+
+		/* Add a diagram with the ellipses given and, if the library has zone areas, the zone areas given (NaN for those that are not given, e.g. if zoneAreas is null)
+		 *    false is returned if the diagram does not have the no of ellipses of the library
+		 *    an IOException is thrown (and nothing is written) if the label of any of the ellipses is not one character long, as the label is saved as a char
+		 */
+		public boolean add (String name, ArrayList<Ellipse> ellipses, HashMap<String, Double> zoneAreas) throws IOException {
+			if ((ellipses == null) || (ellipses.size() != noOfElls)){
+				return false;
+			}
+			if (HEADER_SIZE + (long)(noOfDiags+1)*getRecordSize(noOfElls, withZoneAreas) > Integer.MAX_VALUE){
+				throw new IOException("too many diagrams for one " + FILE_EXTENSION + " file (" + noOfDiags + ")");
+			}
+			for (Ellipse e : ellipses){
+				if ((e.label == null) || (e.label.length() != 1)){
+					throw new IOException("the label of every ellipse must be one character long to be saved in a " + FILE_EXTENSION + " file (diagram " + name + ", label " + e.label + ")");
+				}
+			}
+
+			for (Ellipse e : ellipses){
+				out.writeChar(e.label.charAt(0));
+				out.writeDouble(e.a);
+				out.writeDouble(e.b);
+				out.writeDouble(e.xc);
+				out.writeDouble(e.yc);
+				out.writeDouble(e.rot);
+			}
+			if (withZoneAreas){
+				Double zoneArea;
+				for (String zoneLabel : zoneLabels){
+					zoneArea = (zoneAreas == null) ? null : zoneAreas.get(zoneLabel);
+					out.writeDouble((zoneArea == null) ? Double.NaN : zoneArea.doubleValue());
+				}
+			}
+
+			names.write(name.getBytes("UTF-8"));
+			nameOffsets.add(names.size());
+			noOfDiags++;
+			return true;
+		}
+		public boolean add (String name, EllipseDiagram diagram) throws IOException {
+			return add(name, diagram.getEllipses(), (withZoneAreas ? diagram.getZoneAreas() : null));
+		}
+
+		public void close () throws IOException {
+			long namesIndexOffset = HEADER_SIZE + (long)noOfDiags*getRecordSize(noOfElls, withZoneAreas);
+			for (int nameOffset : nameOffsets){
+				out.writeInt(nameOffset);
+			}
+			names.writeTo(out);
+			out.close();
+
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.writeInt(MAGIC);
+				raf.writeInt(VERSION);
+				raf.writeInt(noOfElls);
+				raf.writeInt(withZoneAreas ? FLAG_ZONE_AREAS : 0);
+				raf.writeInt(noOfDiags);
+				raf.writeInt(getRecordSize(noOfElls, withZoneAreas));
+				raf.writeLong(HEADER_SIZE);
+				raf.writeLong(namesIndexOffset);
+				raf.writeLong(namesIndexOffset + 4L*nameOffsets.size());
+			} finally {
+				raf.close();
+			}
+		}
+	}
+
+
+	// ... converters
+
+	/* Convert the .eld files in eldDir (in the order of their names) to an .eldb file with diagrams of noOfElls ellipses
+	 *    the files are parsed (and their zone areas computed, if withZoneAreas) in parallel by the workers of an AreaspecExtractor
+	 *    the files that are not proper diagrams or that do not have noOfElls ellipses are left out -> false is returned if there are any (or if the file cannot be written)
+	 */
+	public static boolean convertFromEldDir (File eldDir, File eldbFile, int noOfElls, boolean withZoneAreas, int noOfWorkers, boolean considerLessPrecisePossibleIntPnts, final boolean silent){
+		AreaspecExtractor extractor = new AreaspecExtractor(eldDir);
+		extractor.setNoOfWorkers(noOfWorkers);
+		extractor.setComputeZoneAreas(withZoneAreas);
+		extractor.setConsiderLessPrecisePossibleIntPnts(considerLessPrecisePossibleIntPnts);
+		extractor.setSilent(silent);
+		extractor.resetRun();
+		String[] diagNames = extractor.getDiagNames();
+		if (diagNames == null){return false;}
+
+		final Writer writer;
+		try {
+			writer = new Writer(eldbFile, noOfElls, withZoneAreas);
+		} catch (IOException e) {
+			System.out.println("BinaryDiagramLib.convertFromEldDir: could not create " + eldbFile.getAbsolutePath() + " -> " + e);
+			return false;
+		}
+
+		long startTime = System.currentTimeMillis();
+		final int[] noOfLeftOutDiags = {0};
+		boolean completed;
+		try {
+			completed = extractor.run(diagNames, new AreaspecExtractor.AreaspecWriter() {
+				protected void write (AreaspecExtractor.DiagInPipeline diag) throws IOException {
+					// the diagrams that are not valid are added without their zone areas (NaN)
+					if (!writer.add(diag.name, diag.ellipses, diag.areaspec)){
+						noOfLeftOutDiags[0]++;
+						if (!silent){
+							System.out.println("Failed: " + diag.name + " -> not a diagram with " + writer.noOfElls + " ellipses, left out");
+						}
+					}
+				}
+			});
+			writer.close();
+		} catch (IOException e) {
+			System.out.println("BinaryDiagramLib.convertFromEldDir: could not write to " + eldbFile.getAbsolutePath() + " -> " + e);
+			return false;
+		}
+
+		if (!silent){
+			System.out.println("eulerAPE converted " + writer.getNoOfDiags() + " of " + diagNames.length + " diagrams in " + eldDir.getAbsolutePath() + " to " + eldbFile.getAbsolutePath() +
+							   " (" + eldbFile.length() + " bytes) in " + (System.currentTimeMillis() - startTime) + "ms");
+		}
+		return (completed && (noOfLeftOutDiags[0] == 0) && extractor.getFailures().isEmpty());
+	}
+
+	/* Save every diagram in the library to an .eld file in eldDir, named after the diagram
+	 */
+	public boolean convertToEldDir (File eldDir, boolean silent){
+		if (!eldDir.exists()){
+			Utilities.createDir(eldDir.getAbsolutePath());
+		}
+		long startTime = System.currentTimeMillis();
+		int noOfSavedDiags = 0;
+		for (int i = 0; i < noOfDiags; i++){
+			if (EllipseDiagramOps.saveDiagToFile(getDiagram(i, false), new File(eldDir, getName(i) + ".eld"))){
+				noOfSavedDiags++;
+			}
+		}
+		if (!silent){
+			System.out.println("eulerAPE converted " + noOfSavedDiags + " of " + noOfDiags + " diagrams in " + file.getAbsolutePath() + " to " + eldDir.getAbsolutePath() +
+							   " in " + (System.currentTimeMillis() - startTime) + "ms");
+		}
+		return (noOfSavedDiags == noOfDiags);
+	}
+
+
+
+	// Main
+
+	public static void main (String[] args){
+
+		CmdLineParser parser = new CmdLineParser();
+		CmdLineParser.Option parserInput = parser.addStringOption('i', "input");
+		CmdLineParser.Option parserOutput = parser.addStringOption('o', "output");
+		CmdLineParser.Option parserEllipses = parser.addIntegerOption('e', "ellipses");
+		CmdLineParser.Option parserZoneAreas = parser.addBooleanOption("zone-areas");
+		CmdLineParser.Option parserThreads = parser.addIntegerOption('t', "threads");
+		CmdLineParser.Option parserSilent = parser.addBooleanOption('s', "silent");
+		try {
+			parser.parse(args);
+		} catch (CmdLineParser.OptionException e) {
+			System.err.println("Error in command-line arguments: " + e.getMessage());
+			System.err.println("Usage: Options " + cmdlineOptions);
+			System.exit(2);
+		}
+
+		String inputPath = (String)parser.getOptionValue(parserInput);
+		String outputPath = (String)parser.getOptionValue(parserOutput);
+		int noOfElls = (Integer)parser.getOptionValue(parserEllipses, Integer.valueOf(3));
+		int noOfThreads = (Integer)parser.getOptionValue(parserThreads, Integer.valueOf(Runtime.getRuntime().availableProcessors()));
+		boolean silent = (Boolean)parser.getOptionValue(parserSilent, Boolean.FALSE);
+		if ((inputPath == null) || (outputPath == null) || (noOfElls < 2) || (noOfElls > EllipseDiagramOps.MAX_NO_OF_ELLIPSES) || (noOfThreads < 1)){
+			System.err.println("Error in command-line arguments: -i (or --input) and -o (or --output) are required, -e (or --ellipses) must be between 2 and " + EllipseDiagramOps.MAX_NO_OF_ELLIPSES +
+					           " and -t (or --threads) >= 1");
+			System.err.println("Usage: Options " + cmdlineOptions);
+			System.exit(2);
+		}
+
+		boolean converted;
+		File input = new File(inputPath);
+		if (input.isDirectory()){
+			// .eld files -> .eldb
+			converted = convertFromEldDir(input, new File(outputPath), noOfElls, (Boolean)parser.getOptionValue(parserZoneAreas, Boolean.FALSE), noOfThreads, false, silent);
+		} else {
+			// .eldb -> .eld files
+			BinaryDiagramLib lib = open(input);
+			converted = (lib != null) && lib.convertToEldDir(new File(outputPath), silent);
+		}
+
+		if (!converted){
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,504 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * To keep the diagrams which were generated for area specifications so that the same area specification (or the same area specification scaled
+ * by any factor) is not solved again -> the diagrams are kept in memory (the least recently used are discarded when the cache is full) and,
+ * if a directory is given, on disk so that they are available to other runs of eulerAPE
+ *
+ * The key of an area specification is the area of every zone over the total area (so that scaled specifications have the same key) and the curves used (ellipses or circles),
+ * and a diagram is kept scaled to fit CANONICAL_BBOX (as in EllipseDiagram.scaleToFit) with its total area, so that it can be scaled to the total area of any specification with the same key
+ *
+ * The diagrams in memory are also an index of solved area specifications -> getNearest returns the diagram of the closest area specification
+ * with the same curves and the same empty zones (e.g. to start the hill climber from it when the areas drift slowly from one request to the next)
+ *
+ */
+
+
+public class DiagramCache {
+
+	// Static class fields
+
+	public static final int DEFAULT_CAPACITY = 1000;
+
+	// ... the area proportions of the key are rounded to KEY_PRECISION (so that the rounding errors of scaling do not change the key)
+	public static final double KEY_PRECISION = 1e-9;
+
+	public static final Rectangle2D CANONICAL_BBOX = new Rectangle2D.Double(0, 0, 1000, 1000);
+
+	// ... the largest difference between the area proportions of a zone for a diagram to be returned by getNearest
+	public static final double DEFAULT_MAX_NEAREST_DIST = 0.1;
+
+	public static final String CACHE_FILE_EXT = ".dgc";
+	public static final String CACHE_FILE_START = "// eulerAPE diagram cache";
+	public static final String CACHE_FILE_KEY = "key=";
+	public static final String CACHE_FILE_TOTAREA = "totArea=";
+
+
+
+	// Entry
+	// ... a diagram scaled to fit CANONICAL_BBOX with its total area, and the area proportions and empty zones of its key (for getNearest)
+
+	protected static class Entry {
+		protected String key;
+		protected ArrayList<Ellipse> ellipses;
+		protected double totArea;
+		protected String signature;
+		protected double[] proportions;
+
+		public Entry (String key, ArrayList<Ellipse> ellipses, double totArea){
+			this.key = key;
+			this.ellipses = ellipses;
+			this.totArea = totArea;
+			this.signature = getSignature(key);
+			this.proportions = getProportions(key);
+		}
+	}
+
+
+
+	// Data fields
+
+	protected int capacity;
+	protected File cacheDir;
+	protected LinkedHashMap<String, Entry> entries;
+
+	// ... statistics
+	protected int noOfHits = 0;
+	protected int noOfDiskHits = 0;
+	protected int noOfMisses = 0;
+
+
+
+	// Constructor
+
+	public DiagramCache (int capacity){
+		this(capacity, null);
+	}
+
+	// ... cacheDir -> the directory where the diagrams are also saved (null -> in memory only)
+	public DiagramCache (int capacity, File cacheDir){
+		this.capacity = Math.max(1, capacity);
+		this.cacheDir = cacheDir;
+		if ((cacheDir != null) && !cacheDir.exists()){
+			Utilities.createDir(cacheDir.getAbsolutePath());
+		}
+
+		// access order -> the least recently used entry is the eldest
+		final int maxNoOfEntries = this.capacity;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true){
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return (size() > maxNoOfEntries);
+			}
+		};
+
+		if (cacheDir != null){
+			loadEntries();
+		}
+	}
+
+
+
+	// Properties -> getters and setters
+
+	public synchronized int size() {
+		return entries.size();
+	}
+	public synchronized int getNoOfHits() {
+		return noOfHits;
+	}
+	public synchronized int getNoOfDiskHits() {
+		return noOfDiskHits;
+	}
+	public synchronized int getNoOfMisses() {
+		return noOfMisses;
+	}
+
+
+
+	// Methods
+
+	// ... key
+
+	public static String getKey (HashMap<String, Double> areaSpecs, boolean restrictToCircles){
+		int noOfEllipses = EllipseDiagramOps.getNoOfEllipses(areaSpecs);
+		if (noOfEllipses < 1){return null;}
+
+		ZoneVector areas = new ZoneVector(areaSpecs, noOfEllipses);
+		double totArea = 0;
+		for (int zoneId=1; zoneId<=areas.getNoOfZones(); zoneId++){
+			if (areas.hasValue(zoneId)){
+				totArea += areas.get(zoneId);
+			}
+		}
+		if (!(totArea > 0)){return null;}
+
+		StringBuffer key = new StringBuffer();
+		key.append(restrictToCircles ? "circles" : "ellipses").append(":").append(noOfEllipses).append(":");
+		for (int zoneId=1; zoneId<=areas.getNoOfZones(); zoneId++){
+			if (zoneId > 1){
+				key.append(",");
+			}
+			key.append(areas.hasValue(zoneId) ? Math.round(areas.get(zoneId) / totArea / KEY_PRECISION) : 0);
+		}
+		return key.toString();
+	}
+
+	// ... the key with the area proportions of every zone replaced by whether the zone is empty (e.g. ellipses:3:1111101)
+	//     => only a diagram with the same signature can be valid for an area specification
+	public static String getSignature (String key){
+		int proportionsStart = key.indexOf(':', key.indexOf(':') + 1) + 1;
+		String[] proportions = key.substring(proportionsStart).split(",");
+		StringBuffer signature = new StringBuffer(key.substring(0, proportionsStart));
+		for (String p : proportions){
+			signature.append(p.equals("0") ? '0' : '1');
+		}
+		return signature.toString();
+	}
+
+	public static double[] getProportions (String key){
+		int proportionsStart = key.indexOf(':', key.indexOf(':') + 1) + 1;
+		String[] proportionStrs = key.substring(proportionsStart).split(",");
+		double[] proportions = new double[proportionStrs.length];
+		for (int i=0; i<proportionStrs.length; i++){
+			proportions[i] = Long.parseLong(proportionStrs[i]) * KEY_PRECISION;
+		}
+		return proportions;
+	}
+
+	protected static double getTotArea (HashMap<String, Double> areaSpecs){
+		double totArea = 0;
+		for (Double area : areaSpecs.values()){
+			if (area != null){
+				totArea += area;
+			}
+		}
+		return totArea;
+	}
+
+
+	// ... get and put
+
+	/* The diagram for the area specification (scaled to its total area) or null if no diagram was kept for it
+	 *    the zone areas of the diagram are computed with methodToComputeRegionAreas and only the non-empty zones of the area specification are considered (as in HeadlessDiagramEngine.generateDiagram)
+	 */
+	public EllipseDiagram get (HashMap<String, Double> areaSpecs, boolean restrictToCircles, int methodToComputeRegionAreas){
+
+		String key = getKey(areaSpecs, restrictToCircles);
+		if (key == null){return null;}
+
+		Entry entry;
+		synchronized (this){
+			entry = entries.get(key);
+			if (entry != null){
+				noOfHits++;
+			}
+		}
+		if ((entry == null) && (cacheDir != null)){
+			entry = loadEntry(key);
+			if (entry != null){
+				synchronized (this){
+					entries.put(key, entry);
+					noOfDiskHits++;
+				}
+			}
+		}
+		if (entry == null){
+			synchronized (this){
+				noOfMisses++;
+			}
+			return null;
+		}
+
+		return toDiagram(entry, areaSpecs, methodToComputeRegionAreas);
+	}
+
+	/* The diagram of the area specification closest to the given one (scaled to its total area) or null if there is none within maxDist
+	 *    the distance between two area specifications is the largest difference between the area proportions of a zone (as for HillClimber's exactness) 
+	 *    and only the diagrams in memory, with the same curves and empty zones, are considered
+	 */
+	public EllipseDiagram getNearest (HashMap<String, Double> areaSpecs, boolean restrictToCircles, int methodToComputeRegionAreas, double maxDist){
+
+		String key = getKey(areaSpecs, restrictToCircles);
+		if (key == null){return null;}
+		String signature = getSignature(key);
+		double[] proportions = getProportions(key);
+
+		String nearestKey = null;
+		Entry nearestEntry = null;
+		double nearestDist = maxDist;
+		double dist;
+		synchronized (this){
+			for (Map.Entry<String, Entry> keyEntry : entries.entrySet()){
+				if (!keyEntry.getValue().signature.equals(signature)){continue;}
+				dist = 0;
+				for (int i=0; (i<proportions.length) && (dist<=nearestDist); i++){
+					dist = Math.max(dist, Math.abs(proportions[i] - keyEntry.getValue().proportions[i]));
+				}
+				if (dist <= nearestDist){
+					nearestKey = keyEntry.getKey();
+					nearestEntry = keyEntry.getValue();
+					nearestDist = dist;
+				}
+			}
+			if (nearestKey != null){
+				// recently used
+				entries.get(nearestKey);
+			}
+		}
+		if (nearestEntry == null){return null;}
+
+		return toDiagram(nearestEntry, areaSpecs, methodToComputeRegionAreas);
+	}
+
+	protected static EllipseDiagram toDiagram (Entry entry, HashMap<String, Double> areaSpecs, int methodToComputeRegionAreas){
+
+		// the ellipses are scaled about the origin by the factor that turns the total area of the entry into that of the specification
+		// -> not with scaleToFit, which fits the bounding box rounded to integers (see EllipseDiagram.getBoundingBox) and so would scale a canonical diagram again
+		double scale = Math.sqrt(getTotArea(areaSpecs) / entry.totArea);
+		ArrayList<Ellipse> ellipses = new ArrayList<Ellipse>(entry.ellipses.size());
+		Ellipse scaledE;
+		for (Ellipse e : entry.ellipses){
+			scaledE = e.clone();
+			scaledE.setA(e.getA() * scale);
+			scaledE.setB(e.getB() * scale);
+			scaledE.setXc(e.getXc() * scale);
+			scaledE.setYc(e.getYc() * scale);
+			ellipses.add(scaledE);
+		}
+
+		EllipseDiagram diag = new EllipseDiagram(ellipses, false, methodToComputeRegionAreas);
+		diag.setZoneLabels(EllipseDiagramOps.getNonEmptyZoneLabels(areaSpecs, EllipseDiagramOps.getNoOfEllipses(areaSpecs)));
+		return diag;
+	}
+
+	// ... the diagram should have been generated for the area specification (e.g. it is exact)
+	public void put (HashMap<String, Double> areaSpecs, boolean restrictToCircles, EllipseDiagram diag){
+
+		String key = getKey(areaSpecs, restrictToCircles);
+		HashMap<String, Double> zoneAreas = diag.getZoneAreas();
+		if ((key == null) || (zoneAreas == null)){return;}
+
+		double totArea = getTotArea(zoneAreas);
+		if (!(totArea > 0)){return;}
+
+		// the total area is scaled as the diagram (by the square of the factor by which the axes are scaled)
+		EllipseDiagram canonicalDiag = new EllipseDiagram(diag.getEllipsesClone(), false);
+		double axisBefore = canonicalDiag.getEllipses().get(0).getA();
+		canonicalDiag.scaleToFit(CANONICAL_BBOX);
+		double scale = canonicalDiag.getEllipses().get(0).getA() / axisBefore;
+
+		Entry entry = new Entry(key, canonicalDiag.getEllipses(), totArea * scale * scale);
+		synchronized (this){
+			entries.put(key, entry);
+		}
+		if (cacheDir != null){
+			saveEntry(key, entry);
+		}
+	}
+
+	// ... e.g. a diagram from the cache which is not exact for its area specification -> also removed from disk
+	public void remove (HashMap<String, Double> areaSpecs, boolean restrictToCircles){
+
+		String key = getKey(areaSpecs, restrictToCircles);
+		if (key == null){return;}
+
+		synchronized (this){
+			entries.remove(key);
+		}
+		if (cacheDir != null){
+			File file = getEntryFile(key);
+			if ((file != null) && file.isFile() && !file.delete()){
+				System.out.println("DiagramCache.remove: could not delete " + file.getAbsolutePath());
+			}
+		}
+	}
+
+	public synchronized void clear (){
+		// the diagrams on disk are kept
+		entries.clear();
+	}
+
+
+	// ... disk -> a file for every key (named after the SHA-1 of the key) with the key, the total area and the ellipses as in an .eld file
+
+	protected File getEntryFile (String key){
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+			StringBuffer fileName = new StringBuffer();
+			for (byte b : digest){
+				fileName.append(String.format("%02x", b));
+			}
+			return new File(cacheDir, fileName.toString() + CACHE_FILE_EXT);
+		} catch (NoSuchAlgorithmException e) {
+			System.out.println("DiagramCache.getEntryFile: SHA-1 is not available -> " + e);
+		} catch (IOException e) {
+			System.out.println("DiagramCache.getEntryFile: UTF-8 is not available -> " + e);
+		}
+		return null;
+	}
+
+	protected void saveEntry (String key, Entry entry){
+		File file = getEntryFile(key);
+		if (file == null){return;}
+
+		// written to a temporary file first so that another run never reads half an entry
+		File tempFile = new File(file.getPath() + ".tmp" + Thread.currentThread().getId());
+		try {
+			BufferedWriter b = new BufferedWriter(new FileWriter(tempFile));
+			b.append(CACHE_FILE_START);
+			b.newLine();
+			b.append(CACHE_FILE_KEY + key);
+			b.newLine();
+			b.append(CACHE_FILE_TOTAREA + entry.totArea);
+			b.newLine();
+			for (Ellipse e : entry.ellipses){
+				b.append(EllipseDiagramOps.getEllipseDetailsForFile(e));
+				b.newLine();
+			}
+			b.close();
+			if (!tempFile.renameTo(file)){
+				file.delete();
+				if (!tempFile.renameTo(file)){
+					System.out.println("DiagramCache.saveEntry: could not save " + file.getAbsolutePath());
+					tempFile.delete();
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("DiagramCache.saveEntry: An IO exception occured with file " + file.getAbsolutePath() + " -> " + e);
+			tempFile.delete();
+		}
+	}
+
+	protected Entry loadEntry (String key){
+		File file = getEntryFile(key);
+		if ((file == null) || !file.isFile()){return null;}
+		return loadEntry(file, key);
+	}
+
+	// ... key -> the key expected in the file (null -> any key)
+	protected Entry loadEntry (File file, String key){
+		try {
+			BufferedReader b = new BufferedReader(new FileReader(file));
+			try {
+				if (!CACHE_FILE_START.equals(b.readLine())){return null;}
+
+				// the key is checked in case two keys have the same SHA-1
+				String line = b.readLine();
+				if ((line == null) || !line.startsWith(CACHE_FILE_KEY) || ((key != null) && !line.equals(CACHE_FILE_KEY + key))){return null;}
+				key = line.substring(CACHE_FILE_KEY.length());
+
+				line = b.readLine();
+				if ((line == null) || !line.startsWith(CACHE_FILE_TOTAREA)){return null;}
+				Double totArea = Utilities.safeParseDouble(line.substring(CACHE_FILE_TOTAREA.length()));
+				if ((totArea == null) || !(totArea > 0)){return null;}
+
+				ArrayList<Ellipse> ellipses = new ArrayList<Ellipse>();
+				String[] props;
+				while ((line = b.readLine()) != null){
+					if (line.trim().equals("")){continue;}
+					props = line.split("\\" + EllipseDiagramOps.FILESEPARATOR);
+					if (props.length != 6){return null;}
+					try {
+						ellipses.add(new Ellipse(props[0], Double.parseDouble(props[1]), Double.parseDouble(props[2]), Double.parseDouble(props[3]), Double.parseDouble(props[4]), Double.parseDouble(props[5])));
+					} catch (NumberFormatException e) {
+						return null;
+					}
+				}
+				if (ellipses.size() < 2){return null;}
+				return new Entry(key, ellipses, totArea);
+
+			} finally {
+				b.close();
+			}
+		} catch (IOException e) {
+			System.out.println("DiagramCache.loadEntry: An IO exception occured with file " + file.getAbsolutePath() + " -> " + e);
+			return null;
+		} catch (RuntimeException e) {
+			// e.g. a key which is not a key
+			System.out.println("DiagramCache.loadEntry: " + file.getAbsolutePath() + " is not a diagram cache file -> " + e);
+			return null;
+		}
+	}
+
+	// ... the most recently saved diagrams on disk are loaded in memory (up to capacity), so that getNearest can find them
+	protected void loadEntries (){
+		File[] files = cacheDir.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.endsWith(CACHE_FILE_EXT);
+			}
+		});
+		if (files == null){return;}
+
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File f1, File f2) {
+				return Long.valueOf(f1.lastModified()).compareTo(Long.valueOf(f2.lastModified()));
+			}
+		});
+		Entry entry;
+		for (int i=Math.max(0, files.length - capacity); i<files.length; i++){
+			entry = loadEntry(files[i], null);
+			if (entry != null){
+				entries.put(entry.key, entry);
+			}
+		}
+	}
+
+	public String toString(){
+		return "DiagramCache: " + size() + " diagrams in memory" + ((cacheDir == null) ? "" : " (on disk in " + cacheDir.getAbsolutePath() + ")") +
+		       ", hits=" + getNoOfHits() + ", hits on disk=" + getNoOfDiskHits() + ", misses=" + getNoOfMisses();
+	}
+
+}
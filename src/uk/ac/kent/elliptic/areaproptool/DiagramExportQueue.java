@@ -0,0 +1,327 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * To save diagrams (.eld, .png and .svg) in the background, e.g. the intermediate diagrams of the hill climber when an error threshold is met,
+ * so that the thread that submits them (e.g. the optimiser loop) only takes a snapshot of the diagram and never waits for it to be drawn and written
+ *
+ * A snapshot (see Snapshot) is a clone of the diagram and of the display settings of the panel -> it is never changed once submitted, whatever happens to the diagram
+ * The snapshots are exported by a bounded pool of threads (every thread draws with its own EllipseDiagramPanel) and under load:
+ *  - a snapshot for the same files as one that is still waiting replaces it (coalesced -> the files end up with the latest diagram, as if they had been saved in turn)
+ *  - if maxPendingSnapshots are waiting, the oldest is dropped
+ * => submit never blocks, and the no of snapshots submitted, coalesced, dropped, exported and failed are counted
+ *
+ * The snapshots still waiting when the JVM exits are exported by a shutdown hook (for up to SHUTDOWN_WAIT_MILLISECS), see getDefault
+ *
+ */
+
+
+public class DiagramExportQueue {
+
+	// Static class fields
+
+	public static final int DEFAULT_MAX_PENDING_SNAPSHOTS = 16;
+	public static final int DEFAULT_NO_OF_THREADS = 1;
+	public static final long SHUTDOWN_WAIT_MILLISECS = 10000;
+
+	private static DiagramExportQueue defaultQueue = null;
+
+
+
+	// Data fields
+
+	protected int maxPendingSnapshots;
+	protected int noOfThreads;
+	protected ExecutorService executor;
+
+	// ... guarded by pendingSnapshots
+	protected LinkedHashMap<String, Snapshot> pendingSnapshots = new LinkedHashMap<String, Snapshot>(); // by the files they are saved to, in the order they were first submitted
+	protected HashSet<String> exportingKeys = new HashSet<String>(); // those being exported -> a later snapshot for the same files waits until they are written
+	protected int noOfActiveExporters = 0;
+
+	protected AtomicLong noOfSubmittedSnapshots = new AtomicLong();
+	protected AtomicLong noOfCoalescedSnapshots = new AtomicLong();
+	protected AtomicLong noOfDroppedSnapshots = new AtomicLong();
+	protected AtomicLong noOfExportedSnapshots = new AtomicLong();
+	protected AtomicLong noOfFailedSnapshots = new AtomicLong();
+
+
+
+	// Constructor
+
+	public DiagramExportQueue (int maxPendingSnapshots, int noOfThreads){
+		this.maxPendingSnapshots = Math.max(1, maxPendingSnapshots);
+		this.noOfThreads = Math.max(1, noOfThreads);
+		this.executor = Executors.newFixedThreadPool(this.noOfThreads, new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "eulerAPE-export");
+				thread.setDaemon(true); // does not keep the JVM alive (see the shutdown hook of getDefault)
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	public static synchronized DiagramExportQueue getDefault(){
+		// the queue shared by all the hill climbers in this JVM -> created the first time it is asked for
+		if (defaultQueue == null){
+			defaultQueue = new DiagramExportQueue(DEFAULT_MAX_PENDING_SNAPSHOTS, DEFAULT_NO_OF_THREADS);
+			final DiagramExportQueue queue = defaultQueue;
+			try {
+				Runtime.getRuntime().addShutdownHook(new Thread("eulerAPE-export-shutdown") {
+					public void run() {
+						queue.awaitIdle(SHUTDOWN_WAIT_MILLISECS);
+					}
+				});
+			} catch (SecurityException e) {
+				// e.g. when running as an applet -> the snapshots still waiting when the JVM exits are lost
+				System.out.println("DiagramExportQueue.getDefault: could not add the shutdown hook -> " + e);
+			}
+		}
+		return defaultQueue;
+	}
+
+
+
+	// Properties -> getters
+
+	public int getNoOfPendingSnapshots() {
+		synchronized (pendingSnapshots){
+			return pendingSnapshots.size();
+		}
+	}
+	public long getNoOfSubmittedSnapshots() {
+		return noOfSubmittedSnapshots.get();
+	}
+	public long getNoOfCoalescedSnapshots() {
+		return noOfCoalescedSnapshots.get();
+	}
+	public long getNoOfDroppedSnapshots() {
+		return noOfDroppedSnapshots.get();
+	}
+	public long getNoOfExportedSnapshots() {
+		return noOfExportedSnapshots.get();
+	}
+	public long getNoOfFailedSnapshots() {
+		return noOfFailedSnapshots.get();
+	}
+
+
+
+	// Methods
+
+	// ... what is exported -> a clone of the diagram and of what the panel draws it with
+	public static class Snapshot {
+		protected EllipseDiagram diagram; // saved to the .eld file
+		protected EllipseDiagram drawnDiagram; // that of the panel (usually the same as diagram), saved to the .png and .svg files
+		protected HashMap<String, Double> requiredAreaSpecs = null;
+		protected boolean useColor = true;
+		protected int labelsDisplayMode = EllipseDiagramPanel.LABELS_SIMPLE;
+		protected Boolean updateDiagramLabelsOnly = null;
+		protected int width = (int)EllipseDiagramPanel.ellipsePanelSize.getWidth();
+		protected int height = (int)EllipseDiagramPanel.ellipsePanelSize.getHeight();
+		protected File eldFile;
+		protected File pngFile;
+		protected File svgFile;
+
+		/* diagram is saved to eldFile and the diagram drawn by diagPanel (if not null) is saved to pngFile and svgFile (any of the files can be null)
+		 *    to be invoked by the thread that changes the diagram (e.g. the hill climber), so that the diagram does not change while it is cloned
+		 */
+		public Snapshot (EllipseDiagram diagram, EllipseDiagramPanel diagPanel, File eldFile, File pngFile, File svgFile){
+			this.eldFile = eldFile;
+			this.diagram = diagram.clone();
+			this.drawnDiagram = this.diagram;
+			if (diagPanel != null){
+				this.pngFile = pngFile;
+				this.svgFile = svgFile;
+				if ((diagPanel.diagram != null) && (diagPanel.diagram != diagram)){
+					this.drawnDiagram = diagPanel.diagram.clone();
+				}
+				this.requiredAreaSpecs = (diagPanel.requiredAreaSpecs == null) ? null : new HashMap<String, Double>(diagPanel.requiredAreaSpecs);
+				this.useColor = diagPanel.useColor;
+				this.labelsDisplayMode = diagPanel.labelsDisplayMode;
+				this.updateDiagramLabelsOnly = diagPanel.updateDiagramLabelsOnly;
+				if ((diagPanel.getWidth() > 0) && (diagPanel.getHeight() > 0)){
+					this.width = diagPanel.getWidth();
+					this.height = diagPanel.getHeight();
+				}
+			}
+		}
+
+		// ... the files it is saved to -> a later snapshot with the same key replaces it while it is waiting
+		protected String getKey (){
+			return (((eldFile == null) ? "" : eldFile.getAbsolutePath()) + File.pathSeparator +
+					((pngFile == null) ? "" : pngFile.getAbsolutePath()) + File.pathSeparator +
+					((svgFile == null) ? "" : svgFile.getAbsolutePath()));
+		}
+	}
+
+
+	/* Queue the snapshot to be exported -> returns straight away (false if the snapshot replaced a waiting one or if a waiting one had to be dropped)
+	 */
+	public boolean submit (Snapshot snapshot){
+		noOfSubmittedSnapshots.incrementAndGet();
+		boolean queuedWithoutLoss = true;
+		String key = snapshot.getKey();
+
+		synchronized (pendingSnapshots){
+			if (pendingSnapshots.containsKey(key)){
+				noOfCoalescedSnapshots.incrementAndGet();
+				queuedWithoutLoss = false;
+			} else if (pendingSnapshots.size() >= maxPendingSnapshots){
+				Iterator<String> oldestKey = pendingSnapshots.keySet().iterator();
+				oldestKey.next();
+				oldestKey.remove();
+				noOfDroppedSnapshots.incrementAndGet();
+				queuedWithoutLoss = false;
+			}
+			pendingSnapshots.put(key, snapshot);
+
+			if (noOfActiveExporters < noOfThreads){
+				noOfActiveExporters++;
+				executor.execute(new Runnable() {
+					public void run() {
+						exportPendingSnapshots();
+					}
+				});
+			}
+		}
+		return queuedWithoutLoss;
+	}
+	public boolean submit (EllipseDiagram diagram, EllipseDiagramPanel diagPanel, File eldFile, File pngFile, File svgFile){
+		return submit(new Snapshot(diagram, diagPanel, eldFile, pngFile, svgFile));
+	}
+
+	// ... one exporter -> until there is no snapshot that it can export
+	protected void exportPendingSnapshots (){
+		EllipseDiagramPanel panel = null;
+		Snapshot snapshot;
+		String key;
+		while (true){
+			snapshot = null;
+			key = null;
+			synchronized (pendingSnapshots){
+				for (String pendingKey : pendingSnapshots.keySet()){
+					if (!exportingKeys.contains(pendingKey)){
+						key = pendingKey;
+						break;
+					}
+				}
+				if (key == null){
+					noOfActiveExporters--;
+					pendingSnapshots.notifyAll();
+					return;
+				}
+				snapshot = pendingSnapshots.remove(key);
+				exportingKeys.add(key);
+			}
+
+			try {
+				if ((panel == null) && ((snapshot.pngFile != null) || (snapshot.svgFile != null))){
+					panel = new EllipseDiagramPanel(null, null);
+				}
+				if (export(snapshot, panel)){
+					noOfExportedSnapshots.incrementAndGet();
+				} else {
+					noOfFailedSnapshots.incrementAndGet();
+				}
+			} catch (RuntimeException e) {
+				System.out.println("DiagramExportQueue.exportPendingSnapshots: could not export " + key + " -> " + e);
+				noOfFailedSnapshots.incrementAndGet();
+			} finally {
+				synchronized (pendingSnapshots){
+					exportingKeys.remove(key);
+					pendingSnapshots.notifyAll();
+				}
+			}
+		}
+	}
+
+	protected boolean export (Snapshot snapshot, EllipseDiagramPanel panel){
+		boolean exported = true;
+		if ((snapshot.pngFile != null) || (snapshot.svgFile != null)){
+			panel.setDiagram(snapshot.drawnDiagram);
+			panel.requiredAreaSpecs = snapshot.requiredAreaSpecs;
+			panel.useColor = snapshot.useColor;
+			panel.labelsDisplayMode = snapshot.labelsDisplayMode;
+			panel.updateDiagramLabelsOnly = snapshot.updateDiagramLabelsOnly;
+			panel.setSize(snapshot.width, snapshot.height);
+			if (snapshot.pngFile != null){
+				exported &= EllipseDiagramOps.saveDiagImgToFile(panel, snapshot.pngFile);
+			}
+			if (snapshot.svgFile != null){
+				exported &= EllipseDiagramOps.saveDiagToSVGFile(panel, snapshot.svgFile);
+			}
+		}
+		if (snapshot.eldFile != null){
+			exported &= EllipseDiagramOps.saveDiagToFile(snapshot.diagram, snapshot.eldFile);
+		}
+		return exported;
+	}
+
+	/* Wait until all the snapshots submitted so far are exported (e.g. before the files are read) -> false if they are not all exported within millisecs
+	 */
+	public boolean awaitIdle (long millisecs){
+		long endTime = System.currentTimeMillis() + millisecs;
+		long remainingMillisecs;
+		synchronized (pendingSnapshots){
+			while (!pendingSnapshots.isEmpty() || !exportingKeys.isEmpty()){
+				remainingMillisecs = endTime - System.currentTimeMillis();
+				if (remainingMillisecs <= 0){return false;}
+				try {
+					pendingSnapshots.wait(remainingMillisecs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,748 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import jargs.gnu.CmdLineParser;  // this command-line parser by Steve Purcell (2005) is available at http://jargs.sourceforge.net
+
+
+/**
+ * To generate diagrams for other programs over HTTP (JSON in and out) with the HTTP server of the JDK, e.g.
+ *
+ * 		java -cp eulerAPE.jar:lib/* uk.ac.kent.elliptic.areaproptool.DiagramService [{-p,--port} port] [{--host} host] [{-w,--workers} no_of_workers] [{-q,--queue} queue_size] [{--cache-dir} a_dir_path]
+ *
+ * 		POST /diagram   {"areas": {"a": 35754.05, "b": 19659.1, ..., "abc": 10660.6}, "curves": "ellipses", "deadlineSecs": 60}
+ * 		                -> the areas can also be a list in the order of an .els file (a | b | c | ab | ac | bc | abc, or the 2^n - 1 zones of n sets)
+ * 		GET  /health    -> the number of requests running and waiting
+ *
+ * A request is checked before it is queued: 400 if the areas are incorrect (a label that is not a zone of the sets, an area < 0 or not finite, or no area > 0)
+ * and 422 if the regions with an area > 0 cannot be drawn (see EllipseDiagramOps.getReasonZonesCannotBeDrawn). A request that is run returns 200 with the diagram
+ * (exact or not), or 422 with the reason if no diagram could be generated (e.g. no starting diagram with circles).
+ *
+ * The service keeps no state between requests -> every request is run by its own HeadlessDiagramEngine on one of the workers,
+ * the requests which cannot run straight away wait in a bounded queue and, when the queue is full, are refused with 503 (and Retry-After)
+ * rather than slowing down all the other requests. The deadline of a request (from when it is received) is passed on to the hill climber
+ * as HillClimber.maxMinsFor1Run, so a request that runs out of time returns the best diagram found so far (not exact).
+ * The exact diagrams are kept in a DiagramCache, so a request with the same (or scaled) areas as an earlier one is answered without running the hill climber
+ *
+ */
+
+
+public class DiagramService {
+
+	// Static class fields
+
+	public static final int DEFAULT_PORT = 8080;
+	public static final String DEFAULT_HOST = "127.0.0.1";
+	public static final int DEFAULT_QUEUE_SIZE_PER_WORKER = 4;
+	public static final double DEFAULT_DEADLINE_SECS = HillClimber.DEFAULT_MAXMINSFOR1RUN * 60;
+	public static final double MAX_DEADLINE_SECS = 30 * 60;
+
+	// ... time to wait for a request after its deadline (e.g. the starting diagram is being generated or the current iteration is ending) before 504 is returned
+	public static final long DEADLINE_GRACE_MILLISECS = 10000;
+	public static final int RETRY_AFTER_SECS = 5;
+
+	public static final String DIAGRAM_PATH = "/diagram";
+	public static final String HEALTH_PATH = "/health";
+
+	public static final String cmdlineOptions = "[{-p,--port} port] [{--host} host] [{-w,--workers} no_of_workers] [{-q,--queue} queue_size] [{--cache-dir} a_dir_path] [{--metrics-interval} secs]";
+
+
+
+	// Data fields
+
+	protected String host = DEFAULT_HOST;
+	protected int port = DEFAULT_PORT;
+	protected int noOfWorkers = Runtime.getRuntime().availableProcessors();
+	protected int queueSize = DEFAULT_QUEUE_SIZE_PER_WORKER * noOfWorkers;
+
+	protected HttpServer server;
+	protected ThreadPoolExecutor workers;
+	protected ExecutorService httpThreads;
+	protected DiagramCache diagramCache = new DiagramCache(DiagramCache.DEFAULT_CAPACITY);
+
+
+
+	// Constructor
+
+	public DiagramService (String host, int port, int noOfWorkers, int queueSize){
+		this.host = host;
+		this.port = port;
+		this.noOfWorkers = Math.max(1, noOfWorkers);
+		this.queueSize = Math.max(0, queueSize);
+	}
+
+
+
+	// Properties -> getters and setters
+
+	public int getPort() {
+		// the port the server is bound to (e.g. when started with port 0)
+		return (server == null) ? port : server.getAddress().getPort();
+	}
+	public DiagramCache getDiagramCache() {
+		return diagramCache;
+	}
+	public void setDiagramCache(DiagramCache diagramCache) {
+		this.diagramCache = diagramCache;
+	}
+	public int getNoOfRunningRequests() {
+		return (workers == null) ? 0 : workers.getActiveCount();
+	}
+	public int getNoOfQueuedRequests() {
+		return (workers == null) ? 0 : workers.getQueue().size();
+	}
+
+
+
+	// Methods
+
+	// ... server
+
+	public boolean start (){
+		// queue size 0 -> a request is refused unless a worker is free (ArrayBlockingQueue needs a size >= 1)
+		workers = new ThreadPoolExecutor(noOfWorkers, noOfWorkers, 0L, TimeUnit.MILLISECONDS,
+				                         (queueSize > 0) ? new ArrayBlockingQueue<Runnable>(queueSize) : new SynchronousQueue<Runnable>(),
+				                         new ThreadPoolExecutor.AbortPolicy());
+
+		// every request waits for its worker on an HTTP thread -> one HTTP thread for every request which is running or waiting, and some to refuse the rest
+		httpThreads = Executors.newFixedThreadPool(noOfWorkers + queueSize + 2);
+
+		try {
+			server = HttpServer.create(new InetSocketAddress(host, port), 0);
+		} catch (IOException e) {
+			System.out.println("DiagramService.start: could not start the server on " + host + ":" + port + " -> " + e);
+			workers.shutdownNow();
+			httpThreads.shutdownNow();
+			return false;
+		}
+		server.createContext(DIAGRAM_PATH, new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				handleDiagram(exchange);
+			}
+		});
+		server.createContext(HEALTH_PATH, new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				handleHealth(exchange);
+			}
+		});
+		server.setExecutor(httpThreads);
+		server.start();
+		return true;
+	}
+
+	public void stop (){
+		if (server != null){
+			server.stop(0);
+		}
+		if (workers != null){
+			workers.shutdownNow();
+		}
+		if (httpThreads != null){
+			httpThreads.shutdownNow();
+		}
+	}
+
+
+	// ... handlers
+
+	protected void handleHealth (HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("GET")){
+			sendError(exchange, 405, "Only GET is supported by " + HEALTH_PATH);
+			return;
+		}
+		sendJson(exchange, 200, "{\"status\": \"ok\", \"workers\": " + noOfWorkers + ", \"running\": " + getNoOfRunningRequests() +
+				                ", \"queued\": " + getNoOfQueuedRequests() + ", \"queueSize\": " + queueSize + 
+				                ((diagramCache == null) ? "" : ", \"cache\": {\"size\": " + diagramCache.size() + ", \"hits\": " + diagramCache.getNoOfHits() + 
+				                		                       ", \"diskHits\": " + diagramCache.getNoOfDiskHits() + ", \"misses\": " + diagramCache.getNoOfMisses() + "}") + 
+				                ", \"validityChecks\": {\"checked\": " + EllipseDiagram.getNoOfValidityChecks() + 
+				                ", \"rejectedByBoundingBoxes\": " + EllipseDiagram.getNoOfRejectionsAtValidityStage(EllipseDiagram.VALIDITY_STAGE_BOUNDING_BOXES) + 
+				                ", \"rejectedByIntPnts\": " + EllipseDiagram.getNoOfRejectionsAtValidityStage(EllipseDiagram.VALIDITY_STAGE_INTPNTS) + 
+				                ", \"rejectedByZoneAreas\": " + EllipseDiagram.getNoOfRejectionsAtValidityStage(EllipseDiagram.VALIDITY_STAGE_ZONE_AREAS) + 
+				                ", \"rejectedByNoOfZones\": " + EllipseDiagram.getNoOfRejectionsAtValidityStage(EllipseDiagram.VALIDITY_STAGE_NO_OF_ZONES) + "}}");
+	}
+
+	protected void handleDiagram (HttpExchange exchange) throws IOException {
+
+		final long receivedTime = System.currentTimeMillis();
+
+		if (!exchange.getRequestMethod().equals("POST")){
+			sendError(exchange, 405, "Only POST is supported by " + DIAGRAM_PATH);
+			return;
+		}
+
+		// parse the request
+		HashMap<String, Object> request;
+		try {
+			request = new JsonReader(readBody(exchange.getRequestBody())).readObjectOnly();
+		} catch (IllegalArgumentException e) {
+			sendError(exchange, 400, "Invalid JSON: " + e.getMessage());
+			return;
+		}
+
+		final HashMap<String, Double> requiredAreaSpecs = getAreaSpecs(request.get("areas"));
+		if (requiredAreaSpecs == null){
+			sendError(exchange, 400, "\"areas\" must be an object (zone label -> area) or a list of 2^n - 1 areas in the order of an .els file, for 2 to " + EllipseDiagramOps.MAX_NO_OF_ELLIPSES + " sets");
+			return;
+		}
+		String reasonAreaSpecsIncorrect = getReasonAreaSpecsIncorrect(requiredAreaSpecs);
+		if (reasonAreaSpecsIncorrect != null){
+			sendError(exchange, 400, "Incorrect \"areas\": " + reasonAreaSpecsIncorrect);
+			return;
+		}
+		// ... correct but cannot be drawn (e.g. ab, ac and bc without abc) -> refused before it is queued
+		String reasonZonesCannotBeDrawn = EllipseDiagramOps.getReasonZonesCannotBeDrawn(requiredAreaSpecs);
+		if (reasonZonesCannotBeDrawn != null){
+			sendError(exchange, 422, "The regions with an area > 0 cannot be drawn: " + reasonZonesCannotBeDrawn);
+			return;
+		}
+
+		Object curves = request.containsKey("curves") ? request.get("curves") : "ellipses";
+		if (!(curves instanceof String) || !(((String)curves).startsWith("ellipse") || ((String)curves).startsWith("circle"))){
+			sendError(exchange, 400, "\"curves\" must be ellipses or circles");
+			return;
+		}
+		final boolean restrictToCircles = ((String)curves).startsWith("circle");
+
+		Object deadlineSecsObj = request.containsKey("deadlineSecs") ? request.get("deadlineSecs") : Double.valueOf(DEFAULT_DEADLINE_SECS);
+		if (!(deadlineSecsObj instanceof Double) || !(((Double)deadlineSecsObj).doubleValue() > 0)){
+			sendError(exchange, 400, "\"deadlineSecs\" must be a number > 0");
+			return;
+		}
+		final long deadlineTime = receivedTime + (long)(Math.min(((Double)deadlineSecsObj).doubleValue(), MAX_DEADLINE_SECS) * StopWatch.MILLISECS_IN_1SEC);
+
+
+		// run the request on a worker or refuse it if the queue is full
+		Future<RequestResult> result;
+		try {
+			result = workers.submit(new Callable<RequestResult>() {
+				public RequestResult call() {
+					return runRequest(requiredAreaSpecs, restrictToCircles, receivedTime, deadlineTime);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			exchange.getResponseHeaders().set("Retry-After", Integer.toString(RETRY_AFTER_SECS));
+			sendError(exchange, 503, "Too many requests: " + noOfWorkers + " running and " + queueSize + " waiting");
+			return;
+		}
+
+		try {
+			RequestResult response = result.get(Math.max(0, deadlineTime - System.currentTimeMillis()) + DEADLINE_GRACE_MILLISECS, TimeUnit.MILLISECONDS);
+			if (response == null){
+				sendError(exchange, 504, "The deadline passed before the request could be run");
+			} else {
+				sendJson(exchange, response.status, response.json);
+			}
+		} catch (TimeoutException e) {
+			result.cancel(true);
+			sendError(exchange, 504, "The diagram could not be generated before the deadline");
+		} catch (ExecutionException e) {
+			sendError(exchange, 500, "Error while generating the diagram: " + e.getCause());
+		} catch (InterruptedException e) {
+			result.cancel(true);
+			sendError(exchange, 503, "The service is stopping");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	// ... the response to a request that was run -> 200 with the diagram, or 422 with the reason if no diagram could be generated (e.g. no starting diagram)
+	protected static class RequestResult {
+		protected int status;
+		protected String json;
+
+		public RequestResult (int status, String json){
+			this.status = status;
+			this.json = json;
+		}
+	}
+
+	// ... one request -> the response or null if the deadline passed while the request was waiting
+	protected RequestResult runRequest (HashMap<String, Double> requiredAreaSpecs, boolean restrictToCircles, long receivedTime, long deadlineTime){
+
+		long startTime = System.currentTimeMillis();
+		if (startTime >= deadlineTime){return null;}
+
+		// the workers are the cores -> the moves of a hill climber are evaluated sequentially
+		HeadlessDiagramEngine engine = new HeadlessDiagramEngine(restrictToCircles, EllipseDiagram.DEFAULT_FITNESS_MEASURE);
+		engine.setEvaluateMovesInParallel(false);
+		engine.setMaxMinsFor1Run((double)(deadlineTime - startTime) / StopWatch.MILLISECS_IN_1MIN);
+		engine.setDiagramCache(diagramCache);
+		EllipseDiagram diag = engine.generateDiagram(requiredAreaSpecs);
+
+		StringBuffer json = new StringBuffer();
+		json.append("{\"generated\": ").append(diag != null);
+		json.append(", \"exact\": ").append((diag != null) && engine.isExact());
+		json.append(", \"warmStart\": ").append(engine.isInitDiagWarmStart());
+		json.append(", \"reasonForTermination\": ").append(toJsonString(engine.getReasonForTermination()));
+		json.append(", \"queuedMillisecs\": ").append(startTime - receivedTime);
+		json.append(", \"runMillisecs\": ").append(System.currentTimeMillis() - startTime);
+		if (diag != null){
+			json.append(", \"noOfIterations\": ").append((engine.getHillClimber() == null) ? 0 : engine.getHillClimber().elapsedIterations_includingRetries);
+			json.append(", \"ellipses\": ").append(getEllipsesAsJson(diag));
+			json.append(", ").append(getErrorsAsJson(diag, engine));
+		}
+		json.append("}");
+		return new RequestResult((diag != null) ? 200 : 422, json.toString());
+	}
+
+
+	// ... the ellipses as in an .eld file (see EllipseDiagramOps.getEllipseDetailsForFile)
+	protected static String getEllipsesAsJson (EllipseDiagram diag){
+		StringBuffer json = new StringBuffer("[");
+		for (Ellipse e : diag.getEllipses()){
+			if (json.length() > 1){
+				json.append(", ");
+			}
+			json.append("{\"label\": ").append(toJsonString(e.label));
+			json.append(", \"a\": ").append(toJsonNumber(e.getA()));
+			json.append(", \"b\": ").append(toJsonNumber(e.getB()));
+			json.append(", \"xc\": ").append(toJsonNumber(e.getXc()));
+			json.append(", \"yc\": ").append(toJsonNumber(e.getYc()));
+			json.append(", \"rot\": ").append(toJsonNumber(e.getRot())).append("}");
+		}
+		return json.append("]").toString();
+	}
+
+	// ... the four measures used to decide whether a diagram is exact (see HillClimber.run_multipleChangesPerIter) and the zone areas,
+	//     whereby the areas are those requested (the diagram is drawn for the scaled areas -> see HeadlessDiagramEngine.getReqRegionAreasMultFactor)
+	protected static String getErrorsAsJson (EllipseDiagram diag, HeadlessDiagramEngine engine){
+
+		HashMap<String, Double> reqAreas = engine.getScaledRequiredAreaSpecs();
+		HashMap<String, Double> actualAreas = diag.getZoneAreas();
+		double multFactor = engine.getReqRegionAreasMultFactor();
+
+		double totReqArea = 0;
+		double totActualArea = 0;
+		for (String zl : reqAreas.keySet()){
+			totReqArea += reqAreas.get(zl);
+			totActualArea += ((actualAreas != null) && (actualAreas.get(zl) != null)) ? actualAreas.get(zl) : 0;
+		}
+
+		double maxAbsError = 0;
+		double maxRelError = 0;
+		double maxAbsDiffBetweenReqActualProportions = 0;
+		double reqArea;
+		double actualArea;
+		StringBuffer zoneAreas = new StringBuffer("{");
+		for (String zl : EllipseDiagramOps.getZoneLabels(diag.getEllipses().size(), false)){
+			reqArea = (reqAreas.get(zl) == null) ? 0 : reqAreas.get(zl);
+			actualArea = ((actualAreas != null) && (actualAreas.get(zl) != null)) ? actualAreas.get(zl) : 0;
+			maxAbsError = Math.max(maxAbsError, Math.abs(reqArea - actualArea));
+			if (reqArea > 0){
+				maxRelError = Math.max(maxRelError, Math.abs(reqArea - actualArea) / reqArea);
+			}
+			maxAbsDiffBetweenReqActualProportions = Math.max(maxAbsDiffBetweenReqActualProportions, Math.abs((reqArea/totReqArea) - (actualArea/totActualArea)));
+			if (zoneAreas.length() > 1){
+				zoneAreas.append(", ");
+			}
+			zoneAreas.append(toJsonString(zl)).append(": ").append(toJsonNumber(actualArea / multFactor));
+		}
+		zoneAreas.append("}");
+
+		return "\"zoneAreas\": " + zoneAreas +
+		       ", \"reqRegionAreasMultFactor\": " + toJsonNumber(multFactor) +
+		       ", \"errors\": {\"maxAbsError\": " + toJsonNumber(maxAbsError / multFactor) +
+		                    ", \"maxRelError\": " + toJsonNumber(maxRelError) +
+		                    ", \"maxAbsDiffBetweenReqActualProportions\": " + toJsonNumber(maxAbsDiffBetweenReqActualProportions) +
+		                    ", \"maxAbsErrorOverReqTot\": " + toJsonNumber(maxAbsError / totReqArea) + "}";
+	}
+
+
+	// ... the areas as an object (zone label -> area) or a list in the order of EllipseDiagramOps.getZoneLabels -> null if incorrect
+	protected static HashMap<String, Double> getAreaSpecs (Object areas){
+
+		HashMap<String, Double> areaSpecs = new HashMap<String, Double>();
+
+		if (areas instanceof ArrayList){
+			ArrayList<?> areasList = (ArrayList<?>)areas;
+			int noOfEllipses = 0;
+			while (((1 << noOfEllipses) - 1) < areasList.size()){noOfEllipses++;}
+			if ((((1 << noOfEllipses) - 1) != areasList.size()) || (noOfEllipses < 2) || (noOfEllipses > EllipseDiagramOps.MAX_NO_OF_ELLIPSES)){return null;}
+			String[] zoneLabels = EllipseDiagramOps.getZoneLabels(noOfEllipses, false);
+			for (int i=0; i<zoneLabels.length; i++){
+				if (!(areasList.get(i) instanceof Double)){return null;}
+				areaSpecs.put(zoneLabels[i], (Double)areasList.get(i));
+			}
+
+		} else if (areas instanceof HashMap){
+			// ... the keys of a JSON object are always strings (see JsonReader.readObject)
+			String zoneLabel;
+			for (Entry<?, ?> area : ((HashMap<?, ?>)areas).entrySet()){
+				zoneLabel = (String)area.getKey();
+				if (!(area.getValue() instanceof Double) || !zoneLabel.matches("[a-z]+")){return null;}
+				areaSpecs.put(zoneLabel, (Double)area.getValue());
+			}
+			int noOfEllipses = EllipseDiagramOps.getNoOfEllipses(areaSpecs);
+			if ((noOfEllipses < 2) || (noOfEllipses > EllipseDiagramOps.MAX_NO_OF_ELLIPSES)){return null;}
+
+		} else {
+			return null;
+		}
+		return areaSpecs;
+	}
+
+	// ... null if every area is a zone of the n sets with an area >= 0 (0 or left out for the zones that should not be drawn) and at least one area is > 0
+	//     (as HeadlessDiagramEngine.scaleRequiredRegionAreas) -> otherwise what is incorrect
+	protected static String getReasonAreaSpecsIncorrect (HashMap<String, Double> areaSpecs){
+
+		String[] zoneLabels = EllipseDiagramOps.getZoneLabels(EllipseDiagramOps.getNoOfEllipses(areaSpecs), false);
+		if (zoneLabels == null){
+			return "the zones should be labelled with the labels of 2 to " + EllipseDiagramOps.MAX_NO_OF_ELLIPSES + " sets (a, b, ab etc)";
+		}
+		HashSet<String> zoneLabelsOfSets = new HashSet<String>(Arrays.asList(zoneLabels));
+
+		boolean hasNonEmptyZone = false;
+		double area;
+		for (Entry<String, Double> zoneArea : areaSpecs.entrySet()){
+			if (!zoneLabelsOfSets.contains(zoneArea.getKey())){
+				return zoneArea.getKey() + " is not a zone of the sets a to " + (char)(EllipseDiagram.ellipse1Label + EllipseDiagramOps.getNoOfEllipses(areaSpecs) - 1) + " (the labels of the sets in alphabetical order, each once)";
+			}
+			area = zoneArea.getValue();
+			if (Double.isNaN(area) || Double.isInfinite(area) || (area < 0)){
+				return "zone " + zoneArea.getKey() + " should have an area >= 0 -> " + area;
+			}
+			hasNonEmptyZone |= (area > 0);
+		}
+		if (!hasNonEmptyZone){
+			return "at least one zone should have an area > 0";
+		}
+		return null;
+	}
+
+
+	// ... HTTP and JSON
+
+	protected static String readBody (InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int n;
+		while ((n = in.read(buffer)) != -1){
+			body.write(buffer, 0, n);
+		}
+		in.close();
+		return body.toString("UTF-8");
+	}
+
+	protected static void sendJson (HttpExchange exchange, int status, String json) throws IOException {
+		byte[] body = json.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(body);
+		out.close();
+	}
+
+	protected static void sendError (HttpExchange exchange, int status, String message) throws IOException {
+		sendJson(exchange, status, "{\"error\": " + toJsonString(message) + "}");
+	}
+
+	protected static String toJsonNumber (double value){
+		// NaN and infinity are not numbers in JSON
+		return (Double.isNaN(value) || Double.isInfinite(value)) ? "null" : Double.toString(value);
+	}
+
+	protected static String toJsonString (String str){
+		if (str == null){return "null";}
+		StringBuffer json = new StringBuffer("\"");
+		char c;
+		for (int i=0; i<str.length(); i++){
+			c = str.charAt(i);
+			switch (c){
+				case '"': json.append("\\\""); break;
+				case '\\': json.append("\\\\"); break;
+				case '\n': json.append("\\n"); break;
+				case '\r': json.append("\\r"); break;
+				case '\t': json.append("\\t"); break;
+				default:
+					if (c < 0x20){
+						json.append(String.format("\\u%04x", (int)c));
+					} else {
+						json.append(c);
+					}
+			}
+		}
+		return json.append("\"").toString();
+	}
+
+
+	// JsonReader
+	// ... a JSON value -> HashMap<String, Object> (object), ArrayList<Object> (list), String, Double, Boolean or null
+	//     (IllegalArgumentException if the text is not JSON or, for readObjectOnly, not a JSON object)
+
+	protected static class JsonReader {
+		protected String text;
+		protected int pos = 0;
+
+		public JsonReader (String text){
+			this.text = text;
+		}
+
+		public Object read (){
+			Object value = readValue();
+			skipWhitespace();
+			if (pos < text.length()){
+				throw new IllegalArgumentException("unexpected text at " + pos);
+			}
+			return value;
+		}
+
+		public HashMap<String, Object> readObjectOnly (){
+			skipWhitespace();
+			if ((pos >= text.length()) || (text.charAt(pos) != '{')){
+				throw new IllegalArgumentException("a JSON object is expected");
+			}
+			HashMap<String, Object> object = readObject();
+			skipWhitespace();
+			if (pos < text.length()){
+				throw new IllegalArgumentException("unexpected text at " + pos);
+			}
+			return object;
+		}
+
+		protected Object readValue (){
+			skipWhitespace();
+			if (pos >= text.length()){
+				throw new IllegalArgumentException("unexpected end of text");
+			}
+			char c = text.charAt(pos);
+			if (c == '{'){
+				return readObject();
+			} else if (c == '['){
+				return readList();
+			} else if (c == '"'){
+				return readString();
+			} else if (text.startsWith("true", pos)){
+				pos += 4;
+				return Boolean.TRUE;
+			} else if (text.startsWith("false", pos)){
+				pos += 5;
+				return Boolean.FALSE;
+			} else if (text.startsWith("null", pos)){
+				pos += 4;
+				return null;
+			}
+			return readNumber();
+		}
+
+		protected HashMap<String, Object> readObject (){
+			HashMap<String, Object> object = new HashMap<String, Object>();
+			pos++;
+			skipWhitespace();
+			if ((pos < text.length()) && (text.charAt(pos) == '}')){
+				pos++;
+				return object;
+			}
+			String key;
+			do {
+				skipWhitespace();
+				if ((pos >= text.length()) || (text.charAt(pos) != '"')){
+					throw new IllegalArgumentException("a key is expected at " + pos);
+				}
+				key = readString();
+				expect(':');
+				object.put(key, readValue());
+			} while (next(',', '}'));
+			return object;
+		}
+
+		protected ArrayList<Object> readList (){
+			ArrayList<Object> list = new ArrayList<Object>();
+			pos++;
+			skipWhitespace();
+			if ((pos < text.length()) && (text.charAt(pos) == ']')){
+				pos++;
+				return list;
+			}
+			do {
+				list.add(readValue());
+			} while (next(',', ']'));
+			return list;
+		}
+
+		protected String readString (){
+			StringBuffer str = new StringBuffer();
+			pos++;
+			char c;
+			while (pos < text.length()){
+				c = text.charAt(pos++);
+				if (c == '"'){
+					return str.toString();
+				} else if (c == '\\'){
+					if (pos >= text.length()){break;}
+					c = text.charAt(pos++);
+					switch (c){
+						case 'b': str.append('\b'); break;
+						case 'f': str.append('\f'); break;
+						case 'n': str.append('\n'); break;
+						case 'r': str.append('\r'); break;
+						case 't': str.append('\t'); break;
+						case 'u':
+							if (pos + 4 > text.length()){
+								throw new IllegalArgumentException("incorrect escape at " + pos);
+							}
+							try {
+								str.append((char)Integer.parseInt(text.substring(pos, pos + 4), 16));
+							} catch (NumberFormatException e) {
+								throw new IllegalArgumentException("incorrect escape at " + pos);
+							}
+							pos += 4;
+							break;
+						default: str.append(c);
+					}
+				} else {
+					str.append(c);
+				}
+			}
+			throw new IllegalArgumentException("unterminated string");
+		}
+
+		protected Double readNumber (){
+			int start = pos;
+			while ((pos < text.length()) && ("+-0123456789.eE".indexOf(text.charAt(pos)) >= 0)){
+				pos++;
+			}
+			try {
+				return Double.valueOf(text.substring(start, pos));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("a value is expected at " + start);
+			}
+		}
+
+		// ... true if the separator is next, false if the end is next
+		protected boolean next (char separator, char end){
+			skipWhitespace();
+			if (pos < text.length()){
+				char c = text.charAt(pos++);
+				if (c == separator){return true;}
+				if (c == end){return false;}
+			}
+			throw new IllegalArgumentException("'" + separator + "' or '" + end + "' is expected at " + (pos - 1));
+		}
+
+		protected void expect (char c){
+			skipWhitespace();
+			if ((pos >= text.length()) || (text.charAt(pos) != c)){
+				throw new IllegalArgumentException("'" + c + "' is expected at " + pos);
+			}
+			pos++;
+		}
+
+		protected void skipWhitespace (){
+			while ((pos < text.length()) && Character.isWhitespace(text.charAt(pos))){
+				pos++;
+			}
+		}
+	}
+
+
+
+	// Main
+
+	public static void main (String[] args){
+
+		CmdLineParser parser = new CmdLineParser();
+		CmdLineParser.Option parserPort = parser.addIntegerOption('p', "port");
+		CmdLineParser.Option parserHost = parser.addStringOption("host");
+		CmdLineParser.Option parserWorkers = parser.addIntegerOption('w', "workers");
+		CmdLineParser.Option parserQueue = parser.addIntegerOption('q', "queue");
+		CmdLineParser.Option parserCacheDir = parser.addStringOption("cache-dir");
+		CmdLineParser.Option parserMetricsInterval = parser.addIntegerOption("metrics-interval");
+		try {
+			parser.parse(args);
+		} catch (CmdLineParser.OptionException e) {
+			System.err.println("Error in command-line arguments: " + e.getMessage());
+			System.err.println("Usage: Options " + cmdlineOptions);
+			System.exit(2);
+		}
+
+		int noOfWorkers = (Integer)parser.getOptionValue(parserWorkers, Integer.valueOf(Runtime.getRuntime().availableProcessors()));
+		int queueSize = (Integer)parser.getOptionValue(parserQueue, Integer.valueOf(DEFAULT_QUEUE_SIZE_PER_WORKER * noOfWorkers));
+		if ((noOfWorkers < 1) || (queueSize < 0)){
+			System.err.println("Error in command-line arguments: -w (or --workers) must be >= 1 and -q (or --queue) >= 0");
+			System.err.println("Usage: Options " + cmdlineOptions);
+			System.exit(2);
+		}
+		Integer metricsInterval = (Integer)parser.getOptionValue(parserMetricsInterval);
+		if ((metricsInterval != null) && (metricsInterval.intValue() < 1)){
+			System.err.println("Error in command-line arguments: --metrics-interval must be >= 1 (seconds)");
+			System.err.println("Usage: Options " + cmdlineOptions);
+			System.exit(2);
+		}
+
+		DiagramService service = new DiagramService((String)parser.getOptionValue(parserHost, DEFAULT_HOST),
+				                                    (Integer)parser.getOptionValue(parserPort, Integer.valueOf(DEFAULT_PORT)), noOfWorkers, queueSize);
+		String cacheDirPath = (String)parser.getOptionValue(parserCacheDir);
+		if (cacheDirPath != null){
+			service.setDiagramCache(new DiagramCache(DiagramCache.DEFAULT_CAPACITY, new File(cacheDirPath)));
+		}
+		if (!service.start()){
+			System.exit(2);
+		}
+		if (metricsInterval != null){
+			OptimiserMetrics.getInstance().startReporting(1000L * metricsInterval.intValue());
+		}
+		System.out.println("eulerAPE diagram service is running on http://" + service.host + ":" + service.getPort() + DIAGRAM_PATH +
+				           " (" + noOfWorkers + " workers, " + queueSize + " requests can wait)");
+	}
+
+}
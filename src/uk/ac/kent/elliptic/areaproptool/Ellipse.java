@@ -76,6 +76,14 @@ public class Ellipse {
 	protected ConcreteContour asConcreteContour = null;
 	protected double xIntervalPoly = .5;
 
+	// cached shapes of the ellipse centred at the origin (depend only on a, b, rot and xIntervalPoly)
+	//  -> a change of xc or yc (e.g. a translation move of the optimizer) only translates these (no re-sampling or trig per vertex)
+	//  -> a change of a, b or rot discards them (see resetShapeTemplates)
+	protected double[] asPolygonOffsets_x = null;
+	protected double[] asPolygonOffsets_y = null;
+	protected Area asAreaAtOrigin = null;
+	protected Area asAreaForDisplayAtOrigin = null;
+
 
 	// Constructor 
 	public Ellipse (String in_label, double in_a, double in_b, double in_xc, double in_yc, double in_rot){
@@ -104,6 +112,8 @@ public class Ellipse {
 		//resetAsPolygon();  OR  set polygon as null -> to avoid extra computation since polygon might not be used 
 		//                       and getter of polygon (getAsPolygon()) recomputes the asPolygon if polygon is null 
 		asPolygon = null;
+		asConcreteContour = null;
+		resetShapeTemplates();
 	}
 	public double getB() {
 		return b;
@@ -113,6 +123,8 @@ public class Ellipse {
 		//resetAsPolygon();  OR  set polygon as null -> to avoid extra computation since polygon might not be used 
 		//                       and getter of polygon (getAsPolygon()) recomputes the asPolygon if polygon is null 
 		asPolygon = null;
+		asConcreteContour = null;
+		resetShapeTemplates();
 	}
 	public double getXc() {
 		return xc;
@@ -121,7 +133,9 @@ public class Ellipse {
 		this.xc = xc;
 		//resetAsPolygon();  OR  set polygon as null -> to avoid extra computation since polygon might not be used 
 		//                       and getter of polygon (getAsPolygon()) recomputes the asPolygon if polygon is null 
+		// ... the shape templates are kept -> the polygon and areas are recomputed by translating them
 		asPolygon = null;
+		asConcreteContour = null;
 	}
 	public double getYc() {
 		return yc;
@@ -130,7 +144,9 @@ public class Ellipse {
 		this.yc = yc;
 		//resetAsPolygon();  OR  set polygon as null -> to avoid extra computation since polygon might not be used 
 		//                       and getter of polygon (getAsPolygon()) recomputes the asPolygon if polygon is null 
+		// ... the shape templates are kept -> the polygon and areas are recomputed by translating them
 		asPolygon = null;
+		asConcreteContour = null;
 	}
 	public double getRot() {
 		return rot;
@@ -140,11 +156,20 @@ public class Ellipse {
 		//resetAsPolygon();  OR  set polygon as null -> to avoid extra computation since polygon might not be used 
 		//                       and getter of polygon (getAsPolygon()) recomputes the asPolygon if polygon is null 
 		asPolygon = null;
+		asConcreteContour = null;
+		resetShapeTemplates();
 	}
 	
 	
 	public Ellipse clone(){
-		return (new Ellipse(new String(label), a, b, xc, yc, rot));
+		Ellipse eClone = new Ellipse(new String(label), a, b, xc, yc, rot);
+		// the templates are never modified once computed (only replaced) -> can be shared with the clone
+		eClone.xIntervalPoly = xIntervalPoly;
+		eClone.asPolygonOffsets_x = asPolygonOffsets_x;
+		eClone.asPolygonOffsets_y = asPolygonOffsets_y;
+		eClone.asAreaAtOrigin = asAreaAtOrigin;
+		eClone.asAreaForDisplayAtOrigin = asAreaForDisplayAtOrigin;
+		return eClone;
 	}
 		
 	
@@ -169,9 +194,18 @@ public class Ellipse {
 
 	public void setXIntervalPoly(int in_xInterval){
 		xIntervalPoly = in_xInterval;
+		asPolygonOffsets_x = null;
+		asPolygonOffsets_y = null;
 		resetAsPolygon();
 	}
 	
+	protected void resetShapeTemplates(){
+		asPolygonOffsets_x = null;
+		asPolygonOffsets_y = null;
+		asAreaAtOrigin = null;
+		asAreaForDisplayAtOrigin = null;
+	}
+	
 	
 	public double[] getY (double x){
 		return getY(x, this.rot);
@@ -239,23 +273,25 @@ public class Ellipse {
 
 	public Area getShapeAreaForDisplay (Point2D.Double centreOfSystem){
 		
-		Ellipse2D e2D = new Ellipse2D.Double(-a, -b, (2*a), (2*b));
-		
-		AffineTransform at = AffineTransform.getTranslateInstance(xc+centreOfSystem.x, -yc+centreOfSystem.y);
-        at.rotate(Math.toRadians(-rot));
-        Shape rotEllipse = at.createTransformedShape(e2D);
+		// the rotated ellipse centred at the origin is cached -> only translated here
+		// => a new Area is returned every time (callers add, subtract, intersect... the returned area)
+		if (asAreaForDisplayAtOrigin == null){
+			Ellipse2D e2D = new Ellipse2D.Double(-a, -b, (2*a), (2*b));
+			asAreaForDisplayAtOrigin = new Area(AffineTransform.getRotateInstance(Math.toRadians(-rot)).createTransformedShape(e2D));
+		}
         
-        return (new Area(rotEllipse));
+        return (asAreaForDisplayAtOrigin.createTransformedArea(AffineTransform.getTranslateInstance(xc+centreOfSystem.x, -yc+centreOfSystem.y)));
 	}
 	
 	public Area getShapeAreaAsIs (){
-		Ellipse2D e2D = new Ellipse2D.Double(-a, -b, (2*a), (2*b));
 		
-		AffineTransform at = AffineTransform.getTranslateInstance(xc, yc);
-        at.rotate(Math.toRadians(rot));
-        Shape rotEllipse = at.createTransformedShape(e2D);
+		// as for getShapeAreaForDisplay -> the rotated ellipse centred at the origin is cached and only translated here
+		if (asAreaAtOrigin == null){
+			Ellipse2D e2D = new Ellipse2D.Double(-a, -b, (2*a), (2*b));
+			asAreaAtOrigin = new Area(AffineTransform.getRotateInstance(Math.toRadians(rot)).createTransformedShape(e2D));
+		}
         
-        return (new Area(rotEllipse));
+        return (asAreaAtOrigin.createTransformedArea(AffineTransform.getTranslateInstance(xc, yc)));
 	}
 	
 
@@ -274,6 +310,7 @@ public class Ellipse {
 	
 
 	public ConcreteContour getAsConcreteContour(){
+		// built lazily (i.e. only when needed) as its area is costly to compute and is not needed when only the polygon is used 
 		if (asConcreteContour == null){
 			asConcreteContour = new ConcreteContour(this.label, getAsPolygon());
 		}
@@ -282,41 +319,55 @@ public class Ellipse {
 	
 	public void resetAsPolygon(){
 		asPolygon = null;
+		asConcreteContour = null;
 		getAsPolygon();
 	}
 	public Polygon getAsPolygon(){
 		if (asPolygon == null){
 			asPolygon = toPolygon();
-			asConcreteContour = new ConcreteContour(this.label, asPolygon);
 		}
 		return asPolygon;
 	}
 
 	private Polygon toPolygon(){
-	
-		int npnts = (int)(((2 * a) / xIntervalPoly) * 2);
 		
+		// the points of the polygon are those of the template (the ellipse centred at the origin) translated to (xc,yc)
+		//  -> the template is only recomputed if a, b, rot or xIntervalPoly changed 
+		if (asPolygonOffsets_x == null){
+			computePolygonOffsets();
+		}
+		
+		int npnts = asPolygonOffsets_x.length;
 		int[] xpnts = new int[npnts];
 		int[] ypnts = new int[npnts];
+		for (int p = 0; p < npnts; p++){
+			xpnts[p] = (int) Math.round(this.xc + asPolygonOffsets_x[p]);
+			ypnts[p] = (int) Math.round(this.yc + asPolygonOffsets_y[p]);
+		}
+
+		return (new Polygon(xpnts, ypnts, npnts));
+	}
+	
+	private void computePolygonOffsets(){
+	
+		int npnts = (int)(((2 * a) / xIntervalPoly) * 2);
 		
 		double[] xpntsDbl = new double[npnts];
 		double[] ypntsDbl = new double[npnts];
 
-		double leftmost_x = xc - a;
-
-		double x = leftmost_x - xIntervalPoly;
+		double x = -a - xIntervalPoly;
 		int midpntIndex = ((int)(npnts / 2) - 1) + (npnts % 2);
-		double [] ys;
+		double [] ys = new double[2];
 		for (int i=0; i <= midpntIndex; i++){
 			x += xIntervalPoly;
 			
-			ys = getY(x,0); //get y when the ellipse has centre (xc,yc) but rotation 0
-			// getY never returns null -> thus some points might be NaN and these are handled further down
+			// y when the ellipse has centre (0,0) and rotation 0 (as getY(x,0) but without building a Conic for every point)
+			// -> NaN outside the ellipse and these are handled further down
+			ys[0] = Math.sqrt((b * b) * (1 - ((x * x) / (a * a))));
+			ys[1] = -ys[0];
 			
-			if ((Double.isNaN(ys[0]) || Double.isNaN(ys[1])) && (i<=0)){
+			if (Double.isNaN(ys[0]) && (i<=0)){
 				npnts -= 2;
-				xpnts = new int[npnts];
-				ypnts = new int[npnts];
 				xpntsDbl = new double[npnts];
 				ypntsDbl = new double[npnts];
 				midpntIndex--;
@@ -325,15 +376,7 @@ public class Ellipse {
 			}
 			if (Double.isNaN(ys[0])){
 				ys[0] = ypntsDbl[i-1];
-			}
-			if (Double.isNaN(ys[1])){
-				int indexCurrY_topHalf = npnts - i - 2;
-				int indexPrevY_bottomHalf = npnts - i - 2;
-				if (indexPrevY_bottomHalf == indexCurrY_topHalf){
-					ys[1] = ys[0];
-				} else {
-					ys[1] = ypntsDbl[npnts - i - 2];
-				}
+				ys[1] = ys[0];
 			}
 
 			Arrays.sort(ys);				
@@ -345,26 +388,22 @@ public class Ellipse {
 			ypntsDbl[npnts - i - 1] = ys[1]; 
 		}
 	
-		double t_x; 
-		double t_y;
-		double rotRad;
+		//rotate the ellipse according to its specifications 
+		//   -> the points obtained at this point are those of an ellipse with centre (0,0) and rotation 0 
+		double rotRad = Math.toRadians(-this.rot);
+		double cosRot = Math.cos(rotRad);
+		double sinRot = Math.sin(rotRad);
+		
+		asPolygonOffsets_x = new double[npnts];
+		asPolygonOffsets_y = new double[npnts];
 		for (int p = 0; p < npnts; p++){
-			//rotate the ellipse according to its specifications 
-			//   -> the points obtained at this point are those of an ellipse with centre (xc,yc) and rotation 0 
-			
-			t_x = xpntsDbl[p]-this.xc;
-			t_y = ypntsDbl[p]-this.yc;
-			
-			rotRad = Math.toRadians(-this.rot);
-			
-			xpnts[p] = (int) Math.round(this.xc + ( (t_x * Math.cos(rotRad)) + (t_y * Math.sin(rotRad))));
-			ypnts[p] = (int) Math.round(this.yc + ( -(t_x * Math.sin(rotRad)) + (t_y * Math.cos(rotRad))));
+			asPolygonOffsets_x[p] = (xpntsDbl[p] * cosRot) + (ypntsDbl[p] * sinRot);
+			asPolygonOffsets_y[p] = -(xpntsDbl[p] * sinRot) + (ypntsDbl[p] * cosRot);
 		}
-
-		return (new Polygon(xpnts, ypnts, npnts));
 	}
 
 
+
 	
 	// Get equation for ellipse as a String 
 	
@@ -869,7 +908,27 @@ public class Ellipse {
 	}
 	
 	public ArrayList<Point2D.Double> getIntPnts_WithEllipse (Ellipse e2, int considerPreciseOrLessPrecisePossibleIntPnts){
-		// This is based on the algorithm in: 
+		// the intersection points are found by EllipseIntersectionKernel, which gives the same points as getIntPnts_WithEllipse_AsConics
+		// without creating any Conic, TransformationMatrix, Line2D or Point2D objects (other than the returned points)
+		
+		//if considerPreciseOrLessPrecisePossibleIntPnts = 0, consider precise int pnts
+		//if considerPreciseOrLessPrecisePossibleIntPnts = 1, consider less precise possible int pnts
+		
+		double[] intPnts = EllipseIntersectionKernel.newIntPntsBuffer();
+		int noOfIntPnts = EllipseIntersectionKernel.getIntPnts_WithEllipse(this, e2, considerPreciseOrLessPrecisePossibleIntPnts,
+																			EllipseIntersectionKernel.newWorkBuffer(), intPnts);
+		
+		ArrayList<Point2D.Double> intpnts = new ArrayList<Point2D.Double>(noOfIntPnts);
+		for (int i = 0; i < noOfIntPnts; i++){
+			intpnts.add(new Point2D.Double(intPnts[2*i], intPnts[2*i+1]));
+		}
+		return intpnts;
+	}
+	
+	public ArrayList<Point2D.Double> getIntPnts_WithEllipse_AsConics (Ellipse e2, int considerPreciseOrLessPrecisePossibleIntPnts){
+		// the reference implementation, with Conic and TransformationMatrix objects, against which EllipseIntersectionKernel is verified
+		
+		// This is based on the algorithm in:  
 		// Kenneth J Hill (1995). Matrix-based Ellipse Geometry. In Alan W Paeth (ed.), Graphics Gems V, Morgan Kaufmann, San Francisco, CA, USA, pp. 72-77.
 		
 		//if considerPreciseOrLessPrecisePossibleIntPnts = 0, consider precise int pnts
@@ -1738,6 +1797,59 @@ public class Ellipse {
 		}
 		return null;
 	}
+	
+	
+	
+	// ... finding areas of elliptic arcs using Green's theorem
+	
+	public double getParametricT (double x, double y){
+		// unlike getParametricTForPnt, the rotation of the ellipse is taken into account
+		// => the point (getX_parametric(t), getY_parametric(t)) is the point on the ellipse closest in angle to (x,y)
+		// outputs angle in radians form in the range [0, 2*PI)
+		
+		double rotInRad = getRotInRad();
+		double dx = x - this.xc;
+		double dy = y - this.yc;
+		double u = (dx*Math.cos(rotInRad)) + (dy*Math.sin(rotInRad));
+		double v = -(dx*Math.sin(rotInRad)) + (dy*Math.cos(rotInRad));
+		
+		double t = Math.atan2(v/this.b, u/this.a);
+		if (t < 0){
+			t += (2*Math.PI);
+		}
+		return t;
+	}
+	
+	public boolean isPointInEllipse (double x, double y){
+		// the edge of the ellipse is not included and no rounding is carried out (see isPointInEllipse(Point2D.Double, boolean, double))
+		
+		double rotInRad = getRotInRad();
+		double dx = x - this.xc;
+		double dy = y - this.yc;
+		double u = (dx*Math.cos(rotInRad)) + (dy*Math.sin(rotInRad));
+		double v = -(dx*Math.sin(rotInRad)) + (dy*Math.cos(rotInRad));
+		
+		return (((u*u)/(this.a*this.a)) + ((v*v)/(this.b*this.b)) < 1);
+	}
+	
+	public double computeAreaOfArc_ByGreen (double t1, double t2){
+		// the line integral (1/2) * integral of (x dy - y dx) along the arc of the ellipse from parametric angle t1 to t2 (t1 < t2, in radians) 
+		// -> with x = xc + u and y = yc + v (u,v -> the ellipse centred at the origin) this is (1/2) * (a*b*(t2-t1) + xc*(v2-v1) - yc*(u2-u1)) 
+		// => summing this for all the arcs on the boundary of a region (anticlockwise) gives the area of the region (Green's theorem)
+		
+		double rotInRad = getRotInRad();
+		double cosRot = Math.cos(rotInRad);
+		double sinRot = Math.sin(rotInRad);
+		double cosT1 = Math.cos(t1);
+		double sinT1 = Math.sin(t1);
+		double cosT2 = Math.cos(t2);
+		double sinT2 = Math.sin(t2);
+		
+		double du = (this.a*cosRot*(cosT2-cosT1)) - (this.b*sinRot*(sinT2-sinT1));
+		double dv = (this.a*sinRot*(cosT2-cosT1)) + (this.b*cosRot*(sinT2-sinT1));
+		
+		return (0.5 * ((this.a*this.b*(t2-t1)) + (this.xc*dv) - (this.yc*du)));
+	}
 
 
 	
@@ -0,0 +1,617 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import uk.ac.kent.elliptic.areaproptool.TestingWithPolygons.DiagramZoneCondition;
+
+
+/**
+ * To build the planar subdivision (arrangement) of the ellipses of a diagram from their intersection points
+ * -> the vertices are the intersection points, the edges are the elliptic arcs between consecutive intersection points on every ellipse
+ *    and the faces are the connected regions of the plane -> every face is in one zone (the zone with id 0 is outside all the ellipses)
+ * -> every arc has two sides (half-edges): the inside of the ellipse traversed anticlockwise (t1 -> t2) and the outside traversed clockwise (t2 -> t1)
+ *    and the half-edges are linked into cycles (the boundaries of the faces) by ordering the half-edges leaving every vertex by angle
+ * -> the area of every cycle is obtained with Green's theorem along its arcs (see Ellipse.computeAreaOfArc_ByGreen) as in EllipseDiagram.computeZoneAreas_ByArcs
+ *    => an anticlockwise cycle (area > 0) is the outer boundary of a bounded face and a clockwise cycle (area < 0) is a hole in a face (or a boundary of the unbounded face)
+ *
+ * Unlike ConcreteContour.generateZoneAreas and Zone.getZones, no polygons or java.awt.geom.Area are used
+ * -> the arcs are exact (up to the intersection points) and the number of faces of every zone (i.e. whether the zone is disconnected)
+ *    and their areas are obtained directly
+ *
+ */
+
+
+public class EllipseArrangement {
+
+	// Data fields
+
+	// intersection points closer than this are the same vertex (e.g. a point where 3 ellipses meet, obtained once for every pair)
+	public static final double VERTEX_TOLERANCE = 1e-6;
+
+	// the length (relative to the smallest semi-axis of the ellipses) from the start of a half-edge to the point used to order the half-edges leaving a vertex
+	// -> the chord rather than the tangent and the same length for every half-edge, so that the arcs of two ellipses that touch (same tangent) are ordered by their curvature
+	protected static final double ANGLE_PROBE_LENGTH = 1e-3;
+
+	// the default parametric step when sampling the cycles as points (e.g. for display)
+	public static final double DEFAULT_SAMPLING_T = Math.PI/128;
+
+	protected ArrayList<Ellipse> ellipses;
+	protected int[] ellZoneIds;
+
+	// false if the half-edges could not be linked into cycles of one zone each (e.g. intersection points that are not consistent)
+	protected boolean consistent = false;
+
+	// ... vertices as x,y
+	protected int noOfVertices = 0;
+	protected double[] vertices;
+
+	// ... arcs -> the ellipse, t1 and t2 (t1 < t2, anticlockwise), the vertices at t1 and t2 (-1 for an ellipse without intersection points),
+	//            the zone on the inside and on the outside of the ellipse, and the Green line integral from t1 to t2
+	protected int noOfArcs = 0;
+	protected int[] arcEllIndices;
+	protected double[] arcTs;
+	protected int[] arcVertices;
+	protected int[] arcZoneIds;
+	protected double[] arcGreenAreas;
+
+	// ... half-edges -> 2*arc on the inside of the ellipse (from t1 to t2) and 2*arc+1 on the outside (from t2 to t1)
+	protected int[] halfEdgeNext;
+	protected int[] halfEdgeCycle;
+
+	// ... cycles -> the first half-edge, the zone and the signed area (> 0 anticlockwise), and the face bounded by the cycle (-1 for the unbounded face)
+	protected int noOfCycles = 0;
+	protected int[] cycleFirstHalfEdges;
+	protected int[] cycleZoneIds;
+	protected double[] cycleAreas;
+	protected int[] cycleFaces;
+
+	// ... bounded faces -> the zone, the area (the outer cycle less its holes) and the outer cycle
+	protected int noOfFaces = 0;
+	protected int[] faceZoneIds;
+	protected double[] faceAreas;
+	protected int[] faceOuterCycles;
+
+
+
+	// Constructor
+
+	public EllipseArrangement (ArrayList<Ellipse> ellipses, int[] ellZoneIds, double[] intPntsOfEllPairs, int[] ellPairEllIndices, int maxNoOfIntPntsPerEllPair){
+		// intPntsOfEllPairs and ellPairEllIndices as in EllipseDiagram -> maxNoOfIntPntsPerEllPair slots (x,y) per ellipse pair, NaN if empty
+
+		this.ellipses = ellipses;
+		this.ellZoneIds = ellZoneIds;
+
+		int[] intPntVertices = buildVertices(intPntsOfEllPairs);
+		buildArcs(intPntsOfEllPairs, ellPairEllIndices, maxNoOfIntPntsPerEllPair, intPntVertices);
+		if (!linkHalfEdges()){return;}
+		if (!traceCycles()){return;}
+		this.consistent = buildFaces();
+	}
+
+
+
+	// Properties -> getters
+
+	public boolean isConsistent() {
+		return consistent;
+	}
+	public int getNoOfVertices() {
+		return noOfVertices;
+	}
+	public double getVertexX(int v) {
+		return vertices[2*v];
+	}
+	public double getVertexY(int v) {
+		return vertices[2*v+1];
+	}
+	public int getNoOfArcs() {
+		return noOfArcs;
+	}
+	public Ellipse getArcEllipse(int arc) {
+		return ellipses.get(arcEllIndices[arc]);
+	}
+	public double getArcT1(int arc) {
+		return arcTs[2*arc];
+	}
+	public double getArcT2(int arc) {
+		return arcTs[2*arc+1];
+	}
+	public int getArcInsideZoneId(int arc) {
+		return arcZoneIds[2*arc];
+	}
+	public int getArcOutsideZoneId(int arc) {
+		return arcZoneIds[2*arc+1];
+	}
+	public int getNoOfCycles() {
+		return noOfCycles;
+	}
+	public int getCycleZoneId(int cycle) {
+		return cycleZoneIds[cycle];
+	}
+	public double getCycleArea(int cycle) {
+		return cycleAreas[cycle];
+	}
+	public int getCycleFace(int cycle) {
+		return cycleFaces[cycle];
+	}
+	public int getNoOfFaces() {
+		return noOfFaces;
+	}
+	public int getFaceZoneId(int face) {
+		return faceZoneIds[face];
+	}
+	public double getFaceArea(int face) {
+		return faceAreas[face];
+	}
+	public int getFaceOuterCycle(int face) {
+		return faceOuterCycles[face];
+	}
+
+
+
+	// Methods
+
+	// ... the zones
+
+	public double getZoneArea(int zoneId){
+		// the sum of the areas of the faces of the zone (0 if the zone is not in the arrangement)
+		double area = 0;
+		for (int f=0; f<noOfFaces; f++){
+			if (faceZoneIds[f] == zoneId){
+				area += faceAreas[f];
+			}
+		}
+		return area;
+	}
+
+	public int getNoOfFacesInZone(int zoneId){
+		return getNoOfFacesInZone(zoneId, 0);
+	}
+	public int getNoOfFacesInZone(int zoneId, double faceAreaDiscardThreshold){
+		// the faces with an area smaller than the threshold are not counted (as the polygons in TestingWithPolygons.getAreaOfSignificantPolygonsInEachZoneOfDiagram)
+		int n = 0;
+		for (int f=0; f<noOfFaces; f++){
+			if ((faceZoneIds[f] == zoneId) && (faceAreas[f] >= faceAreaDiscardThreshold)){
+				n++;
+			}
+		}
+		return n;
+	}
+
+	public boolean isZoneConnected(int zoneId){
+		return (getNoOfFacesInZone(zoneId) == 1);
+	}
+
+	public DiagramZoneCondition getZoneCondition(int[] zoneIds, double faceAreaDiscardThreshold){
+		// as TestingWithPolygons.doesDiagramContainEmptyLikeOrDisconnectedZones but with the faces of the arrangement rather than the polygons of the zones
+		// -> every zone in zoneIds and any other zone in the arrangement (other than the zone outside all the ellipses) should have exactly one face that is not smaller than the threshold
+
+		int noOfFacesInZone;
+		for (int zoneId : zoneIds){
+			noOfFacesInZone = getNoOfFacesInZone(zoneId, faceAreaDiscardThreshold);
+			if (noOfFacesInZone < 1){
+				return DiagramZoneCondition.EMPTY_LIKE;
+			} else if (noOfFacesInZone > 1){
+				return DiagramZoneCondition.DISCONNECTED_LIKE;
+			}
+		}
+		for (int f=0; f<noOfFaces; f++){
+			if (faceZoneIds[f] == 0){continue;}
+			noOfFacesInZone = getNoOfFacesInZone(faceZoneIds[f], faceAreaDiscardThreshold);
+			if (noOfFacesInZone > 1){
+				return DiagramZoneCondition.DISCONNECTED_LIKE;
+			}
+		}
+		return DiagramZoneCondition.NOTEMPTYLIKE_CONNECTED;
+	}
+
+
+	// ... the boundaries as points (e.g. for display)
+
+	public double[] getCyclePoints(int cycle){
+		return getCyclePoints(cycle, DEFAULT_SAMPLING_T);
+	}
+	public double[] getCyclePoints(int cycle, double maxStepT){
+		// the points (x,y) along the arcs of the cycle in the order of the cycle (the first point is not repeated at the end)
+		// -> every arc is sampled with a parametric step of at most maxStepT
+
+		int noOfPnts = 0;
+		int h = cycleFirstHalfEdges[cycle];
+		do {
+			noOfPnts += getNoOfStepsOfArc(h/2, maxStepT);
+			h = halfEdgeNext[h];
+		} while (h != cycleFirstHalfEdges[cycle]);
+
+		double[] pnts = new double[2*noOfPnts];
+		int p = 0;
+		int arc;
+		int noOfSteps;
+		double t1;
+		double dt;
+		Ellipse e;
+		h = cycleFirstHalfEdges[cycle];
+		do {
+			arc = h/2;
+			e = ellipses.get(arcEllIndices[arc]);
+			noOfSteps = getNoOfStepsOfArc(arc, maxStepT);
+			// the inside half-edge from t1 to t2 and the outside half-edge from t2 to t1 -> the end point is the start of the next half-edge
+			t1 = ((h % 2) == 0) ? arcTs[2*arc] : arcTs[2*arc+1];
+			dt = (arcTs[2*arc+1] - arcTs[2*arc]) / noOfSteps;
+			if ((h % 2) == 1){
+				dt = -dt;
+			}
+			for (int s=0; s<noOfSteps; s++){
+				pnts[2*p] = e.getX_parametric(t1 + s*dt, true);
+				pnts[2*p+1] = e.getY_parametric(t1 + s*dt, true);
+				p++;
+			}
+			h = halfEdgeNext[h];
+		} while (h != cycleFirstHalfEdges[cycle]);
+
+		return pnts;
+	}
+
+	private int getNoOfStepsOfArc(int arc, double maxStepT){
+		return Math.max(1, (int)Math.ceil((arcTs[2*arc+1] - arcTs[2*arc]) / maxStepT));
+	}
+
+
+	// ... building the arrangement
+
+	private int[] buildVertices(double[] intPntsOfEllPairs){
+		// the vertex of every intersection point (-1 for the empty slots)
+
+		int[] intPntVertices = new int[intPntsOfEllPairs.length/2];
+		vertices = new double[intPntsOfEllPairs.length];
+		noOfVertices = 0;
+
+		double x;
+		double y;
+		int v;
+		for (int p=0; p<intPntVertices.length; p++){
+			x = intPntsOfEllPairs[2*p];
+			y = intPntsOfEllPairs[2*p+1];
+			if (Double.isNaN(x) || Double.isNaN(y)){
+				intPntVertices[p] = -1;
+				continue;
+			}
+			for (v=0; v<noOfVertices; v++){
+				if ((Math.abs(vertices[2*v] - x) <= VERTEX_TOLERANCE) && (Math.abs(vertices[2*v+1] - y) <= VERTEX_TOLERANCE)){
+					break;
+				}
+			}
+			if (v == noOfVertices){
+				vertices[2*v] = x;
+				vertices[2*v+1] = y;
+				noOfVertices++;
+			}
+			intPntVertices[p] = v;
+		}
+		return intPntVertices;
+	}
+
+	private void buildArcs(double[] intPntsOfEllPairs, int[] ellPairEllIndices, int maxNoOfIntPntsPerEllPair, int[] intPntVertices){
+		// as in EllipseDiagram.computeZoneAreas_ByArcs -> every ellipse is split at its intersection points (sorted by parametric angle)
+		// and the zone on either side of an arc is found from the ellipses that contain its midpoint
+
+		int noOfEllipses = ellipses.size();
+		int noOfEllPairs = ellPairEllIndices.length/2;
+
+		// at most one arc per intersection point on each of its 2 ellipses, and one arc for every ellipse without intersection points
+		int maxNoOfArcs = 2*intPntVertices.length + noOfEllipses;
+		arcEllIndices = new int[maxNoOfArcs];
+		arcTs = new double[2*maxNoOfArcs];
+		arcVertices = new int[2*maxNoOfArcs];
+		arcZoneIds = new int[2*maxNoOfArcs];
+		arcGreenAreas = new double[maxNoOfArcs];
+		noOfArcs = 0;
+
+		double[] ts = new double[intPntVertices.length];
+		int[] vs = new int[intPntVertices.length];
+		int noOfTs;
+		Ellipse e;
+		int p;
+		double t;
+		int k;
+		double t1;
+		double t2;
+		double tMid;
+		double x;
+		double y;
+		int outsideZoneId;
+		for (int i=0; i<noOfEllipses; i++){
+			e = ellipses.get(i);
+
+			// the vertices on this ellipse in ascending order of parametric angle (insertion sort -> only a few points)
+			noOfTs = 0;
+			for (int ellPairIndex=0; ellPairIndex<noOfEllPairs; ellPairIndex++){
+				if ((ellPairEllIndices[2*ellPairIndex] != i) && (ellPairEllIndices[2*ellPairIndex+1] != i)){continue;}
+				for (int s=0; s<maxNoOfIntPntsPerEllPair; s++){
+					p = maxNoOfIntPntsPerEllPair*ellPairIndex + s;
+					if (intPntVertices[p] < 0){continue;}
+					t = e.getParametricT(intPntsOfEllPairs[2*p], intPntsOfEllPairs[2*p+1]);
+					for (k=noOfTs; (k > 0) && (ts[k-1] > t); k--){
+						ts[k] = ts[k-1];
+						vs[k] = vs[k-1];
+					}
+					ts[k] = t;
+					vs[k] = intPntVertices[p];
+					noOfTs++;
+				}
+			}
+
+			// ... the same vertex obtained with more than one ellipse is only kept once
+			k = 0;
+			for (int j=0; j<noOfTs; j++){
+				if ((k > 0) && (vs[k-1] == vs[j])){continue;}
+				ts[k] = ts[j];
+				vs[k] = vs[j];
+				k++;
+			}
+			noOfTs = k;
+			if ((noOfTs > 1) && (vs[noOfTs-1] == vs[0])){
+				noOfTs--;
+			}
+
+			// the arcs between every two consecutive vertices (the whole ellipse if it does not intersect any ellipse)
+			for (int j=0; j<Math.max(noOfTs, 1); j++){
+				if (noOfTs == 0){
+					t1 = 0;
+					t2 = 2*Math.PI;
+					arcVertices[2*noOfArcs] = -1;
+					arcVertices[2*noOfArcs+1] = -1;
+				} else {
+					t1 = ts[j];
+					t2 = (j < noOfTs-1) ? ts[j+1] : (ts[0] + 2*Math.PI);
+					arcVertices[2*noOfArcs] = vs[j];
+					arcVertices[2*noOfArcs+1] = (j < noOfTs-1) ? vs[j+1] : vs[0];
+				}
+
+				tMid = (t1 + t2)/2;
+				x = e.getX_parametric(tMid, true);
+				y = e.getY_parametric(tMid, true);
+				outsideZoneId = 0;
+				for (int l=0; l<noOfEllipses; l++){
+					if ((l != i) && ellipses.get(l).isPointInEllipse(x, y)){
+						outsideZoneId |= ellZoneIds[l];
+					}
+				}
+
+				arcEllIndices[noOfArcs] = i;
+				arcTs[2*noOfArcs] = t1;
+				arcTs[2*noOfArcs+1] = t2;
+				arcZoneIds[2*noOfArcs] = outsideZoneId | ellZoneIds[i];
+				arcZoneIds[2*noOfArcs+1] = outsideZoneId;
+				arcGreenAreas[noOfArcs] = e.computeAreaOfArc_ByGreen(t1, t2);
+				noOfArcs++;
+			}
+		}
+	}
+
+	private boolean linkHalfEdges(){
+		// at every vertex, the half-edges leaving the vertex are sorted anticlockwise by angle
+		// => the half-edge following an incoming half-edge h (with its face on the left) is the one leaving the vertex just clockwise of the twin of h
+
+		halfEdgeNext = new int[2*noOfArcs];
+
+		// ... the half-edges leaving every vertex (2*arc leaves the vertex at t1 and 2*arc+1 the vertex at t2)
+		int[] noOfHalfEdgesFromVertex = new int[noOfVertices+1];
+		for (int h=0; h<2*noOfArcs; h++){
+			if (arcVertices[h] < 0){
+				// an ellipse without intersection points -> each side is a cycle on its own
+				halfEdgeNext[h] = h;
+				continue;
+			}
+			noOfHalfEdgesFromVertex[arcVertices[h]+1]++;
+		}
+		for (int v=0; v<noOfVertices; v++){
+			noOfHalfEdgesFromVertex[v+1] += noOfHalfEdgesFromVertex[v];
+		}
+		int[] halfEdgesFromVertex = new int[2*noOfArcs];
+		double[] halfEdgeAngles = new double[2*noOfArcs];
+		int[] next = Arrays.copyOf(noOfHalfEdgesFromVertex, noOfVertices);
+		double probeLength = Double.MAX_VALUE;
+		for (Ellipse e : ellipses){
+			probeLength = Math.min(probeLength, ANGLE_PROBE_LENGTH*Math.min(e.getA(), e.getB()));
+		}
+		for (int h=0; h<2*noOfArcs; h++){
+			if (arcVertices[h] < 0){continue;}
+			halfEdgesFromVertex[next[arcVertices[h]]++] = h;
+			halfEdgeAngles[h] = getAngleOfHalfEdge(h, probeLength);
+		}
+
+		int from;
+		int to;
+		int h;
+		int k;
+		for (int v=0; v<noOfVertices; v++){
+			from = noOfHalfEdgesFromVertex[v];
+			to = noOfHalfEdgesFromVertex[v+1];
+			if ((to - from) < 2){
+				// an arc ends at every vertex where another one starts
+				System.out.println("EllipseArrangement.linkHalfEdges: only one arc at the intersection point ("+vertices[2*v]+","+vertices[2*v+1]+")");
+				return false;
+			}
+
+			for (int j=from+1; j<to; j++){
+				h = halfEdgesFromVertex[j];
+				for (k=j; (k > from) && (halfEdgeAngles[halfEdgesFromVertex[k-1]] > halfEdgeAngles[h]); k--){
+					halfEdgesFromVertex[k] = halfEdgesFromVertex[k-1];
+				}
+				halfEdgesFromVertex[k] = h;
+			}
+
+			// ... the twin (h^1) of every half-edge h leaving the vertex arrives at the vertex
+			for (int j=from; j<to; j++){
+				h = halfEdgesFromVertex[j];
+				halfEdgeNext[h^1] = halfEdgesFromVertex[(j > from) ? (j-1) : (to-1)];
+			}
+		}
+		return true;
+	}
+
+	private double getAngleOfHalfEdge(int h, double probeLength){
+		// the angle of the chord from the start of the half-edge to the point at (about) probeLength along it
+		// -> the parametric step is probeLength divided by the speed of the parametrisation, sqrt(a^2 sin^2 t + b^2 cos^2 t), at the start
+
+		int arc = h/2;
+		Ellipse e = ellipses.get(arcEllIndices[arc]);
+		double t = arcTs[h];
+		double speed = Math.sqrt(Math.pow(e.getA()*Math.sin(t), 2) + Math.pow(e.getB()*Math.cos(t), 2));
+		double probeT = Math.min(probeLength/speed, (arcTs[2*arc+1] - arcTs[2*arc])/4);
+		double tProbe = ((h % 2) == 0) ? (t + probeT) : (t - probeT);
+
+		return Math.atan2(e.getY_parametric(tProbe, true) - e.getY_parametric(t, true),
+				          e.getX_parametric(tProbe, true) - e.getX_parametric(t, true));
+	}
+
+	private boolean traceCycles(){
+		// every half-edge is in one cycle and all the half-edges of a cycle should be in the same zone
+
+		halfEdgeCycle = new int[2*noOfArcs];
+		Arrays.fill(halfEdgeCycle, -1);
+		cycleFirstHalfEdges = new int[2*noOfArcs];
+		cycleZoneIds = new int[2*noOfArcs];
+		cycleAreas = new double[2*noOfArcs];
+		noOfCycles = 0;
+
+		int h;
+		double area;
+		for (int first=0; first<2*noOfArcs; first++){
+			if (halfEdgeCycle[first] >= 0){continue;}
+
+			area = 0;
+			h = first;
+			do {
+				if ((halfEdgeCycle[h] >= 0) || (arcZoneIds[h] != arcZoneIds[first])){
+					System.out.println("EllipseArrangement.traceCycles: the arcs do not form the boundaries of the zones");
+					return false;
+				}
+				halfEdgeCycle[h] = noOfCycles;
+				area += ((h % 2) == 0) ? arcGreenAreas[h/2] : -arcGreenAreas[h/2];
+				h = halfEdgeNext[h];
+			} while (h != first);
+
+			cycleFirstHalfEdges[noOfCycles] = first;
+			cycleZoneIds[noOfCycles] = arcZoneIds[first];
+			cycleAreas[noOfCycles] = area;
+			noOfCycles++;
+		}
+		return true;
+	}
+
+	private boolean buildFaces(){
+		// every anticlockwise cycle is the outer boundary of a face and every clockwise cycle is a hole in the smallest face of the same zone
+		// that contains it (or a boundary of the unbounded face if it is outside all the ellipses and not in any face)
+
+		cycleFaces = new int[noOfCycles];
+		faceZoneIds = new int[noOfCycles];
+		faceAreas = new double[noOfCycles];
+		faceOuterCycles = new int[noOfCycles];
+		noOfFaces = 0;
+
+		for (int c=0; c<noOfCycles; c++){
+			if (cycleAreas[c] <= 0){continue;}
+			cycleFaces[c] = noOfFaces;
+			faceZoneIds[noOfFaces] = cycleZoneIds[c];
+			faceAreas[noOfFaces] = cycleAreas[c];
+			faceOuterCycles[noOfFaces] = c;
+			noOfFaces++;
+		}
+
+		// ... the holes -> only if there is more than one connected component (not the case for most diagrams)
+		double[][] outerCyclePnts = new double[noOfCycles][];
+		int h;
+		double x;
+		double y;
+		int face;
+		for (int c=0; c<noOfCycles; c++){
+			if (cycleAreas[c] > 0){continue;}
+
+			// a point on the hole (the midpoint of its first arc)
+			h = cycleFirstHalfEdges[c];
+			Ellipse e = ellipses.get(arcEllIndices[h/2]);
+			x = e.getX_parametric((arcTs[h & ~1] + arcTs[h | 1])/2, true);
+			y = e.getY_parametric((arcTs[h & ~1] + arcTs[h | 1])/2, true);
+
+			face = -1;
+			for (int f=0; f<noOfFaces; f++){
+				if (faceZoneIds[f] != cycleZoneIds[c]){continue;}
+				if ((face >= 0) && (cycleAreas[faceOuterCycles[f]] >= cycleAreas[faceOuterCycles[face]])){continue;}
+				if (outerCyclePnts[faceOuterCycles[f]] == null){
+					outerCyclePnts[faceOuterCycles[f]] = getCyclePoints(faceOuterCycles[f]);
+				}
+				if (isPntInPolygon(x, y, outerCyclePnts[faceOuterCycles[f]])){
+					face = f;
+				}
+			}
+			if ((face < 0) && (cycleZoneIds[c] != 0)){
+				System.out.println("EllipseArrangement.buildFaces: no face of zone "+ZoneVector.getZoneLabel(cycleZoneIds[c])+" contains a hole of the zone");
+				return false;
+			}
+
+			cycleFaces[c] = face;
+			if (face >= 0){
+				faceAreas[face] += cycleAreas[c];
+			}
+		}
+		return true;
+	}
+
+	private static boolean isPntInPolygon(double x, double y, double[] pnts){
+		// even-odd rule with a horizontal ray from (x,y)
+		boolean in = false;
+		int n = pnts.length/2;
+		double x1;
+		double y1;
+		double x2;
+		double y2;
+		for (int i=0, j=n-1; i<n; j=i++){
+			x1 = pnts[2*i];
+			y1 = pnts[2*i+1];
+			x2 = pnts[2*j];
+			y2 = pnts[2*j+1];
+			if (((y1 > y) != (y2 > y)) && (x < (x2 - x1) * (y - y1) / (y2 - y1) + x1)){
+				in = !in;
+			}
+		}
+		return in;
+	}
+
+}
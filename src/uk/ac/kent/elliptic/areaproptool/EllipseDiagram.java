@@ -46,6 +46,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import uk.ac.kent.elliptic.areaproptool.TestingWithPolygons.DiagramZoneCondition;
 
 
 /**
@@ -78,22 +82,63 @@ public class EllipseDiagram {
 	public static final int POLYGONS = 1;
 	public static final int INTEGRATION = 2;
 	public static final int SEGMENTS = 3;
+	public static final int ARCS = 4; // Green's theorem along the elliptic arcs on the boundary of every zone (see computeZoneAreas_ByArcs)
 	
 	public static final double PRECISION_ISZERO = 1e-15;
 
+	public static final int MAX_NO_OF_INTPNTS_PER_ELLPAIR = 4;
+
 	
 	// Data fields 
 	protected ArrayList<Ellipse> ellipses = null;
 	protected String[] zoneLabels = {};
 	protected boolean toPolysForIntPnts = false;
 	protected int methodToComputeRegionAreas;
-	protected HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> intPntsOfEllipses = null;
+	protected double[] intPntsOfEllPairs = null;
+	protected double[] intPntsKernelWork = null; // the work and output buffers of EllipseIntersectionKernel, reused for every ellipse pair
+	protected double[] intPntsKernelOut = null;
+	protected int[] ellPairEllIndices = null;
 	protected HashMap<String, Double> zoneAreas = null; 
+	protected int[] zoneIds = {}; // the zone id (see ZoneVector) of every zone in zoneLabels (in the same order)
+	protected int[] ellZoneIds = {}; // the zone id of every ellipse (i.e. the bit of the ellipse in the zone ids)
+	protected ZoneVector zoneAreasVector = null;
+	protected boolean zoneAreasHashMapUpToDate = true;
 	public Boolean zoneAreasComputedSuccessfully = null;
 	protected boolean incorrectIntPnts = false;
 	protected boolean considerLessPrecisePossibleIntPnts; 
+	protected boolean useQuarticIntPnts = false; // the intersection points are found in a single pass with EllipseIntersectionKernel.getIntPnts_WithEllipse_Quartic (see setUseQuarticIntPnts)
 	
 	protected HashMap<String, Double> wilkinson_yHats;  //could not output this out from the method and thus had to declare it as a global instance method -> used to calculate Wilkinson's residual and stress measure
+
+	// ... intersection points of every pair of ellipses (see initIntPnts) -> Point2D.Double objects which are reused when passing on the intersection points to the methods computing the zone areas
+	private Point2D.Double[] intPntsOfEllPairs_asPnts = null;
+	
+	// ... dirty tracking of the ellipses -> the properties (a, b, xc, yc, rot) of the two ellipses in every pair when their intersection points and shared area were last computed
+	//     => when an ellipse is changed (e.g. a move of the hill climber), only the pairs with this ellipse are recomputed (see computeIntPntsOfEllipses and computeZoneAreas_ByInteg)
+	private double[] ellPairProps_intPnts = null;
+	private double[] ellPairProps_sharedArea = null;
+	private Double[] sharedAreaOfEllPairs = null;
+
+	// ... the stages of the validity check (see isValid) -> the cheap stages (see passesValidityPreCheck) reject most invalid diagrams before their zone areas are computed
+	//     and the number of diagrams that are checked and rejected at every stage (by all the diagrams, e.g. in all the hill climbers running at the same time)
+	public static final int VALIDITY_STAGE_BOUNDING_BOXES = 0;
+	public static final int VALIDITY_STAGE_INTPNTS = 1;
+	public static final int VALIDITY_STAGE_ZONE_AREAS = 2;
+	public static final int VALIDITY_STAGE_NO_OF_ZONES = 3;
+	public static final String[] VALIDITY_STAGE_NAMES = {"bounding boxes", "intersection points", "zone areas", "number of zones"};
+	protected static final AtomicLong noOfValidityChecks = new AtomicLong();
+	protected static final AtomicLongArray noOfRejectionsAtValidityStage = new AtomicLongArray(VALIDITY_STAGE_NAMES.length);
+
+	// ... undo journal for trial changes (see beginTrial, commit and rollback) -> allocated once and then reused for every trial change
+	protected boolean trialInProgress = false;
+	protected long metricsRecordedNanos = 0; // the time recorded in OptimiserMetrics by this diagram so far -> to exclude the time of a nested computation (see recordMetricsTime)
+	private ArrayList<Ellipse> journal_ellipses = null;
+	private double[] journal_ellipseProps = null; // a, b, xc, yc, rot of every ellipse
+	private double[] journal_intPntsOfEllPairs = null;
+	private double[] journal_zoneAreas = null;
+	private Boolean journal_zoneAreasComputedSuccessfully = null;
+	private boolean journal_incorrectIntPnts = false;
+	private double[] journal_ellPairProps_intPnts = null;
 	
 	
 	// Constructor
@@ -112,7 +157,7 @@ public class EllipseDiagram {
 	}
 	private void init(ArrayList<Ellipse> ellipses, boolean considerLessPrecisePossibleIntPnts, int methodToComputeRegionAreas, boolean findZoneAreas){
 		this.ellipses = ellipses;
-		initIPsHashMap(); // this must be invoked after the ellipses are set
+		initIntPnts(); // this must be invoked after the ellipses are set
 		initZoneLabelsAndAreasHashMap(); // zone labels are set in this method
 		this.considerLessPrecisePossibleIntPnts=considerLessPrecisePossibleIntPnts;
 		this.methodToComputeRegionAreas = methodToComputeRegionAreas;
@@ -122,40 +167,35 @@ public class EllipseDiagram {
 			zoneAreasComputedSuccessfully = null;
 		}
 	}
-	private void initIPsHashMap() { 
-		// initializing hashmaps to handle all possible zone areas and intersection points
-		// => if n ellipses -> max no. of zones = (2^n) -1 (since we are excluding the empty zone)
-		//                  -> intersection points = a pair for every two ellipses 
-		this.intPntsOfEllipses = new HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>>();
-		
-		Ellipse e1;
-		Ellipse e2;
-		int i; 
+	private void initIntPnts() {
+		// initializing the arrays to handle all possible intersection points
+		// => if n ellipses -> intersection points = a pair for every two ellipses (nC2 pairs) and up to MAX_NO_OF_INTPNTS_PER_ELLPAIR for every pair
+		//    -> the pairs are in the order (0,1), (0,2), ..., (1,2), ... (see getEllPairIndex) and the intersection points of pair p are saved as
+		//       x,y in intPntsOfEllPairs[2*MAX_NO_OF_INTPNTS_PER_ELLPAIR*p ...] with Double.NaN if there is no such intersection point
+		//    => finding the intersection points of a pair does not require any search and recomputing them does not create any objects
+		int noOfEllPairs = Utilities.noOfCombinations(this.ellipses.size(), 2);
+
+		this.intPntsOfEllPairs = new double[2*MAX_NO_OF_INTPNTS_PER_ELLPAIR*noOfEllPairs];
+		Arrays.fill(this.intPntsOfEllPairs, Double.NaN);
+		this.intPntsOfEllPairs_asPnts = new Point2D.Double[MAX_NO_OF_INTPNTS_PER_ELLPAIR*noOfEllPairs];
+
+		// the two ellipses of every pair are sorted in ascending order based on their label
+		this.ellPairEllIndices = new int[2*noOfEllPairs];
+		int i;
 		int j;
-		ArrayList<Point2D.Double> ipsEllPair;
-		ArrayList<Ellipse> ellPair;
+		int c = 0;
 		for (i=0; i<this.ellipses.size(); i++){
 			for (j=i+1; j<this.ellipses.size(); j++){
-				e1 = this.ellipses.get(i);
-				e2 = this.ellipses.get(j);
-				if (Utilities.convertCharToASCIIint(e1.label.toLowerCase()) > Utilities.convertCharToASCIIint(e2.label.toLowerCase())){
-					e1 = this.ellipses.get(j);
-					e2 = this.ellipses.get(i);
+				if (Utilities.convertCharToASCIIint(this.ellipses.get(i).label.toLowerCase()) > Utilities.convertCharToASCIIint(this.ellipses.get(j).label.toLowerCase())){
+					this.ellPairEllIndices[c] = j;
+					this.ellPairEllIndices[c+1] = i;
+				} else {
+					this.ellPairEllIndices[c] = i;
+					this.ellPairEllIndices[c+1] = j;
 				}
-			
-				ipsEllPair = new ArrayList<Point2D.Double>(4);
-				ipsEllPair.add(null);
-				ipsEllPair.add(null); 
-				ipsEllPair.add(null); 
-				ipsEllPair.add(null);
-				
-				// sort the ellipses in ascending order based on their label
-				ellPair = new ArrayList<Ellipse>(2);
-				ellPair.add (e1);
-				ellPair.add (e2);
-				this.intPntsOfEllipses.put(ellPair, ipsEllPair);
+				c += 2;
 			}
-		}	
+		}
 	}
 	private void initZoneLabelsAndAreasHashMap() { 
 		// Set zone labels
@@ -168,6 +208,17 @@ public class EllipseDiagram {
 		for (String zl : zoneLabels){
 			this.zoneAreas.put(zl, null);
 		}
+		
+		// Init the zone ids and the vector with the areas of the zones
+		// ... the zone areas are computed in terms of the vector (see computeZoneAreas_ByInteg and computeFitnessOfAllRegions) and
+		//     the hashmap with the zone labels is updated from the vector only when it is requested (see getZoneAreas)
+		this.zoneIds = ZoneVector.getZoneIds(zoneLabels);
+		this.ellZoneIds = new int[ellipses.size()];
+		for (int i=0; i<ellipses.size(); i++){
+			this.ellZoneIds[i] = ZoneVector.getZoneId(ellipses.get(i).label);
+		}
+		this.zoneAreasVector = new ZoneVector(ellipses.size());
+		this.zoneAreasHashMapUpToDate = true;
 	}
 	
 	
@@ -184,28 +235,86 @@ public class EllipseDiagram {
 		this.ellipses = in_ellipses;
 		recomputeZoneAreas();
 	}
+	public boolean getUseQuarticIntPnts() {
+		return useQuarticIntPnts;
+	}
+	public void setUseQuarticIntPnts(boolean useQuarticIntPnts) {
+		// instead of the precise pass (and of the less precise one, if considerLessPrecisePossibleIntPnts) -> the single pass also finds the points 
+		// where the ellipses touch (as the less precise pass), but no more than 4 points for every pair of ellipses
+		// => the intersection points are found again when the zone areas are next recomputed (unless the intersection points are found as polygons)
+		if (this.useQuarticIntPnts == useQuarticIntPnts){return;}
+		this.useQuarticIntPnts = useQuarticIntPnts;
+		this.ellPairProps_intPnts = null;
+	}
 	public String[] getZoneLabels() {
 		return zoneLabels;
 	}
+	public void setZoneLabels(String[] zoneLabels) {
+		// the zones that the diagram should have, e.g. only the zones with a required area > 0 when some of the 2^n - 1 zones are empty (see EllipseDiagramOps.getNonEmptyZoneLabels)
+		// => the diagram is valid only if the other zones are empty and these zones are not considered when computing the fitness of the diagram
+		this.zoneLabels = zoneLabels.clone();
+		this.zoneIds = ZoneVector.getZoneIds(this.zoneLabels);
+		this.zoneAreas = new HashMap<String, Double>();
+		for (String zl : this.zoneLabels){
+			this.zoneAreas.put(zl, null);
+		}
+		this.zoneAreasHashMapUpToDate = true;
+		this.zoneAreasComputedSuccessfully = null;
+	}
+	public boolean hasAllZones() {
+		// all the 2^n - 1 zones (as in a Venn diagram)
+		return (this.zoneIds.length == this.zoneAreasVector.getNoOfZones());
+	}
 	public HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> getIntPntsOfEllipses() {
-		return intPntsOfEllipses;
+		// view of the intersection points as a hashmap (pair of ellipses sorted by label -> 4 intersection points or null)
+		// => the hashmap is created from intPntsOfEllPairs every time and changing it does not change the diagram
+		return getIntPntsAsHashMap(false);
 	}
 	public HashMap<String, Double> getZoneAreas() {
 		if (this.zoneAreasComputedSuccessfully == null){
 			recomputeZoneAreas();
 		}
+		syncZoneAreasHashMap();
 		return zoneAreas;
 	}
+	public ZoneVector getZoneAreasVector() {
+		if (this.zoneAreasComputedSuccessfully == null){
+			recomputeZoneAreas();
+		}
+		return zoneAreasVector;
+	}
+	public int[] getZoneIds() {
+		return zoneIds;
+	}
+	
+	private void syncZoneAreasHashMap(){
+		// the hashmap is created from zoneAreasVector if the areas in the vector have been changed since the hashmap was last updated 
+		if (this.zoneAreasHashMapUpToDate){return;}
+		
+		HashMap<String, Double> zoneAreasHashMap = new HashMap<String, Double>();
+		for (int i=0; i<this.zoneLabels.length; i++){
+			zoneAreasHashMap.put(this.zoneLabels[i], this.zoneAreasVector.hasValue(this.zoneIds[i]) ? this.zoneAreasVector.get(this.zoneIds[i]) : null);
+		}
+		this.zoneAreas = zoneAreasHashMap;
+		this.zoneAreasHashMapUpToDate = true;
+	}
+	
+	public void copyZoneAreasFrom (EllipseDiagram diag){
+		// the zone areas of diag are copied to this diagram without creating any objects (e.g. when diag is a changed copy of this diagram)
+		this.zoneAreasVector.copyFrom(diag.zoneAreasVector);
+		this.zoneAreasHashMapUpToDate = false;
+		this.zoneAreasComputedSuccessfully = diag.zoneAreasComputedSuccessfully;
+	}
 	
 	
 	private void recomputeIntPntsOfEllipses(){
-		computeIntPntsOfEllipses(); // intpnts are saved in this.intPntsOfEllipses immediately to avoid creating extra objects
+		computeIntPntsOfEllipses(); // intpnts are saved in this.intPntsOfEllPairs immediately to avoid creating extra objects
 	}
 	
 	public void recomputeZoneAreas(){
 	    computeZoneAreas(true); // areas are saved in this.zoneAreas immediately to avoid creating extra objects 
 
-		if (this.methodToComputeRegionAreas != POLYGONS){
+		if ((this.methodToComputeRegionAreas != POLYGONS) && this.zoneAreasHashMapUpToDate){
 			if (this.zoneAreasComputedSuccessfully){
 				this.zoneAreas = EllipseDiagramOps.sortZoneAreasAsInLabelArray(zoneLabels, this.zoneAreas);
 			}
@@ -214,17 +323,8 @@ public class EllipseDiagram {
 	}
 	
 	public double diagError(HashMap<String,Double> reqAreaSpecs){
-		String errorsStr = computeErrors(reqAreaSpecs, false);
-		
-		int diagErrorIndex = 9;
-		int separatorIndex =0;
-		StringBuffer errorsStrBuffer = new StringBuffer(errorsStr);
-		for (int i=0; i < (diagErrorIndex-1); i++){
-			separatorIndex = errorsStrBuffer.indexOf("|");
-			errorsStrBuffer.delete(0,separatorIndex+1);
-		}
-		separatorIndex = errorsStrBuffer.indexOf("|");
-		return (Utilities.safeParseDouble(Utilities.changeLocaleDecimalSeparatorToDefault(errorsStrBuffer.substring(0,separatorIndex))));
+		// the max abs diff between the required and actual area proportions of the zones (see ErrorReport)
+		return computeErrorReport(reqAreaSpecs).getMaxAbsDiffBetweenReqActualAreaProportions();
 	}
 
 	
@@ -235,9 +335,13 @@ public class EllipseDiagram {
 
 	public EllipseDiagram clone(){
 		EllipseDiagram diagClone = new EllipseDiagram(getEllipsesClone(), this.considerLessPrecisePossibleIntPnts, this.toPolysForIntPnts, this.methodToComputeRegionAreas);
+		diagClone.useQuarticIntPnts = this.useQuarticIntPnts;
 		diagClone.zoneLabels = this.zoneLabels.clone();
-		diagClone.intPntsOfEllipses = getIntPntsClone();
+		diagClone.zoneIds = this.zoneIds.clone();
+		diagClone.intPntsOfEllPairs = this.intPntsOfEllPairs.clone();
+		diagClone.ellPairEllIndices = this.ellPairEllIndices.clone();
 		diagClone.zoneAreas = getZoneAreasClone();
+		diagClone.zoneAreasVector.copyFrom(this.zoneAreasVector);
 		diagClone.zoneAreasComputedSuccessfully = (this.zoneAreasComputedSuccessfully==null)?null:new Boolean (this.zoneAreasComputedSuccessfully.booleanValue());
 		return diagClone;
 	}
@@ -268,23 +372,81 @@ public class EllipseDiagram {
  
 	
 	public HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> getIntPntsClone(){
-		HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> intPntsClone = new HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>>();
-		
-		Iterator itr = this.intPntsOfEllipses.entrySet().iterator();
-		Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>> ip;
-		while (itr.hasNext()){
-			ip = (Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>>)itr.next();
-			intPntsClone.put(getEllipsesClone((ArrayList<Ellipse>)ip.getKey()), getArrayPoint2DDoubleClone(((ArrayList<Point2D.Double>)ip.getValue())));
+		return getIntPntsAsHashMap(true);
+	}
+
+	private HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> getIntPntsAsHashMap(boolean cloneEllipses){
+		HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> intPntsHashMap = new HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>>();
+
+		int noOfEllPairs = this.ellPairEllIndices.length/2;
+		ArrayList<Ellipse> ellPair;
+		ArrayList<Point2D.Double> ipsEllPair;
+		Point2D.Double ip;
+		int k;
+		for (int ellPairIndex=0; ellPairIndex<noOfEllPairs; ellPairIndex++){
+			ellPair = new ArrayList<Ellipse>(2);
+			ellPair.add(this.ellipses.get(this.ellPairEllIndices[2*ellPairIndex]));
+			ellPair.add(this.ellipses.get(this.ellPairEllIndices[2*ellPairIndex+1]));
+			if (cloneEllipses){
+				ellPair = getEllipsesClone(ellPair);
+			}
+			ipsEllPair = new ArrayList<Point2D.Double>(MAX_NO_OF_INTPNTS_PER_ELLPAIR);
+			for (k=0; k<MAX_NO_OF_INTPNTS_PER_ELLPAIR; k++){
+				ip = getIntPntOfEllPair(ellPairIndex, k);
+				ipsEllPair.add((ip == null) ? null : new Point2D.Double(ip.x, ip.y));
+			}
+			intPntsHashMap.put(ellPair, ipsEllPair);
+		}
+
+		return intPntsHashMap;
+	}
+
+	public void copyIntPntsFrom(EllipseDiagram diag){
+		// copy the intersection points of another diagram with the same ellipses (e.g. a clone of this diagram in which one of the ellipses was changed)
+		if ((diag.intPntsOfEllPairs == null) || (this.intPntsOfEllPairs == null) || (diag.intPntsOfEllPairs.length != this.intPntsOfEllPairs.length)){
+			System.out.println("EllipseDiagram.copyIntPntsFrom: the intersection points of the two diagrams do not correspond");
+			return;
+		}
+		System.arraycopy(diag.intPntsOfEllPairs, 0, this.intPntsOfEllPairs, 0, this.intPntsOfEllPairs.length);
+
+		// ... the dirty tracking of the other diagram corresponds to the intersection points copied
+		if ((diag.ellPairProps_intPnts == null) || (this.ellPairProps_intPnts == null) || (diag.ellPairProps_intPnts.length != this.ellPairProps_intPnts.length)){
+			this.ellPairProps_intPnts = null;
+		} else {
+			System.arraycopy(diag.ellPairProps_intPnts, 0, this.ellPairProps_intPnts, 0, this.ellPairProps_intPnts.length);
 		}
-		
-		return intPntsClone;
 	}
+
+	public boolean copyStateFrom(EllipseDiagram diag){
+		// the properties of the ellipses, the intersection points and the zone areas of diag are copied to this diagram without creating any objects
+		// -> e.g. to bring a scratch copy of diag (see HillClimber) up to date with diag
+		// => false (and nothing is copied) if the two diagrams do not have the same ellipses and zones (then diag should be cloned instead)
+		if ((diag.ellipses.size() != this.ellipses.size()) || (diag.intPntsOfEllPairs.length != this.intPntsOfEllPairs.length) ||
+			(diag.zoneAreasVector.getNoOfZones() != this.zoneAreasVector.getNoOfZones()) || !Arrays.equals(diag.zoneIds, this.zoneIds)){
+			return false;
+		}
 		
- 
+		Ellipse e;
+		Ellipse eToCopyFrom;
+		for (int i=0; i<this.ellipses.size(); i++){
+			e = this.ellipses.get(i);
+			eToCopyFrom = diag.ellipses.get(i);
+			e.setA(eToCopyFrom.getA());
+			e.setB(eToCopyFrom.getB());
+			e.setXc(eToCopyFrom.getXc());
+			e.setYc(eToCopyFrom.getYc());
+			e.setRot(eToCopyFrom.getRot());
+		}
+		copyIntPntsFrom(diag);
+		copyZoneAreasFrom(diag);
+		this.incorrectIntPnts = diag.incorrectIntPnts;
+		return true;
+	}
+
 	public HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> getIntPntsClone(HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> ipsAndEllipsePairHashMap_toCopyTo){
-		
-		return cloneIntPntsFromTo (this.intPntsOfEllipses, ipsAndEllipsePairHashMap_toCopyTo);
-		
+
+		return cloneIntPntsFromTo (getIntPntsAsHashMap(false), ipsAndEllipsePairHashMap_toCopyTo);
+
 	}
 
 	public static HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> cloneIntPntsFromTo(HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> ipsAndEllipsePairHashMap_toCopyFrom, HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> ipsAndEllipsePairHashMap_toCopyTo){
@@ -331,12 +493,14 @@ public class EllipseDiagram {
 	
 	public HashMap<String, Double> getZoneAreasClone(){
 		
+		syncZoneAreasHashMap();
 		HashMap<String, Double> zoneAreasClone = new HashMap<String, Double>();
 		return cloneZoneAreasFromTo(this.zoneAreas, zoneAreasClone);
 	}
 	
 	public HashMap<String, Double> getZoneAreasClone(HashMap<String, Double> zoneAreasHashMap_toCopyTo){
 		
+		syncZoneAreasHashMap();
 		return cloneZoneAreasFromTo(this.zoneAreas, zoneAreasHashMap_toCopyTo);
 	}
 	
@@ -357,52 +521,176 @@ public class EllipseDiagram {
 	}
 	
 
+	// Trial changes
+	//  to try out a change to the ellipses (e.g. a potential move of the hill climber) without cloning the intersection points and zone areas:
+	//  beginTrial() saves the current state of the diagram in the undo journal, rollback() restores this state and commit() keeps the change
+	//  => the journal is allocated when the first trial begins (and again only if the ellipses, intersection points or zone labels are replaced)
+	//     and the Double objects of the diagram are reused, so no objects are created when a change is rolled back
+	
+	public boolean isTrialInProgress() {
+		return trialInProgress;
+	}
+	
+	public void beginTrial (){
+		
+		if (trialInProgress){
+			System.out.println("EllipseDiagram.beginTrial: the previous trial was neither committed nor rolled back -> its state is discarded");
+		}
+		
+		if ((journal_ellipses != this.ellipses) || (journal_ellipseProps.length != 5*this.ellipses.size()) || 
+			(journal_intPntsOfEllPairs.length != this.intPntsOfEllPairs.length) || (journal_zoneAreas.length != this.zoneAreasVector.getNoOfZones())){
+			initJournal();
+		}
+		
+		int i;
+		Ellipse e;
+		for (i=0; i<this.ellipses.size(); i++){
+			e = this.ellipses.get(i);
+			journal_ellipseProps[5*i] = e.getA();
+			journal_ellipseProps[5*i+1] = e.getB();
+			journal_ellipseProps[5*i+2] = e.getXc();
+			journal_ellipseProps[5*i+3] = e.getYc();
+			journal_ellipseProps[5*i+4] = e.getRot();
+		}
+		
+		System.arraycopy(this.intPntsOfEllPairs, 0, journal_intPntsOfEllPairs, 0, this.intPntsOfEllPairs.length);
+		
+		System.arraycopy(this.zoneAreasVector.getValues(), 0, journal_zoneAreas, 0, journal_zoneAreas.length);
+		journal_zoneAreasComputedSuccessfully = this.zoneAreasComputedSuccessfully;
+		journal_incorrectIntPnts = this.incorrectIntPnts;
+
+		// the dirty tracking of the intersection points must match the intersection points which are restored on rollback
+		if (ellPairProps_intPnts == null){
+			journal_ellPairProps_intPnts = null;
+		} else {
+			if ((journal_ellPairProps_intPnts == null) || (journal_ellPairProps_intPnts.length != ellPairProps_intPnts.length)){
+				journal_ellPairProps_intPnts = new double[ellPairProps_intPnts.length];
+			}
+			System.arraycopy(ellPairProps_intPnts, 0, journal_ellPairProps_intPnts, 0, ellPairProps_intPnts.length);
+		}
+
+		trialInProgress = true;
+	}
+	
+	public void commit (){
+		if (!trialInProgress){
+			System.out.println("EllipseDiagram.commit: no trial is in progress");
+			return;
+		}
+		trialInProgress = false;
+	}
+	
+	public void rollback (){
+		if (!trialInProgress){
+			System.out.println("EllipseDiagram.rollback: no trial is in progress");
+			return;
+		}
+		
+		int i;
+		Ellipse e;
+		for (i=0; i<this.ellipses.size(); i++){
+			e = this.ellipses.get(i);
+			e.setA(journal_ellipseProps[5*i]);
+			e.setB(journal_ellipseProps[5*i+1]);
+			e.setXc(journal_ellipseProps[5*i+2]);
+			e.setYc(journal_ellipseProps[5*i+3]);
+			e.setRot(journal_ellipseProps[5*i+4]);
+		}
+		
+		System.arraycopy(journal_intPntsOfEllPairs, 0, this.intPntsOfEllPairs, 0, this.intPntsOfEllPairs.length);
+		
+		// the hashmap with the zone areas might have been changed during the trial => it is updated from the restored vector when it is requested
+		System.arraycopy(journal_zoneAreas, 0, this.zoneAreasVector.getValues(), 0, journal_zoneAreas.length);
+		this.zoneAreasHashMapUpToDate = false;
+		this.zoneAreasComputedSuccessfully = journal_zoneAreasComputedSuccessfully;
+		this.incorrectIntPnts = journal_incorrectIntPnts;
+
+		if ((journal_ellPairProps_intPnts == null) || (ellPairProps_intPnts == null) || (journal_ellPairProps_intPnts.length != ellPairProps_intPnts.length)){
+			ellPairProps_intPnts = null; // => recompute all the intersection points the next time
+		} else {
+			System.arraycopy(journal_ellPairProps_intPnts, 0, ellPairProps_intPnts, 0, ellPairProps_intPnts.length);
+		}
+
+		trialInProgress = false;
+	}
+	
+	private void initJournal (){
+		journal_ellipses = this.ellipses;
+		journal_ellipseProps = new double[5*this.ellipses.size()];
+		
+		journal_intPntsOfEllPairs = new double[this.intPntsOfEllPairs.length];
+		
+		journal_zoneAreas = new double[this.zoneAreasVector.getNoOfZones()];
+	}
+	
+	
 	public ArrayList<ConcreteContour> getEllipsesAsContours (){
 		// invokes the static method
 		return (getEllipsesAsContours(this.ellipses));
 	}
+	
+	public EllipseArrangement getArrangement (){
+		// the faces, arcs and cycles of the ellipses (see EllipseArrangement) built from the intersection points 
+		// -> the intersection points are brought up to date (only the pairs with an ellipse that changed are recomputed, e.g. after a diagram is rejected by passesValidityPreCheck)
+		recomputeIntPntsOfEllipses();
+		if (this.intPntsOfEllPairs == null){return null;}
+		
+		return (new EllipseArrangement(this.ellipses, this.ellZoneIds, this.intPntsOfEllPairs, this.ellPairEllIndices, MAX_NO_OF_INTPNTS_PER_ELLPAIR));
+	}
 
 
 	//  Computing intersection points between ellipses
 		
 	public int[] getNoOfIntPntsPerEntryInHashMap(){
-		int[] noOfIntPntsPerEntry_nonfiltered = new int[this.intPntsOfEllipses.size()];
-		
-		int c = 0;
-		Iterator itr = this.intPntsOfEllipses.entrySet().iterator();
-		Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>> intPntsForEs;
-		ArrayList<Point2D.Double> currIps;
-		while (itr.hasNext()){
-			intPntsForEs = (Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>>)itr.next();
-			currIps = intPntsForEs.getValue();
-			noOfIntPntsPerEntry_nonfiltered[c] = 0;
-			for (Point2D.Double p : currIps){
-				if (p != null){
-					noOfIntPntsPerEntry_nonfiltered[c]++;
-				}
-			} 
-			c++;
+		int noOfEllPairs = this.ellPairEllIndices.length/2;
+		int[] noOfIntPntsPerEntry_nonfiltered = new int[noOfEllPairs];
+
+		for (int ellPairIndex=0; ellPairIndex<noOfEllPairs; ellPairIndex++){
+			noOfIntPntsPerEntry_nonfiltered[ellPairIndex] = getNoOfIntPntsOfEllPair(ellPairIndex);
 		}
-		
-		return noOfIntPntsPerEntry_nonfiltered; 
+
+		return noOfIntPntsPerEntry_nonfiltered;
 	}
-	
+
+	public int getNoOfIntPntsOfEllPair(int ellPairIndex){
+		int noOfIps = 0;
+		int c = 2*MAX_NO_OF_INTPNTS_PER_ELLPAIR*ellPairIndex;
+		for (int k=0; k<MAX_NO_OF_INTPNTS_PER_ELLPAIR; k++){
+			if (!Double.isNaN(this.intPntsOfEllPairs[c+2*k])){
+				noOfIps++;
+			}
+		}
+		return noOfIps;
+	}
+
 	public boolean correctNoOfIntPnts(){
-		int[] noOfIntPntsPerEntryInHashMap = getNoOfIntPntsPerEntryInHashMap();
-		
-		int expectedNosOfEllPairs = Utilities.noOfCombinations(ellipses.size(), 2); 
-			
-		if (noOfIntPntsPerEntryInHashMap.length != expectedNosOfEllPairs){
+		int expectedNosOfEllPairs = Utilities.noOfCombinations(ellipses.size(), 2);
+
+		if ((this.ellPairEllIndices == null) || (this.ellPairEllIndices.length/2 != expectedNosOfEllPairs)){
 			return false;
 		}
-		for (int noOfIps : noOfIntPntsPerEntryInHashMap){
-			if (noOfIps != 2){
+		for (int ellPairIndex=0; ellPairIndex<expectedNosOfEllPairs; ellPairIndex++){
+			if (getNoOfIntPntsOfEllPair(ellPairIndex) != 2){
 				return false;
 			}
 		}
 		return true;
 	}
-	
+
+	private Point2D.Double getIntPntOfEllPair(int ellPairIndex, int ipIndex){
+		// the Point2D.Double objects are reused => valid only until the intersection points are recomputed
+		int c = MAX_NO_OF_INTPNTS_PER_ELLPAIR*ellPairIndex + ipIndex;
+		if (Double.isNaN(this.intPntsOfEllPairs[2*c])){
+			return null;
+		}
+		if (this.intPntsOfEllPairs_asPnts[c] == null){
+			this.intPntsOfEllPairs_asPnts[c] = new Point2D.Double();
+		}
+		this.intPntsOfEllPairs_asPnts[c].x = this.intPntsOfEllPairs[2*c];
+		this.intPntsOfEllPairs_asPnts[c].y = this.intPntsOfEllPairs[2*c+1];
+		return this.intPntsOfEllPairs_asPnts[c];
+	}
+
 	public boolean isIntPntsHashMapEmpty(){
 		// to avoid running out of memory, most of the HashMap are reused. Hence, before the first sets of intersection points are found, the HashMap for these intersection points is initialised (rather than left null)
 		// => for this reason, if we want to check whether an attempt has been made to compute the intersection points, it is not enough to check whether the HashMap for these intersection points is null 
@@ -420,100 +708,134 @@ public class EllipseDiagram {
 	
 
 	public void computeIntPntsOfEllipses (){
-	
-		ArrayList<Point2D.Double> intPnts;
-		ArrayList<Ellipse> c_es = new ArrayList<Ellipse>(2);
-		boolean firstEllPair = true; 
+		long startNanos = System.nanoTime();
+		long recordedNanosBefore = this.metricsRecordedNanos;
+		computeIntPntsOfEllipses_Untimed();
+		recordMetricsTime(OptimiserMetrics.TIME_INTPNTS, startNanos, recordedNanosBefore);
+	}
+
+	private void computeIntPntsOfEllipses_Untimed (){
 
+		ArrayList<Point2D.Double> intPnts;
 		Ellipse e1;
 		Ellipse e2;
 		int i;
 		int j;
 		int k;
 		int l;
-		int distinctIpsCount;
+		int c;
 		int nextIpIndex;
+		int noOfKernelIntPnts;
 		boolean ipAlreadyInList;
-		Point2D.Double temp_ip;
-		ArrayList<Point2D.Double> currIntPnts;
-		for (i=0; i<this.ellipses.size(); i++){
-			for (j=i+1; j<this.ellipses.size(); j++){
-				e1 = this.ellipses.get(i);
-				e2 = this.ellipses.get(j);
-				
-				intPnts = null;
-				if (this.toPolysForIntPnts){
-					intPnts = e1.getIntPnts_WithEllipse_AsPoly(e2);
-				} else {
-					intPnts = e1.getIntPnts_WithEllipse(e2, considerLessPrecisePossibleIntPnts);
+
+		int noOfEllPairs = Utilities.noOfCombinations(this.ellipses.size(), 2);
+		if ((this.intPntsOfEllPairs == null) || (this.intPntsOfEllPairs.length != 2*MAX_NO_OF_INTPNTS_PER_ELLPAIR*noOfEllPairs)){
+			initIntPnts();
+		}
+		if ((ellPairProps_intPnts == null) || (ellPairProps_intPnts.length != 10*noOfEllPairs)){
+			ellPairProps_intPnts = initEllPairProps(noOfEllPairs);
+		}
+
+		for (int ellPairIndex=0; ellPairIndex<noOfEllPairs; ellPairIndex++){
+			// the intersection points are found in the order in which the ellipses are in the diagram
+			i = Math.min(this.ellPairEllIndices[2*ellPairIndex], this.ellPairEllIndices[2*ellPairIndex+1]);
+			j = Math.max(this.ellPairEllIndices[2*ellPairIndex], this.ellPairEllIndices[2*ellPairIndex+1]);
+			e1 = this.ellipses.get(i);
+			e2 = this.ellipses.get(j);
+
+			// if neither of the ellipses changed since the intersection points of this pair were computed, keep these intersection points
+			if (ellPairPropsUnchanged(ellPairProps_intPnts, ellPairIndex, e1, e2)){continue;}
+			setEllPairProps(ellPairProps_intPnts, ellPairIndex, e1, e2);
+
+			// keep the distinct intersection points (x,y) and set the remaining ones to NaN
+			c = 2*MAX_NO_OF_INTPNTS_PER_ELLPAIR*ellPairIndex;
+			nextIpIndex = 0;
+
+			if (!this.toPolysForIntPnts && (this.useQuarticIntPnts || !this.considerLessPrecisePossibleIntPnts)){
+				// ... only the precise intersection points, or those of the single pass with the quartic (see setUseQuarticIntPnts)
+				//     => found by the kernel straight into a reused buffer without creating any object
+				if (this.intPntsKernelWork == null){
+					this.intPntsKernelWork = EllipseIntersectionKernel.newWorkBuffer();
+					this.intPntsKernelOut = EllipseIntersectionKernel.newIntPntsBuffer();
 				}
-				
-				if (firstEllPair){
-					c_es.add(e1);
-					c_es.add(e2);
-					firstEllPair = false;
+				if (this.useQuarticIntPnts){
+					noOfKernelIntPnts = EllipseIntersectionKernel.getIntPnts_WithEllipse_Quartic(e1, e2, this.intPntsKernelWork, this.intPntsKernelOut);
 				} else {
-					c_es.set(0, e1);
-					c_es.set(1, e2);
+					noOfKernelIntPnts = EllipseIntersectionKernel.getIntPnts_WithEllipse(e1, e2, 0, this.intPntsKernelWork, this.intPntsKernelOut);
 				}
-				
-				Iterator itr2 = this.intPntsOfEllipses.entrySet().iterator();
-				currIntPnts = new ArrayList<Point2D.Double>();
-				while(itr2.hasNext()){
-					Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>> iph = (Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>>)itr2.next();
-					ArrayList<Ellipse> iphkey = iph.getKey(); 
-					if ( (iphkey.get(0).label.equals(c_es.get(0).label) && (iphkey.get(1).label.equals(c_es.get(1).label))) ||
-						 (iphkey.get(0).label.equals(c_es.get(1).label) && (iphkey.get(1).label.equals(c_es.get(0).label))) ){
-						currIntPnts = iph.getValue();
-						break;
-					}	
-				}
-				
-				if ((intPnts == null) || (intPnts.size() == 0)){
-					currIntPnts.set(0,null);
-					currIntPnts.set(1,null);
-					currIntPnts.set(2,null);
-					currIntPnts.set(3,null);
-				} else {
-					
-					distinctIpsCount = intPnts.size();
-					nextIpIndex = 0;
-					for (k=0; (k < intPnts.size()) && (k < 4); k++){
-						ipAlreadyInList = false;
-						for (l=0; l < nextIpIndex; l++){
-							if (areEqual(currIntPnts.get(l).x, intPnts.get(k).x) && areEqual(currIntPnts.get(l).y, intPnts.get(k).y)){
-								ipAlreadyInList = true;
-								break;
-							}
-						}
-						if (ipAlreadyInList){
-							distinctIpsCount--;
-						} else {
-							temp_ip = currIntPnts.get(nextIpIndex);
-							if (temp_ip == null){
-								temp_ip = new Point2D.Double();
-								currIntPnts.set(k, temp_ip);
-							}
-							temp_ip.x = intPnts.get(k).x;
-							temp_ip.y = intPnts.get(k).y;
-							
-							nextIpIndex++;
+				for (k=0; (k < noOfKernelIntPnts) && (k < MAX_NO_OF_INTPNTS_PER_ELLPAIR); k++){
+					ipAlreadyInList = false;
+					for (l=0; l < nextIpIndex; l++){
+						if (areEqual(this.intPntsOfEllPairs[c+2*l], this.intPntsKernelOut[2*k]) && areEqual(this.intPntsOfEllPairs[c+2*l+1], this.intPntsKernelOut[2*k+1])){
+							ipAlreadyInList = true;
+							break;
 						}
 					}
-					
-					if (distinctIpsCount < 4){
-						for (k=distinctIpsCount; k < 4; k++){
-							currIntPnts.set(k,null);
+					if (!ipAlreadyInList){
+						this.intPntsOfEllPairs[c+2*nextIpIndex] = this.intPntsKernelOut[2*k];
+						this.intPntsOfEllPairs[c+2*nextIpIndex+1] = this.intPntsKernelOut[2*k+1];
+						nextIpIndex++;
+					}
+				}
+				intPnts = null;
+			} else if (this.toPolysForIntPnts){
+				intPnts = e1.getIntPnts_WithEllipse_AsPoly(e2);
+			} else {
+				intPnts = e1.getIntPnts_WithEllipse(e2, considerLessPrecisePossibleIntPnts);
+			}
+
+			if (intPnts != null){
+				for (k=0; (k < intPnts.size()) && (k < MAX_NO_OF_INTPNTS_PER_ELLPAIR); k++){
+					ipAlreadyInList = false;
+					for (l=0; l < nextIpIndex; l++){
+						if (areEqual(this.intPntsOfEllPairs[c+2*l], intPnts.get(k).x) && areEqual(this.intPntsOfEllPairs[c+2*l+1], intPnts.get(k).y)){
+							ipAlreadyInList = true;
+							break;
 						}
 					}
-				} 
+					if (!ipAlreadyInList){
+						this.intPntsOfEllPairs[c+2*nextIpIndex] = intPnts.get(k).x;
+						this.intPntsOfEllPairs[c+2*nextIpIndex+1] = intPnts.get(k).y;
+						nextIpIndex++;
+					}
+				}
+			}
+			for (k=nextIpIndex; k < MAX_NO_OF_INTPNTS_PER_ELLPAIR; k++){
+				this.intPntsOfEllPairs[c+2*k] = Double.NaN;
+				this.intPntsOfEllPairs[c+2*k+1] = Double.NaN;
 			}
 		}
-		
+
 	}
 
-	
-	// ... compute zone areas in terms of polygons 
+
+	// ... dirty tracking of the ellipses
+
+	private static double[] initEllPairProps (int noOfEllPairs){
+		double[] ellPairProps = new double[10*noOfEllPairs];
+		Arrays.fill(ellPairProps, Double.NaN); // NaN is not equal to any value => every pair is recomputed the first time
+		return ellPairProps;
+	}
+
+	private static boolean ellPairPropsUnchanged (double[] ellPairProps, int ellPairIndex, Ellipse e1, Ellipse e2){
+		int c = 10*ellPairIndex;
+		return ((ellPairProps[c] == e1.getA()) && (ellPairProps[c+1] == e1.getB()) && (ellPairProps[c+2] == e1.getXc()) && (ellPairProps[c+3] == e1.getYc()) && (ellPairProps[c+4] == e1.getRot()) &&
+				(ellPairProps[c+5] == e2.getA()) && (ellPairProps[c+6] == e2.getB()) && (ellPairProps[c+7] == e2.getXc()) && (ellPairProps[c+8] == e2.getYc()) && (ellPairProps[c+9] == e2.getRot()));
+	}
+
+	private static void setEllPairProps (double[] ellPairProps, int ellPairIndex, Ellipse e1, Ellipse e2){
+		int c = 10*ellPairIndex;
+		ellPairProps[c] = e1.getA(); ellPairProps[c+1] = e1.getB(); ellPairProps[c+2] = e1.getXc(); ellPairProps[c+3] = e1.getYc(); ellPairProps[c+4] = e1.getRot();
+		ellPairProps[c+5] = e2.getA(); ellPairProps[c+6] = e2.getB(); ellPairProps[c+7] = e2.getXc(); ellPairProps[c+8] = e2.getYc(); ellPairProps[c+9] = e2.getRot();
+	}
+
+	private static int getEllPairIndex (int i, int j, int noOfEllipses){
+		// index of the pair (i,j) with i < j in intPntsOfEllPairs (see initIntPnts)
+		return (i*noOfEllipses - (i*(i+1))/2 + (j-i-1));
+	}
+
+
+	// ... compute zone areas in terms of polygons
 	//  Computing zone areas ...
 	
 	//  ... using polygons
@@ -810,73 +1132,57 @@ public class EllipseDiagram {
 		DecimalFormat df = new DecimalFormat("##############################.########");
 	
 		if (recomputeIntPnts ||
-			(this.intPntsOfEllipses == null) ||
+			(this.intPntsOfEllPairs == null) ||
 			(this.zoneAreasComputedSuccessfully == null)){
 			recomputeIntPntsOfEllipses();
 		}
 		
 		this.zoneAreasComputedSuccessfully = false;
 		
-		if (this.intPntsOfEllipses == null){return;}
+		if (this.intPntsOfEllPairs == null){return;}
 		if (correctNoOfIntPnts() == false){return;}
 		
 		ArrayList<Point2D.Double> ipsForInnerZone = new ArrayList<Point2D.Double>(this.ellipses.size());
 		ArrayList<ArrayList<Ellipse>> ellsForInnerZone = new ArrayList<ArrayList<Ellipse>>(this.ellipses.size()); 
 		
-		ArrayList<String> overlappingRegion2Ells_labels = new ArrayList<String>(this.ellipses.size());
-		ArrayList<Double> overlappingRegion2Ells_areas = new ArrayList<Double>(this.ellipses.size()); 
-		// the size of this should be nC2= n!/((n-2)!*r!) but since we are mostly dealing with venn-3, then we will only have 3 2-ellipse zones 
-		// ...and still, this is the initial capacity and it will grow automatically if there is no more space and add is invoked 
+		int noOfEllPairs = this.ellPairEllIndices.length/2;
+		int[] overlappingRegion2Ells_zoneIds = new int[noOfEllPairs];
+		double[] overlappingRegion2Ells_areas = new double[noOfEllPairs];
+		int noOfOverlappingRegion2Ells = 0;
+		
+		// the areas are saved in zoneAreasVector by zone id (no labels) => the hashmap is updated when it is requested
+		// ... and any zone that is not computed has no value (see isValid)
+		ZoneVector areas = this.zoneAreasVector;
+		this.zoneAreasHashMapUpToDate = false;
+		areas.clear();
 		
-		Iterator itr = this.intPntsOfEllipses.entrySet().iterator();
-		Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>> intPntsForEs;
-		ArrayList<Ellipse> curr_es;
 		Ellipse e1;
 		Ellipse e2;
-		String overlappingRegionLabel;
-		ArrayList<Point2D.Double> intpntsAsArrayList;
+		int e1ZoneId;
+		int e2ZoneId;
+		int overlappingRegionZoneId;
 		Point2D.Double[] intpnts; 
 		Ellipse e3 = new Ellipse("", 0, 0, 0, 0, 0);
 		ArrayList<Ellipse> ellsForIP;
 		Double overlappingRegionArea;
 		double region_e1Area;
 		double region_e2Area;
-		String[] curr_esLabels_sorted = new String[2];
- 		while (itr.hasNext()){
- 			intPntsForEs = (Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>>)itr.next();
-			//intersecting ellipses
-			
-			// if the ellipses are cloned then reference to the actual ellipse object which are changed by the optimizer are lost 
-			// and thus, if use curr_es = intPntsForEs.getKey(); then the ellipse objects might not be fully updated
-			// => best to use the intPntsForEs.getKey() just to get the label of the ellipse (to be on the safe side)
-			// especially when rerun since refer back to a clone of the init diag
-			
-			curr_es = intPntsForEs.getKey(); //assume for every one have 2 ellipses
-			
-			e1 = null;
-			e2 = null;
-			for (Ellipse e : this.ellipses){
-				if (e.label.equals(curr_es.get(0).label)){
-					e1 = e;
-				}
-				if (e.label.equals(curr_es.get(1).label)){
-					e2 = e;
-				}
-				if ((e1!=null) && (e2!=null)){break;}
-			}
-			
-			overlappingRegionLabel = "";
-			curr_esLabels_sorted[0] = e1.label;
-			curr_esLabels_sorted[1] = e2.label;
-			Arrays.sort(curr_esLabels_sorted);
-			for (String eLabel : curr_esLabels_sorted){
-				overlappingRegionLabel += eLabel;
-			}
-			intpntsAsArrayList = intPntsForEs.getValue();
-			
-			intpnts = new Point2D.Double[2]; 
-			intpnts[0] = intpntsAsArrayList.get(0);
-			intpnts[1] = intpntsAsArrayList.get(1);
+		if ((ellPairProps_sharedArea == null) || (ellPairProps_sharedArea.length != 10*noOfEllPairs)){
+			ellPairProps_sharedArea = initEllPairProps(noOfEllPairs);
+			sharedAreaOfEllPairs = new Double[noOfEllPairs];
+		}
+
+ 		for (int ellPairIndex=0; ellPairIndex<noOfEllPairs; ellPairIndex++){
+			//intersecting ellipses (sorted by label)
+			e1 = this.ellipses.get(this.ellPairEllIndices[2*ellPairIndex]);
+			e2 = this.ellipses.get(this.ellPairEllIndices[2*ellPairIndex+1]);
+						
+			e1ZoneId = this.ellZoneIds[this.ellPairEllIndices[2*ellPairIndex]];
+			e2ZoneId = this.ellZoneIds[this.ellPairEllIndices[2*ellPairIndex+1]];
+			overlappingRegionZoneId = e1ZoneId | e2ZoneId;
+			intpnts = new Point2D.Double[2];
+			intpnts[0] = getIntPntOfEllPair(ellPairIndex, 0);
+			intpnts[1] = getIntPntOfEllPair(ellPairIndex, 1);
 
 			
 			//decide which of these two intersecting point is within (not on the boundary) the third ellipse
@@ -908,9 +1214,16 @@ public class EllipseDiagram {
 				}
 			}		
 			
-			overlappingRegionArea = e1.getSharedZoneArea_ByInteg(e2, intpnts, 0); //assuming that handle 2 ellipses at a time   
-			if(overlappingRegionArea==null){
-				return;
+			// the area shared by the two ellipses depends only on these two ellipses => recompute it only if one of them changed
+			if (ellPairPropsUnchanged(ellPairProps_sharedArea, ellPairIndex, e1, e2) && (sharedAreaOfEllPairs[ellPairIndex] != null)){
+				overlappingRegionArea = sharedAreaOfEllPairs[ellPairIndex];
+			} else {
+				overlappingRegionArea = e1.getSharedZoneArea_ByInteg(e2, intpnts, 0); //assuming that handle 2 ellipses at a time
+				if(overlappingRegionArea==null){
+					return;
+				}
+				setEllPairProps(ellPairProps_sharedArea, ellPairIndex, e1, e2);
+				sharedAreaOfEllPairs[ellPairIndex] = overlappingRegionArea;
 			}
 
 			if (this.ellipses.size() == 2){
@@ -935,18 +1248,19 @@ public class EllipseDiagram {
 					return;
 				}
 				if (overlappingRegionArea < 0){
-					System.out.println("EllipseDiagram.computeZoneAreas_ByInteg: 2-ellipse area "+overlappingRegionLabel+" < 0: "+overlappingRegionArea); 
+					System.out.println("EllipseDiagram.computeZoneAreas_ByInteg: 2-ellipse area "+ZoneVector.getZoneLabel(overlappingRegionZoneId)+" < 0: "+overlappingRegionArea); 
 					System.out.println("Diagram ellipses:\n"+EllipseDiagramOps.getEllipseDetailsForFile(e1)+"\n"+EllipseDiagramOps.getEllipseDetailsForFile(e2)); 
 					return;
 				}
 				
-				this.zoneAreas.put(e1.label, region_e1Area);
-				this.zoneAreas.put(e2.label, region_e2Area);
+				areas.set(e1ZoneId, region_e1Area);
+				areas.set(e2ZoneId, region_e2Area);
 				
-				this.zoneAreas.put(overlappingRegionLabel, overlappingRegionArea);
+				areas.set(overlappingRegionZoneId, overlappingRegionArea);
 			} else {
-				overlappingRegion2Ells_labels.add(overlappingRegionLabel);
-				overlappingRegion2Ells_areas.add(overlappingRegionArea);
+				overlappingRegion2Ells_zoneIds[noOfOverlappingRegion2Ells] = overlappingRegionZoneId;
+				overlappingRegion2Ells_areas[noOfOverlappingRegion2Ells] = overlappingRegionArea;
+				noOfOverlappingRegion2Ells++;
 			}
 		} 
 	
@@ -963,11 +1277,9 @@ public class EllipseDiagram {
 				}
 							
 				// add the areas of 2-ellipse zones
-				int index;
 				double twoEllZoneArea;
-				for (String label : overlappingRegion2Ells_labels){
-					index = overlappingRegion2Ells_labels.indexOf(label);
-					twoEllZoneArea = overlappingRegion2Ells_areas.get(index) - overlappingInnerRegionArea;
+				for (int index=0; index<noOfOverlappingRegion2Ells; index++){
+					twoEllZoneArea = overlappingRegion2Ells_areas[index] - overlappingInnerRegionArea;
 					try {
 						twoEllZoneArea = df.parse(df.format(twoEllZoneArea)).doubleValue();
 					} catch (ParseException exception) {
@@ -976,29 +1288,21 @@ public class EllipseDiagram {
 					if (twoEllZoneArea < 0){
 						return;
 					}
-					this.zoneAreas.put(label, twoEllZoneArea);
+					areas.set(overlappingRegion2Ells_zoneIds[index], twoEllZoneArea);
 				}
 				
 				// add the area of 3-ellipse zone
-				String[] label_sorted = {this.ellipses.get(0).label, this.ellipses.get(1).label, this.ellipses.get(2).label};
-				Arrays.sort(label_sorted);
-				String regionLabel = "";
-				for (String label : label_sorted){
-					regionLabel += label;
-				}
-				this.zoneAreas.put(regionLabel, overlappingInnerRegionArea);
+				areas.set(this.ellZoneIds[0] | this.ellZoneIds[1] | this.ellZoneIds[2], overlappingInnerRegionArea);
 				
 				// add the areas of 1-ellipse zones
 				double oneEllZoneArea;
-				Iterator itrZoneAreas;
-				Entry<String, Double> currZoneArea;
-				for (Ellipse e : this.ellipses){
-					oneEllZoneArea = e.getArea(); 
-					itrZoneAreas = this.zoneAreas.entrySet().iterator();
-					while (itrZoneAreas.hasNext()){
-						currZoneArea = (Entry<String, Double>)itrZoneAreas.next();
-						if (currZoneArea.getKey().contains(e.label) && !currZoneArea.getKey().equals(e.label) && (currZoneArea.getValue() != null)){
-							oneEllZoneArea -= currZoneArea.getValue();
+				int eZoneId;
+				for (int i=0; i<this.ellipses.size(); i++){
+					oneEllZoneArea = this.ellipses.get(i).getArea(); 
+					eZoneId = this.ellZoneIds[i];
+					for (int zoneId : this.zoneIds){
+						if (ZoneVector.isZoneInEllipse(zoneId, eZoneId) && (zoneId != eZoneId) && areas.hasValue(zoneId)){
+							oneEllZoneArea -= areas.get(zoneId);
 						}
 					}
 					try {
@@ -1009,18 +1313,164 @@ public class EllipseDiagram {
 					if (oneEllZoneArea < 0){
 						return;
 					}
-					this.zoneAreas.put(e.label, oneEllZoneArea);
+					areas.set(eZoneId, oneEllZoneArea);
 				}
 			}
 		}
 
-		this.zoneAreas = Utilities.sortHashMapByKeys(this.zoneAreas);
-		
 		this.zoneAreasComputedSuccessfully = true;
 	}
 
 	
 	
+	// ... compute zone areas using Green's theorem
+	//  ... along the elliptic arcs 
+	
+	public void computeZoneAreas_ByArcs (boolean recomputeIntPnts){
+		// every ellipse is split into arcs at its intersection points with the other ellipses and every arc is on the boundary of two zones:
+		// the zone inside the ellipse (traversed anticlockwise) and the zone outside it (traversed clockwise), where both zones are inside the 
+		// other ellipses that contain the midpoint of the arc
+		// => the line integral along every arc (see Ellipse.computeAreaOfArc_ByGreen) is added to the area of the first zone and subtracted from the area of the second
+		//    and the sum for every zone is its area (Green's theorem) -> no special cases for the number of ellipses or zones
+		// => only the zones on either side of an arc are visited (rather than all the 2^n - 1 zones) and the zones that are not bounded by any arc are empty
+	
+		if (recomputeIntPnts ||
+			(this.intPntsOfEllPairs == null) ||
+			(this.zoneAreasComputedSuccessfully == null)){
+			recomputeIntPntsOfEllipses();
+		}
+		
+		this.zoneAreasComputedSuccessfully = false;
+		
+		// a Venn diagram with 2 or 3 ellipses is valid as when computing the zone areas by integration, any other diagram is checked after computing the areas 
+		boolean checkAsVenn3 = ((this.ellipses.size() <= 3) && hasAllZones());
+		if (this.intPntsOfEllPairs == null){return;}
+		if (checkAsVenn3 && (correctNoOfIntPnts() == false)){return;}
+		
+		ZoneVector areas = this.zoneAreasVector;
+		this.zoneAreasHashMapUpToDate = false;
+		areas.fill(0);
+		
+		int noOfEllipses = this.ellipses.size();
+		int noOfEllPairs = this.ellPairEllIndices.length/2;
+		double[] ts = new double[(noOfEllipses-1)*MAX_NO_OF_INTPNTS_PER_ELLPAIR];
+		int noOfTs;
+		Ellipse e;
+		int eZoneId;
+		int c;
+		double x;
+		double y;
+		double t1;
+		double t2;
+		double tMid;
+		int outsideZoneId;
+		double arcArea;
+		int totNoOfTs = 0;
+		
+		for (int i=0; i<noOfEllipses; i++){
+			e = this.ellipses.get(i);
+			eZoneId = this.ellZoneIds[i];
+			
+			// the parametric angles of the intersection points on this ellipse in ascending order
+			noOfTs = 0;
+			for (int ellPairIndex=0; ellPairIndex<noOfEllPairs; ellPairIndex++){
+				if ((this.ellPairEllIndices[2*ellPairIndex] != i) && (this.ellPairEllIndices[2*ellPairIndex+1] != i)){continue;}
+				for (int k=0; k<MAX_NO_OF_INTPNTS_PER_ELLPAIR; k++){
+					c = 2*(MAX_NO_OF_INTPNTS_PER_ELLPAIR*ellPairIndex + k);
+					if (Double.isNaN(this.intPntsOfEllPairs[c])){continue;}
+					ts[noOfTs] = e.getParametricT(this.intPntsOfEllPairs[c], this.intPntsOfEllPairs[c+1]);
+					noOfTs++;
+				}
+			}
+			Arrays.sort(ts, 0, noOfTs);
+			totNoOfTs += noOfTs;
+			
+			// the arcs between every two consecutive intersection points (the whole ellipse if it does not intersect any ellipse)
+			for (int k=0; k<Math.max(noOfTs, 1); k++){
+				if (noOfTs == 0){
+					t1 = 0;
+					t2 = 2*Math.PI;
+				} else {
+					t1 = ts[k];
+					t2 = (k < noOfTs-1) ? ts[k+1] : (ts[0] + 2*Math.PI);
+				}
+				if (t2 - t1 <= PRECISION_ISZERO){continue;} // the same intersection point with two ellipses
+				
+				tMid = (t1 + t2)/2;
+				x = e.getX_parametric(tMid, true);
+				y = e.getY_parametric(tMid, true);
+				outsideZoneId = 0;
+				for (int j=0; j<noOfEllipses; j++){
+					if ((j != i) && this.ellipses.get(j).isPointInEllipse(x, y)){
+						outsideZoneId |= this.ellZoneIds[j];
+					}
+				}
+				
+				arcArea = e.computeAreaOfArc_ByGreen(t1, t2);
+				areas.set(outsideZoneId | eZoneId, areas.get(outsideZoneId | eZoneId) + arcArea);
+				if (outsideZoneId != 0){
+					areas.set(outsideZoneId, areas.get(outsideZoneId) - arcArea);
+				}
+			}
+		}
+		
+		// as when computing the zone areas by integration, the areas are not computed successfully if any zone is missing 
+		for (int zoneId : this.zoneIds){
+			if (!(areas.get(zoneId) > 0)){
+				return;
+			}
+		}
+		
+		if (!checkAsVenn3){
+			// ... no other zones (the zones that are not bounded by any arc are exactly 0)
+			int noOfNonEmptyZones = 0;
+			for (int zoneId=1; zoneId<=areas.getNoOfZones(); zoneId++){
+				if (areas.get(zoneId) != 0){
+					noOfNonEmptyZones++;
+				}
+			}
+			if (noOfNonEmptyZones != this.zoneIds.length){return;}
+			
+			// ... every zone is connected -> by Euler's formula, the number of bounded faces of the arrangement of the ellipses is 
+			//     no of arcs - no of intersection points + no of connected components = totNoOfTs/2 + no of connected components (an ellipse without intersection points is one arc and one vertex)
+			//     and every zone (and any hole that is not in any ellipse) has at least one face => there should be as many faces as zones  
+			if ((totNoOfTs/2 + getNoOfConnectedComponents()) != this.zoneIds.length){return;}
+		}
+		
+		this.zoneAreasComputedSuccessfully = true;
+	}
+	
+	private int getNoOfConnectedComponents(){
+		// the ellipses which are connected through intersection points (an ellipse which does not intersect any ellipse is a component on its own)
+		int noOfEllipses = this.ellipses.size();
+		int[] components = new int[noOfEllipses];
+		for (int i=0; i<noOfEllipses; i++){
+			components[i] = i;
+		}
+		int c1;
+		int c2;
+		for (int ellPairIndex=0; ellPairIndex<this.ellPairEllIndices.length/2; ellPairIndex++){
+			if (getNoOfIntPntsOfEllPair(ellPairIndex) == 0){continue;}
+			c1 = components[this.ellPairEllIndices[2*ellPairIndex]];
+			c2 = components[this.ellPairEllIndices[2*ellPairIndex+1]];
+			if (c1 == c2){continue;}
+			for (int i=0; i<noOfEllipses; i++){
+				if (components[i] == c2){
+					components[i] = c1;
+				}
+			}
+		}
+		int noOfComponents = 0;
+		for (int i=0; i<noOfEllipses; i++){
+			if (components[i] == i){
+				noOfComponents++;
+			}
+		}
+		return noOfComponents;
+	}
+	
+	
+	
 	// ... compute zone areas in terms of elliptic segments 
 	
 	//  ... in terms of elliptic segments 
@@ -1172,10 +1622,10 @@ public class EllipseDiagram {
 		
 		this.zoneAreasComputedSuccessfully = false;  // -> to be added when method is modified for memory usage optimization
 		
-        if (this.intPntsOfEllipses == null){
+        if (this.intPntsOfEllPairs == null){
 			recomputeIntPntsOfEllipses();
 		}
-		if (this.intPntsOfEllipses == null){return;}
+		if (this.intPntsOfEllPairs == null){return;}
 		if (correctNoOfIntPnts() == false){return;}
 		
 		ArrayList<Point2D.Double> ipsForInnerZone = new ArrayList<Point2D.Double>(this.ellipses.size());
@@ -1184,13 +1634,10 @@ public class EllipseDiagram {
 		ArrayList<String> overlappingRegion2Ells_labels = new ArrayList<String>(this.ellipses.size());
 		ArrayList<Double> overlappingRegion2Ells_areas = new ArrayList<Double>(this.ellipses.size()); 
 		
-		Iterator itr = this.intPntsOfEllipses.entrySet().iterator();
-		Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>> intPntsForEs;
-		ArrayList<Ellipse> curr_es;
+		int noOfEllPairs = this.ellPairEllIndices.length/2;
 		Ellipse e1;
 		Ellipse e2;
 		String overlappingRegionLabel;
-		ArrayList<Point2D.Double> intpntsAsArrayList;
 		Point2D.Double[] intpnts;
 		Ellipse e3 = new Ellipse("", 0, 0, 0, 0, 0);
 		ArrayList<Ellipse> ellsForIP;
@@ -1198,26 +1645,10 @@ public class EllipseDiagram {
 		double region_e1Area;
 		double region_e2Area;
 		String[] curr_esLabels_sorted = new String[2];
-		while (itr.hasNext()){
-			intPntsForEs = (Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>>)itr.next();
-			
-			// if the ellipses are cloned then reference to the actual ellipse object which are changed by the optimizer are lost 
-			// and thus, if use curr_es = intPntsForEs.getKey(); then the ellipse objects might not be fully updated
-			// => best to use the intPntsForEs.getKey() just to get the label of the ellipse (to be on the safe side)
-			// especially when rerun since refer back to a clone of the init diag
-			
-			curr_es = intPntsForEs.getKey(); //assume for every one have 2 ellipses
-			e1 = null;
-			e2 = null;
-			for (Ellipse e : this.ellipses){
-				if (e.label.equals(curr_es.get(0).label)){
-					e1 = e;
-				}
-				if (e.label.equals(curr_es.get(1).label)){
-					e2 = e;
-				}
-				if ((e1!=null) && (e2!=null)){break;}
-			}
+		for (int ellPairIndex=0; ellPairIndex<noOfEllPairs; ellPairIndex++){
+			//intersecting ellipses (sorted by label)
+			e1 = this.ellipses.get(this.ellPairEllIndices[2*ellPairIndex]);
+			e2 = this.ellipses.get(this.ellPairEllIndices[2*ellPairIndex+1]);
 			
 			overlappingRegionLabel = "";
 		
@@ -1227,10 +1658,9 @@ public class EllipseDiagram {
 			for (String eLabel : curr_esLabels_sorted){
 				overlappingRegionLabel += eLabel;
 			}
-			intpntsAsArrayList = intPntsForEs.getValue();
 			intpnts = new Point2D.Double[2]; //assume for every 2 intersecting ellipses have 2 intersection points
-			intpnts[0] = intpntsAsArrayList.get(0);
-			intpnts[1] = intpntsAsArrayList.get(1);
+			intpnts[0] = getIntPntOfEllPair(ellPairIndex, 0);
+			intpnts[1] = getIntPntOfEllPair(ellPairIndex, 1);
 	
 			
 			//decide which of these two intersecting point is within (not on the boundary) the third ellipse
@@ -1365,26 +1795,48 @@ public class EllipseDiagram {
 	//  get zone areas in the diagram -> using any one of the above methods: polygons, integration or elliptic segments 
 	
 	public void computeZoneAreas (boolean recomputeIntPnts){
-		HashMap<String, Double> areas = new HashMap<String, Double>();
+		// timed in OptimiserMetrics excluding the time spent recomputing the intersection points
+		long startNanos = System.nanoTime();
+		long recordedNanosBefore = this.metricsRecordedNanos;
+		computeZoneAreas_Untimed(recomputeIntPnts);
+		recordMetricsTime(OptimiserMetrics.TIME_ZONE_AREAS, startNanos, recordedNanosBefore);
+	}
+
+	private void computeZoneAreas_Untimed (boolean recomputeIntPnts){
 
 		if (this.methodToComputeRegionAreas == UNDEFINED){
 			this.methodToComputeRegionAreas = INTEGRATION;
 		}
+		// integration is specific to Venn diagrams with 2 or 3 ellipses => the areas of any other diagram are computed along the elliptic arcs
+		if ((this.methodToComputeRegionAreas == INTEGRATION) && ((this.ellipses.size() > 3) || !hasAllZones())){
+			this.methodToComputeRegionAreas = ARCS;
+		}
 		
-		if (this.methodToComputeRegionAreas != POLYGONS){
-			Iterator itr = intPntsOfEllipses.entrySet().iterator();
-			while (itr.hasNext()){
-				Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>> ips_e = (Entry<ArrayList<Ellipse>, ArrayList<Point2D.Double>>)itr.next();
-			}
+		if (this.methodToComputeRegionAreas == INTEGRATION){
+			computeZoneAreas_ByInteg (recomputeIntPnts); // the areas are saved in zoneAreasVector
+			return;
+		} else if (this.methodToComputeRegionAreas == ARCS){
+			computeZoneAreas_ByArcs (recomputeIntPnts); // the areas are saved in zoneAreasVector
+			return;
 		}
 		
+		// the areas computed in terms of polygons or elliptic segments are saved in the hashmap and then copied to zoneAreasVector
+		syncZoneAreasHashMap();
 		if (this.methodToComputeRegionAreas == POLYGONS){
 			computeZoneAreas_AsPolys ();
-		} else if (this.methodToComputeRegionAreas == INTEGRATION){
-			computeZoneAreas_ByInteg (recomputeIntPnts);
 		} else if (this.methodToComputeRegionAreas == SEGMENTS){
 			computeZoneAreas_BySeg();
 		}
+		this.zoneAreasVector.setFrom(this.zoneAreas);
+	}
+
+	
+	
+	private void recordMetricsTime (int computation, long startNanos, long recordedNanosBefore){
+		// the time since startNanos minus the time recorded meanwhile by the computations invoked (e.g. the intersection points recomputed when computing the zone areas)
+		long exclusiveNanos = (System.nanoTime() - startNanos) - (this.metricsRecordedNanos - recordedNanosBefore);
+		OptimiserMetrics.recordTime(computation, exclusiveNanos);
+		this.metricsRecordedNanos += exclusiveNanos;
 	}
 
 	
@@ -1399,6 +1851,90 @@ public class EllipseDiagram {
 		// invokes the static method
 		return (isValidAndNoEmptyOrDisconnectedLikeZones(this,polyAreaDiscardThreshold));
 	}
+	public DiagramZoneCondition getZoneCondition (double areaDiscardThreshold){
+		// invokes the static method
+		return (getZoneCondition(this,areaDiscardThreshold));
+	}
+	
+	public boolean passesValidityPreCheck (){
+		// necessary conditions for a diagram in which every zone should be non-empty (e.g. a Venn diagram) that are checked before computing the zone areas 
+		// -> false if the diagram is certainly not valid and true otherwise (then the zone areas should be computed to know whether it is valid)
+		// => no conditions for any other diagram
+		
+		if (!hasAllZones()){return true;}
+		
+		// 1) the bounding boxes of every two ellipses overlap (otherwise they do not overlap and the zone in both ellipses is empty) -> no intersection points are computed
+		Ellipse e1;
+		Ellipse e2;
+		for (int ellPairIndex=0; ellPairIndex<this.ellPairEllIndices.length/2; ellPairIndex++){
+			e1 = this.ellipses.get(this.ellPairEllIndices[2*ellPairIndex]);
+			e2 = this.ellipses.get(this.ellPairEllIndices[2*ellPairIndex+1]);
+			if (!doBoundingBoxesOverlap(e1, e2)){
+				noOfRejectionsAtValidityStage.incrementAndGet(VALIDITY_STAGE_BOUNDING_BOXES);
+				return false;
+			}
+		}
+		
+		// 2) the number of intersection points of every two ellipses, as checked when computing the zone areas by integration or along the arcs
+		//    -> exactly 2 for 2 or 3 ellipses (see correctNoOfIntPnts) and at least 2 for more ellipses (otherwise one ellipse is inside the other or they do not overlap)
+		//    => the intersection points are kept for computing the zone areas (only those of the pairs with an ellipse that changed are recomputed) 
+		if ((this.methodToComputeRegionAreas == POLYGONS) || (this.methodToComputeRegionAreas == SEGMENTS)){return true;}
+		
+		recomputeIntPntsOfEllipses();
+		boolean intPntsOk = true;
+		if (this.ellipses.size() <= 3){
+			intPntsOk = correctNoOfIntPnts();
+		} else {
+			for (int ellPairIndex=0; ellPairIndex<this.ellPairEllIndices.length/2; ellPairIndex++){
+				if (getNoOfIntPntsOfEllPair(ellPairIndex) < 2){
+					intPntsOk = false;
+					break;
+				}
+			}
+		}
+		if (!intPntsOk){
+			noOfRejectionsAtValidityStage.incrementAndGet(VALIDITY_STAGE_INTPNTS);
+			return false;
+		}
+		
+		return true;
+	}
+	
+	private static boolean doBoundingBoxesOverlap (Ellipse e1, Ellipse e2){
+		// the half-width and half-height of the bounding box of an ellipse rotated by rot are sqrt(a^2 cos^2 rot + b^2 sin^2 rot) and sqrt(a^2 sin^2 rot + b^2 cos^2 rot)
+		double cosRot1 = Math.cos(e1.getRotInRad());
+		double sinRot1 = Math.sin(e1.getRotInRad());
+		double cosRot2 = Math.cos(e2.getRotInRad());
+		double sinRot2 = Math.sin(e2.getRotInRad());
+		
+		double halfWidth1 = Math.sqrt((e1.a*e1.a*cosRot1*cosRot1) + (e1.b*e1.b*sinRot1*sinRot1));
+		double halfWidth2 = Math.sqrt((e2.a*e2.a*cosRot2*cosRot2) + (e2.b*e2.b*sinRot2*sinRot2));
+		if (Math.abs(e1.xc - e2.xc) > (halfWidth1 + halfWidth2)){return false;}
+		
+		double halfHeight1 = Math.sqrt((e1.a*e1.a*sinRot1*sinRot1) + (e1.b*e1.b*cosRot1*cosRot1));
+		double halfHeight2 = Math.sqrt((e2.a*e2.a*sinRot2*sinRot2) + (e2.b*e2.b*cosRot2*cosRot2));
+		return (Math.abs(e1.yc - e2.yc) <= (halfHeight1 + halfHeight2));
+	}
+	
+	public static long getNoOfValidityChecks (){
+		return noOfValidityChecks.get();
+	}
+	public static long getNoOfRejectionsAtValidityStage (int validityStage){
+		return noOfRejectionsAtValidityStage.get(validityStage);
+	}
+	public static void resetValidityStats (){
+		noOfValidityChecks.set(0);
+		for (int s=0; s<VALIDITY_STAGE_NAMES.length; s++){
+			noOfRejectionsAtValidityStage.set(s, 0);
+		}
+	}
+	public static String getValidityStats (){
+		String stats = "Validity checks: " + getNoOfValidityChecks() + " diagrams, rejected by";
+		for (int s=0; s<VALIDITY_STAGE_NAMES.length; s++){
+			stats += ((s > 0) ? "," : "") + " " + VALIDITY_STAGE_NAMES[s] + "=" + getNoOfRejectionsAtValidityStage(s);
+		}
+		return stats;
+	}
 	
 	public Boolean isValid (boolean checkAlsoScaleToFitScreenVrs){
 		// invokes the static method
@@ -1430,7 +1966,7 @@ public class EllipseDiagram {
 		HashMap<String, Double> zasEstimatesSorted = Utilities.sortHashMapByValue(zasEstimates);
 		
 		//Sort the actual zone areas in ascending order 
-		HashMap<String, Double> zasActualSorted = Utilities.sortHashMapByValue(zoneAreas);
+		HashMap<String, Double> zasActualSorted = Utilities.sortHashMapByValue(getZoneAreas());
 		
 		Set<String> zasEstSortedKeys = zasEstimatesSorted.keySet();
 		itr = zasActualSorted.entrySet().iterator();
@@ -1463,148 +1999,60 @@ public class EllipseDiagram {
 	
 	// Metrics
 	
+	public ErrorReport computeErrorReport (HashMap<String, Double> reqAreaSpecs){
+		// the error measures of the zones of the diagram -> computed by zone id and formatted only if needed (see ErrorReport.toString)
+		return (new ErrorReport().compute(new ZoneVector(reqAreaSpecs, this.ellipses.size()), this.getZoneAreasVector(), this.zoneIds, false));
+	}
+	
 	public String computeErrors (HashMap<String, Double> reqAreaSpecs, boolean addABCabserr){
+		// the error measures (see ErrorReport) as in the logs, followed by the actual and required area of abc and their abs error if addABCabserr
 		
-		HashMap<String, Double> actualZoneAreas = this.getZoneAreas();
-		
-		double totReqDiagArea=0;
-		for (String reqZoneAreaLabel : reqAreaSpecs.keySet()){
-			totReqDiagArea += reqAreaSpecs.get(reqZoneAreaLabel);
-		}
-		
-		double totCurrDiagArea=0;
-		for (String currZoneAreaLabel : actualZoneAreas.keySet()){
-			totCurrDiagArea += actualZoneAreas.get(currZoneAreaLabel);
-		}
-		
-		
-		double currRegArea_asInDiag;
-		double reqRegArea_asInput;
-		
-		// abc error
 		double reqABC = 0;
 		double actualABC = 0;
-		double abserrABC = 0;
-		String extraStr = "";
-		
-		// error measures
-		double currAbsError;
-		Double maxAbsError;
-		String maxAbsErrorZoneLabel;
-
-		double currRelError;
-		Double maxRelError;
-		String maxRelErrorZoneLabel;
-				
-		double currAbsDiffBetweenReqActualAreaProportions;
-		Double maxAbsDiffBetweenReqActualAreaProportions;
-	    String maxAbsDiffBetweenReqActualAreaProportionsZoneLabel;
-		
-		double currAbsErrorOverReqTot;
-		Double maxAbsErrorOverReqTot;
-		String maxAbsErrorOverReqTotZoneLabel;
-		
-		double totAbsErrorForDiag = 0;
-		double totRelErrorForDiag=0;
-		double totAbsDiffBetweenReqActualAreaProportionsForDiag=0;
-		double totAbsErrorOverReqTotForDiag=0;
-		
-		double avgAbsErrorForDiag=0;
-		double avgRelErrorForDiag=0;
-		double avgAbsDiffBetweenReqActualAreaProportionsForDiag=0;
-		double avgAbsErrorOverReqTotForDiag=0;
-		
-		Iterator itrAreaspecZA = reqAreaSpecs.entrySet().iterator();
-		Entry<String, Double> areaspecZA;
-		String zoneareaName = "";
-		double zonearea = 0.0;
-		
-		totAbsErrorForDiag=0;
-		totRelErrorForDiag=0;
-		totAbsDiffBetweenReqActualAreaProportionsForDiag=0;
-		totAbsErrorOverReqTotForDiag=0;
-		maxAbsError=null;
-		maxRelError=null;
-		maxAbsDiffBetweenReqActualAreaProportions=null;
-		maxAbsErrorOverReqTot=null;
-		maxAbsErrorZoneLabel="";
-		maxRelErrorZoneLabel="";
-		maxAbsDiffBetweenReqActualAreaProportionsZoneLabel="";
-		maxAbsErrorOverReqTotZoneLabel="";
-		
-		while (itrAreaspecZA.hasNext()){
-			
-			areaspecZA = (Entry<String,Double>)itrAreaspecZA.next();
-			zoneareaName = areaspecZA.getKey();
-			zonearea = areaspecZA.getValue();
-			
-			currRegArea_asInDiag = actualZoneAreas.get(zoneareaName);
-			reqRegArea_asInput = reqAreaSpecs.get(zoneareaName);
-			
-			if (addABCabserr && zoneareaName.equals("abc")){
-				actualABC = currRegArea_asInDiag;
-				reqABC = reqRegArea_asInput;
-				abserrABC = Math.abs(actualABC-reqABC);
-			}
-		
-			currAbsError = Math.abs(reqRegArea_asInput - currRegArea_asInDiag);
-			currRelError = currAbsError / reqRegArea_asInput;
-			currAbsDiffBetweenReqActualAreaProportions = Math.abs((currRegArea_asInDiag/totCurrDiagArea) - (reqRegArea_asInput/totReqDiagArea));
-			currAbsErrorOverReqTot = currAbsError / totReqDiagArea;
-			
-			// computing total error
-			totAbsErrorForDiag+=currAbsError;
-			totRelErrorForDiag+=currRelError;
-			totAbsDiffBetweenReqActualAreaProportionsForDiag+=currAbsDiffBetweenReqActualAreaProportions;
-			totAbsErrorOverReqTotForDiag+=currAbsErrorOverReqTot;
-			
-			// finding max error
-			if ((maxAbsError==null)||(maxAbsError<currAbsError)){
-					maxAbsError = currAbsError;
-					maxAbsErrorZoneLabel = zoneareaName;
-			}
-			if ((maxRelError==null)||(maxRelError<currRelError)){
-					maxRelError = currRelError;
-					maxRelErrorZoneLabel = zoneareaName;
-			}
-			if ((maxAbsDiffBetweenReqActualAreaProportions==null)||(maxAbsDiffBetweenReqActualAreaProportions<currAbsDiffBetweenReqActualAreaProportions)){
-					maxAbsDiffBetweenReqActualAreaProportions = currAbsDiffBetweenReqActualAreaProportions;
-					maxAbsDiffBetweenReqActualAreaProportionsZoneLabel = zoneareaName;
-			}
-			if ((maxAbsErrorOverReqTot==null)||(maxAbsErrorOverReqTot<currAbsErrorOverReqTot)){
-					maxAbsErrorOverReqTot = currAbsErrorOverReqTot;
-					maxAbsErrorOverReqTotZoneLabel = zoneareaName;
-			}
-		}
-		// compute average error
-		avgAbsErrorForDiag = totAbsErrorForDiag / 7;
-		avgRelErrorForDiag = totRelErrorForDiag / 7;
-		avgAbsDiffBetweenReqActualAreaProportionsForDiag = totAbsDiffBetweenReqActualAreaProportionsForDiag / 7;
-		avgAbsErrorOverReqTotForDiag = totAbsErrorOverReqTotForDiag / 7;
-		
-		// abc error 
-		extraStr = "";
-		if (addABCabserr){
-			extraStr = " | " + actualABC + " | " + reqABC + " | " + abserrABC;
+		if (addABCabserr && reqAreaSpecs.containsKey("abc")){
+			reqABC = reqAreaSpecs.get("abc");
+			actualABC = this.getZoneAreasVector().get("abc");
 		}
 		
-		return (maxAbsError + " | " + maxAbsErrorZoneLabel + " | " + avgAbsErrorForDiag + " | " + totAbsErrorForDiag + " | " + 
-				maxRelError + " | " + maxRelErrorZoneLabel + " | " + avgRelErrorForDiag + " | " + totRelErrorForDiag + " | " + 
-				maxAbsDiffBetweenReqActualAreaProportions + " | " + maxAbsDiffBetweenReqActualAreaProportionsZoneLabel + " | " + avgAbsDiffBetweenReqActualAreaProportionsForDiag + " | " + totAbsDiffBetweenReqActualAreaProportionsForDiag + " | " + 
-				maxAbsErrorOverReqTot + " | " + maxAbsErrorOverReqTotZoneLabel + " | " + avgAbsErrorOverReqTotForDiag + " | " + totAbsErrorOverReqTotForDiag  + " | " +
-				totCurrDiagArea + " | " + totReqDiagArea + extraStr);
-		
+		return (computeErrorReport(reqAreaSpecs).toString() + (addABCabserr ? (" | " + actualABC + " | " + reqABC + " | " + Math.abs(actualABC-reqABC)) : ""));
 	}
 
 	
 	public HashMap<String, Double> computeFitnessOfAllRegions (HashMap<String, Double> requiredAreaSpecs, FitnessMeasure fitnessMeasure){
 		// static to be able to determine the fitness of a diagram even though a hill climber is not instantiated
+		// -> the fitness is computed by zone id (see the ZoneVector version of this method) and returned with the zone labels
 		
 		if (requiredAreaSpecs == null){return null;}
 		
-		HashMap<String, Double> fitnessOfAllRegions=new HashMap<String, Double>();
-		HashMap<String, Double> currentZoneAreas=null;
-		String[] zoneLabels = this.getZoneLabels();
+		ZoneVector fitnessOfAllRegions = computeFitnessOfAllRegions(new ZoneVector(requiredAreaSpecs, this.ellipses.size()), fitnessMeasure);
+		if (fitnessOfAllRegions == null){return null;}
+		
+		HashMap<String, Double> fitnessOfAllRegionsHashMap = new HashMap<String, Double>();
+		for (int i=0; i<this.zoneLabels.length; i++){
+			fitnessOfAllRegionsHashMap.put(this.zoneLabels[i], fitnessOfAllRegions.get(this.zoneIds[i]));
+		}
+		return fitnessOfAllRegionsHashMap;
+	}
+	
+	public ZoneVector computeFitnessOfAllRegions (ZoneVector requiredAreaSpecs, FitnessMeasure fitnessMeasure){
+		// the fitness of every zone by zone id -> used in the hill climber to avoid hashing the zone labels and boxing the values of every zone
+		
+		if (requiredAreaSpecs == null){return null;}
+		
+		// counted and timed in OptimiserMetrics excluding the time spent computing any zone areas that are not up to date
+		long startNanos = System.nanoTime();
+		long recordedNanosBefore = this.metricsRecordedNanos;
+		ZoneVector fitnessOfAllRegions = computeFitnessOfAllRegions_Untimed(requiredAreaSpecs, fitnessMeasure);
+		OptimiserMetrics.recordFitnessEvaluation();
+		recordMetricsTime(OptimiserMetrics.TIME_FITNESS, startNanos, recordedNanosBefore);
+		return fitnessOfAllRegions;
+	}
+	
+	private ZoneVector computeFitnessOfAllRegions_Untimed (ZoneVector requiredAreaSpecs, FitnessMeasure fitnessMeasure){
+		
+		ZoneVector fitnessOfAllRegions=new ZoneVector(this.ellipses.size());
+		ZoneVector currentZoneAreas=null;
+		int[] zoneIds = this.getZoneIds();
 		double sumOfRegionAreas_req=0;
 		double sumOfRegionAreas_curr=0;
 		double fitnessOfRegion=0;
@@ -1612,148 +2060,148 @@ public class EllipseDiagram {
 		switch (fitnessMeasure) {
 		
 		case BIASED_FOR_SMALL_AREA_DIMENSIONLESS_NOTSQ: case BIASED_FOR_SMALL_AREA_DIMENSIONLESS_SQ:
-			currentZoneAreas = this.getZoneAreas();
-			for (String zl : zoneLabels){
-				fitnessOfRegion = Math.abs(requiredAreaSpecs.get(zl) - currentZoneAreas.get(zl))/ currentZoneAreas.get(zl);
+			currentZoneAreas = this.getZoneAreasVector();
+			for (int zid : zoneIds){
+				fitnessOfRegion = Math.abs(requiredAreaSpecs.get(zid) - currentZoneAreas.get(zid))/ currentZoneAreas.get(zid);
 				if (fitnessMeasure == FitnessMeasure.BIASED_FOR_SMALL_AREA_DIMENSIONLESS_SQ){
 					fitnessOfRegion = Math.pow(fitnessOfRegion, 2);
 				}	
-				fitnessOfAllRegions.put(zl, fitnessOfRegion);
+				fitnessOfAllRegions.set(zid, fitnessOfRegion);
 			}
 			break; 
 
 		case BIASED_FOR_SMALL_AREA_NOTDIMENSIONLESS:
-		    currentZoneAreas = this.getZoneAreas();
-		    for (String zl : zoneLabels){
-			    fitnessOfRegion = Math.pow(requiredAreaSpecs.get(zl) - currentZoneAreas.get(zl),2) / Math.pow(currentZoneAreas.get(zl), 1); //(Math.abs(Math.pow(currentZoneAreas.get(zl),1)));  // not dimension-less
-				fitnessOfAllRegions.put(zl, fitnessOfRegion);
+		    currentZoneAreas = this.getZoneAreasVector();
+		    for (int zid : zoneIds){
+			    fitnessOfRegion = Math.pow(requiredAreaSpecs.get(zid) - currentZoneAreas.get(zid),2) / Math.pow(currentZoneAreas.get(zid), 1); //(Math.abs(Math.pow(currentZoneAreas.get(zid),1)));  // not dimension-less
+				fitnessOfAllRegions.set(zid, fitnessOfRegion);
 			}
 			break; 
 
 		case STRESS:
-			for (String zl : zoneLabels){
-				fitnessOfAllRegions.put(zl, new Double(0));
+			for (int zid : zoneIds){
+				fitnessOfAllRegions.set(zid, 0);
 			}
 			break;
 			
 		case CHOWRODGERS_IDEAL_MAXREGFIT: case CHOWRODGERS_IDEAL_MEANREGFIT: case CHOWRODGERS_IDEAL_SUMREGFIT :
-			currentZoneAreas = this.getZoneAreas();
+			currentZoneAreas = this.getZoneAreasVector();
 		    sumOfRegionAreas_curr = 0;
 		    sumOfRegionAreas_req = 0;
-		    for (String zl : zoneLabels){
-		    	sumOfRegionAreas_curr += currentZoneAreas.get(zl);
-		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zl);
+		    for (int zid : zoneIds){
+		    	sumOfRegionAreas_curr += currentZoneAreas.get(zid);
+		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zid);
 		    }
-		    for (String zl : zoneLabels){
-		    	fitnessOfRegion = Math.pow ((requiredAreaSpecs.get(zl)/sumOfRegionAreas_req) - (currentZoneAreas.get(zl)/sumOfRegionAreas_curr), 2);
-		    	fitnessOfAllRegions.put(zl, fitnessOfRegion);
+		    for (int zid : zoneIds){
+		    	fitnessOfRegion = Math.pow ((requiredAreaSpecs.get(zid)/sumOfRegionAreas_req) - (currentZoneAreas.get(zid)/sumOfRegionAreas_curr), 2);
+		    	fitnessOfAllRegions.set(zid, fitnessOfRegion);
 			}
 			break;
 			
 		case ABSERROR_OVER_REQTOTAREA_MAXREGFIT: case ABSERROR_OVER_REQTOTAREA_MEANREGFIT: case ABSERROR_OVER_REQTOTAREA_SUMREGFIT:
-			currentZoneAreas = this.getZoneAreas();
+			currentZoneAreas = this.getZoneAreasVector();
 		    sumOfRegionAreas_req = 0;
-		    for (String zl : zoneLabels){
-		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zl);
+		    for (int zid : zoneIds){
+		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zid);
 		    }
-			for (String zl : zoneLabels){
-				fitnessOfRegion = Math.abs(currentZoneAreas.get(zl) - requiredAreaSpecs.get(zl)) / sumOfRegionAreas_req;
-				fitnessOfAllRegions.put(zl, fitnessOfRegion);
+			for (int zid : zoneIds){
+				fitnessOfRegion = Math.abs(currentZoneAreas.get(zid) - requiredAreaSpecs.get(zid)) / sumOfRegionAreas_req;
+				fitnessOfAllRegions.set(zid, fitnessOfRegion);
 			}
 			break;
 			
 		case ABSERROR_OVER_REQTOTAREA_MAXREGFIT_SCALEACTTOREQ: case ABSERROR_OVER_REQTOTAREA_MEANREGFIT_SCALEACTTOREQ: case ABSERROR_OVER_REQTOTAREA_SUMREGFIT_SCALEACTTOREQ:
-			currentZoneAreas = this.getZoneAreas();
+			currentZoneAreas = this.getZoneAreasVector();
 			sumOfRegionAreas_curr = 0;
 		    sumOfRegionAreas_req = 0;
-		    for (String zl : zoneLabels){
-		    	sumOfRegionAreas_curr += currentZoneAreas.get(zl);
-		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zl);
+		    for (int zid : zoneIds){
+		    	sumOfRegionAreas_curr += currentZoneAreas.get(zid);
+		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zid);
 		    }
-			for (String zl : zoneLabels){
-				fitnessOfRegion = Math.abs((currentZoneAreas.get(zl)*(sumOfRegionAreas_req/sumOfRegionAreas_curr)) - requiredAreaSpecs.get(zl)) / sumOfRegionAreas_req;
-		    	fitnessOfAllRegions.put(zl, fitnessOfRegion);
+			for (int zid : zoneIds){
+				fitnessOfRegion = Math.abs((currentZoneAreas.get(zid)*(sumOfRegionAreas_req/sumOfRegionAreas_curr)) - requiredAreaSpecs.get(zid)) / sumOfRegionAreas_req;
+		    	fitnessOfAllRegions.set(zid, fitnessOfRegion);
 			}
 			break;
 			
 		case RELATIVE_ERROR_MAXREGFIT: case RELATIVE_ERROR_MEANREGFIT: case RELATIVE_ERROR_SUMREGFIT:
-			currentZoneAreas = this.getZoneAreas();
-			for (String zl : zoneLabels){
-		    	fitnessOfRegion = Math.abs(currentZoneAreas.get(zl) - requiredAreaSpecs.get(zl)) / requiredAreaSpecs.get(zl);
-				fitnessOfAllRegions.put(zl, fitnessOfRegion);
+			currentZoneAreas = this.getZoneAreasVector();
+			for (int zid : zoneIds){
+		    	fitnessOfRegion = Math.abs(currentZoneAreas.get(zid) - requiredAreaSpecs.get(zid)) / requiredAreaSpecs.get(zid);
+				fitnessOfAllRegions.set(zid, fitnessOfRegion);
 			}
 			break;
 			
 			
 		case RELATIVE_ERROR_MAXREGFIT_SCALEACTTOREQ: case RELATIVE_ERROR_MEANREGFIT_SCALEACTTOREQ: case RELATIVE_ERROR_SUMREGFIT_SCALEACTTOREQ:
-			currentZoneAreas = this.getZoneAreas();
+			currentZoneAreas = this.getZoneAreasVector();
 		    sumOfRegionAreas_curr = 0;
 		    sumOfRegionAreas_req = 0;
-		    for (String zl : zoneLabels){
-		    	sumOfRegionAreas_curr += currentZoneAreas.get(zl);
-		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zl);
+		    for (int zid : zoneIds){
+		    	sumOfRegionAreas_curr += currentZoneAreas.get(zid);
+		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zid);
 		    }
-			for (String zl : zoneLabels){
-		    	fitnessOfRegion = Math.abs((currentZoneAreas.get(zl)*(sumOfRegionAreas_req/sumOfRegionAreas_curr)) - requiredAreaSpecs.get(zl)) / requiredAreaSpecs.get(zl);
-		    	fitnessOfAllRegions.put(zl, fitnessOfRegion);
+			for (int zid : zoneIds){
+		    	fitnessOfRegion = Math.abs((currentZoneAreas.get(zid)*(sumOfRegionAreas_req/sumOfRegionAreas_curr)) - requiredAreaSpecs.get(zid)) / requiredAreaSpecs.get(zid);
+		    	fitnessOfAllRegions.set(zid, fitnessOfRegion);
 			}
 			break;
 			
 		case RELATIVE_ERROR_NORMALIZED_MAXREGFIT: case RELATIVE_ERROR_NORMALIZED_MEANREGFIT: case RELATIVE_ERROR_NORMALIZED_SUMREGFIT:
-			currentZoneAreas = this.getZoneAreas();
+			currentZoneAreas = this.getZoneAreasVector();
 		    sumOfRegionAreas_curr = 0;
 		    sumOfRegionAreas_req = 0;
-		    for (String zl : zoneLabels){
-		    	sumOfRegionAreas_curr += currentZoneAreas.get(zl);
-		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zl);
+		    for (int zid : zoneIds){
+		    	sumOfRegionAreas_curr += currentZoneAreas.get(zid);
+		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zid);
 		    }
-		    for (String zl : zoneLabels){
-		    	fitnessOfRegion = Math.abs((currentZoneAreas.get(zl)/sumOfRegionAreas_curr) - (requiredAreaSpecs.get(zl)/sumOfRegionAreas_req)) / (requiredAreaSpecs.get(zl)/sumOfRegionAreas_req);
-		    	fitnessOfAllRegions.put(zl, fitnessOfRegion);
+		    for (int zid : zoneIds){
+		    	fitnessOfRegion = Math.abs((currentZoneAreas.get(zid)/sumOfRegionAreas_curr) - (requiredAreaSpecs.get(zid)/sumOfRegionAreas_req)) / (requiredAreaSpecs.get(zid)/sumOfRegionAreas_req);
+		    	fitnessOfAllRegions.set(zid, fitnessOfRegion);
 		    }
 			break;	
 		
 		case LOG_MAXREGFIT: case LOG_MEANREGFIT: case LOG_SUMREGFIT:
-		    currentZoneAreas = this.getZoneAreas();
-		    for (String zl : zoneLabels){
-		    	fitnessOfRegion = Math.abs(Math.log10(currentZoneAreas.get(zl) / requiredAreaSpecs.get(zl)));  //abs log
-		    	fitnessOfAllRegions.put(zl, fitnessOfRegion);
+		    currentZoneAreas = this.getZoneAreasVector();
+		    for (int zid : zoneIds){
+		    	fitnessOfRegion = Math.abs(Math.log10(currentZoneAreas.get(zid) / requiredAreaSpecs.get(zid)));  //abs log
+		    	fitnessOfAllRegions.set(zid, fitnessOfRegion);
 			}
 			break;
 			
 		case LOG_NORMALIZED_MAXREGFIT: case LOG_NORMALIZED_MEANREGFIT: case LOG_NORMALIZED_SUMREGFIT:
-			currentZoneAreas = this.getZoneAreas();
+			currentZoneAreas = this.getZoneAreasVector();
 		    sumOfRegionAreas_curr = 0;
 		    sumOfRegionAreas_req = 0;
-		    for (String zl : zoneLabels){
-		    	sumOfRegionAreas_curr += currentZoneAreas.get(zl);
-		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zl);
+		    for (int zid : zoneIds){
+		    	sumOfRegionAreas_curr += currentZoneAreas.get(zid);
+		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zid);
 		    }
-		    for (String zl : zoneLabels){
-		    	fitnessOfRegion = Math.abs(Math.log10((currentZoneAreas.get(zl)/sumOfRegionAreas_curr) / (requiredAreaSpecs.get(zl)/sumOfRegionAreas_req)));
-		    	fitnessOfAllRegions.put(zl, fitnessOfRegion);
+		    for (int zid : zoneIds){
+		    	fitnessOfRegion = Math.abs(Math.log10((currentZoneAreas.get(zid)/sumOfRegionAreas_curr) / (requiredAreaSpecs.get(zid)/sumOfRegionAreas_req)));
+		    	fitnessOfAllRegions.set(zid, fitnessOfRegion);
 		    }
 			break;	
 		
 		case ASPECT_RATIO_MAXREGFIT: case ASPECT_RATIO_MEANREGFIT: case ASPECT_RATIO_SUMREGFIT:
-		    currentZoneAreas = this.getZoneAreas();
-		    for (String zl : zoneLabels){
-		    	fitnessOfRegion = currentZoneAreas.get(zl) / requiredAreaSpecs.get(zl);
-		    	fitnessOfAllRegions.put(zl, fitnessOfRegion);
+		    currentZoneAreas = this.getZoneAreasVector();
+		    for (int zid : zoneIds){
+		    	fitnessOfRegion = currentZoneAreas.get(zid) / requiredAreaSpecs.get(zid);
+		    	fitnessOfAllRegions.set(zid, fitnessOfRegion);
 			}
 			break;
 			
 		case ASPECT_RATIO_NORMALIZED_MAXREGFIT: case ASPECT_RATIO_NORMALIZED_MEANREGFIT: case ASPECT_RATIO_NORMALIZED_SUMREGFIT:
-			currentZoneAreas = this.getZoneAreas();
+			currentZoneAreas = this.getZoneAreasVector();
 		    sumOfRegionAreas_curr = 0;
 		    sumOfRegionAreas_req = 0;
-		    for (String zl : zoneLabels){
-		    	sumOfRegionAreas_curr += currentZoneAreas.get(zl);
-		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zl);
+		    for (int zid : zoneIds){
+		    	sumOfRegionAreas_curr += currentZoneAreas.get(zid);
+		    	sumOfRegionAreas_req += requiredAreaSpecs.get(zid);
 		    }
-		    for (String zl : zoneLabels){
-		    	fitnessOfRegion = (currentZoneAreas.get(zl)/sumOfRegionAreas_curr) / (requiredAreaSpecs.get(zl)/sumOfRegionAreas_req);
-		    	fitnessOfAllRegions.put(zl, fitnessOfRegion);
+		    for (int zid : zoneIds){
+		    	fitnessOfRegion = (currentZoneAreas.get(zid)/sumOfRegionAreas_curr) / (requiredAreaSpecs.get(zid)/sumOfRegionAreas_req);
+		    	fitnessOfAllRegions.set(zid, fitnessOfRegion);
 		    }
 			break;	
 		
@@ -1769,8 +2217,29 @@ public class EllipseDiagram {
 	public double computeFitnessOfDiagram(HashMap<String, Double> requiredAreaSpecs, FitnessMeasure fitnessMeasure){
 		return computeFitnessOfDiagram(requiredAreaSpecs, computeFitnessOfAllRegions(requiredAreaSpecs, fitnessMeasure), fitnessMeasure); 
 	}
+	public double computeFitnessOfDiagram(ZoneVector requiredAreaSpecs, FitnessMeasure fitnessMeasure){
+		return computeFitnessOfDiagram(requiredAreaSpecs, computeFitnessOfAllRegions(requiredAreaSpecs, fitnessMeasure), fitnessMeasure); 
+	}
 
 	public Double computeFitnessOfDiagram(HashMap<String, Double> requiredAreaSpecs, HashMap<String, Double> fitnessOfAllRegions, FitnessMeasure fitnessMeasure){
+		// the fitness of the diagram is computed by zone id (see the ZoneVector version of this method)
+		
+		if (fitnessMeasure == FitnessMeasure.STRESS){
+			return this.computeWilkinsonStressMeasure(requiredAreaSpecs);
+		}
+		if (fitnessOfAllRegions == null){
+			System.out.println("EllipseDiagram.computeFitness: hashmap with the fitness of all regions is null");
+			return null;
+		}
+		if (zoneLabels.length != fitnessOfAllRegions.size()){
+			System.out.println("EllipseDiagram.computeFitness: the fitness of " + fitnessOfAllRegions.size() + " regions has been computed, but " + zoneLabels.length + " regions were expected according to the number of zone labels");
+			return null;
+		}
+		
+		return computeFitnessOfDiagram(null, new ZoneVector(fitnessOfAllRegions, this.ellipses.size()), fitnessMeasure);
+	}
+
+	public Double computeFitnessOfDiagram(ZoneVector requiredAreaSpecs, ZoneVector fitnessOfAllRegions, FitnessMeasure fitnessMeasure){
 		
 		double fitnessValue = 0;
 		
@@ -1778,7 +2247,7 @@ public class EllipseDiagram {
 		switch (fitnessMeasure) {
 
 		case STRESS:
-			fitnessValue = this.computeWilkinsonStressMeasure(requiredAreaSpecs);
+			fitnessValue = this.computeWilkinsonStressMeasure(requiredAreaSpecs.toHashMap());
 			break;
 			
 				
@@ -1786,18 +2255,18 @@ public class EllipseDiagram {
 		case ABSERROR_OVER_REQTOTAREA_MEANREGFIT: case ABSERROR_OVER_REQTOTAREA_MEANREGFIT_SCALEACTTOREQ: case RELATIVE_ERROR_MEANREGFIT: case RELATIVE_ERROR_MEANREGFIT_SCALEACTTOREQ: case RELATIVE_ERROR_NORMALIZED_MEANREGFIT: case LOG_MEANREGFIT: case LOG_NORMALIZED_MEANREGFIT: case ASPECT_RATIO_MEANREGFIT: case ASPECT_RATIO_NORMALIZED_MEANREGFIT:
 	    	
 			if (fitnessOfAllRegions == null){
-				System.out.println("EllipseDiagram.computeFitness: hashmap with the fitness of all regions is null");
+				System.out.println("EllipseDiagram.computeFitness: vector with the fitness of all regions is null");
 				return null;
 			}
-			if (zoneLabels.length != fitnessOfAllRegions.size()){
-				System.out.println("EllipseDiagram.computeFitness: the fitness of " + fitnessOfAllRegions.size() + " regions has been computed, but " + zoneLabels.length + " regions were expected according to the number of zone labels");
+			if (fitnessOfAllRegions.getNoOfEllipses() != this.ellipses.size()){
+				System.out.println("EllipseDiagram.computeFitness: the fitness of the regions of a diagram with " + fitnessOfAllRegions.getNoOfEllipses() + " ellipses has been computed, but the diagram has " + this.ellipses.size() + " ellipses");
 				return null;
 			}
 			fitnessValue=0;
-			for (String zl : zoneLabels){
-				fitnessValue += fitnessOfAllRegions.get(zl);
+			for (int zid : zoneIds){
+				fitnessValue += fitnessOfAllRegions.get(zid);
 			}
-			fitnessValue = fitnessValue / zoneLabels.length;
+			fitnessValue = fitnessValue / zoneIds.length;
 			break;
 			
 			
@@ -1805,21 +2274,19 @@ public class EllipseDiagram {
 		case RELATIVE_ERROR_MAXREGFIT: case RELATIVE_ERROR_MAXREGFIT_SCALEACTTOREQ: case RELATIVE_ERROR_NORMALIZED_MAXREGFIT: case LOG_MAXREGFIT: case LOG_NORMALIZED_MAXREGFIT: case ASPECT_RATIO_MAXREGFIT: case ASPECT_RATIO_NORMALIZED_MAXREGFIT:
 			
 			if (fitnessOfAllRegions == null){
-				System.out.println("EllipseDiagram.computeFitness: hashmap with the fitness of all regions is null");
+				System.out.println("EllipseDiagram.computeFitness: vector with the fitness of all regions is null");
 				return null;
 			}
-			if (zoneLabels.length != fitnessOfAllRegions.size()){
-				System.out.println("EllipseDiagram.computeFitness: the fitness of " + fitnessOfAllRegions.size() + " regions has been computed, but " + zoneLabels.length + " regions were expected according to the number of zone labels");
+			if (fitnessOfAllRegions.getNoOfEllipses() != this.ellipses.size()){
+				System.out.println("EllipseDiagram.computeFitness: the fitness of the regions of a diagram with " + fitnessOfAllRegions.getNoOfEllipses() + " ellipses has been computed, but the diagram has " + this.ellipses.size() + " ellipses");
 				return null;
 			}
 			
-			Double maxFitness_value = null;
+			double maxFitness_value = fitnessOfAllRegions.get(zoneIds[0]);
 			
-			for (String zl : zoneLabels){
-				if (maxFitness_value == null){
-					maxFitness_value = fitnessOfAllRegions.get(zl);
-				} else if (Math.max(maxFitness_value.doubleValue(), fitnessOfAllRegions.get(zl).doubleValue()) == fitnessOfAllRegions.get(zl).doubleValue()) {
-					maxFitness_value = fitnessOfAllRegions.get(zl).doubleValue();
+			for (int zid : zoneIds){
+				if (Math.max(maxFitness_value, fitnessOfAllRegions.get(zid)) == fitnessOfAllRegions.get(zid)) {
+					maxFitness_value = fitnessOfAllRegions.get(zid);
 				}
 			}
 			fitnessValue = maxFitness_value;
@@ -1831,16 +2298,16 @@ public class EllipseDiagram {
 
 			
 			if (fitnessOfAllRegions == null){
-				System.out.println("EllipseDiagram.computeFitness: hashmap with the fitness of all regions is null");
+				System.out.println("EllipseDiagram.computeFitness: vector with the fitness of all regions is null");
 				return null;
 			}
-			if (zoneLabels.length != fitnessOfAllRegions.size()){
-				System.out.println("EllipseDiagram.computeFitness: the fitness of " + fitnessOfAllRegions.size() + " regions has been computed, but " + zoneLabels.length + " regions were expected according to the number of zone labels");
+			if (fitnessOfAllRegions.getNoOfEllipses() != this.ellipses.size()){
+				System.out.println("EllipseDiagram.computeFitness: the fitness of the regions of a diagram with " + fitnessOfAllRegions.getNoOfEllipses() + " ellipses has been computed, but the diagram has " + this.ellipses.size() + " ellipses");
 				return null;
 			}
 			fitnessValue=0;
-			for (String zl : zoneLabels){
-				fitnessValue += fitnessOfAllRegions.get(zl);
+			for (int zid : zoneIds){
+				fitnessValue += fitnessOfAllRegions.get(zid);
 			}
 			break;
 			
@@ -1857,8 +2324,8 @@ public class EllipseDiagram {
 	public HashMap<String, Double> compareZoneAreasAccuracyWith (HashMap<String, Double> zasToCompareWith){
 		HashMap<String, Double> zoneAreaAccuracy = new HashMap<String, Double>();
 	
-		Iterator itr = zoneAreas.entrySet().iterator();
-		double zaAccuracy = 0; 
+		Iterator itr = getZoneAreas().entrySet().iterator();
+		double zaAccuracy = 0;  
 		while (itr.hasNext()){
 			Entry<String, Double> za = (Entry<String, Double>)itr.next();
 			zaAccuracy = (Math.abs( ((zasToCompareWith.get(za.getKey())==null)?0:zasToCompareWith.get(za.getKey())) - za.getValue())); /// za.getValue()) * 100;
@@ -1973,14 +2440,15 @@ public class EllipseDiagram {
 	    double deltay = - ((miny + maxy) * scale) /2;
 	    
 	    // Scale each ellipse and translate its centre
+	    // ... with the setters, so that the cached shapes of the ellipse (see Ellipse.resetShapeTemplates) are not those of its size before scaling
+	    Ellipse e;
 	    for (int i = 0; i < ellipses.size(); i++) {
-	    	ellipses.get(i).a *= scale;
-	    	ellipses.get(i).b *= scale;
+	    	e = ellipses.get(i);
+	    	e.setA(e.getA() * scale);
+	    	e.setB(e.getB() * scale);
 	    	
-	    	ellipses.get(i).xc *= scale;
-	    	ellipses.get(i).yc *= scale;
-	    	ellipses.get(i).xc += deltax;
-	    	ellipses.get(i).yc += deltay;
+	    	e.setXc((e.getXc() * scale) + deltax);
+	    	e.setYc((e.getYc() * scale) + deltay);
 	    }
 	}
 	
@@ -1999,9 +2467,12 @@ public class EllipseDiagram {
 	    double deltay = - (miny + maxy) /2;
 		    
 	    // Scale each ellipse and translate its centre
+	    // ... with the setters, so that the polygon of the ellipse is recomputed at its new centre
+	    Ellipse e;
 	    for (int i = 0; i < ellipses.size(); i++) {
-	    	ellipses.get(i).xc += deltax;
-	    	ellipses.get(i).yc += deltay;
+	    	e = ellipses.get(i);
+	    	e.setXc(e.getXc() + deltax);
+	    	e.setYc(e.getYc() + deltay);
 	    }
 	}
 	
@@ -2085,23 +2556,46 @@ public class EllipseDiagram {
 		// This excludes the empty zone
 		// This check is the same as the one used to generate random appropriate n-ellipse diagrams
 	
-		if (diag.zoneAreasComputedSuccessfully == null){
+		boolean newCheck = (diag.zoneAreasComputedSuccessfully == null);
+		if (newCheck){
+			noOfValidityChecks.incrementAndGet();
+			
+			// the cheap checks first -> the zone areas are not computed for a diagram that is certainly not valid
+			if (!diag.passesValidityPreCheck()){
+				diag.zoneAreasComputedSuccessfully = false;
+				return false;
+			}
+			
 			try{
 				diag.recomputeZoneAreas();
 			} catch (Exception e){
 				System.out.println("Diagram is not a Venn-3 diagram [Error occurred (in EllipseDiagram.isValid) when computing the area of the regions: "+e+"]");
+				noOfRejectionsAtValidityStage.incrementAndGet(VALIDITY_STAGE_ZONE_AREAS);
+				return false;
+			}
+			if (!diag.zoneAreasComputedSuccessfully){
+				noOfRejectionsAtValidityStage.incrementAndGet(VALIDITY_STAGE_ZONE_AREAS);
 				return false;
 			}
 		}
 		if (!diag.zoneAreasComputedSuccessfully){ return false; }
 
 				
-		HashMap<String, Double> zoneAreas = diag.getZoneAreas();
-		
-		int actualNoOfZones = zoneAreas.size();
-		int expectedNoOfZones = (int) Math.pow(2, diag.getEllipses().size()) - 1;
+		// the zones computed by recomputeZoneAreas are the ones with a value in zoneAreasVector (the hashmap has an entry, possibly null, for every zone label)  
+		int actualNoOfZones = 0;
+		for (int zoneId : diag.zoneIds){
+			if (diag.zoneAreasVector.hasValue(zoneId)){
+				actualNoOfZones++;
+			}
+		}
+		int expectedNoOfZones = diag.zoneLabels.length; // 2^n - 1 unless some zones should be empty (see setZoneLabels)
 
-		if (actualNoOfZones != expectedNoOfZones) {return false;}
+		if (actualNoOfZones != expectedNoOfZones) {
+			if (newCheck){
+				noOfRejectionsAtValidityStage.incrementAndGet(VALIDITY_STAGE_NO_OF_ZONES);
+			}
+			return false;
+		}
 		
 		return true;
 	}
@@ -2110,12 +2604,23 @@ public class EllipseDiagram {
 		if (!isValid(diag)){return false;}
 		
 		
-		if (TestingWithPolygons.doesDiagramContainEmptyLikeOrDisconnectedZones(diag, polyAreaDiscardThreshold)!=TestingWithPolygons.DiagramZoneCondition.NOTEMPTYLIKE_CONNECTED){
+		if (getZoneCondition(diag, polyAreaDiscardThreshold)!=DiagramZoneCondition.NOTEMPTYLIKE_CONNECTED){
 			return false;
 		}
 
 		return true;
 	}
+	public static DiagramZoneCondition getZoneCondition (EllipseDiagram diag, double areaDiscardThreshold){
+		// whether any zone is empty-like (no face with an area >= areaDiscardThreshold) or disconnected-like (more than one such face)
+		// -> with the faces of the arrangement of the ellipses and, only if the arrangement could not be built, with polygons (TestingWithPolygons)
+		
+		EllipseArrangement arrangement = diag.getArrangement();
+		if ((arrangement == null) || !arrangement.isConsistent()){
+			return TestingWithPolygons.doesDiagramContainEmptyLikeOrDisconnectedZones(diag, areaDiscardThreshold);
+		}
+		
+		return arrangement.getZoneCondition(diag.zoneIds, areaDiscardThreshold);
+	}
 
 	public static boolean improvedFitness (double current, double previous, boolean includeEqTo, EllipseDiagram diag){
 		return improvedFitness(current, previous, includeEqTo, null, null, diag);
@@ -31,6 +31,7 @@
 package uk.ac.kent.elliptic.areaproptool;
 
 import java.awt.geom.Area;
+import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
@@ -54,6 +55,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.imageio.ImageIO;
 
@@ -89,6 +91,10 @@ public class EllipseDiagramOps {
 	public static String[] zoneLabels_Venn2 = {"a", "b", "ab"};
 	public static String[] zoneLabels_Venn3 = {"a", "b", "c", "ab", "ac", "bc", "abc"};
 	public static String[] zoneLabels_Venn4 = {"a", "b", "c", "d", "ab", "ac", "ad", "bc", "bd", "cd", "abc", "abd", "acd", "bcd", "abcd"};
+	private static HashMap<Integer, String[]> zoneLabels_VennN = new HashMap<Integer, String[]>(); // the generated zone labels of diagrams with more than 4 ellipses
+	
+	// ... the zones are identified by a bitmask in an int (see ZoneVector) and 2^n - 1 values are kept for every zone vector
+	public static final int MAX_NO_OF_ELLIPSES = 16;
 	
 	// ... loading and saving diagram to file
  	public static final String FILESTARTABSTRACTDESCRIPTION  = "ABSTRACTDESCRIPTION";
@@ -98,6 +104,9 @@ public class EllipseDiagramOps {
  	public static final String FILESTARTCIRCLES = "CIRCLES";
  	public static final char FILESEPARATOR = '|';
  	
+ 	// ... the binary libraries mapped so far (see getBinaryDiagLib), by the path of their file
+ 	private static HashMap<String, BinaryDiagramLib> binaryDiagLibs = new HashMap<String, BinaryDiagramLib>();
+ 	
 	
  	
  	// Methods
@@ -114,8 +123,9 @@ public class EllipseDiagramOps {
 	
 	
     /* Getting zone labels -> static to be able to retrieve zone labels even if a diagram is not yet instantiated
-	 * 	  Method not fully automatic -> not worth working out the zone labels because most of the diagrams will not have more than 3 ellipses 
-	 * 	  => might as well define the zone labels as a hard coded array
+	 * 	  The zone labels of the diagrams with 2, 3 or 4 ellipses are hard coded (most of the diagrams will not have more than 3 ellipses) 
+	 * 	  => for more ellipses, the 2^n - 1 zone labels are generated in the same order (by the number of ellipses in the zone and then alphabetically) 
+	 * 	     the first time they are requested
 	 */
 	public static String[] getZoneLabels (int noOfEllipses, boolean includeEmptyZone){
 		String[] emptyZone = {""};
@@ -128,11 +138,171 @@ public class EllipseDiagramOps {
 		} else if (noOfEllipses == 4){
 			zoneLabels = zoneLabels_Venn4;
 		} else {
-			return null;
+			zoneLabels = getZoneLabels_VennN(noOfEllipses);
+			if (zoneLabels == null){
+				return null;
+			}
 		}
 		
 		return (!includeEmptyZone ? zoneLabels : (String[]) Utilities.concatArrays((Object[]) emptyZone, (Object[]) zoneLabels));
 	}
+	
+	private static synchronized String[] getZoneLabels_VennN (int noOfEllipses){
+		if ((noOfEllipses < 2) || (noOfEllipses > MAX_NO_OF_ELLIPSES)){
+			System.out.println("EllipseDiagramOps.getZoneLabels: diagrams with "+noOfEllipses+" ellipses are not supported");
+			return null;
+		}
+		
+		String[] zoneLabels = zoneLabels_VennN.get(noOfEllipses);
+		if (zoneLabels != null){
+			return zoneLabels;
+		}
+		
+		zoneLabels = new String[getNoOfZonesInVenn(noOfEllipses, false)];
+		for (int zoneId=1; zoneId<=zoneLabels.length; zoneId++){
+			zoneLabels[zoneId-1] = ZoneVector.getZoneLabel(zoneId);
+		}
+		Arrays.sort(zoneLabels, new Comparator<String>(){
+			public int compare(String zl1, String zl2){
+				if (zl1.length() != zl2.length()){
+					return (zl1.length() - zl2.length());
+				}
+				return zl1.compareTo(zl2);
+			}
+		});
+		
+		zoneLabels_VennN.put(noOfEllipses, zoneLabels);
+		return zoneLabels;
+	}
+	
+	
+	public static int getNoOfEllipses (HashMap<String, Double> areaSpecs){
+		// the ellipses are labelled as a,b etc => the number of ellipses is given by the last label in any of the zones 
+		// (whether the zone has an area or not, e.g. d=0 for a diagram with 4 ellipses where d is inside the other ellipses)
+		if (areaSpecs == null){return 0;}
+		
+		int noOfEllipses = 0;
+		for (String zl : areaSpecs.keySet()){
+			if (zl == null){continue;}
+			for (int i=0; i<zl.length(); i++){
+				noOfEllipses = Math.max(noOfEllipses, zl.charAt(i) - EllipseDiagram.ellipse1Label + 1);
+			}
+		}
+		return noOfEllipses;
+	}
+	
+	public static String[] getNonEmptyZoneLabels (HashMap<String, Double> areaSpecs, int noOfEllipses){
+		// the zones with a required area > 0 in the same order as getZoneLabels
+		// => the zones which are empty (0 or not in the area specifications) are pruned and are not drawn or considered when computing the fitness of the diagram 
+		String[] zoneLabels = getZoneLabels(noOfEllipses, false);
+		if ((zoneLabels == null) || (areaSpecs == null)){return null;}
+		
+		ArrayList<String> nonEmptyZoneLabels = new ArrayList<String>(zoneLabels.length);
+		Double zoneArea;
+		for (String zl : zoneLabels){
+			zoneArea = areaSpecs.get(zl);
+			if ((zoneArea != null) && (zoneArea > 0)){
+				nonEmptyZoneLabels.add(zl);
+			}
+		}
+		return nonEmptyZoneLabels.toArray(new String[nonEmptyZoneLabels.size()]);
+	}
+	
+	public static boolean isVenn3AreaSpecs (HashMap<String, Double> areaSpecs){
+		// area specifications for 3 ellipses whereby every zone has an area > 0 -> the starting diagram is generated as in the original eulerAPE 
+		return ((getNoOfEllipses(areaSpecs) == 3) && (getNonEmptyZoneLabels(areaSpecs, 3).length == zoneLabels_Venn3.length));
+	}
+	
+	public static String getReasonZonesCannotBeDrawn (HashMap<String, Double> areaSpecs){
+		// null if the zones with an area > 0 can be drawn with ellipses (as far as can be told before generating the diagram), otherwise why they cannot
+		// -> every zone must be connected and no zone can enclose a region outside all the ellipses (see EllipseDiagram.isValid), thus
+		//    1) every ellipse has a zone of its own and no two ellipses have the same zones (otherwise they coincide)
+		//    2) two ellipses intersect in at most 4 points => n ellipses have at most 2n(n-1) intersection points and at most 2n(n-1)+1 zones 
+		//       (e.g. a Venn diagram of up to 5 sets) 
+		//    3) the ellipses sharing some zone (for every set of ellipses) must not enclose a hole, as in ab, ac and bc without abc => as the ellipses are convex, 
+		//       the ellipses which are connected (through the zones they share) enclose a hole if the Euler characteristic of their nerve (every set of 
+		//       ellipses that share a zone) is not 1
+		int noOfEllipses = getNoOfEllipses(areaSpecs);
+		String[] zoneLabels = getNonEmptyZoneLabels(areaSpecs, noOfEllipses);
+		if ((zoneLabels == null) || (zoneLabels.length == 0)){
+			return "no regions with an area > 0 for a diagram with 2 to "+MAX_NO_OF_ELLIPSES+" sets";
+		}
+		int[] zoneIds = ZoneVector.getZoneIds(zoneLabels);
+		
+		int maxNoOfZones = 2*noOfEllipses*(noOfEllipses-1) + 1;
+		if (zoneLabels.length > maxNoOfZones){
+			return zoneLabels.length+" regions with an area > 0 cannot be drawn with "+noOfEllipses+" ellipses (at most "+maxNoOfZones+" regions, as two ellipses intersect in at most 4 points)";
+		}
+		
+		int i;
+		int j;
+		int zonesOfEllipses = 0;
+		boolean[] inNerve = new boolean[1 << noOfEllipses];
+		for (int zoneId : zoneIds){
+			inNerve[zoneId] = true;
+			zonesOfEllipses |= zoneId;
+		}
+		for (i=0; i<noOfEllipses; i++){
+			if (!ZoneVector.isZoneInEllipse(zonesOfEllipses, 1 << i)){
+				return "set "+ZoneVector.getZoneLabel(1 << i)+" has no region with an area > 0";
+			}
+			for (j=0; j<i; j++){
+				if (haveSameZones(zoneIds, 1 << i, 1 << j)){
+					return "sets "+ZoneVector.getZoneLabel(1 << j)+" and "+ZoneVector.getZoneLabel(1 << i)+" have the same regions with an area > 0 (their ellipses would coincide)";
+				}
+			}
+		}
+		
+		// the nerve -> every subset of the ellipses of a zone (from the largest sets of ellipses to the smallest)
+		int bit;
+		for (int ellipses=inNerve.length-1; ellipses>0; ellipses--){
+			if (!inNerve[ellipses]){continue;}
+			for (bit=1; bit<=ellipses; bit<<=1){
+				if ((ellipses & bit) != 0){
+					inNerve[ellipses & ~bit] = true;
+				}
+			}
+		}
+		
+		// ... the ellipses connected through the zones they share (the lowest ellipse of every group)
+		int[] groups = new int[noOfEllipses];
+		for (i=0; i<noOfEllipses; i++){
+			groups[i] = i;
+		}
+		boolean changed = true;
+		while (changed){
+			changed = false;
+			for (i=0; i<noOfEllipses; i++){
+				for (j=i+1; j<noOfEllipses; j++){
+					if (inNerve[(1 << i) | (1 << j)] && (groups[i] != groups[j])){
+						groups[i] = groups[j] = Math.min(groups[i], groups[j]);
+						changed = true;
+					}
+				}
+			}
+		}
+		
+		// ... the Euler characteristic of the nerve of every group
+		int[] eulerCharacteristics = new int[noOfEllipses];
+		for (int ellipses=1; ellipses<inNerve.length; ellipses++){
+			if (inNerve[ellipses]){
+				eulerCharacteristics[groups[Integer.numberOfTrailingZeros(ellipses)]] += ((Integer.bitCount(ellipses) % 2) == 1) ? 1 : -1;
+			}
+		}
+		for (i=0; i<noOfEllipses; i++){
+			if ((groups[i] == i) && (eulerCharacteristics[i] != 1)){
+				return "the regions with an area > 0 of the sets connected to set "+ZoneVector.getZoneLabel(1 << i)+" would enclose a region outside all the sets (as ab, ac and bc without abc), which cannot be drawn with ellipses";
+			}
+		}
+		return null;
+	}
+	
+	private static boolean haveSameZones (int[] zoneIds, int ellipse1, int ellipse2){
+		for (int zoneId : zoneIds){
+			if (ZoneVector.isZoneInEllipse(zoneId, ellipse1) != ZoneVector.isZoneInEllipse(zoneId, ellipse2)){return false;}
+		}
+		return true;
+	}
 
 	
 	public static HashMap<String, Double> sortZoneAreasAsInLabelArray(String[] zoneLabels, HashMap<String, Double> unsortedZoneAreas){
@@ -160,6 +330,12 @@ public class EllipseDiagramOps {
 			return null;
 		}
 		
+		// the faces of the arrangement of the ellipses if it can be built -> no intersection or subtraction of areas
+		Area[] zonesFromArrangement = getZonesAsAreas_FromArrangement(diagram, centreOfSystem);
+		if (zonesFromArrangement != null){
+			return zonesFromArrangement;
+		}
+		
 		ArrayList<Ellipse> diagEllipses = diagram.getEllipses();  
 		
 		Area areaA = null;
@@ -217,6 +393,42 @@ public class EllipseDiagramOps {
 	}
 	
 	
+	public static Area[] getZonesAsAreas_FromArrangement (EllipseDiagram diagram, Point2D.Double centreOfSystem) {
+		// as getZonesAsAreas_3EllDiag, the zone with label zoneLabels[i-1] is at index i (the empty zone at index 0 is left null)
+		// -> every zone is the path along the cycles of the zone in the arrangement (the holes are clockwise and thus not filled with the non-zero winding rule)
+		// => null if the arrangement could not be built
+		
+		EllipseArrangement arrangement = diagram.getArrangement();
+		if ((arrangement == null) || !arrangement.isConsistent()){
+			return null;
+		}
+		
+		String[] zoneLabels = diagram.getZoneLabels();
+		Area zones[] = new Area[zoneLabels.length+1];
+		Path2D.Double zonePath;
+		int zoneId;
+		double[] pnts;
+		for (int i=1; i<=zoneLabels.length; i++){
+			zoneId = ZoneVector.getZoneId(zoneLabels[i-1]);
+			zonePath = new Path2D.Double(Path2D.WIND_NON_ZERO);
+			for (int c=0; c<arrangement.getNoOfCycles(); c++){
+				if (arrangement.getCycleZoneId(c) != zoneId){continue;}
+				
+				// ... in display coordinates (as Ellipse.getShapeAreaForDisplay -> y increases downwards)
+				pnts = arrangement.getCyclePoints(c);
+				zonePath.moveTo(pnts[0]+centreOfSystem.x, -pnts[1]+centreOfSystem.y);
+				for (int p=1; p<pnts.length/2; p++){
+					zonePath.lineTo(pnts[2*p]+centreOfSystem.x, -pnts[2*p+1]+centreOfSystem.y);
+				}
+				zonePath.closePath();
+			}
+			zones[i] = new Area(zonePath);
+		}
+		
+		return zones;
+	}
+	
+	
 	public static Area getSetAsArea (Ellipse e, Point2D.Double centreOfSystem) {
 		// empty zone is included (index=0) but is left empty/null
 		// try to do this generic or at least, appropriate for 2 and 3 ellipses
@@ -365,16 +577,16 @@ public class EllipseDiagramOps {
 
 	public static EllipseDiagram loadDiagFromFile (File file, boolean considerLessPrecisePossibleIntPnts){
 		// null is returned as soon at fails one of these checks that is 
-		// - 3 ellipses 
-		// - ellipses labelled as a,b,c (order not imp)
-		// - the proper string of each ellipse    one of {a,b,c} | double for semi-major axis | double for semi-minor axis | double for centre x | double for centre y | double for rotation |
+		// - 2 to MAX_NO_OF_ELLIPSES ellipses 
+		// - ellipses labelled as a,b,c etc without any gaps (order not imp)
+		// - the proper string of each ellipse    one of {a,b,c,...} | double for semi-major axis | double for semi-minor axis | double for centre x | double for centre y | double for rotation |
 		
 		// compareTo -> Return: "The value 0 if the argument is a string lexicographically equal to this string; a value less than 0 if the argument is a string lexicographically greater than this string; and a value greater than 0 if the argument is a string lexicographically less than this string."
 		
 		
 		// checks 
 		int ellipsesCount = 0;
-		String[] expectedEllipseLabels = zoneLabels_Venn3;
+		boolean[] foundEllipseLabels = new boolean[MAX_NO_OF_ELLIPSES];
 		int ellPropSepCount=0;
 		
 		ArrayList<Ellipse> ellsInDiag = new ArrayList<Ellipse>(3); //3 is just an initial capacity which will grow automatically as soon as the arraylist is full and add is invoked
@@ -410,9 +622,11 @@ public class EllipseDiagramOps {
 						return null;}
 					ellPropSepCount++;
 					String label = parseLine.substring(0,separatorInd);
-					if (!label.equals(expectedEllipseLabels[0]) && !label.equals(expectedEllipseLabels[1]) && !label.equals(expectedEllipseLabels[2])){ 
+					if ((label.length() != 1) || (label.charAt(0) < EllipseDiagram.ellipse1Label) || (label.charAt(0) >= EllipseDiagram.ellipse1Label + MAX_NO_OF_ELLIPSES) || 
+						foundEllipseLabels[label.charAt(0) - EllipseDiagram.ellipse1Label]){ 
 						return null;
 					}
+					foundEllipseLabels[label.charAt(0) - EllipseDiagram.ellipse1Label] = true;
 					parseLine.delete(0,separatorInd+1);
 					i = 0;
 
@@ -455,9 +669,14 @@ public class EllipseDiagramOps {
 			System.exit(1);
 		}
 		
-		if ((ellsInDiag.size()!=3) || (ellipsesCount!=3)){ 
+		if ((ellsInDiag.size()<2) || (ellipsesCount!=ellsInDiag.size())){ 
 			return null;
 		}
+		for (int i=0; i<ellipsesCount; i++){
+			if (!foundEllipseLabels[i]){
+				return null;
+			}
+		}
 		
 		return (new EllipseDiagram (ellsInDiag, considerLessPrecisePossibleIntPnts));
 	}
@@ -682,10 +901,12 @@ public class EllipseDiagramOps {
 	
 	
 	public static boolean saveAreaspecOfDiagsInDir(String diagsDirPath, String areaspecListDirPath, String areaspecListFileName, String startFromDiagNo, String endWithDiagNo, boolean considerLessPrecisePossibleIntPnts, int noOfEllsPerDiag){
+		// the area specs are computed in parallel and written in the order of the diagrams' names as they are computed (see AreaspecExtractor)
+		// => if the file exists (e.g. after a crash), the diagrams up to the last one in the file are not computed again
 
 		// check if the file exists 
 		if (areaspecListDirPath.endsWith(File.separator)){
-			areaspecListDirPath = areaspecListDirPath.substring(0,diagsDirPath.lastIndexOf(File.separator));
+			areaspecListDirPath = areaspecListDirPath.substring(0,areaspecListDirPath.lastIndexOf(File.separator));
 		}
 		File areaspecListDirFile = new File(areaspecListDirPath);
 		if (!areaspecListDirFile.exists()){
@@ -693,72 +914,27 @@ public class EllipseDiagramOps {
 		}
 		areaspecListFileName += "_randomAreaspecsList";
 		
-		// compute area specs 
-		HashMap<String, HashMap<String, Double>> areaspecOfDiagsInDir = computeAreaspecOfDiagsInDir(diagsDirPath, startFromDiagNo, endWithDiagNo, considerLessPrecisePossibleIntPnts);
-		if (areaspecOfDiagsInDir == null){return false;}
-		
-		// save to file
-		return saveAreaSpecsToFile(areaspecOfDiagsInDir, areaspecListDirPath, areaspecListFileName, noOfEllsPerDiag);
+		// compute area specs and save to file
+		AreaspecExtractor extractor = new AreaspecExtractor(new File(diagsDirPath));
+		extractor.setStartFromDiagNo(startFromDiagNo);
+		extractor.setEndWithDiagNo(endWithDiagNo);
+		extractor.setConsiderLessPrecisePossibleIntPnts(considerLessPrecisePossibleIntPnts);
+		return extractor.saveAreaspecs(new File(areaspecListDirPath+File.separator+areaspecListFileName+".eldl"), noOfEllsPerDiag);
 	} 
 	
 	public static HashMap<String, HashMap<String, Double>> computeAreaspecOfDiagsInDir(String diagsDirPath, String startFromDiagNo, String endWithDiagNo, boolean considerLessPrecisePossibleIntPnts){
-		
-		// check if the file exists 
+		// diagram name -> area spec (null if the diagram is not valid), computed in parallel (see AreaspecExtractor)
 		
 		if (diagsDirPath.endsWith(File.separator)){
 			diagsDirPath = diagsDirPath.substring(0,diagsDirPath.lastIndexOf(File.separator));
 		}
 		
-		File diagDirFile = new File(diagsDirPath);
-		if (!diagDirFile.exists()){
-			System.out.println("EllispeDiagramOps.computeAreaSpecOfDiagsInDir: Directory with diagram files, "+diagsDirPath+ ", does not exist.");
-			return null;
-		}
-		
-		
-		// get diagram file names in directory
-		File[] diagFilesInDir = EllipseDiagramOps.getDiagFilesInDir(new File(diagsDirPath));
-		
-		//filter to start from a specific diag
-		ArrayList<File> diagFilesInDir_filtered = new ArrayList<File>();
-		
-		boolean copyFile = false;
-		boolean foundStart = false;
-		if ((startFromDiagNo == null)||(startFromDiagNo.trim().equals(""))){
-			foundStart = true;
-			copyFile = true;
-		}
-		for (File df : diagFilesInDir){
-			if (!foundStart){
-				if (df.getName().contains(startFromDiagNo)){
-					foundStart = true;
-					copyFile = true;
-				}
-			}
-			if (copyFile){
-				diagFilesInDir_filtered.add(df);
-			}
-			if ((endWithDiagNo != null)&&(!endWithDiagNo.trim().equals(""))){
-				if (df.getName().contains(endWithDiagNo)){
-					break;
-				}
-			}
-		}
-		
-		
-		// load area spec and save to file 
-		HashMap<String, Double> areaspecOfDiagInFile;
-		HashMap<String, HashMap<String, Double>> areaspecOfDiagsInDir = new HashMap<String, HashMap<String,Double>>();
-		String areaspecNameForDiag;
-		String diagFileName;
-		for (File diagFile : diagFilesInDir_filtered){
-			areaspecOfDiagInFile = computeAreaSpecOfDiagInFile(diagFile, considerLessPrecisePossibleIntPnts);
-			diagFileName = diagFile.getName();
-			areaspecNameForDiag = diagFileName.substring(0, diagFileName.lastIndexOf(".eld"));
-			areaspecOfDiagsInDir.put(areaspecNameForDiag, areaspecOfDiagInFile);
-		}
-		
-		return areaspecOfDiagsInDir;
+		AreaspecExtractor extractor = new AreaspecExtractor(new File(diagsDirPath));
+		extractor.setStartFromDiagNo(startFromDiagNo);
+		extractor.setEndWithDiagNo(endWithDiagNo);
+		extractor.setConsiderLessPrecisePossibleIntPnts(considerLessPrecisePossibleIntPnts);
+		extractor.setSilent(true);
+		return extractor.computeAreaspecs();
 	}
 	
 	
@@ -791,28 +967,19 @@ public class EllipseDiagramOps {
 		HashMap<String, Double> areaspecZoneAreas;
 		String areaspecsStr = "";
 		
-		int noOfZones = (int)(Math.pow(2,noOfElls)) - 1;
 		String[] zoneNames = EllipseDiagramOps.getZoneLabels(noOfElls, false);
-		int z=0;
 		
 		
 		try{
 			BufferedWriter b = new BufferedWriter(new FileWriter(areaspecsDirPath+File.separator+areaspecsFileName+".eldl"));
-			b.append("//a | b | c | ab | ac | bc | abc : diagram file name"); b.newLine();
+			b.append(AreaspecExtractor.AREASPECS_FILE_HEADER); b.newLine();
 		
 			areaspecNames = new TreeSet<String>(areaspecs.keySet());  //need TreeSet to sort the area specs in ascending by their name as eg _0, _1, _10, _100 etc 
 			for (String areaspecName : areaspecNames){
 			
 				areaspecZoneAreas = areaspecs.get(areaspecName);
 				
-				z=0;
-				areaspecsStr="";
-				for (String zoneName : zoneNames){
-					areaspecsStr += areaspecZoneAreas.get(zoneName);
-					if (z < (noOfZones-1)){ areaspecsStr += " | "; }
-					z++;
-				}
-		        areaspecsStr += (" : " + areaspecName);	
+				areaspecsStr = areaSpecToString(areaspecZoneAreas, zoneNames, areaspecName);
 				b.append(areaspecsStr); b.newLine();
 				System.out.println("***"+areaspecsStr);
 			}
@@ -827,6 +994,18 @@ public class EllipseDiagramOps {
 	}
 	
 	
+	public static String areaSpecToString (HashMap<String, Double> areaspecZoneAreas, String[] zoneNames, String areaspecName){
+		// as a line of an .eldl file -> the zone areas in the order of zoneNames followed by the name of the area spec
+		StringBuffer areaspecStr = new StringBuffer();
+		for (int z=0; z<zoneNames.length; z++){
+			if (z > 0){ areaspecStr.append(" | "); }
+			areaspecStr.append(areaspecZoneAreas.get(zoneNames[z]));
+		}
+		areaspecStr.append(" : " + areaspecName);
+		return areaspecStr.toString();
+	}
+	
+	
 	private static class AreaSpecNamesComparator implements Comparator{
 		//the index number is just after the final _ so this comparator gets that number and compares the area spec indices
 		//to sort them out in descending order
@@ -956,6 +1135,47 @@ public class EllipseDiagramOps {
 		return null;
 	}
 	
+	public static HashMap<String, Double> loadAreaSpecsFromFile (File areaSpecsFile){
+		// as loadAreaSpecsFromFile_venn3 but for any number of ellipses -> the areas of the zones in the same order as getZoneLabels (e.g. a | b | c | d | ab | ... | abcd)
+		// => the number of ellipses is given by the number of areas on the first line (2^n - 1) and the empty zones have an area of 0
+		// (as for loadAreaSpecsFromFile_venn3, only the first line with area specs is loaded)
+		String line;
+		try{
+			BufferedReader b = new BufferedReader(new FileReader(areaSpecsFile));
+			line = b.readLine();
+			while((line != null) && (line.trim().equals("") || line.trim().startsWith("//"))) {
+				line = b.readLine();
+			}
+			b.close();
+			
+		} catch(IOException e){
+			System.out.println("EllipseDiagramOps.loadAreaSpecsFromFile: An IO exception occured with file "+areaSpecsFile.getAbsolutePath()+": "+e+"\n");
+			return null;
+		}
+		
+		return ((line == null) ? null : parseAreaSpecs(line));
+	}
+	
+	public static HashMap<String, Double> parseAreaSpecs (String areaSpecsStr){
+		String[] areaStrs = areaSpecsStr.trim().split("\\|");
+		int noOfEllipses = 31 - Integer.numberOfLeadingZeros(areaStrs.length + 1); // log2(2^n - 1 + 1)
+		String[] zoneLabels = getZoneLabels(noOfEllipses, false);
+		if ((zoneLabels == null) || (zoneLabels.length != areaStrs.length)){
+			System.out.println("EllipseDiagramOps.parseAreaSpecs: "+areaStrs.length+" areas were found, but 2^n - 1 areas are expected for a diagram with n ellipses");
+			return null;
+		}
+		
+		HashMap<String, Double> areaSpecs = new HashMap<String, Double>();
+		for (int i = 0; i < zoneLabels.length; i++){
+			try{
+				areaSpecs.put(zoneLabels[i], Double.parseDouble(Utilities.changeLocaleDecimalSeparatorToDefault(areaStrs[i].trim())));
+			}catch(NumberFormatException e){
+				return null;
+			}
+		}
+		return areaSpecs;
+	}
+	
 	public static HashMap<String, Double> loadAreaSpecsFromFile_venn3 (File areaSpecsListFile, String reqDiagName){
 		HashMap<String, Double> areaSpecs = new HashMap<String, Double>();
 		
@@ -1050,7 +1270,14 @@ public class EllipseDiagramOps {
 	
 	public static EllipseDiagram generateAValidRandomDiagram (int noOfElls, double a_b_min, double a_b_max, Point2D.Double axisRange_min, Point2D.Double axisRange_max, 
 														      boolean restrictToCircles, boolean checkValidity, boolean disallowDiagsWithCloseToEmptyZones, boolean disallowDiagsWithCloseToDisconnectedZones, Double minPolyAreaInZone, boolean considerLessPrecisePossibleIntPnts, Random random){
+		return generateAValidRandomDiagram (noOfElls, a_b_min, a_b_max, axisRange_min, axisRange_max, restrictToCircles, checkValidity, disallowDiagsWithCloseToEmptyZones, disallowDiagsWithCloseToDisconnectedZones, minPolyAreaInZone, considerLessPrecisePossibleIntPnts, random, null);
+	}
+	
+	public static EllipseDiagram generateAValidRandomDiagram (int noOfElls, double a_b_min, double a_b_max, Point2D.Double axisRange_min, Point2D.Double axisRange_max, 
+														      boolean restrictToCircles, boolean checkValidity, boolean disallowDiagsWithCloseToEmptyZones, boolean disallowDiagsWithCloseToDisconnectedZones, Double minPolyAreaInZone, boolean considerLessPrecisePossibleIntPnts, Random random,
+														      AtomicLong noOfSampledDiags){
 		// it must be valid to disallow emptylike and disconnected like zones using polygons or else will have some difficulties to find the concrete contours
+		// -> every random diagram that is sampled (i.e. the valid one and all those rejected before it) is counted in noOfSampledDiags, if not null (see RandomDiagramLibGenerator)
 		
 		EllipseDiagram randomDiag;
 		boolean diagIsValid;
@@ -1068,6 +1295,9 @@ public class EllipseDiagramOps {
 			diagZoneCondition_approx = DiagramZoneCondition.NOTEMPTYLIKE_CONNECTED;
 			
 			randomDiag = generateARandomDiagram(noOfElls, a_b_min, a_b_max, axisRange_min, axisRange_max, restrictToCircles, considerLessPrecisePossibleIntPnts, random);
+			if (noOfSampledDiags != null){
+				noOfSampledDiags.incrementAndGet();
+			}
 			
 			diagIsValid = randomDiag.isValid();
 			
@@ -1087,7 +1317,7 @@ public class EllipseDiagramOps {
 				}
 				
 				if ( (disallowDiagsWithCloseToEmptyZones || disallowDiagsWithCloseToDisconnectedZones) && (minPolyAreaInZone != null)){
-					diagZoneCondition_approx = TestingWithPolygons.doesDiagramContainEmptyLikeOrDisconnectedZones(randomDiag, minPolyAreaInZone.doubleValue());
+					diagZoneCondition_approx = randomDiag.getZoneCondition(minPolyAreaInZone.doubleValue());
 				}
 			}
 			
@@ -1124,53 +1354,14 @@ public class EllipseDiagramOps {
 			  											  boolean disallowDiagsWithCloseToEmptyZones, boolean disallowDiagsWithCloseToDisconnectedZones, 
 			  											  Double minPolyAreaInZone, boolean considerLessPrecisePossibleIntPnts){
 		
-		// none of the paths should end with "\\"
-		if (diagLibPath.endsWith(File.separator)){
-			diagLibPath = diagLibPath.substring(0,diagLibPath.lastIndexOf(File.separator));
-		}
-
-		File diagLibFile = new File(diagLibPath);
-		if (!diagLibFile.exists()){
-			Utilities.createDir(diagLibPath);
-		}
-		
-		String eldDirName = "eld";
-		String pngDirName = "png";
-		String svgDirName = "svg";
-		
-	    String eldDirPath = diagLibPath+File.separator+eldDirName;
-		String pngDirPath = diagLibPath+File.separator+pngDirName;
-		String svgDirPath = diagLibPath+File.separator+svgDirName; 
-		
-		File eldDirFile = new File(eldDirPath);
-		File pngDirFile = new File(pngDirPath);
-		File svgDirFile = new File(svgDirPath);
-		if (!eldDirFile.exists()){
-			Utilities.createDir(eldDirPath);
-		}
-		if (!pngDirFile.exists()){
-			Utilities.createDir(pngDirPath);
-		}
-		if (!svgDirFile.exists()){
-			Utilities.createDir(svgDirPath);
-		}
-		
-		
-		String dateTime = Utilities.getCurrentDateTime();
-		String diagFileName;
-		EllipseDiagram randomValidDiag = null;
-		int i=0;
-		Random random = new Random();
-		
-		for (i=0; i<noOfDiags; i++){
-			randomValidDiag = generateAValidRandomDiagram(noOfElls, a_b_min, a_b_max, axisRange_min, axisRange_max,restrictToCircles, checkValidity, disallowDiagsWithCloseToEmptyZones, disallowDiagsWithCloseToDisconnectedZones, minPolyAreaInZone, considerLessPrecisePossibleIntPnts, random);
-			diagPanel.setDiagram(randomValidDiag);
-			// update diag panel with the new diag before you save the diag to file
-			diagFileName = dateTime+"_"+i;
-			saveDiagToFile (randomValidDiag, new File (eldDirPath+File.separator+diagFileName+".eld"));
-			saveDiagImgToFile(diagPanel, new File (pngDirPath+File.separator+diagFileName+".png"));
-			saveDiagToSVGFile(diagPanel, new File (svgDirPath+File.separator+diagFileName+".svg"));
-		}
+		// the diagrams are sampled on all the cores and written (and drawn with diagPanel) by this thread as they are generated (see RandomDiagramLibGenerator)
+		RandomDiagramLibGenerator generator = new RandomDiagramLibGenerator(new File(diagLibPath), noOfElls, a_b_min, a_b_max, axisRange_min, axisRange_max);
+		generator.setRestrictToCircles(restrictToCircles);
+		generator.setCheckValidity(checkValidity);
+		generator.setDisallowedZones(disallowDiagsWithCloseToEmptyZones, disallowDiagsWithCloseToDisconnectedZones, minPolyAreaInZone);
+		generator.setConsiderLessPrecisePossibleIntPnts(considerLessPrecisePossibleIntPnts);
+		generator.setDiagPanel(diagPanel);
+		generator.run(noOfDiags);
 		
 		return true;
 		
@@ -1178,6 +1369,13 @@ public class EllipseDiagramOps {
 	
 
 	public static EllipseDiagram getARandomDiagFromLib(File diagLibPath, boolean considerLessPrecisePossibleIntPnts){
+		// diagLibPath is an .eldb file or a directory with .eld files or with an .eldb file named BinaryDiagramLib.LIB_FILE_NAME
+		// -> a binary library is mapped only once (see getBinaryDiagLib), whereas the directory is listed every time
+		
+		BinaryDiagramLib binaryDiagLib = getBinaryDiagLib(diagLibPath);
+		if (binaryDiagLib != null){
+			return (binaryDiagLib.getRandomDiagram(considerLessPrecisePossibleIntPnts));
+		}
 		
 		if (!diagLibPath.exists()){
 			System.out.println ("EllipseDiagramOps.getARandomDiagFromLib: directory " + diagLibPath.getAbsolutePath() + " does not exist");
@@ -1195,6 +1393,29 @@ public class EllipseDiagramOps {
 		return (loadDiagFromFile(randomDiagFile, considerLessPrecisePossibleIntPnts));		
 	}
 	
+	public static BinaryDiagramLib getBinaryDiagLib(File diagLibPath){
+		// the binary library of diagLibPath (an .eldb file or a directory with BinaryDiagramLib.LIB_FILE_NAME) -> null if there is none
+		// => mapped the first time and then kept (and mapped again only if the file changes)
+		File binaryDiagLibFile = diagLibPath.isDirectory() ? new File(diagLibPath, BinaryDiagramLib.LIB_FILE_NAME) : diagLibPath;
+		if (!binaryDiagLibFile.isFile() || !binaryDiagLibFile.getName().endsWith(BinaryDiagramLib.FILE_EXTENSION)){
+			return null;
+		}
+		
+		String key = binaryDiagLibFile.getAbsolutePath();
+		synchronized (binaryDiagLibs){
+			BinaryDiagramLib binaryDiagLib = binaryDiagLibs.get(key);
+			if ((binaryDiagLib == null) || !binaryDiagLib.isUpToDate()){
+				binaryDiagLib = BinaryDiagramLib.open(binaryDiagLibFile);
+				if (binaryDiagLib == null){
+					binaryDiagLibs.remove(key);
+					return null;
+				}
+				binaryDiagLibs.put(key, binaryDiagLib);
+			}
+			return binaryDiagLib;
+		}
+	}
+	
 	
 	public static double[] generateARandomAreaSpecs(int noOfElls, double zonearea_min, double zonearea_max, double multiplyBy, Random random, int noOfDPs){
 		
@@ -1269,11 +1490,22 @@ public class EllipseDiagramOps {
 	}
 	
 	
-	public static enum InitDiagType {BISECTION_ON_Y_THEN_X, BISECTION_ON_SLOPE}; 
+	// ... NEAREST_SOLVED_DIAG -> the diagram already generated for the closest area specification (see DiagramCache.getNearest and HeadlessDiagramEngine.generateInitDiag)
+	public static enum InitDiagType {BISECTION_ON_Y_THEN_X, BISECTION_ON_SLOPE, NEAREST_SOLVED_DIAG}; 
 	public static EllipseDiagram generateAppropriateInitDiag(double[] circleRots, HashMap<String, Double> requiredAreaSpecs, InitDiagType initDiagType, double diagIsValidPolyAreaDiscardThreshold, boolean considerLessPrecisePossibleIntPnts){
 		
-		if ((requiredAreaSpecs==null)||(requiredAreaSpecs.size()==0)||
-			Double.isNaN(requiredAreaSpecs.get("ab")) || Double.isNaN(requiredAreaSpecs.get("abc"))){
+		if ((requiredAreaSpecs==null)||(requiredAreaSpecs.size()==0)){
+			return null;
+		}
+		if (initDiagType == InitDiagType.NEAREST_SOLVED_DIAG){
+			// the solved diagrams are not known here -> when no solved diagram is close enough, the starting diagram is generated from scratch
+			initDiagType = InitDiagType.BISECTION_ON_SLOPE;
+		}
+		if (!isVenn3AreaSpecs(requiredAreaSpecs)){
+			// any other number of ellipses or some empty zones -> the circles are placed based on the area shared by every pair of circles
+			return generateAppropriateInitDiag_nEll(requiredAreaSpecs, considerLessPrecisePossibleIntPnts);
+		}
+		if (Double.isNaN(requiredAreaSpecs.get("ab")) || Double.isNaN(requiredAreaSpecs.get("abc"))){
 			return null;
 		}
 		
@@ -1527,6 +1759,378 @@ public class EllipseDiagramOps {
 		return diag_orig;
 	}
 	
+	
+	// ... starting diagram with n circles or, if the zones with a required area > 0 cannot be drawn with circles (e.g. a Venn diagram of 4 or 5 sets), n ellipses 
+	public static final int INIT_DIAG_NELL_MAX_NO_OF_ATTEMPTS = 20;
+	public static final int INIT_DIAG_NELL_NO_OF_CANDIDATE_ANGLES = 36;
+	public static final int INIT_DIAG_NELL_NO_OF_RELAXATION_ITERATIONS = 200;
+	public static final int INIT_DIAG_NELL_MAX_NO_OF_FITTING_STEPS = 3000;
+	public static final int INIT_DIAG_NELL_MAX_NO_OF_FITTING_STEPS_ELLIPSES = 20000;
+	// ... a Venn diagram of 5 congruent ellipses, each rotated by 72 degrees around the centre of the diagram (as in Grunbaum's symmetric Venn diagram of 5 sets)
+	//     -> a, b, distance of the centre of the ellipse from the centre of the diagram, rotation of the ellipse (in degrees) relative to the direction of its centre
+	private static final double[] INIT_DIAG_VENN5_ELLIPSE = {1, 0.5, 0.3, 15};
+	private static final int DIST_EXACT = 0;
+	private static final int DIST_ATLEAST = 1; // disjoint circles
+	private static final int DIST_ATMOST = 2;  // one circle inside the other
+	
+	public static EllipseDiagram generateAppropriateInitDiag_nEll (HashMap<String, Double> requiredAreaSpecs, boolean considerLessPrecisePossibleIntPnts){
+		// the distance between the centres of every pair of circles is found from the area required for the two circles and the area 
+		// they should share (as in getDistBetweenCentresOfAreaPropCircles but with areaOverlapCircles) and the circles are placed one 
+		// after the other where they best fit these distances, which are then relaxed for all the circles at once
+		// => the diagram is returned only if it has exactly the zones with a required area > 0 and every zone is connected (see EllipseDiagram.computeZoneAreas_ByArcs), 
+		//    otherwise the circles are changed at random to fit the areas of all the zones (see fitZonesOfInitDiag_nEll) until the diagram is valid
+		//    and if this fails, the circles (or, for a Venn diagram of 5 sets, the ellipses of INIT_DIAG_VENN5_ELLIPSE) are changed at random into ellipses in the same way
+		//    and if this fails too, another order of the circles and other angles are tried (if all fail, null is returned)
+		// -> the zones which cannot be drawn with ellipses at all are rejected straight away (see getReasonZonesCannotBeDrawn)
+		
+		String reasonZonesCannotBeDrawn = getReasonZonesCannotBeDrawn(requiredAreaSpecs);
+		if (reasonZonesCannotBeDrawn != null){
+			System.out.println("EllipseDiagramOps.generateAppropriateInitDiag_nEll: "+reasonZonesCannotBeDrawn);
+			return null;
+		}
+		int noOfEllipses = getNoOfEllipses(requiredAreaSpecs);
+		String[] zoneLabels = getNonEmptyZoneLabels(requiredAreaSpecs, noOfEllipses);
+		// ... circles cannot form a Venn diagram of 4 or more sets
+		boolean circlesCanBeValid = (noOfEllipses <= 3) || (zoneLabels.length < (1 << noOfEllipses) - 1);
+		int[] zoneIds = ZoneVector.getZoneIds(zoneLabels);
+		ZoneVector reqAreas = new ZoneVector(requiredAreaSpecs, noOfEllipses);
+		
+		// the area of every circle and the area shared by every pair of circles
+		double[] ellipseAreas = new double[noOfEllipses];
+		double[] sharedAreas = new double[noOfEllipses*noOfEllipses];
+		int i;
+		int j;
+		for (int zoneId : zoneIds){
+			for (i=0; i<noOfEllipses; i++){
+				if (!ZoneVector.isZoneInEllipse(zoneId, 1 << i)){continue;}
+				ellipseAreas[i] += reqAreas.get(zoneId);
+				for (j=i+1; j<noOfEllipses; j++){
+					if (ZoneVector.isZoneInEllipse(zoneId, 1 << j)){
+						sharedAreas[i*noOfEllipses+j] += reqAreas.get(zoneId);
+					}
+				}
+			}
+		}
+		
+		double[] radiuses = new double[noOfEllipses];
+		for (i=0; i<noOfEllipses; i++){
+			if (ellipseAreas[i] <= 0){
+				System.out.println("EllipseDiagramOps.generateAppropriateInitDiag_nEll: ellipse "+ZoneVector.getZoneLabel(1 << i)+" does not have any zone with an area > 0");
+				return null;
+			}
+			radiuses[i] = Math.sqrt(ellipseAreas[i]/Math.PI);
+		}
+		
+		// the required distance between the centres of every pair of circles
+		double[] dists = new double[noOfEllipses*noOfEllipses];
+		int[] distTypes = new int[noOfEllipses*noOfEllipses];
+		double padding;
+		double minArea;
+		for (i=0; i<noOfEllipses; i++){
+			for (j=i+1; j<noOfEllipses; j++){
+				padding = 0.05 * Math.min(radiuses[i], radiuses[j]);
+				minArea = Math.min(ellipseAreas[i], ellipseAreas[j]);
+				if (sharedAreas[i*noOfEllipses+j] <= 0){
+					dists[i*noOfEllipses+j] = radiuses[i] + radiuses[j] + padding;
+					distTypes[i*noOfEllipses+j] = DIST_ATLEAST;
+				} else if (sharedAreas[i*noOfEllipses+j] >= minArea){
+					if (ellipseAreas[i] == ellipseAreas[j]){
+						System.out.println("EllipseDiagramOps.generateAppropriateInitDiag_nEll: ellipses "+ZoneVector.getZoneLabel(1 << i)+" and "+ZoneVector.getZoneLabel(1 << j)+" have the same zones");
+						return null;
+					}
+					dists[i*noOfEllipses+j] = Math.max(0, Math.abs(radiuses[i] - radiuses[j]) - padding);
+					distTypes[i*noOfEllipses+j] = DIST_ATMOST;
+				} else {
+					dists[i*noOfEllipses+j] = getDistBetweenCentresOfCircles(radiuses[i], radiuses[j], sharedAreas[i*noOfEllipses+j]);
+					distTypes[i*noOfEllipses+j] = DIST_EXACT;
+				}
+				dists[j*noOfEllipses+i] = dists[i*noOfEllipses+j];
+				distTypes[j*noOfEllipses+i] = distTypes[i*noOfEllipses+j];
+			}
+		}
+		
+		// place the circles starting with the largest
+		Integer[] order = new Integer[noOfEllipses];
+		for (i=0; i<noOfEllipses; i++){
+			order[i] = i;
+		}
+		final double[] radiusesForOrder = radiuses; 
+		Arrays.sort(order, new Comparator<Integer>(){
+			public int compare(Integer i1, Integer i2){
+				return Double.compare(radiusesForOrder[i2], radiusesForOrder[i1]);
+			}
+		});
+		
+		Random random = new Random(0);
+		double[] centres = new double[2*noOfEllipses];
+		ArrayList<Ellipse> ellsInDiag;
+		EllipseDiagram diag;
+		for (int attempt=0; attempt<INIT_DIAG_NELL_MAX_NO_OF_ATTEMPTS; attempt++){
+			if (attempt > 0){
+				// keep the largest circle first and shuffle the others
+				for (i=noOfEllipses-1; i>1; i--){
+					j = 1 + random.nextInt(i);
+					Integer temp = order[i];
+					order[i] = order[j];
+					order[j] = temp;
+				}
+			}
+			placeCirclesOfInitDiag_nEll(centres, order, dists, distTypes, (attempt == 0) ? 0 : random.nextDouble()*2*Math.PI, random);
+			
+			if (circlesCanBeValid){
+				ellsInDiag = new ArrayList<Ellipse>(noOfEllipses);
+				for (i=0; i<noOfEllipses; i++){
+					ellsInDiag.add(new Ellipse(ZoneVector.getZoneLabel(1 << i), radiuses[i], radiuses[i], centres[2*i], centres[2*i+1], (180.0*i)/noOfEllipses));
+				}
+				diag = new EllipseDiagram(ellsInDiag, considerLessPrecisePossibleIntPnts, EllipseDiagram.ARCS);
+				diag.setZoneLabels(zoneLabels);
+				if (diag.isValid() || fitZonesOfInitDiag_nEll(diag, reqAreas, true, random)){
+					return diag;
+				}
+			}
+			
+			// ... ellipses
+			if ((noOfEllipses == 5) && !circlesCanBeValid){
+				ellsInDiag = getVenn5EllipsesOfInitDiag_nEll(radiuses, order);
+			} else {
+				ellsInDiag = new ArrayList<Ellipse>(noOfEllipses);
+				for (i=0; i<noOfEllipses; i++){
+					ellsInDiag.add(new Ellipse(ZoneVector.getZoneLabel(1 << i), radiuses[i], radiuses[i], centres[2*i], centres[2*i+1], (180.0*i)/noOfEllipses));
+				}
+			}
+			diag = new EllipseDiagram(ellsInDiag, considerLessPrecisePossibleIntPnts, EllipseDiagram.ARCS);
+			diag.setZoneLabels(zoneLabels);
+			if (diag.isValid() || fitZonesOfInitDiag_nEll(diag, reqAreas, false, random)){
+				return diag;
+			}
+		}
+		
+		System.out.println("EllipseDiagramOps.generateAppropriateInitDiag_nEll: a valid diagram with "+noOfEllipses+" ellipses could not be found for the zones "+Arrays.toString(zoneLabels));
+		return null;
+	}
+	
+	private static ArrayList<Ellipse> getVenn5EllipsesOfInitDiag_nEll (double[] radiuses, Integer[] order){
+		// the ellipses of INIT_DIAG_VENN5_ELLIPSE, scaled so that every ellipse has the mean area of the circles, in the positions given by order
+		double meanRadius = 0;
+		for (double radius : radiuses){
+			meanRadius += radius/radiuses.length;
+		}
+		double scale = meanRadius/Math.sqrt(INIT_DIAG_VENN5_ELLIPSE[0]*INIT_DIAG_VENN5_ELLIPSE[1]);
+		
+		Ellipse[] ellipses = new Ellipse[5];
+		double angle;
+		for (int k=0; k<5; k++){
+			angle = 72.0*k;
+			ellipses[order[k]] = new Ellipse(ZoneVector.getZoneLabel(1 << order[k]), scale*INIT_DIAG_VENN5_ELLIPSE[0], scale*INIT_DIAG_VENN5_ELLIPSE[1], 
+					                         scale*INIT_DIAG_VENN5_ELLIPSE[2]*Math.cos(Math.toRadians(angle)), scale*INIT_DIAG_VENN5_ELLIPSE[2]*Math.sin(Math.toRadians(angle)), 
+					                         angle + INIT_DIAG_VENN5_ELLIPSE[3]);
+		}
+		return new ArrayList<Ellipse>(Arrays.asList(ellipses));
+	}
+	
+	private static void placeCirclesOfInitDiag_nEll (double[] centres, Integer[] order, double[] dists, int[] distTypes, double startAngle, Random random){
+		int noOfEllipses = order.length;
+		int i;
+		int j;
+		int k;
+		int p;
+		double angle;
+		double x;
+		double y;
+		double stress;
+		double minStress;
+		
+		// ... one after the other at the angle (around one of the circles already placed) where the distances to the circles already placed are closest to those required
+		centres[2*order[0]] = 0;
+		centres[2*order[0]+1] = 0;
+		for (k=1; k<noOfEllipses; k++){
+			i = order[k];
+			minStress = Double.MAX_VALUE;
+			for (p=0; p<k; p++){
+				j = order[p];
+				for (int a=0; a<INIT_DIAG_NELL_NO_OF_CANDIDATE_ANGLES; a++){
+					angle = startAngle + (2*Math.PI*a)/INIT_DIAG_NELL_NO_OF_CANDIDATE_ANGLES;
+					x = centres[2*j] + dists[i*noOfEllipses+j]*Math.cos(angle);
+					y = centres[2*j+1] + dists[i*noOfEllipses+j]*Math.sin(angle);
+					stress = 0;
+					for (int q=0; q<k; q++){
+						stress += Math.pow(getDistViolationOfInitDiag_nEll(x, y, order[q], i, centres, dists, distTypes), 2);
+					}
+					if (stress < minStress){
+						minStress = stress;
+						centres[2*i] = x;
+						centres[2*i+1] = y;
+					}
+				}
+			}
+		}
+		
+		// ... relax the distances of all the circles at once (every circle is moved by half of the violation of the distance to every other circle)
+		double[] moves = new double[2*noOfEllipses];
+		double violation;
+		double dx;
+		double dy;
+		double d;
+		for (int iter=0; iter<INIT_DIAG_NELL_NO_OF_RELAXATION_ITERATIONS; iter++){
+			Arrays.fill(moves, 0);
+			for (i=0; i<noOfEllipses; i++){
+				for (j=0; j<noOfEllipses; j++){
+					if (i == j){continue;}
+					violation = getDistViolationOfInitDiag_nEll(centres[2*i], centres[2*i+1], j, i, centres, dists, distTypes);
+					if (violation == 0){continue;}
+					dx = centres[2*i] - centres[2*j];
+					dy = centres[2*i+1] - centres[2*j+1];
+					d = Math.sqrt(dx*dx + dy*dy);
+					if (d == 0){
+						angle = random.nextDouble()*2*Math.PI;
+						dx = Math.cos(angle);
+						dy = Math.sin(angle);
+						d = 1;
+					}
+					moves[2*i] -= 0.5*violation*dx/d;
+					moves[2*i+1] -= 0.5*violation*dy/d;
+				}
+			}
+			for (i=0; i<noOfEllipses; i++){
+				centres[2*i] += moves[2*i]/(noOfEllipses-1);
+				centres[2*i+1] += moves[2*i+1]/(noOfEllipses-1);
+			}
+		}
+	}
+	
+	private static boolean fitZonesOfInitDiag_nEll (EllipseDiagram diag, ZoneVector reqAreas, boolean restrictToCircles, Random random){
+		// a circle is moved or resized at random and the change is kept if the areas of all the 2^n - 1 zones (including those which should be empty) 
+		// are closer to those required => stops as soon as the diagram is valid (true) or the changes are too small or too many (false)
+		// -> only the intersection points of the changed circle are recomputed (see EllipseDiagram.computeIntPntsOfEllipses)
+		// -> if not restrictToCircles, an ellipse is moved, has one of its axes resized or is rotated, and every zone that is missing or should be empty 
+		//    adds 1 to the loss (otherwise a change that creates a zone which is missing or removes a zone which should be empty is not kept if the areas of 
+		//    the other zones get worse, and the number of changes is larger as the changes are smaller)
+		ArrayList<Ellipse> ellipses = diag.getEllipses();
+		double totReqArea = 0;
+		for (int zoneId=1; zoneId<=reqAreas.getNoOfZones(); zoneId++){
+			if (reqAreas.hasValue(zoneId)){
+				totReqArea += reqAreas.get(zoneId);
+			}
+		}
+		
+		double loss = getZonesLossOfInitDiag_nEll(diag, reqAreas, totReqArea, !restrictToCircles);
+		double newLoss;
+		double stepSize = 0.2;
+		int noOfFailedSteps = 0;
+		int maxNoOfSteps = restrictToCircles ? INIT_DIAG_NELL_MAX_NO_OF_FITTING_STEPS : INIT_DIAG_NELL_MAX_NO_OF_FITTING_STEPS_ELLIPSES;
+		Ellipse e;
+		double xc;
+		double yc;
+		double a;
+		double b;
+		double rot;
+		for (int step=0; step<maxNoOfSteps; step++){
+			e = ellipses.get(random.nextInt(ellipses.size()));
+			xc = e.getXc();
+			yc = e.getYc();
+			a = e.getA();
+			b = e.getB();
+			rot = e.getRot();
+			if (restrictToCircles){
+				if (random.nextBoolean()){
+					e.setXc(xc + stepSize*a*random.nextGaussian());
+					e.setYc(yc + stepSize*a*random.nextGaussian());
+				} else {
+					e.setA(a*Math.exp(0.25*stepSize*random.nextGaussian()));
+					e.setB(e.getA());
+				}
+			} else {
+				switch (random.nextInt(4)){
+					case 0: {
+						e.setXc(xc + stepSize*Math.max(a, b)*random.nextGaussian());
+						e.setYc(yc + stepSize*Math.max(a, b)*random.nextGaussian());
+						break;
+					}
+					case 1: {
+						e.setA(a*Math.exp(0.25*stepSize*random.nextGaussian()));
+						break;
+					}
+					case 2: {
+						e.setB(b*Math.exp(0.25*stepSize*random.nextGaussian()));
+						break;
+					}
+					default: {
+						e.setRot(rot + 90*stepSize*random.nextGaussian());
+					}
+				}
+			}
+			
+			newLoss = getZonesLossOfInitDiag_nEll(diag, reqAreas, totReqArea, !restrictToCircles);
+			if (newLoss < loss){
+				loss = newLoss;
+				noOfFailedSteps = 0;
+				if (diag.zoneAreasComputedSuccessfully){
+					return true;
+				}
+			} else {
+				e.setXc(xc);
+				e.setYc(yc);
+				e.setA(a);
+				e.setB(b);
+				e.setRot(rot);
+				noOfFailedSteps++;
+				if (noOfFailedSteps >= 100){
+					stepSize /= 2;
+					noOfFailedSteps = 0;
+					if (stepSize < 1e-3){break;}
+				}
+			}
+		}
+		diag.recomputeZoneAreas();
+		return diag.zoneAreasComputedSuccessfully;
+	}
+	
+	private static double getZonesLossOfInitDiag_nEll (EllipseDiagram diag, ZoneVector reqAreas, double totReqArea, boolean addWrongZones){
+		// the zones that should be empty have no value (or 0) in reqAreas
+		diag.recomputeZoneAreas(); // the areas of all the zones are computed along the elliptic arcs even if the diagram is not valid
+		ZoneVector areas = diag.zoneAreasVector;
+		double loss = 0;
+		double reqArea;
+		for (int zoneId=1; zoneId<=areas.getNoOfZones(); zoneId++){
+			reqArea = reqAreas.hasValue(zoneId) ? reqAreas.get(zoneId) : 0;
+			loss += Math.pow((areas.get(zoneId) - reqArea)/totReqArea, 2);
+			// ... the area of a zone of a diagram which is not valid can be < 0
+			if (addWrongZones && ((reqArea > 0) != (Math.abs(areas.get(zoneId)) > 0))){
+				loss += 1;
+			}
+		}
+		return loss;
+	}
+	
+	private static double getDistViolationOfInitDiag_nEll (double x, double y, int j, int i, double[] centres, double[] dists, int[] distTypes){
+		// > 0 if the centre (x,y) of circle i is too far from the centre of circle j and < 0 if it is too close 
+		int noOfEllipses = centres.length/2;
+		double d = Math.sqrt(Math.pow(x - centres[2*j], 2) + Math.pow(y - centres[2*j+1], 2));
+		double violation = d - dists[i*noOfEllipses+j];
+		switch (distTypes[i*noOfEllipses+j]){
+			case DIST_ATLEAST: return Math.min(violation, 0);
+			case DIST_ATMOST: return Math.max(violation, 0);
+			default: return violation;
+		}
+	}
+	
+	public static double getDistBetweenCentresOfCircles (double r1, double r2, double reqSharedArea){
+		// bisection method -> the shared area decreases as the distance between the centres increases from |r1-r2| (one circle inside the other) to r1+r2
+		double d_lower = Math.abs(r1 - r2);
+		double d_upper = r1 + r2;
+		double d_mid = (d_lower + d_upper)/2;
+		for (int i=0; i<100; i++){
+			d_mid = (d_lower + d_upper)/2;
+			if (areaOverlapCircles(d_mid, r1, r2) > reqSharedArea){
+				d_lower = d_mid;
+			} else {
+				d_upper = d_mid;
+			}
+			if ((d_upper - d_lower) < 1e-12 * d_upper){break;}
+		}
+		return d_mid;
+	}
+	
 	public static Point2D.Double[] getIPsBet2BaseOverlappingCircles (double d, double r1, double r2){
 		double arcAngBetIPsForA = getArcAngleForOverlappingCircles(d, r1, r2);
 		
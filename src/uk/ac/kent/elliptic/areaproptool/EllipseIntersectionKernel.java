@@ -0,0 +1,778 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+
+/**
+ * To find the intersection points of two ellipses without creating any object
+ * -> a flattened version of Ellipse.getIntPnts_WithEllipse_AsConics (Kenneth J Hill (1995). Matrix-based Ellipse Geometry.
+ *    In Alan W Paeth (ed.), Graphics Gems V, Morgan Kaufmann, San Francisco, CA, USA, pp. 72-77.)
+ *    whereby the ellipses, conics, transformation matrices, roots and lines are plain doubles in a work buffer supplied by the caller
+ *    and the intersection points are saved as x,y in an output buffer supplied by the caller
+ * -> the floating-point operations are those of Ellipse.getIntPnts_WithEllipse_AsConics (Conic, RootFinder, TransformationMatrix,
+ *    Circle and MyLine) in the same order, so that the intersection points are the same (bit-for-bit) as those of the reference method
+ *
+ */
+
+
+public class EllipseIntersectionKernel {
+
+	// Data fields
+
+	// the maximum number of intersection points that are returned
+	// -> the lines of one root only (the last one) are intersected with the ellipse, and there are at most 2 lines with 2 points each
+	public static final int MAX_NO_OF_INTPNTS = 4;
+
+	// the layout of the work buffer
+	// ... conics as A,B,C,D,E,F
+	private static final int CONIC_E1 = 0;
+	private static final int CONIC_E2 = 6;
+	private static final int CONIC_3 = 12;
+	// ... transformation matrices as a,b,c,d,m,n (see TransformationMatrix)
+	private static final int MATRIX = 18;
+	private static final int CIRMATRIX_E1 = 24;
+	private static final int CIRMATRIX_E2 = 30;
+	// ... roots of the cubic
+	private static final int ROOTS = 36;
+	// ... 2 lines as x1,y1,x2,y2
+	private static final int LINES = 39;
+	// ... a point as x,y
+	private static final int PNT = 47;
+	// ... coefficients and roots of the quartic (see getIntPnts_WithEllipse_Quartic)
+	private static final int QUARTIC = 49;
+	private static final int QUARTIC_ROOTS = 54;
+	private static final int QUARTIC_CRIT_PNTS = 58;
+
+	public static final int WORK_BUFFER_LENGTH = 61;
+
+	// the tolerances to validate the intersection points found with the quartic and the points where the ellipses touch
+	// (both as for the precise intersection points, which would otherwise include points where the ellipses almost touch that the quartic pass does not),
+	// and the distance within which 2 of these are the same point (as in Ellipse.getIntPnts_WithEllipse(e2, true))
+	public static final double QUARTIC_INTPNT_TOLERANCE = 1e-6;
+	public static final double QUARTIC_TOUCHPNT_TOLERANCE = QUARTIC_INTPNT_TOLERANCE;
+	public static final int D_FOR_SIMILAR_INTPNTS = 2;
+
+	private static final double EQN_EPS = 1e-11; // as in RootFinder
+	private static final double ELL_EPS = 1e-16; // as in Ellipse
+
+
+
+	// Methods
+
+	public static double[] newWorkBuffer(){
+		return new double[WORK_BUFFER_LENGTH];
+	}
+	public static double[] newIntPntsBuffer(){
+		return new double[2*MAX_NO_OF_INTPNTS];
+	}
+
+
+	public static int getIntPnts_WithEllipse (Ellipse e1, Ellipse e2, int considerPreciseOrLessPrecisePossibleIntPnts, double[] work, double[] intPnts){
+		return getIntPnts_WithEllipse(e1.getA(), e1.getB(), e1.getXc(), e1.getYc(), e1.getRot(),
+				                      e2.getA(), e2.getB(), e2.getXc(), e2.getYc(), e2.getRot(),
+				                      considerPreciseOrLessPrecisePossibleIntPnts, work, intPnts);
+	}
+
+	public static int getIntPnts_WithEllipse (double a1, double b1, double xc1, double yc1, double rot1,
+			                                  double a2, double b2, double xc2, double yc2, double rot2,
+			                                  int considerPreciseOrLessPrecisePossibleIntPnts, double[] work, double[] intPnts){
+		// work must have at least WORK_BUFFER_LENGTH elements and intPnts at least 2*MAX_NO_OF_INTPNTS elements
+		// => returns the number of distinct intersection points, which are saved as x,y in intPnts
+		//
+		//if considerPreciseOrLessPrecisePossibleIntPnts = 0, consider precise int pnts
+		//if considerPreciseOrLessPrecisePossibleIntPnts = 1, consider less precise possible int pnts
+
+
+		//  the characteristic matrices
+		setConic(work, CONIC_E1, a1, b1, xc1, yc1, rot1);
+		setConic(work, CONIC_E2, a2, b2, xc2, yc2, rot2);
+
+		// ... the coefficients of the cubic (conic_e1 is changed below if there are parallel lines, so conic_e2 is read from the buffer)
+		double A1 = work[CONIC_E1], B1 = work[CONIC_E1+1], C1 = work[CONIC_E1+2], D1 = work[CONIC_E1+3], E1 = work[CONIC_E1+4], F1 = work[CONIC_E1+5];
+		double A2 = work[CONIC_E2], B2 = work[CONIC_E2+1], C2 = work[CONIC_E2+2], D2 = work[CONIC_E2+3], E2 = work[CONIC_E2+4], F2 = work[CONIC_E2+5];
+
+		double c0 = - (C1 * D1 * D1) + (2.0 * B1 * D1 * E1)
+		 			- (A1 * E1 * E1) - (B1 * B1 * F1)
+		 			+ (A1 * C1 * F1);
+
+		double c1 = - (C2 * D1 * D1) - (2.0 * C1 * D1 * D2)
+					+ (2.0 * B2 * D1 * E1) + (2.0 * B1 * D2 * E1)
+					- (A2 * E1 * E1) + (2.0 * B1 * D1 * E2)
+					- (2.0 * A1 * E1 * E2) - (2.0 * B1 * B2 * F1)
+					+ (A2 * C1 * F1) + (A1 * C2 * F1)
+					- (B1 * B1 * F2) + (A1 * C1 * F2);
+
+		double c2 = - (2.0 * C2 * D1 * D2) - (C1 * D2 * D2)
+					+ (2.0 * B2 * D2 * E1) + (2.0 * B2 * D1 * E2)
+					+ (2.0 * B1 * D2 * E2) - (2.0 * A2 * E1 * E2)
+					- (A1 * E2 * E2) - (B2 * B2 * F1)
+					+ (A2 * C2 * F1) - (2.0 * B1 * B2 * F2)
+					+ (A2 * C1 * F2) + (A1 * C2 * F2);
+
+		double c3 = - (C2 * D2 * D2) + (2.0 * B2 * D2 * E2)
+					- (A2 * E2 * E2) - (B2 * B2 * F2)
+					+ (A2 * C2 * F2);
+
+		int noOfRoots = solveCubic(c0, c1, c2, c3, considerPreciseOrLessPrecisePossibleIntPnts, work, ROOTS);
+		if (noOfRoots == 0){return 0;}
+
+
+		// try all the roots
+		// -> as in the reference method, the lines of a root overwrite those of the previous root and only those of the last root are used
+		int noLines = 0;
+		for (int i = LINES; i < LINES+8; i++){
+			work[i] = 0.0;
+		}
+
+		double r;
+		double D;
+		double phi;
+		double m;
+		double n;
+		double qr0 = 0;
+		double qr1 = 0;
+
+		for (int ri=0; ri<noOfRoots; ri++){
+			r = work[ROOTS+ri];
+			noLines = 0;
+
+			for (int i=0; i<6; i++){
+				work[CONIC_3+i] = work[CONIC_E1+i] + (r * work[CONIC_E2+i]);
+			}
+			double A3 = work[CONIC_3], B3 = work[CONIC_3+1], C3 = work[CONIC_3+2], D3 = work[CONIC_3+3], E3 = work[CONIC_3+4], F3 = work[CONIC_3+5];
+
+			D = (B3 * B3) - (A3 * C3);
+
+			if (isZero(A3, ELL_EPS) && isZero(B3, ELL_EPS) && isZero(C3, ELL_EPS)){
+
+				 // (1) Having a single line
+				 noLines = 1;
+
+				 if (Math.abs(D3) > Math.abs(E3)){
+					 work[LINES+1] = 0.0;
+					 work[LINES] = -F3/(D3 + D3);
+					 work[LINES+3] = 1.0;
+					 work[LINES+2] = -(E3 + E3 + F3)/(D3 + D3);
+				 } else {
+					 work[LINES] = 0.0;
+					 work[LINES+1] = -F3/(E3 + E3);
+					 work[LINES+2] = 1.0;
+					 work[LINES+3] = -(D3 + D3 + F3)/(E3 + E3);
+				 }
+
+			} else {
+
+				 phi = 0;
+				 if (Math.abs(B3 + B3) < Math.abs(A3 - C3)){
+					 phi = Math.toDegrees(Math.atan((B3 + B3)/(A3 - C3))/2.0);
+				 } else {
+				 	 phi = Math.toDegrees( ((Math.PI/2) - Math.atan((A3 - C3)/(B3 + B3))) /2.0);
+				 }
+
+				 if (isZero(D, ELL_EPS)){
+					 // (2) Having parallel lines
+					 // -> as in the reference method, conic_e1 is replaced by the rotated conic_3 (and thus so are the conics of any following root)
+					 //    (the reference method fails if a second root also gives parallel lines, whereas this continues with the next root)
+					 System.arraycopy(work, CONIC_3, work, CONIC_E1, 6);
+					 setIdMatrix(work, MATRIX);
+					 rotate(work, MATRIX, -phi);
+					 transformConic(work, CONIC_E1, MATRIX);
+
+					 double tA = work[CONIC_E1], tC = work[CONIC_E1+2], tD = work[CONIC_E1+3], tE = work[CONIC_E1+4], tF = work[CONIC_E1+5];
+					 boolean vertical = (Math.abs(tA) > Math.abs(tC));
+
+					 // ... solveQuadric of RootFinder on F + 2Dx + Ax^2 (or F + 2Ey + Cy^2)
+					 double q0 = tF;
+					 double q1 = vertical ? (2 * tD) : (2 * tE);
+					 double q2 = vertical ? tA : tC;
+					 if (isZero(q2, EQN_EPS)){
+						 if (isZero(q1, EQN_EPS)){
+							 noLines = 0;
+						 } else {
+							 noLines = 1;
+							 qr0 = -q0/q1;
+						 }
+					 } else {
+						 double p = q1 / (2.0 * q2);
+						 double q = q0 / q2;
+						 double Dq = (p * p) - q;
+						 if (isZero(Dq, EQN_EPS)){
+							 noLines = 2;
+							 qr0 = -p;
+							 qr1 = -p;
+						 } else if (Dq < 0.0){
+							 noLines = 0;
+						 } else {
+							 double sqrt_Dq = Math.sqrt(Dq);
+							 noLines = 2;
+							 qr0 = sqrt_Dq - p;
+							 qr1 = -sqrt_Dq - p;
+						 }
+					 }
+
+					 if (noLines != 0){
+						 if (vertical){
+							 work[LINES] = qr0;    work[LINES+1] = -1.0;
+							 work[LINES+2] = qr0;  work[LINES+3] = 1.0;
+							 if (noLines == 2){
+								 work[LINES+4] = qr1;  work[LINES+5] = -1.0;
+								 work[LINES+6] = qr1;  work[LINES+7] = 1.0;
+							 }
+						 } else {
+							 work[LINES] = -1.0;   work[LINES+1] = qr0;
+							 work[LINES+2] = 1.0;  work[LINES+3] = qr0;
+							 if (noLines == 2){
+								 work[LINES+4] = -1.0; work[LINES+5] = qr1;
+								 work[LINES+6] = 1.0;  work[LINES+7] = qr1;
+							 }
+						 }
+					 }
+
+					 setIdMatrix(work, MATRIX);
+					 rotate(work, MATRIX, phi);
+					 transformPoint(work, MATRIX, LINES);
+					 transformPoint(work, MATRIX, LINES+2);
+					 if (noLines == 2){
+						 transformPoint(work, MATRIX, LINES+4);
+						 transformPoint(work, MATRIX, LINES+6);
+					 }
+
+				 } else {
+					 // (3) Having crossing lines
+				     noLines = 2;
+
+					 // translate the system so that the intersection of the lines is at the origin
+					 m = ((C3 * D3) - (B3 * E3))/D;
+					 n = ((A3 * E3) - (B3 * D3))/D;
+
+					 setIdMatrix(work, MATRIX);
+					 translate(work, MATRIX, -m, -n);
+					 rotate(work, MATRIX, -phi);
+					 transformConic(work, CONIC_3, MATRIX);
+
+					 //  the line endpoints
+					 double x1 = Math.sqrt(Math.abs(1.0/work[CONIC_3]));
+					 double y1 = Math.sqrt(Math.abs(1.0/work[CONIC_3+2]));
+					 double scl = Math.max(x1, y1);
+					 x1 /= scl;
+					 y1 /= scl;
+					 work[LINES] = x1;    work[LINES+1] = y1;
+					 work[LINES+2] = -x1; work[LINES+3] = -y1;
+					 work[LINES+4] = x1;  work[LINES+5] = -y1;
+					 work[LINES+6] = -x1; work[LINES+7] = y1;
+
+					 // translate the lines back
+					 setIdMatrix(work, MATRIX);
+					 rotate(work, MATRIX, phi);
+					 translate(work, MATRIX, m, n);
+					 for (int i = LINES; i < LINES+8; i+=2){
+						 transformPoint(work, MATRIX, i);
+					 }
+				 }
+			}
+		}
+
+
+		//  the transformation which turns e1 into circle, its inverse and the transformation which turns e2 into circle
+		ellipseToCircleTransMatrix(work, CIRMATRIX_E1, a1, b1, xc1, yc1, rot1);
+		invEllipseToCircle(work, MATRIX, a1, b1, xc1, yc1, rot1);
+		ellipseToCircleTransMatrix(work, CIRMATRIX_E2, a2, b2, xc2, yc2, rot2);
+
+		double l = (considerPreciseOrLessPrecisePossibleIntPnts==0 ? 1e-6 : 0.05);
+		int noOfIntPnts = 0;
+
+		// find the ellipse line intersections, validate them and remove any duplicates
+		for (int j = 0; j < noLines; j++) {
+
+			// transform the line endpts into the circle space of the ellipse
+			int ln = LINES + 4*j;
+			transformPoint(work, CIRMATRIX_E1, ln);
+			transformPoint(work, CIRMATRIX_E1, ln+2);
+
+			//  the intersections of the transformed line and the unit circle (as in Circle.intpnts_WithLine and MyLine)
+			double cir_r = Circle.numPropUnitCircle[0];
+			double cir_xc = Circle.numPropUnitCircle[1];
+			double cir_yc = Circle.numPropUnitCircle[2];
+
+			double grad = (work[ln+3]-work[ln+1])/(work[ln+2]-work[ln]);
+			if (isZero(grad, MyLine.PRECISION_ISZERO_FOR_GRAD)){grad = 0.0;}
+			boolean infGrad = Double.isInfinite(grad);
+			double yInt = infGrad ? work[ln] : (work[ln+1] - (grad*work[ln]));
+
+			double a;
+			double b;
+			double c;
+			if (infGrad){
+				a = 1;
+				b =  - 2 * cir_yc;
+				c = Math.pow(cir_yc, 2) + Math.pow(yInt-cir_xc, 2) - Math.pow(cir_r, 2);
+			} else {
+				a = 1 + Math.pow(grad, 2);
+				b = 2 * ((grad * (yInt - cir_yc)) - cir_xc);
+				c = Math.pow(cir_xc, 2) + Math.pow(yInt-cir_yc, 2) - Math.pow(cir_r, 2);
+			}
+
+			double d = (b*b) - (4.0*a*c); // discriminant
+			if (d < 0.0){continue;}    // no intersections
+			double sqrt_d = Math.sqrt(d);
+
+			for (int k=0; k<2; k++){
+				double s = (k==0) ? (-b + sqrt_d)/(a + a) : (-b - sqrt_d)/(a + a);
+				if (infGrad){
+					work[PNT] = yInt;
+					work[PNT+1] = s;
+				} else {
+					work[PNT] = s;
+					work[PNT+1] = (grad*s)+yInt;
+				}
+
+				// back to the space of the ellipses
+				transformPoint(work, MATRIX, PNT);
+				double x = work[PNT];
+				double y = work[PNT+1];
+
+				// validate the point
+				transformPoint(work, CIRMATRIX_E2, PNT);
+				if (!(work[PNT] < 2.0 && work[PNT+1] < 2.0 && isZero(1.0 - Math.sqrt((work[PNT] * work[PNT]) + (work[PNT+1]*work[PNT+1])), l))){
+					continue;
+				}
+
+				// remove duplicates
+				if (!isIntPntInBuffer(x, y, intPnts, noOfIntPnts)){
+					intPnts[2*noOfIntPnts] = x;
+					intPnts[2*noOfIntPnts+1] = y;
+					noOfIntPnts++;
+				}
+			}
+		}
+
+		return noOfIntPnts;
+	}
+
+
+
+	public static int getIntPnts_WithEllipse_Quartic (Ellipse e1, Ellipse e2, double[] work, double[] intPnts){
+		return getIntPnts_WithEllipse_Quartic(e1.getA(), e1.getB(), e1.getXc(), e1.getYc(), e1.getRot(),
+				                      		  e2.getA(), e2.getB(), e2.getXc(), e2.getYc(), e2.getRot(), work, intPnts);
+	}
+
+	public static int getIntPnts_WithEllipse_Quartic (double a1, double b1, double xc1, double yc1, double rot1,
+			                                  		  double a2, double b2, double xc2, double yc2, double rot2, double[] work, double[] intPnts){
+		// the intersection points in a single pass, instead of the precise and the less precise passes of Ellipse.getIntPnts_WithEllipse(e2, true)
+		// -> e1 is turned into the unit circle, whose points are (1-u^2)/(1+u^2), 2u/(1+u^2), and these are substituted in the conic of e2
+		//    => a quartic in u, whose real roots (found by RootFinder.solveQuartic and polished by Newton's method) are the intersection points
+		// -> the point (-1,0) of the unit circle is at u = infinity, so the circle is first rotated by a multiple of 90 degrees such that
+		//    the point at u = infinity is the one, out of (-1,0), (0,-1), (1,0) and (0,1), which is furthest from e2 (it is then never an intersection point)
+		// -> 2 close roots might be lost or be inaccurate (as found by RootFinder.solveQuartic) where one of the ellipses is thin, and so
+		//    the quartic is also checked for a change of sign between its extrema (where it is monotonic)
+		//    => in every such interval without a validated root, the root is found by RootFinder.findRootBetween
+		// -> where the ellipses touch, the double root of the quartic might be found as 2 complex roots, and so
+		//    the extrema of the quartic (the roots of its derivative) are also checked as intersection points
+		// -> 2 points are the same point if they are as close as in Ellipse.getIntPnts_WithEllipse(e2, true) and then their mid point is taken
+		// => the points missed by the precise pass of Ellipse.getIntPnts_WithEllipse(e2, true) are found without its second (less precise) pass
+		// => returns the number of intersection points, which are saved as x,y in intPnts
+
+		// the points are exactly on the ellipse that is turned into the unit circle and are validated against the other ellipse
+		// -> the thinner ellipse is turned into the unit circle, as the other one (if round) is the least sensitive to the errors of the roots
+		if (Math.min(a2, b2) < Math.min(a1, b1)){
+			double t;
+			t = a1; a1 = a2; a2 = t;
+			t = b1; b1 = b2; b2 = t;
+			t = xc1; xc1 = xc2; xc2 = t;
+			t = yc1; yc1 = yc2; yc2 = t;
+			t = rot1; rot1 = rot2; rot2 = t;
+		}
+
+		// the conic of e2 in the circle space of e1
+		ellipseToCircleTransMatrix(work, CIRMATRIX_E1, a1, b1, xc1, yc1, rot1);
+		setConic(work, CONIC_E2, a2, b2, xc2, yc2, rot2);
+		transformConic(work, CONIC_E2, CIRMATRIX_E1);
+		double A = work[CONIC_E2], B = work[CONIC_E2+1], C = work[CONIC_E2+2], D = work[CONIC_E2+3], E = work[CONIC_E2+4], F = work[CONIC_E2+5];
+
+		// the rotation (k x 90 degrees) that maps (-1,0) to the point furthest from e2 -> the conic at (-1,0), (0,-1), (1,0), (0,1)
+		int k = 0;
+		double maxAbsQ = Math.abs(A - 2*D + F);
+		if (Math.abs(C - 2*E + F) > maxAbsQ){k = 1; maxAbsQ = Math.abs(C - 2*E + F);}
+		if (Math.abs(A + 2*D + F) > maxAbsQ){k = 2; maxAbsQ = Math.abs(A + 2*D + F);}
+		if (Math.abs(C + 2*E + F) > maxAbsQ){k = 3;}
+		double rA = A, rB = B, rC = C, rD = D, rE = E;
+		switch (k){
+			case 1: rA = C; rB = -B; rC = A; rD = E;  rE = -D; break;
+			case 2: rD = -D; rE = -E; break;
+			case 3: rA = C; rB = -B; rC = A; rD = -E; rE = D; break;
+		}
+
+		// the quartic (in ascending order of power), normalized so that the largest coefficient is 1 in absolute value
+		work[QUARTIC]   = rA + 2*rD + F;
+		work[QUARTIC+1] = 4*rB + 4*rE;
+		work[QUARTIC+2] = -2*rA + 4*rC + 2*F;
+		work[QUARTIC+3] = -4*rB + 4*rE;
+		work[QUARTIC+4] = rA - 2*rD + F;
+		double maxAbsCoeff = 0;
+		for (int i = QUARTIC; i < QUARTIC+5; i++){
+			maxAbsCoeff = Math.max(maxAbsCoeff, Math.abs(work[i]));
+		}
+		if (!(maxAbsCoeff > 0.0)){return 0;} // e2 is not an ellipse (or is the same as e1)
+		for (int i = QUARTIC; i < QUARTIC+5; i++){
+			work[i] /= maxAbsCoeff;
+		}
+
+		int noOfRoots = RootFinder.solveQuartic(work[QUARTIC], work[QUARTIC+1], work[QUARTIC+2], work[QUARTIC+3], work[QUARTIC+4], work, QUARTIC_ROOTS);
+
+		// the extrema of the quartic
+		int noOfCritPnts = RootFinder.solveCubic(work[QUARTIC+1], 2*work[QUARTIC+2], 3*work[QUARTIC+3], 4*work[QUARTIC+4], work, QUARTIC_CRIT_PNTS);
+
+		invEllipseToCircle(work, MATRIX, a1, b1, xc1, yc1, rot1);
+		ellipseToCircleTransMatrix(work, CIRMATRIX_E2, a2, b2, xc2, yc2, rot2);
+
+		// the points of the roots
+		int noOfIntPnts = 0;
+		// -> the roots are replaced by the polished ones, or by NaN if not validated
+		for (int i = 0; i < noOfRoots; i++){
+			work[QUARTIC_ROOTS+i] = RootFinder.polishRoot(work, QUARTIC, 4, work[QUARTIC_ROOTS+i]);
+			if (setQuarticPnt(work, k, work[QUARTIC_ROOTS+i], QUARTIC_INTPNT_TOLERANCE)){
+				noOfIntPnts = addIntPnt(work[PNT], work[PNT+1], intPnts, noOfIntPnts);
+			} else {
+				work[QUARTIC_ROOTS+i] = Double.NaN;
+			}
+		}
+
+		// the roots lost by solveQuartic -> the quartic is monotonic between -bound, its extrema (in ascending order) and bound,
+		//    where bound (Cauchy's) is larger than any of its roots, and Newton's method starts from the mid point of the interval
+		for (int i = 1; i < noOfCritPnts; i++){
+			for (int j = i; (j > 0) && (work[QUARTIC_CRIT_PNTS+j-1] > work[QUARTIC_CRIT_PNTS+j]); j--){
+				double t = work[QUARTIC_CRIT_PNTS+j];
+				work[QUARTIC_CRIT_PNTS+j] = work[QUARTIC_CRIT_PNTS+j-1];
+				work[QUARTIC_CRIT_PNTS+j-1] = t;
+			}
+		}
+		if (!isZero(work[QUARTIC+4], EQN_EPS)){
+			double bound = 1;
+			for (int i = QUARTIC; i < QUARTIC+4; i++){
+				bound = Math.max(bound, 1 + Math.abs(work[i]/work[QUARTIC+4]));
+			}
+			double lo;
+			double hi;
+			boolean rootInInterval;
+			for (int i = 0; i <= noOfCritPnts; i++){
+				lo = (i == 0) ? -bound : work[QUARTIC_CRIT_PNTS+i-1];
+				hi = (i == noOfCritPnts) ? bound : work[QUARTIC_CRIT_PNTS+i];
+				if (!(RootFinder.evaluate(work, QUARTIC, 4, lo) * RootFinder.evaluate(work, QUARTIC, 4, hi) < 0.0)){continue;}
+				rootInInterval = false;
+				for (int j = 0; j < noOfRoots; j++){
+					rootInInterval |= ((work[QUARTIC_ROOTS+j] >= lo) && (work[QUARTIC_ROOTS+j] <= hi));
+				}
+				if (!rootInInterval && setQuarticPnt(work, k, RootFinder.findRootBetween(work, QUARTIC, 4, lo, hi, lo + (hi - lo)/2), QUARTIC_INTPNT_TOLERANCE)){
+					noOfIntPnts = addIntPnt(work[PNT], work[PNT+1], intPnts, noOfIntPnts);
+				}
+			}
+		}
+
+		// the points of the extrema where the ellipses touch
+		for (int i = 0; i < noOfCritPnts; i++){
+			if (setQuarticPnt(work, k, work[QUARTIC_CRIT_PNTS+i], QUARTIC_TOUCHPNT_TOLERANCE) &&
+				!isIntPntInBuffer(work[PNT], work[PNT+1], intPnts, noOfIntPnts, D_FOR_SIMILAR_INTPNTS)){
+				noOfIntPnts = addIntPnt(work[PNT], work[PNT+1], intPnts, noOfIntPnts);
+			}
+		}
+
+		return noOfIntPnts;
+	}
+
+	private static boolean setQuarticPnt (double[] work, int k, double u, double l){
+		// the point of e1 at u (see getIntPnts_WithEllipse_Quartic) is saved in work[PNT...] -> returns whether it is within l of e2
+		double x = (1 - u*u)/(1 + u*u);
+		double y = (u + u)/(1 + u*u);
+		switch (k){
+			case 0: work[PNT] = x;  work[PNT+1] = y;  break;
+			case 1: work[PNT] = -y; work[PNT+1] = x;  break;
+			case 2: work[PNT] = -x; work[PNT+1] = -y; break;
+			case 3: work[PNT] = y;  work[PNT+1] = -x; break;
+		}
+		transformPoint(work, MATRIX, PNT);
+		x = work[PNT];
+		y = work[PNT+1];
+
+		transformPoint(work, CIRMATRIX_E2, PNT);
+		boolean onE2 = isZero(1.0 - Math.sqrt((work[PNT] * work[PNT]) + (work[PNT+1]*work[PNT+1])), l);
+		work[PNT] = x;
+		work[PNT+1] = y;
+		return onE2;
+	}
+
+	private static int addIntPnt (double x, double y, double[] intPnts, int noOfIntPnts){
+		// as in Ellipse.getIntPnts_WithEllipse(e2, true) -> if (x,y) is within D_FOR_SIMILAR_INTPNTS of one of the points,
+		// that point is removed and the mid point of the two is added at the end
+		int similarIntPnt = -1;
+		for (int ip=0; ip<noOfIntPnts; ip++){
+			if (Math.round(Math.sqrt(Math.pow(intPnts[2*ip] - x, 2) + Math.pow(intPnts[2*ip+1] - y, 2))) <= D_FOR_SIMILAR_INTPNTS){
+				similarIntPnt = ip;
+				break;
+			}
+		}
+		if (similarIntPnt >= 0){
+			x = (intPnts[2*similarIntPnt] + x)/2;
+			y = (intPnts[2*similarIntPnt+1] + y)/2;
+			System.arraycopy(intPnts, 2*similarIntPnt+2, intPnts, 2*similarIntPnt, 2*(noOfIntPnts-similarIntPnt-1));
+			noOfIntPnts--;
+		}
+		if (2*noOfIntPnts+1 >= intPnts.length){return noOfIntPnts;}
+		intPnts[2*noOfIntPnts] = x;
+		intPnts[2*noOfIntPnts+1] = y;
+		return noOfIntPnts+1;
+	}
+
+	private static boolean isIntPntInBuffer (double x, double y, double[] intPnts, int noOfIntPnts, int d){
+		for (int ip=0; ip<noOfIntPnts; ip++){
+			if (Math.round(Math.sqrt(Math.pow(intPnts[2*ip] - x, 2) + Math.pow(intPnts[2*ip+1] - y, 2))) <= d){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isIntPntInBuffer (double x, double y, double[] intPnts, int noOfIntPnts){
+		// as Point2D.equals
+		for (int ip=0; ip<noOfIntPnts; ip++){
+			if ((intPnts[2*ip] == x) && (intPnts[2*ip+1] == y)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+
+	// ... conics (as in Conic)
+
+	private static void setConic (double[] work, int o, double a, double b, double xc, double yc, double rot){
+		// common coefficients
+		double sqr_r1 = a;
+		double sqr_r2 = b;
+		sqr_r1 *= sqr_r1;
+		sqr_r2 *= sqr_r2;
+		double sin_rot = Math.sin(Math.toRadians(rot));
+		double cos_rot = Math.cos(Math.toRadians(rot));
+		double sin_2rot = 2.0 * sin_rot * cos_rot;
+		double sqr_sin_rot = Math.pow(sin_rot, 2);
+		double sqr_cos_rot = Math.pow(cos_rot, 2);
+		double sqr_centre_x = Math.pow(xc, 2);
+		double sqr_centre_y = Math.pow(yc, 2);
+		double inv_sqr_r1 = 1.0/sqr_r1;
+		double inv_sqr_r2 = 1.0/sqr_r2;
+
+		double A = (sqr_cos_rot/sqr_r1) + (sqr_sin_rot/sqr_r2);
+		double B = (sqr_r2 - sqr_r1) * (sin_2rot / (2.0 * sqr_r1 * sqr_r2));
+		double C = (sqr_cos_rot/sqr_r2) + (sqr_sin_rot/sqr_r1);
+		work[o] = A;
+		work[o+1] = B;
+		work[o+2] = C;
+		work[o+3] = - (yc * B) - (xc * A);
+		work[o+4] = - (xc * B) - (yc * C);
+		work[o+5] = -1.0 + ((sqr_centre_x + sqr_centre_y) * (inv_sqr_r1 + inv_sqr_r2) / 2.0) +
+				 	((sqr_cos_rot - sqr_sin_rot) * (sqr_centre_x - sqr_centre_y) * (inv_sqr_r1 - inv_sqr_r2)/2.0) +
+				 	(xc * yc * (inv_sqr_r1 - inv_sqr_r2) * sin_2rot);
+	}
+
+	private static void transformConic (double[] work, int o, int t){
+		// inverse transformation M^-1 . conic . (M^-1)^T, with the products summed in the order of MatricesOperations.mult2Mat
+		double ta = work[t], tb = work[t+1], tc = work[t+2], td = work[t+3], tm = work[t+4], tn = work[t+5];
+		double A = work[o], B = work[o+1], C = work[o+2], D = work[o+3], E = work[o+4], F = work[o+5];
+
+		double det = (ta * td) - (tb * tc);
+		double i00 = td / det, i01 = - tb / det, i02 = 0.0;
+		double i10 = - tc / det, i11 = ta / det, i12 = 0.0;
+		double i20 = ((tc * tn) - (td * tm)) / det, i21 = ((tb * tm) - (ta * tn)) / det, i22 = 1.0;
+
+		// ... inverse x conic
+		double r00 = 0.0 + (i00 * A) + (i01 * B) + (i02 * D);
+		double r01 = 0.0 + (i00 * B) + (i01 * C) + (i02 * E);
+		double r02 = 0.0 + (i00 * D) + (i01 * E) + (i02 * F);
+		double r10 = 0.0 + (i10 * A) + (i11 * B) + (i12 * D);
+		double r11 = 0.0 + (i10 * B) + (i11 * C) + (i12 * E);
+		double r12 = 0.0 + (i10 * D) + (i11 * E) + (i12 * F);
+		double r20 = 0.0 + (i20 * A) + (i21 * B) + (i22 * D);
+		double r21 = 0.0 + (i20 * B) + (i21 * C) + (i22 * E);
+		double r22 = 0.0 + (i20 * D) + (i21 * E) + (i22 * F);
+
+		// ... x transpose of inverse (only the elements of the conic)
+		work[o]   = 0.0 + (r00 * i00) + (r01 * i01) + (r02 * i02);
+		work[o+1] = 0.0 + (r00 * i10) + (r01 * i11) + (r02 * i12);
+		work[o+2] = 0.0 + (r10 * i10) + (r11 * i11) + (r12 * i12);
+		work[o+3] = 0.0 + (r00 * i20) + (r01 * i21) + (r02 * i22);
+		work[o+4] = 0.0 + (r10 * i20) + (r11 * i21) + (r12 * i22);
+		work[o+5] = 0.0 + (r20 * i20) + (r21 * i21) + (r22 * i22);
+	}
+
+
+	// ... transformation matrices (as in TransformationMatrix)
+
+	private static void setIdMatrix (double[] work, int t){
+		System.arraycopy(TransformationMatrix.propIdMatrix, 0, work, t, 6);
+	}
+
+	private static void translate (double[] work, int t, double in_m, double in_n){
+		work[t+4] += in_m;
+		work[t+5] += in_n;
+	}
+
+	private static void rotate (double[] work, int t, double rot){
+		double SinRot = Math.sin(Math.toRadians(rot));
+		double CosRot = Math.cos(Math.toRadians(rot));
+		double a_orig = work[t], b_orig = work[t+1], c_orig = work[t+2], d_orig = work[t+3], m_orig = work[t+4], n_orig = work[t+5];
+		work[t]   = (a_orig*CosRot) - (b_orig*SinRot);
+		work[t+1] = (b_orig*CosRot) + (a_orig*SinRot);
+		work[t+2] = (c_orig*CosRot) - (d_orig*SinRot);
+		work[t+3] = (d_orig*CosRot) + (c_orig*SinRot);
+		work[t+4] = (m_orig*CosRot) - (n_orig*SinRot);
+		work[t+5] = (n_orig*CosRot) + (m_orig*SinRot);
+	}
+
+	private static void scale (double[] work, int t, double scale_x, double scale_y){
+		work[t]   *= scale_x;
+		work[t+1] *= scale_y;
+		work[t+2] *= scale_x;
+		work[t+3] *= scale_y;
+		work[t+4] *= scale_x;
+		work[t+5] *= scale_y;
+	}
+
+	private static void transformPoint (double[] work, int t, int p){
+		double x = work[p];
+		double y = work[p+1];
+		work[p]   = (x * work[t]) + (y * work[t+2]) + work[t+4];
+		work[p+1] = (x * work[t+1]) + (y * work[t+3]) + work[t+5];
+	}
+
+	private static void ellipseToCircleTransMatrix (double[] work, int t, double a, double b, double xc, double yc, double rot){
+		setIdMatrix(work, t);
+		translate(work, t, -xc, -yc);
+		rotate(work, t, -rot);
+		scale(work, t, 1.0/a, 1.0/b);
+	}
+
+	private static void invEllipseToCircle (double[] work, int t, double a, double b, double xc, double yc, double rot){
+		setIdMatrix(work, t);
+		scale(work, t, a, b);
+		rotate(work, t, rot);
+		translate(work, t, xc, yc);
+	}
+
+
+	// ... roots (as in RootFinder.solveCubic)
+
+	private static int solveCubic (double c0, double c1, double c2, double c3, int considerPreciseOrLessPrecisePossibleIntPnts, double[] work, int o){
+		// saves the roots s (if considerPreciseOrLessPrecisePossibleIntPnts = 0) or s_testFromClosePoints (if = 1)
+		// of RootFinder.solveCubic in work[o...] and returns the number of roots
+
+		// normalizing the equation:x ^ 3 + Ax ^ 2 + Bx  + C = 0
+		double A = c2 / c3;
+		double B = c1 / c3;
+		double C = c0 / c3;
+
+		// substituting x = y - (A / 3) to eliminate the quadric term: x^3 + px + q = 0
+		double sq_A = A * A;
+		double p = (1.0/3.0) * (((-1.0/3.0) * sq_A) + B);
+		double q = (1.0/2.0) * (((2.0/27.0) * A *sq_A) - ((1.0/3.0) * A * B) + C);
+
+		// using Cardano's formula
+		double cb_p = Math.pow(p,3);
+		double D = Math.pow(q, 2) + cb_p;
+
+		int noOfRoots = 0;
+
+		if (considerPreciseOrLessPrecisePossibleIntPnts == 0){
+			if (isZero(D, EQN_EPS)) {
+				if (isZero(q, EQN_EPS)) {
+					// one triple solution
+					work[o] = 0.0;
+					noOfRoots = 1;
+				} else {
+					// one single and one double solution
+					double u = Math.cbrt(-q);
+					work[o] = 2.0 * u;
+					work[o+1] = - u;
+					noOfRoots = 2;
+				}
+		    } else if (D < 0.0) {
+		    	// when get three real solutions
+		    	double phi = (1.0/3.0) * Math.acos(-q / Math.sqrt(-cb_p)); //output of Math.acos is in radians
+		    	double t = 2.0 * Math.sqrt(-p);
+		    	work[o] = t * Math.cos(phi);
+		    	work[o+1] = -t * Math.cos(phi + (Math.PI / 3.0));
+		    	work[o+2] = -t * Math.cos(phi - (Math.PI / 3.0));
+		    	noOfRoots = 3;
+			} else {
+				// one real solution
+				double sqrt_D = Math.sqrt(D);
+				double u = Math.cbrt(sqrt_D + Math.abs(q));
+				if (q > 0.0){
+					work[o] = - u + (p / u);
+				} else {
+					work[o] = u - (p / u);
+				}
+				noOfRoots = 1;
+			}
+
+		} else {
+			if (isZero(D, EQN_EPS) || !isZero(D, 1)){return 0;}
+	   		if (isZero(q, EQN_EPS)) {
+				// one triple solution
+	   			work[o] = 0.0;
+	   			noOfRoots = 1;
+			} else {
+				// one single and one double solution
+				double u = Math.cbrt(-q);
+				work[o] = 2.0 * u;
+				work[o+1] = - u;
+				noOfRoots = 2;
+			}
+		}
+
+	    // resubstitute
+	    double sub = 1.0 / 3.0 * A;
+	    for (int i=0; i<noOfRoots; i++){
+	    	work[o+i] -= sub;
+	    }
+	    return noOfRoots;
+	}
+
+
+	private static boolean isZero(double x, double l){
+		return ((x > -l) && (x < l));
+	}
+
+}
@@ -0,0 +1,289 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import uk.ac.kent.elliptic.areaproptool.EllipseDiagram.FitnessMeasure;
+
+
+/**
+ * To compute the error measures of a diagram (the difference between the required and the actual area of every zone) in one go over the zone ids
+ * and keep them as numbers -> the measures are only formatted (with the zone labels) when they are written to a log (see toString)
+ *
+ * For every measure, the max over all the zones (and the zone with the max), the average and the total are kept:
+ *  - abs error: |req - actual|
+ *  - rel error: |req - actual| / req
+ *  - abs diff between req and actual area proportions: |req/totReq - actual/totActual|  => diagError (see EllipseDiagram.diagError)
+ *  - abs error over req tot: |req - actual| / totReq
+ *
+ */
+
+
+public class ErrorReport {
+
+	// Data fields
+
+	protected int noOfZones;
+	protected double totReqArea;
+	protected double totActualArea;
+
+	protected double maxAbsError;
+	protected int maxAbsErrorZoneId;
+	protected double avgAbsError;
+	protected double totAbsError;
+
+	protected double maxRelError;
+	protected int maxRelErrorZoneId;
+	protected double avgRelError;
+	protected double totRelError;
+
+	protected double maxAbsDiffBetweenReqActualAreaProportions;
+	protected int maxAbsDiffBetweenReqActualAreaProportionsZoneId;
+	protected double avgAbsDiffBetweenReqActualAreaProportions;
+	protected double totAbsDiffBetweenReqActualAreaProportions;
+
+	protected double maxAbsErrorOverReqTot;
+	protected int maxAbsErrorOverReqTotZoneId;
+	protected double avgAbsErrorOverReqTot;
+	protected double totAbsErrorOverReqTot;
+
+
+
+	// Constructor
+
+	public ErrorReport (){
+		clear();
+	}
+
+
+
+	// Properties -> getters
+
+	public int getNoOfZones() {
+		return noOfZones;
+	}
+	public double getTotReqArea() {
+		return totReqArea;
+	}
+	public double getTotActualArea() {
+		return totActualArea;
+	}
+
+	public double getMaxAbsError() {
+		return maxAbsError;
+	}
+	public int getMaxAbsErrorZoneId() {
+		return maxAbsErrorZoneId;
+	}
+	public String getMaxAbsErrorZoneLabel() {
+		return getZoneLabel(maxAbsErrorZoneId);
+	}
+	public double getAvgAbsError() {
+		return avgAbsError;
+	}
+	public double getTotAbsError() {
+		return totAbsError;
+	}
+
+	public double getMaxRelError() {
+		return maxRelError;
+	}
+	public int getMaxRelErrorZoneId() {
+		return maxRelErrorZoneId;
+	}
+	public String getMaxRelErrorZoneLabel() {
+		return getZoneLabel(maxRelErrorZoneId);
+	}
+	public double getAvgRelError() {
+		return avgRelError;
+	}
+	public double getTotRelError() {
+		return totRelError;
+	}
+
+	public double getMaxAbsDiffBetweenReqActualAreaProportions() {
+		return maxAbsDiffBetweenReqActualAreaProportions;
+	}
+	public int getMaxAbsDiffBetweenReqActualAreaProportionsZoneId() {
+		return maxAbsDiffBetweenReqActualAreaProportionsZoneId;
+	}
+	public String getMaxAbsDiffBetweenReqActualAreaProportionsZoneLabel() {
+		return getZoneLabel(maxAbsDiffBetweenReqActualAreaProportionsZoneId);
+	}
+	public double getAvgAbsDiffBetweenReqActualAreaProportions() {
+		return avgAbsDiffBetweenReqActualAreaProportions;
+	}
+	public double getTotAbsDiffBetweenReqActualAreaProportions() {
+		return totAbsDiffBetweenReqActualAreaProportions;
+	}
+
+	public double getMaxAbsErrorOverReqTot() {
+		return maxAbsErrorOverReqTot;
+	}
+	public int getMaxAbsErrorOverReqTotZoneId() {
+		return maxAbsErrorOverReqTotZoneId;
+	}
+	public String getMaxAbsErrorOverReqTotZoneLabel() {
+		return getZoneLabel(maxAbsErrorOverReqTotZoneId);
+	}
+	public double getAvgAbsErrorOverReqTot() {
+		return avgAbsErrorOverReqTot;
+	}
+	public double getTotAbsErrorOverReqTot() {
+		return totAbsErrorOverReqTot;
+	}
+
+	private static String getZoneLabel (int zoneId){
+		return ((zoneId == 0) ? "" : ZoneVector.getZoneLabel(zoneId));
+	}
+
+
+
+	// Methods
+
+	public void clear(){
+		noOfZones = 0;
+		totReqArea = 0;
+		totActualArea = 0;
+		maxAbsError = Double.NaN;
+		maxRelError = Double.NaN;
+		maxAbsDiffBetweenReqActualAreaProportions = Double.NaN;
+		maxAbsErrorOverReqTot = Double.NaN;
+		maxAbsErrorZoneId = 0;
+		maxRelErrorZoneId = 0;
+		maxAbsDiffBetweenReqActualAreaProportionsZoneId = 0;
+		maxAbsErrorOverReqTotZoneId = 0;
+		avgAbsError = 0;
+		avgRelError = 0;
+		avgAbsDiffBetweenReqActualAreaProportions = 0;
+		avgAbsErrorOverReqTot = 0;
+		totAbsError = 0;
+		totRelError = 0;
+		totAbsDiffBetweenReqActualAreaProportions = 0;
+		totAbsErrorOverReqTot = 0;
+	}
+
+	public static boolean isActualAreaScaledToReq (FitnessMeasure fitnessMeasure){
+		// the fitness measures that compare the required areas with the actual areas scaled to the same total area
+		// => the abs and rel errors of the hill climber are computed in the same way (the abs diff between the area proportions is not affected by scaling)
+		switch (fitnessMeasure){
+			case STRESS:
+			case CHOWRODGERS_IDEAL_SUMREGFIT: case CHOWRODGERS_IDEAL_MAXREGFIT: case CHOWRODGERS_IDEAL_MEANREGFIT:
+			case RELATIVE_ERROR_SUMREGFIT_SCALEACTTOREQ: case RELATIVE_ERROR_MAXREGFIT_SCALEACTTOREQ: case RELATIVE_ERROR_MEANREGFIT_SCALEACTTOREQ:
+			case ABSERROR_OVER_REQTOTAREA_SUMREGFIT_SCALEACTTOREQ: case ABSERROR_OVER_REQTOTAREA_MAXREGFIT_SCALEACTTOREQ: case ABSERROR_OVER_REQTOTAREA_MEANREGFIT_SCALEACTTOREQ:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	public ErrorReport compute (ZoneVector reqAreas, ZoneVector actualAreas, int[] zoneIds, boolean scaleActualToReq){
+		// the measures of the zones in zoneIds -> the report is reused (e.g. by the hill climber at every iteration) so that no objects are created
+
+		clear();
+		noOfZones = zoneIds.length;
+		if (noOfZones == 0){return this;}
+
+		for (int zid : zoneIds){
+			totActualArea += actualAreas.get(zid);
+			totReqArea += reqAreas.get(zid);
+		}
+
+		double req;
+		double actual;
+		double absError;
+		double relError;
+		double absDiffBetweenReqActualAreaProportions;
+		double absErrorOverReqTot;
+		boolean firstZone = true;
+		for (int zid : zoneIds){
+			req = reqAreas.get(zid);
+			actual = actualAreas.get(zid);
+
+			absDiffBetweenReqActualAreaProportions = Math.abs((req/totReqArea) - (actual/totActualArea));
+			if (scaleActualToReq){
+				absError = Math.abs(req - (actual * (totReqArea/totActualArea)));
+			} else {
+				absError = Math.abs(req - actual);
+			}
+			relError = absError / req;
+			absErrorOverReqTot = absError / totReqArea;
+
+			totAbsError += absError;
+			totRelError += relError;
+			totAbsDiffBetweenReqActualAreaProportions += absDiffBetweenReqActualAreaProportions;
+			totAbsErrorOverReqTot += absErrorOverReqTot;
+
+			// ... the first zone with the max (a NaN error, e.g. of a zone with a required area of 0, is kept only if it is that of the first zone)
+			if (firstZone || (maxAbsError < absError)){
+				maxAbsError = absError;
+				maxAbsErrorZoneId = zid;
+			}
+			if (firstZone || (maxRelError < relError)){
+				maxRelError = relError;
+				maxRelErrorZoneId = zid;
+			}
+			if (firstZone || (maxAbsDiffBetweenReqActualAreaProportions < absDiffBetweenReqActualAreaProportions)){
+				maxAbsDiffBetweenReqActualAreaProportions = absDiffBetweenReqActualAreaProportions;
+				maxAbsDiffBetweenReqActualAreaProportionsZoneId = zid;
+			}
+			if (firstZone || (maxAbsErrorOverReqTot < absErrorOverReqTot)){
+				maxAbsErrorOverReqTot = absErrorOverReqTot;
+				maxAbsErrorOverReqTotZoneId = zid;
+			}
+			firstZone = false;
+		}
+
+		avgAbsError = totAbsError / noOfZones;
+		avgRelError = totRelError / noOfZones;
+		avgAbsDiffBetweenReqActualAreaProportions = totAbsDiffBetweenReqActualAreaProportions / noOfZones;
+		avgAbsErrorOverReqTot = totAbsErrorOverReqTot / noOfZones;
+
+		return this;
+	}
+
+
+	// ... as in the logs
+
+	public String toString(){
+		// max | zone | avg | tot of every measure followed by the total actual and required areas
+		return (maxAbsError + " | " + getMaxAbsErrorZoneLabel() + " | " + avgAbsError + " | " + totAbsError + " | " +
+				maxRelError + " | " + getMaxRelErrorZoneLabel() + " | " + avgRelError + " | " + totRelError + " | " +
+				maxAbsDiffBetweenReqActualAreaProportions + " | " + getMaxAbsDiffBetweenReqActualAreaProportionsZoneLabel() + " | " + avgAbsDiffBetweenReqActualAreaProportions + " | " + totAbsDiffBetweenReqActualAreaProportions + " | " +
+				maxAbsErrorOverReqTot + " | " + getMaxAbsErrorOverReqTotZoneLabel() + " | " + avgAbsErrorOverReqTot + " | " + totAbsErrorOverReqTot + " | " +
+				totActualArea + " | " + totReqArea);
+	}
+
+}
@@ -0,0 +1,434 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import java.util.HashMap;
+
+import uk.ac.kent.elliptic.areaproptool.EllipseDiagram.FitnessMeasure;
+import uk.ac.kent.elliptic.areaproptool.EllipseDiagramOps.InitDiagType;
+
+
+/**
+ * To generate an area-proportional diagram for a required area specification without instantiating the eulerAPE window
+ * (no EllipseDiagramPanel or SwitchBoardPanel), so that it can be used from the command-line or on a server running with java.awt.headless=true
+ *
+ */
+
+
+public class HeadlessDiagramEngine {
+
+	// Static class fields
+
+	public static final int MAX_NO_OF_ITERATIONS = 10000;
+
+	// ... same values used by SwitchBoardPanel when generating the starting diagram and running the hill climber
+	public static final double SMALLEST_REGION_FIXED_AREA = 100;
+	public static final double[] DEFAULT_INIT_DIAG_CIRCLE_ROTS = {0.0, 120.0, 60.0};
+	public static final double DEFAULT_INIT_DIAG_POLYAREA_DISCARD_THRESHOLD = 1;
+
+	// ... the moves, scalings and rotations the hill climber starts with for a warm-started diagram (InitDiagType.NEAREST_SOLVED_DIAG), relative to those of a new diagram
+	//     -> the same: the parameters are only ever halved, so smaller ones (e.g. 0.125) took ~5x the iterations to make up a difference of a few % in the areas
+	public static final double DEFAULT_WARM_START_PARAMS_FACTOR = 1;
+
+	public static final double DEFAULT_MAX_REGIONAREA_ABSERR_THRESHOLD = 0.001;
+	public static final double DEFAULT_MAX_REGIONAREA_RELERR_THRESHOLD = 1e-6;
+	public static final double DEFAULT_MAX_REGIONAREA_ABSDIFF_BETWEEN_REQACTUAL_PROPORTIONS_THRESHOLD = 1e-6;
+	public static final double DEFAULT_MAX_REGIONAREA_ABSERR_OVER_REQTOT_THRESHOLD = 1e-6;
+
+
+
+	// Data fields
+
+	// ... settings for the starting diagram and the hill climber
+	protected boolean restrictToCircles = HillClimber.DEFAULT_RESTRICT_TO_CIRLCES;
+	protected FitnessMeasure fitnessMeasure = EllipseDiagram.DEFAULT_FITNESS_MEASURE;
+	protected InitDiagType initDiagType = InitDiagType.BISECTION_ON_SLOPE;
+	protected HillClimber.RunType runType = HillClimber.RunType.RunWithInitParamsOnly;
+	protected boolean lockHCparams = false;
+	protected boolean forceToTerm = true;
+	protected int maxNoOfIterations = MAX_NO_OF_ITERATIONS;
+	protected double maxMinsFor1Run = HillClimber.DEFAULT_MAXMINSFOR1RUN; // the hill climber stops after maxMinsFor1Run minutes (<= 0 -> no time limit)
+	protected boolean considerLessPrecisePossibleIntPnts = false;
+	protected boolean useQuarticIntPnts = false; // the hill climber finds the intersection points in a single pass with the quartic (see EllipseDiagram.setUseQuarticIntPnts)
+	protected int methodToComputeRegionAreas = EllipseDiagram.INTEGRATION; // the method used by the hill climber (e.g. EllipseDiagram.ARCS)
+	protected boolean evaluateMovesInParallel = HillClimber.DEFAULT_EVALUATE_MOVES_IN_PARALLEL;
+
+	// ... run the retries with increased parameters and the random starts at the same time (see HillClimberScheduler)
+	protected boolean runRetriesInParallel = false;
+	protected int noOfRandomStarts = HillClimberScheduler.DEFAULT_NO_OF_RANDOM_STARTS;
+	protected long randomSeed = 0;
+
+	// ... the diagrams already generated (null -> no cache), shared by engines running at the same time
+	protected DiagramCache diagramCache = null;
+	protected double maxWarmStartDist = DiagramCache.DEFAULT_MAX_NEAREST_DIST; // for InitDiagType.NEAREST_SOLVED_DIAG
+	protected double warmStartParamsFactor = DEFAULT_WARM_START_PARAMS_FACTOR;
+
+	// ... thresholds used to decide whether the generated diagram is exact
+	protected double maxRegionAreaAbsErrThreshold = DEFAULT_MAX_REGIONAREA_ABSERR_THRESHOLD;
+	protected double maxRegionAreaRelErrThreshold = DEFAULT_MAX_REGIONAREA_RELERR_THRESHOLD;
+	protected double maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold = DEFAULT_MAX_REGIONAREA_ABSDIFF_BETWEEN_REQACTUAL_PROPORTIONS_THRESHOLD;
+	protected double maxRegionAreaAbsErrOverReqTotThreshold = DEFAULT_MAX_REGIONAREA_ABSERR_OVER_REQTOT_THRESHOLD;
+
+	// ... details of the last run
+	protected HashMap<String, Double> scaledRequiredAreaSpecs;
+	protected double reqRegionAreasMultFactor = 1;
+	protected EllipseDiagram initDiagram;
+	protected boolean initDiagIsWarmStart = false;
+	protected HillClimber hillClimber;
+	protected String reasonForTermination = "";
+
+
+
+	// Constructor
+
+	public HeadlessDiagramEngine (){
+	}
+
+	public HeadlessDiagramEngine (boolean restrictToCircles, FitnessMeasure fitnessMeasure){
+		this.restrictToCircles = restrictToCircles;
+		this.fitnessMeasure = fitnessMeasure;
+	}
+
+
+
+	// Properties -> getters and setters
+
+	public boolean getRestrictToCircles() {
+		return restrictToCircles;
+	}
+	public void setRestrictToCircles(boolean restrictToCircles) {
+		this.restrictToCircles = restrictToCircles;
+	}
+	public FitnessMeasure getFitnessMeasure() {
+		return fitnessMeasure;
+	}
+	public void setFitnessMeasure(FitnessMeasure fitnessMeasure) {
+		this.fitnessMeasure = fitnessMeasure;
+	}
+	public InitDiagType getInitDiagType() {
+		return initDiagType;
+	}
+	public void setInitDiagType(InitDiagType initDiagType) {
+		this.initDiagType = initDiagType;
+	}
+	public HillClimber.RunType getRunType() {
+		return runType;
+	}
+	public void setRunType(HillClimber.RunType runType) {
+		this.runType = runType;
+	}
+	public boolean getEvaluateMovesInParallel() {
+		return evaluateMovesInParallel;
+	}
+	public void setEvaluateMovesInParallel(boolean evaluateMovesInParallel) {
+		this.evaluateMovesInParallel = evaluateMovesInParallel;
+	}
+	public boolean getRunRetriesInParallel() {
+		return runRetriesInParallel;
+	}
+	public void setRunRetriesInParallel(boolean runRetriesInParallel) {
+		this.runRetriesInParallel = runRetriesInParallel;
+	}
+	public DiagramCache getDiagramCache() {
+		return diagramCache;
+	}
+	public void setDiagramCache(DiagramCache diagramCache) {
+		this.diagramCache = diagramCache;
+	}
+	public void setMaxWarmStartDist(double maxWarmStartDist) {
+		this.maxWarmStartDist = maxWarmStartDist;
+	}
+	public void setWarmStartParamsFactor(double warmStartParamsFactor) {
+		this.warmStartParamsFactor = warmStartParamsFactor;
+	}
+	public void setRandomStarts(int noOfRandomStarts, long randomSeed) {
+		this.noOfRandomStarts = noOfRandomStarts;
+		this.randomSeed = randomSeed;
+	}
+	public boolean getUseQuarticIntPnts() {
+		return useQuarticIntPnts;
+	}
+	public void setUseQuarticIntPnts(boolean useQuarticIntPnts) {
+		this.useQuarticIntPnts = useQuarticIntPnts;
+	}
+	public int getMethodToComputeRegionAreas() {
+		return methodToComputeRegionAreas;
+	}
+	public void setMethodToComputeRegionAreas(int methodToComputeRegionAreas) {
+		this.methodToComputeRegionAreas = methodToComputeRegionAreas;
+	}
+	public void setMaxNoOfIterations(int maxNoOfIterations) {
+		this.maxNoOfIterations = maxNoOfIterations;
+	}
+	public double getMaxMinsFor1Run() {
+		return maxMinsFor1Run;
+	}
+	public void setMaxMinsFor1Run(double maxMinsFor1Run) {
+		this.maxMinsFor1Run = maxMinsFor1Run;
+	}
+	public void setExactnessThresholds(double maxRegionAreaAbsErrThreshold, double maxRegionAreaRelErrThreshold,
+			                           double maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold, double maxRegionAreaAbsErrOverReqTotThreshold) {
+		this.maxRegionAreaAbsErrThreshold = maxRegionAreaAbsErrThreshold;
+		this.maxRegionAreaRelErrThreshold = maxRegionAreaRelErrThreshold;
+		this.maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold = maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold;
+		this.maxRegionAreaAbsErrOverReqTotThreshold = maxRegionAreaAbsErrOverReqTotThreshold;
+	}
+
+	public HashMap<String, Double> getScaledRequiredAreaSpecs() {
+		return scaledRequiredAreaSpecs;
+	}
+	public double getReqRegionAreasMultFactor() {
+		return reqRegionAreasMultFactor;
+	}
+	public EllipseDiagram getInitDiagram() {
+		return initDiagram;
+	}
+	public boolean isInitDiagWarmStart() {
+		return initDiagIsWarmStart;
+	}
+	public HillClimber getHillClimber() {
+		return hillClimber;
+	}
+	public String getReasonForTermination() {
+		return reasonForTermination;
+	}
+	public boolean isExact() {
+		return ((reasonForTermination != null) && reasonForTermination.startsWith("Obtained desired area specification"));
+	}
+
+
+
+	// Methods
+
+	/* Generate the diagram for the required area specifications (region label -> area, e.g. a, b, c, ab, ac, bc, abc, or the regions of 4 or more sets where the empty regions have no area)
+	 *    The required region areas are scaled (as in SwitchBoardPanel.scaleRequiredRegionAreas) so that the smallest region has area SMALLEST_REGION_FIXED_AREA,
+	 *    and thus the zone areas of the returned diagram are relative to getScaledRequiredAreaSpecs() (divide by getReqRegionAreasMultFactor() to get the areas requested)
+	 *    null is returned if the area specification is incorrect or a starting diagram could not be generated
+	 */
+	public EllipseDiagram generateDiagram (HashMap<String, Double> requiredAreaSpecs){
+
+		scaledRequiredAreaSpecs = null;
+		reqRegionAreasMultFactor = 1;
+		initDiagram = null;
+		initDiagIsWarmStart = false;
+		hillClimber = null;
+		reasonForTermination = "";
+
+		if (!scaleRequiredRegionAreas(requiredAreaSpecs)){
+			reasonForTermination = "Error: Incorrect required region areas: every region should be assigned an area >= 0 (0 for the regions that should not be drawn) and at least one region an area > 0";
+			return null;
+		}
+		String reasonZonesCannotBeDrawn = EllipseDiagramOps.getReasonZonesCannotBeDrawn(scaledRequiredAreaSpecs);
+		if (reasonZonesCannotBeDrawn != null){
+			reasonForTermination = "Error: The regions with an area > 0 cannot be drawn: " + reasonZonesCannotBeDrawn;
+			return null;
+		}
+
+		// the same (or a scaled) area specification was already solved -> the diagram is scaled to the required areas
+		//    and only returned if it is exact for these areas, otherwise it is removed from the cache and the hill climber is run
+		if (diagramCache != null){
+			EllipseDiagram cachedDiag = diagramCache.get(scaledRequiredAreaSpecs, restrictToCircles, methodToComputeRegionAreas);
+			if (cachedDiag != null){
+				if (cachedDiag.isValid() && isExact(cachedDiag, scaledRequiredAreaSpecs)){
+					reasonForTermination = HillClimberScheduler.EXACT_DIAG_REASON_FOR_TERMINATION + ": diagram from the cache";
+					return cachedDiag;
+				}
+				System.out.println("HeadlessDiagramEngine.generateDiagram: the diagram from the cache is not exact for the required areas -> removed from the cache");
+				diagramCache.remove(scaledRequiredAreaSpecs, restrictToCircles);
+			}
+		}
+
+		initDiagram = generateInitDiag(scaledRequiredAreaSpecs);
+		if (initDiagram == null){
+			reasonForTermination = "Error: Could not generate a valid starting diagram";
+			return null;
+		}
+
+		// the starting diagram is checked as in SwitchBoardPanel, but the zone areas are computed with methodToComputeRegionAreas when running the hill climber 
+		// (the method is kept when the diagram is cloned by the hill climber) and only the zones of the starting diagram are considered (see EllipseDiagramOps.getNonEmptyZoneLabels)
+		EllipseDiagram diag = new EllipseDiagram(initDiagram.getEllipsesClone(), considerLessPrecisePossibleIntPnts, methodToComputeRegionAreas);
+		diag.setUseQuarticIntPnts(useQuarticIntPnts);
+		diag.setZoneLabels(initDiagram.getZoneLabels());
+		diag = runHillClimber(diag, scaledRequiredAreaSpecs);
+
+		// only exact diagrams are kept -> a diagram which ran out of time or iterations might be improved on by a later run
+		if ((diagramCache != null) && (diag != null) && isExact()){
+			diagramCache.put(scaledRequiredAreaSpecs, restrictToCircles, diag);
+		}
+		return diag;
+	}
+
+
+	// ... a diagram which was not generated by the hill climber (e.g. from the cache) is exact if the area proportions of its zones are within the threshold
+	//     that ends the hill climber, and also its zone areas over the total required area (i.e. it is the size of the required areas, not only their proportions)
+	protected boolean isExact (EllipseDiagram diag, HashMap<String, Double> requiredAreaSpecs){
+		diag.recomputeZoneAreas();
+		if (!Boolean.TRUE.equals(diag.zoneAreasComputedSuccessfully)){return false;}
+		ErrorReport errorReport = diag.computeErrorReport(requiredAreaSpecs);
+		return ((errorReport.getMaxAbsDiffBetweenReqActualAreaProportions() <= maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold) &&
+				(errorReport.getMaxAbsErrorOverReqTot() <= maxRegionAreaAbsErrOverReqTotThreshold));
+	}
+
+
+	// ... same as SwitchBoardPanel.scaleRequiredRegionAreas, but the required area specs passed on are left as is
+	//     and any number of ellipses is allowed (the number of ellipses is given by the zone labels, see EllipseDiagramOps.getNoOfEllipses)
+	//     whereby the regions with no area (0 or not in the area specs) are empty and are set to 0
+	protected boolean scaleRequiredRegionAreas (HashMap<String, Double> requiredAreaSpecs){
+
+		if (requiredAreaSpecs == null){return false;}
+
+		String[] zoneLabels = EllipseDiagramOps.getZoneLabels(EllipseDiagramOps.getNoOfEllipses(requiredAreaSpecs), false);
+		if (zoneLabels == null){
+			System.out.println("HeadlessDiagramEngine.scaleRequiredRegionAreas: the regions should be labelled with the labels of 2 to "+EllipseDiagramOps.MAX_NO_OF_ELLIPSES+" ellipses (a, b, ab etc)");
+			return false;
+		}
+
+		double smallestRegion_actualArea = -1;
+		Double actualArea;
+		for (String zl : zoneLabels){
+			actualArea = requiredAreaSpecs.get(zl);
+			if ((actualArea == null) || (actualArea == 0)){continue;} // empty region
+			if (Double.isNaN(actualArea) || Double.isInfinite(actualArea) || (actualArea < 0)){
+				System.out.println("HeadlessDiagramEngine.scaleRequiredRegionAreas: region "+zl+" has an incorrect area -> "+actualArea);
+				return false;
+			}
+			if ((smallestRegion_actualArea == -1) || (smallestRegion_actualArea > actualArea)){
+				smallestRegion_actualArea = actualArea;
+			}
+		}
+		if (smallestRegion_actualArea == -1){
+			System.out.println("HeadlessDiagramEngine.scaleRequiredRegionAreas: none of the regions has an area > 0");
+			return false;
+		}
+
+		reqRegionAreasMultFactor = SMALLEST_REGION_FIXED_AREA/smallestRegion_actualArea;
+
+		scaledRequiredAreaSpecs = new HashMap<String, Double>();
+		for (String zl : zoneLabels){
+			actualArea = requiredAreaSpecs.get(zl);
+			scaledRequiredAreaSpecs.put(zl, (actualArea == null) ? 0.0 : Utilities.roundToDps(actualArea*reqRegionAreasMultFactor, 15));
+		}
+		return true;
+	}
+
+
+	// ... same checks as in SwitchBoardPanel.loadDefaultInitDiag and SwitchBoardPanel.refreshInitDiagButton
+	protected EllipseDiagram generateInitDiag (HashMap<String, Double> requiredAreaSpecs){
+
+		// warm start -> the diagram of the closest area specification solved so far (if it is valid for these areas)
+		initDiagIsWarmStart = false;
+		if ((initDiagType == InitDiagType.NEAREST_SOLVED_DIAG) && (diagramCache != null)){
+			EllipseDiagram nearestDiag = diagramCache.getNearest(requiredAreaSpecs, restrictToCircles, methodToComputeRegionAreas, maxWarmStartDist);
+			if ((nearestDiag != null) && nearestDiag.isValid()){
+				initDiagIsWarmStart = true;
+				return nearestDiag;
+			}
+		}
+
+		// generateAppropriateInitDiag swaps the rotations around, so pass on a copy
+		double[] circleRots = DEFAULT_INIT_DIAG_CIRCLE_ROTS.clone();
+
+		EllipseDiagram initDiag = EllipseDiagramOps.generateAppropriateInitDiag(circleRots, requiredAreaSpecs, initDiagType, DEFAULT_INIT_DIAG_POLYAREA_DISCARD_THRESHOLD, considerLessPrecisePossibleIntPnts);
+		if (initDiag == null){
+			System.out.println("HeadlessDiagramEngine.generateInitDiag: null was returned for the starting diagram");
+			return null;
+		}
+		if (restrictToCircles && !EllipseDiagramOps.isCircleDiagram(initDiag)){
+			// ... the zones could only be drawn with ellipses (e.g. a Venn diagram of 4 or 5 sets)
+			System.out.println("HeadlessDiagramEngine.generateInitDiag: the starting diagram could not be generated with circles");
+			return null;
+		}
+		for (Ellipse e : initDiag.getEllipses()){
+			if (Double.isNaN(e.getXc()) || Double.isNaN(e.getYc())){
+				System.out.println("HeadlessDiagramEngine.generateInitDiag: a NaN was generated for the centre of ellipse "+e.label);
+				return null;
+			}
+		}
+		if (!initDiag.isValid()){
+			System.out.println("HeadlessDiagramEngine.generateInitDiag: the starting diagram is not valid");
+			return null;
+		}
+		return initDiag;
+	}
+
+
+	protected EllipseDiagram runHillClimber (EllipseDiagram initDiag, HashMap<String, Double> requiredAreaSpecs){
+
+		if (runRetriesInParallel && ((runType != HillClimber.RunType.RunWithInitParamsOnly) || (noOfRandomStarts > 0))){
+			return runHillClimberScheduler(initDiag, requiredAreaSpecs);
+		}
+
+		// no panels and no log file -> the hill climber does not animate or save any intermediate diagrams
+		double paramsFactor = initDiagIsWarmStart ? warmStartParamsFactor : 1;
+		if (restrictToCircles){
+			hillClimber = new HillClimber(HillClimber.DEFAULT_D*paramsFactor, HillClimber.DEFAULT_S*paramsFactor, initDiag, requiredAreaSpecs, null, null, null, fitnessMeasure, forceToTerm, maxNoOfIterations, runType);
+		} else {
+			hillClimber = new HillClimber(HillClimber.DEFAULT_D*paramsFactor, HillClimber.DEFAULT_S*paramsFactor, HillClimber.DEFAULT_R*paramsFactor, initDiag, requiredAreaSpecs, null, null, null, fitnessMeasure, forceToTerm, maxNoOfIterations, runType);
+		}
+		hillClimber.setEvaluateMovesInParallel(evaluateMovesInParallel);
+		hillClimber.setMaxMinsFor1Run(maxMinsFor1Run);
+
+		reasonForTermination = hillClimber.run_multipleChangesPerIter(lockHCparams, false, false, null, null, null, null,
+				                                                      maxRegionAreaAbsErrThreshold, maxRegionAreaRelErrThreshold, maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold, maxRegionAreaAbsErrOverReqTotThreshold);
+
+		// the hill climber replaces its diagram with the best retry when it runs with increased parameters
+		return hillClimber.getDiagram();
+	}
+
+
+	protected EllipseDiagram runHillClimberScheduler (EllipseDiagram initDiag, HashMap<String, Double> requiredAreaSpecs){
+
+		// the same settings as those of the hill climber of runHillClimber, for every scheduled hill climber
+		double paramsFactor = initDiagIsWarmStart ? warmStartParamsFactor : 1;
+		HillClimberScheduler scheduler;
+		if (restrictToCircles){
+			scheduler = new HillClimberScheduler(HillClimber.DEFAULT_D*paramsFactor, HillClimber.DEFAULT_S*paramsFactor, requiredAreaSpecs, fitnessMeasure, forceToTerm, maxNoOfIterations, runType);
+		} else {
+			scheduler = new HillClimberScheduler(HillClimber.DEFAULT_D*paramsFactor, HillClimber.DEFAULT_S*paramsFactor, HillClimber.DEFAULT_R*paramsFactor, requiredAreaSpecs, fitnessMeasure, forceToTerm, maxNoOfIterations, runType);
+		}
+		scheduler.setRandomStarts(noOfRandomStarts, randomSeed);
+		scheduler.setMaxMinsFor1Run(maxMinsFor1Run);
+		scheduler.setEvaluateMovesInParallel(evaluateMovesInParallel);
+
+		EllipseDiagram diag = scheduler.run(initDiag, lockHCparams,
+				                            maxRegionAreaAbsErrThreshold, maxRegionAreaRelErrThreshold, maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold, maxRegionAreaAbsErrOverReqTotThreshold);
+
+		hillClimber = scheduler.getBestHillClimber();
+		reasonForTermination = scheduler.getReasonForTermination();
+		return diag;
+	}
+
+}
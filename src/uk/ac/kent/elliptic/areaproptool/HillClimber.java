@@ -41,7 +41,13 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import uk.ac.kent.elliptic.areaproptool.EllipseDiagram.FitnessMeasure;
 
@@ -79,6 +85,16 @@ public class HillClimber {
 	public static double DEFAULT_INCPARAMSBY = 0.2; 
 	public static double DEFAULT_MAX_TIMES_PARAMS_ARE_INC = 10; 
 	
+	public static final boolean DEFAULT_EVALUATE_MOVES_IN_PARALLEL = false;
+	
+	// ... type of move -> same index as that used for the specificPropChanged flags in run_multipleChangesPerIter
+	private static final int MOVE_CENTRE = 0;
+	private static final int MOVE_AXES = 1;
+	private static final int MOVE_ROT = 3;
+	
+	// ... pool shared by all the hill climbers that evaluate the potential solutions in parallel (daemon threads, one per processor)
+	private static ForkJoinPool sharedMovesEvaluationPool = null;
+	
 	
 	
 	// Data fields
@@ -95,6 +111,7 @@ public class HillClimber {
 	// ... diagram 
 	protected EllipseDiagram diagram;
 	protected HashMap<String, Double> requiredAreaSpecs;
+	protected ZoneVector requiredAreaSpecsVector; // requiredAreaSpecs by zone id -> used to compute the fitness of the diagram in every iteration
 	protected Double fitness;
 	protected double fitness_try1;
 	protected double fitness_bestretry=0;
@@ -158,6 +175,17 @@ public class HillClimber {
     protected double maxTimesParamsAreInc = DEFAULT_MAX_TIMES_PARAMS_ARE_INC;
     
     protected int noOfTimesParamsAreInc; 
+    
+    // ... evaluate all the potential solutions for a property of an ellipse at once, split among the threads of the pool, and keep the best  
+    protected boolean evaluateMovesInParallel = DEFAULT_EVALUATE_MOVES_IN_PARALLEL;
+    protected ForkJoinPool movesEvaluationPool = null;
+    // ... every task has its own scratch copy of the diagram on which the potential solutions are tried out in turn, and a copy of the best one so far 
+    //     -> reused from one evaluation to the next (brought up to date with the diagram rather than cloned again)
+    private EllipseDiagram[] movesEvaluationScratchDiags = null;
+    private EllipseDiagram[] movesEvaluationBestDiags = null;
+    
+    // ... set from another thread (eg by HillClimberScheduler) to stop the hill climber at the end of the current iteration
+    protected volatile boolean cancelled = false;
 	
     
 	// Constructor
@@ -186,6 +214,7 @@ public class HillClimber {
 		this.restrictToCircles = restrictToCircles;
 		this.diagram = diagram;
 		this.requiredAreaSpecs = requiredAreaSpecs;
+		this.requiredAreaSpecsVector = (requiredAreaSpecs == null) ? null : new ZoneVector(requiredAreaSpecs, diagram.getEllipses().size());
 		this.fitness = null;
 		this.ellipseDiagramPanel = ellipseDiagramPanel;
 		this.switchBoardPanel = switchBoardPanel;
@@ -219,6 +248,43 @@ public class HillClimber {
 	public SwitchBoardPanel getSwitchBoardPanel() {
 		return switchBoardPanel;
 	}
+	public boolean getEvaluateMovesInParallel() {
+		return evaluateMovesInParallel;
+	}
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	public double getMaxMinsFor1Run() {
+		return maxMinsFor1Run;
+	}
+	
+	// Properties -> setters
+	public void setEvaluateMovesInParallel(boolean evaluateMovesInParallel) {
+		setEvaluateMovesInParallel(evaluateMovesInParallel, null);
+	}
+	public void setEvaluateMovesInParallel(boolean evaluateMovesInParallel, ForkJoinPool movesEvaluationPool) {
+		// if no pool is passed on, the pool shared by all the hill climbers is used
+		this.evaluateMovesInParallel = evaluateMovesInParallel;
+		this.movesEvaluationPool = movesEvaluationPool;
+	}
+	public void setIncParams(double incParamsBy, double maxTimesParamsAreInc) {
+		this.incParamsBy = incParamsBy;
+		this.maxTimesParamsAreInc = maxTimesParamsAreInc;
+	}
+	
+	public void setMaxMinsFor1Run(double maxMinsFor1Run) {
+		// <= 0 -> no time limit
+		this.maxMinsFor1Run = maxMinsFor1Run;
+	}
+	
+	public void cancel() {
+		this.cancelled = true;
+	}
+	
+	// ... the time of the whole run (including the retries with increased parameters, but not the time spent animating) -> see stopWatch
+	protected boolean isOutOfTime() {
+		return ((maxMinsFor1Run > 0) && (stopWatch.getElapsedTimeMins() >= maxMinsFor1Run));
+	}
 	
 	
 	
@@ -366,6 +432,183 @@ public class HillClimber {
 	
 	
 	
+	// ... evaluating the potential (neighbouring) solutions in parallel 
+	
+	// details of a potential solution tried out on a copy of the diagram
+	private static class CandidateMoveTrial {
+		int index;
+		double[] move;
+		EllipseDiagram diagram;
+		ZoneVector zoneVars;
+		double fitness;
+		int noOfImprovingTrials; // among the potential solutions evaluated by the same task
+	}
+	
+	private static synchronized ForkJoinPool getSharedMovesEvaluationPool(){
+		if (sharedMovesEvaluationPool == null){
+			sharedMovesEvaluationPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		}
+		return sharedMovesEvaluationPool;
+	}
+	
+	private static void setEllipseProps (Ellipse e, int moveType, double[] move, boolean restrictToCircles){
+		switch (moveType){
+			case MOVE_CENTRE: {
+				e.setXc(move[0]);
+				e.setYc(move[1]);
+				break;
+			}
+			case MOVE_AXES: {
+				e.setA(move[0]); 
+				e.setB(restrictToCircles ? move[0] : move[1]);
+				break;
+			}
+			case MOVE_ROT: {
+				e.setRot(move[0]);
+				break;
+			}
+		}
+	}
+	
+	private static EllipseDiagram copyOf (EllipseDiagram diagToCopyFrom, EllipseDiagram[] copies, int t){
+		// copies[t] is brought up to date with diagToCopyFrom or, if it does not have the same ellipses and zones (e.g. the first time), diagToCopyFrom is cloned
+		if ((copies[t] == null) || !copies[t].copyStateFrom(diagToCopyFrom)){
+			copies[t] = diagToCopyFrom.clone();
+		}
+		return copies[t];
+	}
+	
+	private CandidateMoveTrial evaluateCandidateMoves (int eI, int moveType, ArrayList<double[]> candidateMoves, int fromIndex, int toIndex, int t, double fitnessBeforeChange){
+		// the moves fromIndex..toIndex-1 are tried out in turn on the scratch copy of the diagram of task t (rolled back after every move) 
+		// so that the diagram of the hill climber is not changed by any of the tasks running at the same time
+		// -> returns the move that improves the fitness most (null if none improve the fitness), with a copy of the diagram after the move in the best diagram of task t
+		
+		EllipseDiagram diagTry = copyOf(diagram, movesEvaluationScratchDiags, t);
+		Ellipse eTry = diagTry.getEllipses().get(eI);
+		
+		CandidateMoveTrial bestTrial = null;
+		int noOfImprovingTrials = 0;
+		double[] move;
+		ZoneVector zoneVarsTry;
+		double fitnessTry;
+		for (int c=fromIndex; c<toIndex; c++){
+			move = candidateMoves.get(c);
+			diagTry.beginTrial();
+			setEllipseProps(eTry, moveType, move, restrictToCircles);
+			diagTry.zoneAreasComputedSuccessfully = null;
+			
+			if (!diagTry.isValid()){
+				recordCandidateOutcome(moveType, false, false);
+				
+			} else {
+				zoneVarsTry = diagTry.computeFitnessOfAllRegions(requiredAreaSpecsVector, fitnessMeasure);
+				fitnessTry = diagTry.computeFitnessOfDiagram(requiredAreaSpecsVector, zoneVarsTry, fitnessMeasure).doubleValue();
+				if (!EllipseDiagram.improvedFitness(fitnessTry, fitnessBeforeChange, improveFitness_changeIfEqual, diagTry)){
+					recordCandidateOutcome(moveType, true, false);
+					
+				} else {
+					// ... whether it is accepted is recorded in evaluateCandidateMoves, once the best of the candidates of all the tasks is known
+					noOfImprovingTrials++;
+					if ((bestTrial == null) || (fitnessTry < bestTrial.fitness)){
+						if (bestTrial == null){
+							bestTrial = new CandidateMoveTrial();
+						}
+						bestTrial.index = c;
+						bestTrial.move = move;
+						bestTrial.diagram = copyOf(diagTry, movesEvaluationBestDiags, t);
+						bestTrial.zoneVars = zoneVarsTry;
+						bestTrial.fitness = fitnessTry;
+					}
+				}
+			}
+			diagTry.rollback();
+		}
+		
+		if (bestTrial != null){
+			bestTrial.noOfImprovingTrials = noOfImprovingTrials;
+		}
+		return bestTrial;
+	}
+	
+	private CandidateMoveTrial evaluateCandidateMoves (final int eI, final int moveType, final ArrayList<double[]> candidateMoves, final double fitnessBeforeChange){
+		// returns the move that improves the fitness most (null if none improve the fitness)
+		// -> the moves are split into as many consecutive parts as there are threads in the pool (one task each) 
+		//    and if more than one move have the same fitness, the first one in candidateMoves is returned so that the result does not depend on the order in which the tasks terminate 
+		
+		if ((candidateMoves == null) || (candidateMoves.size() == 0)){return null;}
+		
+		ForkJoinPool pool = (movesEvaluationPool != null) ? movesEvaluationPool : getSharedMovesEvaluationPool();
+		int noOfTasks = Math.min(pool.getParallelism(), candidateMoves.size());
+		if ((movesEvaluationScratchDiags == null) || (movesEvaluationScratchDiags.length < noOfTasks)){
+			movesEvaluationScratchDiags = (movesEvaluationScratchDiags == null) ? new EllipseDiagram[noOfTasks] : Arrays.copyOf(movesEvaluationScratchDiags, noOfTasks);
+			movesEvaluationBestDiags = (movesEvaluationBestDiags == null) ? new EllipseDiagram[noOfTasks] : Arrays.copyOf(movesEvaluationBestDiags, noOfTasks);
+		}
+		
+		CandidateMoveTrial bestTrial = null;
+		CandidateMoveTrial trial;
+		int noOfImprovingTrials = 0;
+		if (noOfTasks == 1){
+			// ... no need to hand the moves over to the pool
+			bestTrial = evaluateCandidateMoves(eI, moveType, candidateMoves, 0, candidateMoves.size(), 0, fitnessBeforeChange);
+			noOfImprovingTrials = (bestTrial == null) ? 0 : bestTrial.noOfImprovingTrials;
+			
+		} else {
+			ArrayList<Callable<CandidateMoveTrial>> tasks = new ArrayList<Callable<CandidateMoveTrial>>(noOfTasks);
+			for (int t=0; t<noOfTasks; t++){
+				final int task = t;
+				final int fromIndex = t*candidateMoves.size()/noOfTasks;
+				final int toIndex = (t+1)*candidateMoves.size()/noOfTasks;
+				tasks.add(new Callable<CandidateMoveTrial>() {
+					public CandidateMoveTrial call() {
+						return evaluateCandidateMoves(eI, moveType, candidateMoves, fromIndex, toIndex, task, fitnessBeforeChange);
+					}
+				});
+			}
+			
+			try {
+				List<Future<CandidateMoveTrial>> results = pool.invokeAll(tasks);
+				for (Future<CandidateMoveTrial> result : results){
+					trial = result.get();
+					if (trial != null){
+						noOfImprovingTrials += trial.noOfImprovingTrials;
+					}
+					if ((trial != null) && ((bestTrial == null) || (trial.fitness < bestTrial.fitness))){
+						bestTrial = trial;
+					}
+				}
+			} catch (InterruptedException e) {
+				System.out.println("HillClimber.evaluateCandidateMoves: interrupted while evaluating the potential solutions -> " + e);
+				Thread.currentThread().interrupt();
+				return null;
+			} catch (ExecutionException e) {
+				System.out.println("HillClimber.evaluateCandidateMoves: error while evaluating the potential solutions -> " + e.getCause());
+				return null;
+			}
+		}
+		
+		// the best trial is accepted and the other trials that improve the fitness are rejected
+		for (int t=0; t<noOfImprovingTrials; t++){
+			recordCandidateOutcome(moveType, true, (t == 0));
+		}
+		
+		return bestTrial;
+	}
+	
+	private static void recordCandidateOutcome (int moveType, boolean valid, boolean accepted){
+		int metricsMoveType = (moveType == MOVE_CENTRE) ? OptimiserMetrics.MOVE_CENTRE : ((moveType == MOVE_AXES) ? OptimiserMetrics.MOVE_AXES : OptimiserMetrics.MOVE_ROT);
+		OptimiserMetrics.recordCandidate(metricsMoveType, accepted ? OptimiserMetrics.CANDIDATE_ACCEPTED : (valid ? OptimiserMetrics.CANDIDATE_REJECTED : OptimiserMetrics.CANDIDATE_INVALID));
+	}
+	
+	private ZoneVector applyCandidateMove (Ellipse e, int moveType, CandidateMoveTrial trial){
+		// the move is applied to the diagram of the hill climber and the int pnts and zone areas computed for the copy of the diagram are reused
+		setEllipseProps(e, moveType, trial.move, restrictToCircles);
+		diagram.copyIntPntsFrom(trial.diagram);
+		diagram.copyZoneAreasFrom(trial.diagram);
+		return trial.zoneVars.clone();
+	}
+	
+	
+	
 	// ... run hill climber -> multiple changes per iteration 
 	public String run_multipleChangesPerIter(boolean lockHCparams, boolean animate, boolean updateStopWatchDisplay, 
 			File savingIntermediateDiagImgFile_absErr, File savingIntermediateDiagFile_absErr, File savingIntermediateDiagImgFile_relErr, File savingIntermediateDiagFile_relErr, 
@@ -387,48 +630,20 @@ public class HillClimber {
 		boolean foundMaxAreaDiffBetweenReqActualAreaProportionsThreshold = false;
 		boolean foundMaxAreaAbsErrorOverReqTotAreaBelowThreshold = false;
 		
-		double currAbsError;
-		Double maxAbsError;
-		String maxAbsErrorZoneLabel;
+		// ... the error measures of the diagram at every iteration (see ErrorReport) -> formatted only when logged
+		ErrorReport errorReport = new ErrorReport();
+		boolean scaleActualToReq = ErrorReport.isActualAreaScaledToReq(fitnessMeasure);
 		double fitnessAtMaxAbsError = 0;
-		
-		double currReqValue;
-		double currRelError;
-		Double maxRelError;
-		String maxRelErrorZoneLabel;
 		double fitnessAtMaxRelError = 0;
-		
-		double totCurrDiagArea = 0;
-		double totReqDiagArea = 0;
-		
-		double totAbsErrorForDiag = 0;
-		double totRelErrorForDiag=0;
-		double totAbsDiffBetweenReqActualAreaProportionsForDiag=0;
-		double totAbsErrorOverReqTotForDiag=0;
-		
-		double avgAbsErrorForDiag=0;
-		double avgRelErrorForDiag=0;
-		double avgAbsDiffBetweenReqActualAreaProportionsForDiag=0;
-		double avgAbsErrorOverReqTotForDiag=0;
-		
-		double currAbsDiffBetweenReqActualAreaProportions;
-		Double maxAbsDiffBetweenReqActualAreaProportions;
-	    String maxAbsDiffBetweenReqActualAreaProportionsZoneLabel;
-	    double fitnessAtMaxAbsDiffBetweenReqActualAreaProportions = 0;
-		
-		double currAbsErrorOverReqTot;
-		Double maxAbsErrorOverReqTot;
-		String maxAbsErrorOverReqTotZoneLabel;
+		double fitnessAtMaxAbsDiffBetweenReqActualAreaProportions = 0;
 		double fitnessAtMaxAbsErrorOverReqTot = 0;
 		
-		String errorsPerRegion="";
-		
 
 		ArrayList<Ellipse> diagEllipses = null;
 		
-		HashMap<String, Double> zoneVars = null;
-		zoneVars=diagram.computeFitnessOfAllRegions(requiredAreaSpecs, fitnessMeasure);
-		fitness = diagram.computeFitnessOfDiagram(requiredAreaSpecs, zoneVars, fitnessMeasure);
+		ZoneVector zoneVars = null;
+		zoneVars=diagram.computeFitnessOfAllRegions(requiredAreaSpecsVector, fitnessMeasure);
+		fitness = diagram.computeFitnessOfDiagram(requiredAreaSpecsVector, zoneVars, fitnessMeasure);
 
 		
 		boolean[][] specificPropChanged = new boolean[4][diagram.getEllipses().size()]; 
@@ -443,16 +658,9 @@ public class HillClimber {
 		
 		
 		// declare these vars here to avoid redeclaring them over and over again in the loop => reuse (to avoid memory issues)
-		HashMap<String,Double> zoneVarsBeforeChange = null;
+		// ... the ellipses, intersection points and zone areas before a change are kept in the undo journal of the diagram (see EllipseDiagram.beginTrial)
+		ZoneVector zoneVarsBeforeChange = null;
 		double fitnessBeforeChange;
-		HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>> intPntsOfEllipsesBeforeChange = null;
-		HashMap<String, Double> zoneAreasBeforeChange = null;
-		Boolean zoneAreasComputedSuccessfullyBeforeChange = null;
-		
-		Point2D.Double centreBeforeChange = new Point2D.Double();
-		double aBeforeChange;
-		double bBeforeChange;
-		double rotBeforeChange;
 
 		
 		ArrayList<Point2D.Double> potentialCentres;
@@ -467,7 +675,10 @@ public class HillClimber {
 		
 		boolean currDiagTryIsValid = false;
 		
-		HashMap<String, Double> zoneVarsCurrentDiag = null;
+		ArrayList<double[]> candidateMoves;
+		CandidateMoveTrial bestMoveTrial;
+		
+		ZoneVector zoneVarsCurrentDiag = null;
 		double fitnessCurrentDiag;
 		boolean keepChange = false;
 		
@@ -482,40 +693,6 @@ public class HillClimber {
 		// get pointer to ellipses
 		diagEllipses = diagram.getEllipses();
 		
-		// init hashmaps storing ips and zone areas before change
-		intPntsOfEllipsesBeforeChange = new HashMap<ArrayList<Ellipse>, ArrayList<Point2D.Double>>();
-		Ellipse temp_e1; Ellipse temp_e2;
-		int j; int k;
-		ArrayList<Point2D.Double> ipsEllPair;
-		ArrayList<Ellipse> ellPair;
-		for (j=0; j<diagEllipses.size(); j++){
-			for (k=j+1; k<diagEllipses.size(); k++){
-			
-				temp_e1 = diagEllipses.get(j);
-				temp_e2 = diagEllipses.get(k);
-				if (Utilities.convertCharToASCIIint(temp_e1.label.toLowerCase()) > Utilities.convertCharToASCIIint(temp_e2.label.toLowerCase())){
-					temp_e1 = diagEllipses.get(k);
-					temp_e2 = diagEllipses.get(j);
-				}
-				
-				ipsEllPair = new ArrayList<Point2D.Double>(4);
-				ipsEllPair.add(null);
-				ipsEllPair.add(null);
-				ipsEllPair.add(null);
-				ipsEllPair.add(null); 
-				
-				// sort the ellipses in ascending order based on their label
-				ellPair = new ArrayList<Ellipse>(2);
-				ellPair.add (temp_e1);
-				ellPair.add (temp_e2);
-				intPntsOfEllipsesBeforeChange.put(ellPair, ipsEllPair);
-			}
-		}
-		zoneAreasBeforeChange = new HashMap<String, Double>();
-		for (String zl : diagram.zoneLabels){
-			zoneAreasBeforeChange.put(zl, null);
-		}
-	
 		boolean stopHC = false;
 		int i = 0;	
 		
@@ -537,7 +714,7 @@ public class HillClimber {
 		}
 		
 		EllipseDiagram currBestRetryDiag_diagram = null;
-		HashMap<String,Double> currBestRetryDiag_zoneVars = null;
+		ZoneVector currBestRetryDiag_zoneVars = null;
 		String currBestRetryDiag_reasonForTerminating = null;
 		Double currBestRetryDiag_fitness = null;
 		double currBestRetryDiag_maxRelError = 0;
@@ -618,19 +795,25 @@ public class HillClimber {
 					}
 					
 					
-					if (foundSomePotentialCentres){
+					if (foundSomePotentialCentres && evaluateMovesInParallel){
+						candidateMoves = new ArrayList<double[]>(potentialCentres.size());
+						for (Point2D.Double pc : potentialCentres){
+							candidateMoves.add(new double[]{pc.x, pc.y});
+						}
+						bestMoveTrial = evaluateCandidateMoves(eI, MOVE_CENTRE, candidateMoves, fitness.doubleValue());
+						if (bestMoveTrial != null){
+							zoneVars = applyCandidateMove(e, MOVE_CENTRE, bestMoveTrial);
+							fitness = bestMoveTrial.fitness;
+							someChangeOccurred = true;
+							specificPropChanged[MOVE_CENTRE][eI] = true;
+						}
+						
+					} else if (foundSomePotentialCentres){
 						for (Point2D.Double pc : potentialCentres){
 
-							zoneVarsBeforeChange = Utilities.cloneHashMap(zoneVars);
+							zoneVarsBeforeChange = zoneVars; // zoneVars is replaced (rather than changed) when a change is kept => no need to clone it
 						    fitnessBeforeChange = fitness.doubleValue(); 
-
-						    centreBeforeChange.x = e.getXc();
-						    centreBeforeChange.y = e.getYc();
-							
-						    intPntsOfEllipsesBeforeChange = diagram.getIntPntsClone(intPntsOfEllipsesBeforeChange);
-							zoneAreasBeforeChange = diagram.getZoneAreasClone(zoneAreasBeforeChange);
-							zoneAreasComputedSuccessfullyBeforeChange = diagram.zoneAreasComputedSuccessfully;
-							
+							diagram.beginTrial();
 							
 							e.setXc(pc.x);
 							e.setYc(pc.y);
@@ -643,10 +826,10 @@ public class HillClimber {
 							currDiagTryIsValid = diagram.isValid();
 							if (currDiagTryIsValid){
 								
-								zoneVarsCurrentDiag = diagram.computeFitnessOfAllRegions(requiredAreaSpecs, fitnessMeasure);
-								fitnessCurrentDiag = diagram.computeFitnessOfDiagram(requiredAreaSpecs, zoneVarsCurrentDiag, fitnessMeasure).doubleValue();
+								zoneVarsCurrentDiag = diagram.computeFitnessOfAllRegions(requiredAreaSpecsVector, fitnessMeasure);
+								fitnessCurrentDiag = diagram.computeFitnessOfDiagram(requiredAreaSpecsVector, zoneVarsCurrentDiag, fitnessMeasure).doubleValue();
 								
-								if (EllipseDiagram.improvedFitness(fitnessCurrentDiag, fitnessBeforeChange, improveFitness_changeIfEqual, zoneVarsCurrentDiag, zoneAreasBeforeChange,diagram)){
+								if (EllipseDiagram.improvedFitness(fitnessCurrentDiag, fitnessBeforeChange, improveFitness_changeIfEqual, diagram)){
 									keepChange = true;
 								} else {
 									keepChange = false;
@@ -655,9 +838,11 @@ public class HillClimber {
 								keepChange = false;
 							}
 							
+							recordCandidateOutcome(MOVE_CENTRE, currDiagTryIsValid, keepChange);
 							if (keepChange){
 							
-								zoneVars =  Utilities.cloneHashMap(zoneVarsCurrentDiag);
+								diagram.commit();
+								zoneVars = zoneVarsCurrentDiag;
 								fitness = fitnessCurrentDiag;
 								diagPropChanged = true;
 								someChangeOccurred = true;
@@ -665,14 +850,9 @@ public class HillClimber {
 								
 
 							} else {
-								e.setXc(centreBeforeChange.x); 
-								e.setYc(centreBeforeChange.y);
+								diagram.rollback();
 								
-								diagram.intPntsOfEllipses = EllipseDiagram.cloneIntPntsFromTo(intPntsOfEllipsesBeforeChange, diagram.intPntsOfEllipses); //intPntsOfEllipsesBeforeChange;
-								diagram.zoneAreas = EllipseDiagram.cloneZoneAreasFromTo(zoneAreasBeforeChange, diagram.zoneAreas);
-								diagram.zoneAreasComputedSuccessfully = zoneAreasComputedSuccessfullyBeforeChange;
-								
-								zoneVars =  Utilities.cloneHashMap(zoneVarsBeforeChange);
+								zoneVars = zoneVarsBeforeChange;
 								fitness = fitnessBeforeChange;
 								diagPropChanged = false;
 								specificPropChanged[0][eI] |= false;
@@ -712,20 +892,32 @@ public class HillClimber {
 						
 						
 						
-						if (foundSomePotentialAs){
+						if (foundSomePotentialAs && evaluateMovesInParallel){
+							candidateMoves = new ArrayList<double[]>(potentialAs.size()*potentialBs.size());
+							for (double pa : potentialAs){
+								for (double pb : potentialBs){
+									if ((pa==e.getA()) && (pb==e.getB())){continue;} //if both are equal to current then no need to change it and check it out
+									candidateMoves.add(new double[]{pa, pb});
+								}
+							}
+							bestMoveTrial = evaluateCandidateMoves(eI, MOVE_AXES, candidateMoves, fitness.doubleValue());
+							if (bestMoveTrial != null){
+								zoneVars = applyCandidateMove(e, MOVE_AXES, bestMoveTrial);
+								fitness = bestMoveTrial.fitness;
+								someChangeOccurred = true;
+								specificPropChanged[MOVE_AXES][eI] = true;
+							}
+							
+						} else if (foundSomePotentialAs){
 							for (double pa : potentialAs){
 														
 								for (double pb : potentialBs){
 									
 									if ((pa==e.getA()) && (pb==e.getB())){continue;} //if both are equal to current then no need to change it and check it out
 									
-									zoneVarsBeforeChange = Utilities.cloneHashMap(zoneVars);
+									zoneVarsBeforeChange = zoneVars;
 								    fitnessBeforeChange = fitness.doubleValue();
-								    aBeforeChange = e.getA();
-								    bBeforeChange = e.getB();
-								    intPntsOfEllipsesBeforeChange = diagram.getIntPntsClone(intPntsOfEllipsesBeforeChange);
-									zoneAreasBeforeChange = diagram.getZoneAreasClone(zoneAreasBeforeChange);
-									zoneAreasComputedSuccessfullyBeforeChange = diagram.zoneAreasComputedSuccessfully;
+									diagram.beginTrial();
 								
 									
 									e.setA(pa); 
@@ -740,9 +932,9 @@ public class HillClimber {
 									fitnessCurrentDiag = 0;
 									currDiagTryIsValid = diagram.isValid();
 									if (currDiagTryIsValid){ 
-										zoneVarsCurrentDiag=diagram.computeFitnessOfAllRegions(requiredAreaSpecs, fitnessMeasure);
-										fitnessCurrentDiag = diagram.computeFitnessOfDiagram(requiredAreaSpecs, zoneVarsCurrentDiag,fitnessMeasure);
-										if (EllipseDiagram.improvedFitness(fitnessCurrentDiag, fitnessBeforeChange, improveFitness_changeIfEqual, zoneVarsCurrentDiag, zoneAreasBeforeChange,diagram)){
+										zoneVarsCurrentDiag=diagram.computeFitnessOfAllRegions(requiredAreaSpecsVector, fitnessMeasure);
+										fitnessCurrentDiag = diagram.computeFitnessOfDiagram(requiredAreaSpecsVector, zoneVarsCurrentDiag,fitnessMeasure);
+										if (EllipseDiagram.improvedFitness(fitnessCurrentDiag, fitnessBeforeChange, improveFitness_changeIfEqual, diagram)){
 											keepChange = true;
 										} else {
 											keepChange = false;
@@ -752,23 +944,20 @@ public class HillClimber {
 										keepChange = false;
 									}
 									
+									recordCandidateOutcome(MOVE_AXES, currDiagTryIsValid, keepChange);
 									if (keepChange){
-										zoneVars = Utilities.cloneHashMap(zoneVarsCurrentDiag);
+										diagram.commit();
+										zoneVars = zoneVarsCurrentDiag;
 										fitness = fitnessCurrentDiag;
 										diagPropChanged = true;
 										someChangeOccurred = true;
 										specificPropChanged[1][eI] = true;
 									} else {
-										e.setA(aBeforeChange);
-										e.setB(bBeforeChange);
-										if (restrictToCircles){e.setB(e.getA());} 
 									
-										diagram.intPntsOfEllipses = EllipseDiagram.cloneIntPntsFromTo(intPntsOfEllipsesBeforeChange, diagram.intPntsOfEllipses); //intPntsOfEllipsesBeforeChange;
-										diagram.zoneAreas = EllipseDiagram.cloneZoneAreasFromTo(zoneAreasBeforeChange, diagram.zoneAreas);
-										diagram.zoneAreasComputedSuccessfully = zoneAreasComputedSuccessfullyBeforeChange;
+										diagram.rollback();
 										
 										
-										zoneVars = Utilities.cloneHashMap(zoneVarsBeforeChange);
+										zoneVars = zoneVarsBeforeChange;
 										fitness = fitnessBeforeChange;
 										diagPropChanged = false;
 										specificPropChanged[1][eI] |= false;
@@ -781,17 +970,28 @@ public class HillClimber {
 						}	
 					} else { //restrictToCircles
 						
-						if (foundSomePotentialAs){
+						if (foundSomePotentialAs && evaluateMovesInParallel){
+							candidateMoves = new ArrayList<double[]>(potentialAs.size());
+							for (double pa : potentialAs){
+								if ((pa==e.getA())){continue;} //if equal to current then no need to change it and check it out
+								candidateMoves.add(new double[]{pa, pa});
+							}
+							bestMoveTrial = evaluateCandidateMoves(eI, MOVE_AXES, candidateMoves, fitness.doubleValue());
+							if (bestMoveTrial != null){
+								zoneVars = applyCandidateMove(e, MOVE_AXES, bestMoveTrial);
+								fitness = bestMoveTrial.fitness;
+								someChangeOccurred = true;
+								specificPropChanged[MOVE_AXES][eI] = true;
+							}
+							
+						} else if (foundSomePotentialAs){
 							for (double pa : potentialAs){
 								
 								if ((pa==e.getA())){continue;} //if equal to current then no need to change it and check it out
 								
-								zoneVarsBeforeChange = Utilities.cloneHashMap(zoneVars);
+								zoneVarsBeforeChange = zoneVars;
 								fitnessBeforeChange = fitness.doubleValue();
-							    aBeforeChange = e.getA();	
-								intPntsOfEllipsesBeforeChange = diagram.getIntPntsClone(intPntsOfEllipsesBeforeChange);
-								zoneAreasBeforeChange = diagram.getZoneAreasClone(zoneAreasBeforeChange);
-								zoneAreasComputedSuccessfullyBeforeChange = diagram.zoneAreasComputedSuccessfully;		
+								diagram.beginTrial();
 								
 								e.setA(pa); 
 								e.setB(pa);
@@ -802,9 +1002,9 @@ public class HillClimber {
 								fitnessCurrentDiag = 0;
 								currDiagTryIsValid = diagram.isValid();
 								if (currDiagTryIsValid){ 
-									zoneVarsCurrentDiag = diagram.computeFitnessOfAllRegions(requiredAreaSpecs, fitnessMeasure);
-									fitnessCurrentDiag = diagram.computeFitnessOfDiagram(requiredAreaSpecs, zoneVarsCurrentDiag, fitnessMeasure);
-									if (EllipseDiagram.improvedFitness(fitnessCurrentDiag, fitnessBeforeChange, improveFitness_changeIfEqual, zoneVarsCurrentDiag, zoneAreasBeforeChange, diagram)){
+									zoneVarsCurrentDiag = diagram.computeFitnessOfAllRegions(requiredAreaSpecsVector, fitnessMeasure);
+									fitnessCurrentDiag = diagram.computeFitnessOfDiagram(requiredAreaSpecsVector, zoneVarsCurrentDiag, fitnessMeasure);
+									if (EllipseDiagram.improvedFitness(fitnessCurrentDiag, fitnessBeforeChange, improveFitness_changeIfEqual, diagram)){
 										keepChange = true;
 									} else {
 										keepChange = false;
@@ -813,22 +1013,20 @@ public class HillClimber {
 									keepChange = false;
 								}
 
+								recordCandidateOutcome(MOVE_AXES, currDiagTryIsValid, keepChange);
 								if (keepChange){
-									zoneVars = Utilities.cloneHashMap(zoneVarsCurrentDiag);
+									diagram.commit();
+									zoneVars = zoneVarsCurrentDiag;
 									fitness = fitnessCurrentDiag;
 									diagPropChanged = true;
 									someChangeOccurred = true;
 									specificPropChanged[1][eI] = true;
 									
 								} else {
-									e.setA(aBeforeChange);
-									e.setB(aBeforeChange);
 									
-									diagram.intPntsOfEllipses = EllipseDiagram.cloneIntPntsFromTo(intPntsOfEllipsesBeforeChange, diagram.intPntsOfEllipses); //intPntsOfEllipsesBeforeChange;
-									diagram.zoneAreas = EllipseDiagram.cloneZoneAreasFromTo(zoneAreasBeforeChange, diagram.zoneAreas);
-									diagram.zoneAreasComputedSuccessfully = zoneAreasComputedSuccessfullyBeforeChange;
+									diagram.rollback();
 									
-									zoneVars = Utilities.cloneHashMap(zoneVarsBeforeChange);
+									zoneVars = zoneVarsBeforeChange;
 									fitness = fitnessBeforeChange;
 									diagPropChanged = false;
 									specificPropChanged[1][eI] |= false;
@@ -856,15 +1054,25 @@ public class HillClimber {
 							foundSomePotentialRots = true;
 						}
 						
-						if (foundSomePotentialRots){
+						if (foundSomePotentialRots && evaluateMovesInParallel){
+							candidateMoves = new ArrayList<double[]>(potentialRots.size());
+							for (double pr : potentialRots){
+								candidateMoves.add(new double[]{pr});
+							}
+							bestMoveTrial = evaluateCandidateMoves(eI, MOVE_ROT, candidateMoves, fitness.doubleValue());
+							if (bestMoveTrial != null){
+								zoneVars = applyCandidateMove(e, MOVE_ROT, bestMoveTrial);
+								fitness = bestMoveTrial.fitness;
+								someChangeOccurred = true;
+								specificPropChanged[MOVE_ROT][eI] = true;
+							}
+							
+						} else if (foundSomePotentialRots){
 							for (double pr : potentialRots){
 							
-								zoneVarsBeforeChange = Utilities.cloneHashMap(zoneVars);
+								zoneVarsBeforeChange = zoneVars;
 								fitnessBeforeChange = fitness.doubleValue(); //diagram.computeFitnessOfDiagram(requiredAreaSpecs);
-								rotBeforeChange = e.getRot(); 
-								intPntsOfEllipsesBeforeChange = diagram.getIntPntsClone(intPntsOfEllipsesBeforeChange);
-								zoneAreasBeforeChange = diagram.getZoneAreasClone(zoneAreasBeforeChange);
-								zoneAreasComputedSuccessfullyBeforeChange = diagram.zoneAreasComputedSuccessfully;
+								diagram.beginTrial();
 									
 								
 								e.setRot(pr); 
@@ -875,9 +1083,9 @@ public class HillClimber {
 								fitnessCurrentDiag = 0;
 								currDiagTryIsValid = diagram.isValid();
 								if (currDiagTryIsValid){ //if (diagram.isValid()){  //diagram.zoneAreasComputedSuccessfully is checked in diagram.isValid() and in this way 'cannot order ellipses' error would be trapped in isValid and in that case isValid=false
-									zoneVarsCurrentDiag=diagram.computeFitnessOfAllRegions(requiredAreaSpecs, fitnessMeasure);
-									fitnessCurrentDiag = diagram.computeFitnessOfDiagram(requiredAreaSpecs, zoneVarsCurrentDiag, fitnessMeasure);
-									if (EllipseDiagram.improvedFitness(fitnessCurrentDiag, fitnessBeforeChange, improveFitness_changeIfEqual, zoneVarsCurrentDiag, zoneAreasBeforeChange, diagram)){
+									zoneVarsCurrentDiag=diagram.computeFitnessOfAllRegions(requiredAreaSpecsVector, fitnessMeasure);
+									fitnessCurrentDiag = diagram.computeFitnessOfDiagram(requiredAreaSpecsVector, zoneVarsCurrentDiag, fitnessMeasure);
+									if (EllipseDiagram.improvedFitness(fitnessCurrentDiag, fitnessBeforeChange, improveFitness_changeIfEqual, diagram)){
 										keepChange = true;
 									} else {
 										keepChange = false;
@@ -886,22 +1094,21 @@ public class HillClimber {
 									keepChange = false;
 								}
 
+								recordCandidateOutcome(MOVE_ROT, currDiagTryIsValid, keepChange);
 								if (keepChange){
 				
-									zoneVars = Utilities.cloneHashMap(zoneVarsCurrentDiag);
+									diagram.commit();
+									zoneVars = zoneVarsCurrentDiag;
 									fitness = fitnessCurrentDiag;
 									diagPropChanged = true;
 									someChangeOccurred = true;
 									specificPropChanged[3][eI] = true;
 																	
 								} else {
-									e.setRot(rotBeforeChange);
 
-									diagram.intPntsOfEllipses = EllipseDiagram.cloneIntPntsFromTo(intPntsOfEllipsesBeforeChange, diagram.intPntsOfEllipses); //intPntsOfEllipsesBeforeChange;
-									diagram.zoneAreas = EllipseDiagram.cloneZoneAreasFromTo(zoneAreasBeforeChange, diagram.zoneAreas);
-									diagram.zoneAreasComputedSuccessfully = zoneAreasComputedSuccessfullyBeforeChange;
+									diagram.rollback();
 									
-									zoneVars = Utilities.cloneHashMap(zoneVarsBeforeChange);
+									zoneVars = zoneVarsBeforeChange;
 									fitness = fitnessBeforeChange;
 									diagPropChanged = false;
 									specificPropChanged[3][eI] |= false;
@@ -977,10 +1184,10 @@ public class HillClimber {
 					}				
 				}
 				
-				if (someChangeOccurred && animate){			
+				if (someChangeOccurred && animate && (switchBoardPanel != null)){			
 					stopWatch.pause();
 					stopWatch_forCurrRun.pause();
-					switchBoardPanel.updateEllipseDiagramPanel_updatedDiagram(zoneVars, fitness); //zoneVarsCurrentDiag, fitnessCurrentDiag);
+					switchBoardPanel.updateEllipseDiagramPanel_updatedDiagram((zoneVars == null) ? null : zoneVars.toHashMap(), fitness); //zoneVarsCurrentDiag, fitnessCurrentDiag);
 					stopWatch_forCurrRun.resume();
 					stopWatch.resume();	
 				}
@@ -992,112 +1199,13 @@ public class HillClimber {
 				elapsedTimeMilliSecs_forCurrRun = stopWatch_forCurrRun.getElapsedTimeMilliSecs();
 				elapsedTimeString_forCurrRun = stopWatch_forCurrRun.getElapsedTimeString();
 				//elapsedIterations = i+1; //+1 since start from 0
-				switchBoardPanel.updateHCStopWatch(updateStopWatchDisplay);
-				
-				
-				// compute current errors measures
-				
-				currReqValue = 0;
-				currAbsError = 0;
-				currRelError = 0; 
-				currAbsDiffBetweenReqActualAreaProportions = 0;
-				currAbsErrorOverReqTot = 0;
-				
-				maxAbsError = null;
-				maxRelError = null;
-				maxAbsDiffBetweenReqActualAreaProportions = null;
-				maxAbsErrorOverReqTot = null;
-				
-				maxAbsErrorZoneLabel="";
-				maxRelErrorZoneLabel=""; 
-				maxAbsDiffBetweenReqActualAreaProportionsZoneLabel = "";
-				maxAbsErrorOverReqTotZoneLabel = "";
-
-				totCurrDiagArea = 0;
-				totReqDiagArea = 0;
-				
-				totAbsErrorForDiag=0;
-				totRelErrorForDiag=0;
-				totAbsDiffBetweenReqActualAreaProportionsForDiag=0;
-				totAbsErrorOverReqTotForDiag=0;
-				
-				avgAbsErrorForDiag=0;
-				avgRelErrorForDiag=0;
-				avgAbsDiffBetweenReqActualAreaProportionsForDiag=0;
-				avgAbsErrorOverReqTotForDiag=0;
-				
-				errorsPerRegion="";
-				
-				
-				for (String zl : diagram.zoneLabels){
-					currReqValue = requiredAreaSpecs.get(zl);
-				
-					totCurrDiagArea += diagram.zoneAreas.get(zl);
-					totReqDiagArea += currReqValue;
-				}
-				for (String zl : diagram.zoneLabels){
-					currReqValue = requiredAreaSpecs.get(zl);
-					
-					// final error measures for the current region
-					currAbsError = Math.abs(currReqValue - diagram.zoneAreas.get(zl));
-					currRelError = currAbsError / currReqValue;
-					currAbsDiffBetweenReqActualAreaProportions = Math.abs((currReqValue/totReqDiagArea) - (diagram.zoneAreas.get(zl)/totCurrDiagArea));
-					currAbsErrorOverReqTot = currAbsError / totReqDiagArea;
-					
-					switch (fitnessMeasure){
-						case STRESS: 
-						case CHOWRODGERS_IDEAL_SUMREGFIT: case CHOWRODGERS_IDEAL_MAXREGFIT: case CHOWRODGERS_IDEAL_MEANREGFIT:
-						case RELATIVE_ERROR_SUMREGFIT_SCALEACTTOREQ: case RELATIVE_ERROR_MAXREGFIT_SCALEACTTOREQ: case RELATIVE_ERROR_MEANREGFIT_SCALEACTTOREQ:
-						case ABSERROR_OVER_REQTOTAREA_SUMREGFIT_SCALEACTTOREQ: case ABSERROR_OVER_REQTOTAREA_MAXREGFIT_SCALEACTTOREQ: case ABSERROR_OVER_REQTOTAREA_MEANREGFIT_SCALEACTTOREQ:{
-							
-							currAbsError = Math.abs(currReqValue - (diagram.zoneAreas.get(zl) * (totReqDiagArea/totCurrDiagArea)));
-							currRelError = currAbsError / currReqValue;
-							currAbsErrorOverReqTot = currAbsError / totReqDiagArea;
-							
-							break;
-						}
-					}
-					
-					
-					errorsPerRegion += currReqValue +" | "+ diagram.zoneAreas.get(zl) +" | "+ currAbsError +" | "+ currRelError+" | "+ currAbsDiffBetweenReqActualAreaProportions +" | " + currAbsErrorOverReqTot  +" | ";
-					
-					// computing total error
-					totAbsErrorForDiag+=currAbsError;
-					totRelErrorForDiag+=currRelError;
-					totAbsDiffBetweenReqActualAreaProportionsForDiag+=currAbsDiffBetweenReqActualAreaProportions;
-					totAbsErrorOverReqTotForDiag+=currAbsErrorOverReqTot;
-					
-					// finding max error
-					if ((maxAbsError==null)||(maxAbsError<currAbsError)){
-							maxAbsError = currAbsError;
-							maxAbsErrorZoneLabel = zl;
-					}
-					if ((maxRelError==null)||(maxRelError<currRelError)){
-							maxRelError = currRelError;
-							maxRelErrorZoneLabel = zl;
-					}
-					if ((maxAbsDiffBetweenReqActualAreaProportions==null)||(maxAbsDiffBetweenReqActualAreaProportions<currAbsDiffBetweenReqActualAreaProportions)){
-							maxAbsDiffBetweenReqActualAreaProportions = currAbsDiffBetweenReqActualAreaProportions;
-							maxAbsDiffBetweenReqActualAreaProportionsZoneLabel = zl;
-					}
-					if ((maxAbsErrorOverReqTot==null)||(maxAbsErrorOverReqTot<currAbsErrorOverReqTot)){
-							maxAbsErrorOverReqTot = currAbsErrorOverReqTot;
-							maxAbsErrorOverReqTotZoneLabel = zl;
-					}
+				if (switchBoardPanel != null){ // null when running headless (see HeadlessDiagramEngine)
+					switchBoardPanel.updateHCStopWatch(updateStopWatchDisplay);
 				}
-				// compute average error
-				avgAbsErrorForDiag = totAbsErrorForDiag / diagram.zoneLabels.length;
-				avgRelErrorForDiag = totRelErrorForDiag / diagram.zoneLabels.length;
-				avgAbsDiffBetweenReqActualAreaProportionsForDiag = totAbsDiffBetweenReqActualAreaProportionsForDiag / diagram.zoneLabels.length;
-				avgAbsErrorOverReqTotForDiag = totAbsErrorOverReqTotForDiag / diagram.zoneLabels.length;
-			
 				
 				
-				logAllErrorMeasuresStr = maxAbsError + " | " + maxAbsErrorZoneLabel + " | " + avgAbsErrorForDiag + " | " + totAbsErrorForDiag + " | " + 
-		                 maxRelError + " | " + maxRelErrorZoneLabel + " | " + avgRelErrorForDiag + " | " + totRelErrorForDiag + " | " + 
-		                 maxAbsDiffBetweenReqActualAreaProportions + " | " + maxAbsDiffBetweenReqActualAreaProportionsZoneLabel + " | " + avgAbsDiffBetweenReqActualAreaProportionsForDiag + " | " + totAbsDiffBetweenReqActualAreaProportionsForDiag + " | " + 
-		                 maxAbsErrorOverReqTot + " | " + maxAbsErrorOverReqTotZoneLabel + " | " + avgAbsErrorOverReqTotForDiag + " | " + totAbsErrorOverReqTotForDiag + " | " + 
-		                 totCurrDiagArea + " | " + totReqDiagArea;
+				// compute current errors measures
+				errorReport.compute(requiredAreaSpecsVector, diagram.getZoneAreasVector(), diagram.getZoneIds(), scaleActualToReq);
 				
 				
 				
@@ -1119,49 +1227,45 @@ public class HillClimber {
 					}
 				
 					// if the max area abs error is <= the abs error threshold for a diagram to be considered acceptable, save details 
-					if (!foundMaxAreaAbsErrorBelowThreshold && (maxAbsError <= maxRegionAreaAbsErrThreshold)){
+					if (!foundMaxAreaAbsErrorBelowThreshold && (errorReport.getMaxAbsError() <= maxRegionAreaAbsErrThreshold)){
 						
 						foundMaxAreaAbsErrorBelowThreshold = true;
 						
-						logAbsErrStr = maxRegionAreaAbsErrThreshold + " | " + maxAbsError + " | " + fitnessAtMaxAbsError + " | " + maxAbsErrorZoneLabel + " | before | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
+						logAbsErrStr = maxRegionAreaAbsErrThreshold + " | " + errorReport.getMaxAbsError() + " | " + fitnessAtMaxAbsError + " | " + errorReport.getMaxAbsErrorZoneLabel() + " | before | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
 						
 						// save diagram files as soon as the reach an exact diagram based on the max absolute error of the region areas of the diagram and the required exactness threshold
-						if (savingIntermediateDiagImgFile_absErr != null){
-							EllipseDiagramOps.saveDiagImgToFile(ellipseDiagramPanel, savingIntermediateDiagImgFile_absErr);
-						}
-						if (savingIntermediateDiagFile_absErr != null){
-							EllipseDiagramOps.saveDiagToFile(diagram, savingIntermediateDiagFile_absErr);
+						// -> only a snapshot is taken here, the files are written in the background (see DiagramExportQueue)
+						if ((savingIntermediateDiagFile_absErr != null) || ((savingIntermediateDiagImgFile_absErr != null) && (ellipseDiagramPanel != null))){
+							DiagramExportQueue.getDefault().submit(diagram, ellipseDiagramPanel, savingIntermediateDiagFile_absErr, savingIntermediateDiagImgFile_absErr, null);
 						}
 					}				
-					if (!foundMaxAreaRelErrorBelowThreshold && (maxRelError <= maxRegionAreaRelErrThreshold)){//if (maxAbsError <= maxRegionAreaDiffThreshold){
+					if (!foundMaxAreaRelErrorBelowThreshold && (errorReport.getMaxRelError() <= maxRegionAreaRelErrThreshold)){//if (maxAbsError <= maxRegionAreaDiffThreshold){
 						
 						foundMaxAreaRelErrorBelowThreshold = true; 
 						
-						logRelErrStr = maxRegionAreaRelErrThreshold + " | " + maxRelError + " | " + fitnessAtMaxRelError + " | " + maxRelErrorZoneLabel + " | before | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
+						logRelErrStr = maxRegionAreaRelErrThreshold + " | " + errorReport.getMaxRelError() + " | " + fitnessAtMaxRelError + " | " + errorReport.getMaxRelErrorZoneLabel() + " | before | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
 						
 						// save diagram files as soon as the reach an exact diagram based on the max absolute error of the region areas of the diagram and the required exactness threshold
-						if (savingIntermediateDiagImgFile_relErr != null){
-							EllipseDiagramOps.saveDiagImgToFile(ellipseDiagramPanel, savingIntermediateDiagImgFile_relErr);
-						}
-						if (savingIntermediateDiagFile_relErr != null){
-							EllipseDiagramOps.saveDiagToFile(diagram, savingIntermediateDiagFile_relErr);
+						// -> only a snapshot is taken here, the files are written in the background (see DiagramExportQueue)
+						if ((savingIntermediateDiagFile_relErr != null) || ((savingIntermediateDiagImgFile_relErr != null) && (ellipseDiagramPanel != null))){
+							DiagramExportQueue.getDefault().submit(diagram, ellipseDiagramPanel, savingIntermediateDiagFile_relErr, savingIntermediateDiagImgFile_relErr, null);
 						}
 					}	
-					if (!foundMaxAreaDiffBetweenReqActualAreaProportionsThreshold && (maxAbsDiffBetweenReqActualAreaProportions <= maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold)){
+					if (!foundMaxAreaDiffBetweenReqActualAreaProportionsThreshold && (errorReport.getMaxAbsDiffBetweenReqActualAreaProportions() <= maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold)){
 						
 						foundMaxAreaDiffBetweenReqActualAreaProportionsThreshold = true; 							
 						
-						logDiffBetweenReqActualAreaProportionsStr = maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold + " | " + maxAbsDiffBetweenReqActualAreaProportions + " | " + 
-																	fitnessAtMaxAbsDiffBetweenReqActualAreaProportions + " | " + maxAbsDiffBetweenReqActualAreaProportionsZoneLabel +
+						logDiffBetweenReqActualAreaProportionsStr = maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold + " | " + errorReport.getMaxAbsDiffBetweenReqActualAreaProportions() + " | " + 
+																	fitnessAtMaxAbsDiffBetweenReqActualAreaProportions + " | " + errorReport.getMaxAbsDiffBetweenReqActualAreaProportionsZoneLabel() +
 																	" | before | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
 						
 						//if foundMaxAreaDiffBetweenReqActualAreaProportions then HC terminates and thus we don't need to save intermediate diagram files as for the abs error and rel error
 					}
-					if (!foundMaxAreaAbsErrorOverReqTotAreaBelowThreshold && (maxAbsErrorOverReqTot <= maxRegionAreaAbsErrorOverReqTotThreshold)){
+					if (!foundMaxAreaAbsErrorOverReqTotAreaBelowThreshold && (errorReport.getMaxAbsErrorOverReqTot() <= maxRegionAreaAbsErrorOverReqTotThreshold)){
 						
 						foundMaxAreaAbsErrorOverReqTotAreaBelowThreshold = true;
 						
-						logAbsErrOverReqTotStr = maxRegionAreaAbsErrorOverReqTotThreshold + " | " + maxAbsErrorOverReqTot + " | " + fitnessAtMaxAbsErrorOverReqTot + " | " + maxAbsErrorOverReqTotZoneLabel + " | before | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
+						logAbsErrOverReqTotStr = maxRegionAreaAbsErrorOverReqTotThreshold + " | " + errorReport.getMaxAbsErrorOverReqTot() + " | " + fitnessAtMaxAbsErrorOverReqTot + " | " + errorReport.getMaxAbsErrorOverReqTotZoneLabel() + " | before | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
 						
 						// save diagram files as soon as the reach an exact diagram based on the max absolute error of the region areas of the diagram and the required exactness threshold
 					}	
@@ -1190,11 +1294,20 @@ public class HillClimber {
 				} else if (forceToTerm && ((i+1) >= maxNoOfIterations)){ 
 					stopHC = true;
 					reasonForTermination = "Forced to terminate: "+maxNoOfIterations+" iterations were performed";
+					
+				} else if (cancelled){
+					stopHC = true;
+					reasonForTermination = "Cancelled: "+(i+1)+" iterations were performed";
+					
+				} else if (isOutOfTime()){
+					stopHC = true;
+					reasonForTermination = "Out of time: "+maxMinsFor1Run+" minutes elapsed after "+(i+1)+" iterations";
 	            }	
 
 				
 				i++;
 				elapsedIterations_includingRetries++;
+				OptimiserMetrics.recordIteration();
 				elapsedIterations_forCurrRun = i;
 
 			} while (!stopHC);
@@ -1203,11 +1316,7 @@ public class HillClimber {
 		    stopWatch_forCurrRun.pause();
 			
 		    
-		    logAllErrorMeasuresStr = maxAbsError + " | " + maxAbsErrorZoneLabel + " | " + avgAbsErrorForDiag + " | " + totAbsErrorForDiag + " | " + 
-		    		                 maxRelError + " | " + maxRelErrorZoneLabel + " | " + avgRelErrorForDiag + " | " + totRelErrorForDiag + " | " + 
-		    		                 maxAbsDiffBetweenReqActualAreaProportions + " | " + maxAbsDiffBetweenReqActualAreaProportionsZoneLabel + " | " + avgAbsDiffBetweenReqActualAreaProportionsForDiag + " | " + totAbsDiffBetweenReqActualAreaProportionsForDiag + " | " + 
-		    		                 maxAbsErrorOverReqTot + " | " + maxAbsErrorOverReqTotZoneLabel + " | " + avgAbsErrorOverReqTotForDiag + " | " + totAbsErrorOverReqTotForDiag + " | " + 
-		    		                 totCurrDiagArea + " | " + totReqDiagArea;
+		    logAllErrorMeasuresStr = errorReport.toString();
 		    
 			
 			if (saveDetailsWhenReachMaxRegionAreaThreshold && (!foundMaxAreaAbsErrorBelowThreshold || !foundMaxAreaRelErrorBelowThreshold || !foundMaxAreaAbsErrorBelowThreshold || !foundMaxAreaAbsErrorOverReqTotAreaBelowThreshold)){		//if (saveDetailsWhenReachMaxRegionAreaThreshold && !foundMaxAreaAbsErrorBelowThreshold){
@@ -1228,17 +1337,17 @@ public class HillClimber {
 				// record details of max area abs error
 				// if the max area abs error is <= the abs error threshold for a diagram to be considered acceptable, save details 
 				if (!foundMaxAreaAbsErrorBelowThreshold){
-					logAbsErrStr = maxRegionAreaAbsErrThreshold + " | " + maxAbsError + " | " + fitnessAtMaxAbsError + " | " + maxAbsErrorZoneLabel + " | after | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
+					logAbsErrStr = maxRegionAreaAbsErrThreshold + " | " + errorReport.getMaxAbsError() + " | " + fitnessAtMaxAbsError + " | " + errorReport.getMaxAbsErrorZoneLabel() + " | after | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
 				}				
 				if (!foundMaxAreaRelErrorBelowThreshold){
-					logRelErrStr = maxRegionAreaRelErrThreshold + " | " + maxRelError + " | " + fitnessAtMaxRelError + " | " + maxRelErrorZoneLabel + " | after | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
+					logRelErrStr = maxRegionAreaRelErrThreshold + " | " + errorReport.getMaxRelError() + " | " + fitnessAtMaxRelError + " | " + errorReport.getMaxRelErrorZoneLabel() + " | after | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
 				}	
 				if (!foundMaxAreaDiffBetweenReqActualAreaProportionsThreshold){
-					logDiffBetweenReqActualAreaProportionsStr = maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold + " | " + maxAbsDiffBetweenReqActualAreaProportions + " | " + 
-															    fitnessAtMaxAbsDiffBetweenReqActualAreaProportions + " | " + maxAbsDiffBetweenReqActualAreaProportionsZoneLabel + " | after | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
+					logDiffBetweenReqActualAreaProportionsStr = maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold + " | " + errorReport.getMaxAbsDiffBetweenReqActualAreaProportions() + " | " + 
+															    fitnessAtMaxAbsDiffBetweenReqActualAreaProportions + " | " + errorReport.getMaxAbsDiffBetweenReqActualAreaProportionsZoneLabel() + " | after | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
 				}
 				if (!foundMaxAreaAbsErrorOverReqTotAreaBelowThreshold){
-					logAbsErrOverReqTotStr = maxRegionAreaAbsErrorOverReqTotThreshold + " | " + maxAbsErrorOverReqTot + " | " + fitnessAtMaxAbsErrorOverReqTot + " | " + maxAbsErrorOverReqTotZoneLabel + " | after | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
+					logAbsErrOverReqTotStr = maxRegionAreaAbsErrorOverReqTotThreshold + " | " + errorReport.getMaxAbsErrorOverReqTot() + " | " + fitnessAtMaxAbsErrorOverReqTot + " | " + errorReport.getMaxAbsErrorOverReqTotZoneLabel() + " | after | " + elapsedTimeString  + " | " + elapsedTimeMilliSecs;
 				}
 			}
 			
@@ -1254,30 +1363,16 @@ public class HillClimber {
 				case RunWithIncParamsOnly: 
 				case RunWithInitAndIncParams:
 				{	
-					totReqDiagArea = 0;
-					for (String zl : diagram.zoneLabels){
-						currReqValue = requiredAreaSpecs.get(zl);
-						totReqDiagArea += currReqValue;
-					}
-					maxAbsErrorOverReqTot=null;
-					for (String zl : diagram.zoneLabels){
-						currReqValue = requiredAreaSpecs.get(zl);
-						currAbsError = Math.abs(currReqValue - diagram.zoneAreas.get(zl));
-						currAbsErrorOverReqTot = currAbsError / totReqDiagArea; 
-						if ((maxAbsErrorOverReqTot==null)||(maxAbsErrorOverReqTot<currAbsErrorOverReqTot)){
-							maxAbsErrorOverReqTot = currAbsErrorOverReqTot;
-						}
-					}
 	
 					if ((currBestRetryDiag_fitness==null)||
-						(maxAbsDiffBetweenReqActualAreaProportions < currBestRetryDiag_maxDiffBetweenReqActualAreaProportions)){ 
+						(errorReport.getMaxAbsDiffBetweenReqActualAreaProportions() < currBestRetryDiag_maxDiffBetweenReqActualAreaProportions)){ 
 							
 						currBestRetryDiag_fitness = new Double(fitness.doubleValue());
 						currBestRetryDiag_diagram = diagram.clone();
-						currBestRetryDiag_zoneVars = Utilities.cloneHashMap(zoneVars);
+						currBestRetryDiag_zoneVars = zoneVars.clone();
 						currBestRetryDiag_reasonForTerminating = reasonForTermination;
 						currBestRetryDiag_elapsedIterations = elapsedIterations_forCurrRun;
-						currBestRetryDiag_maxDiffBetweenReqActualAreaProportions = new Double(maxAbsDiffBetweenReqActualAreaProportions.doubleValue());
+						currBestRetryDiag_maxDiffBetweenReqActualAreaProportions = new Double(errorReport.getMaxAbsDiffBetweenReqActualAreaProportions());
 						
 						elapsedTimeMilliSecs_forCurrRun = stopWatch_forCurrRun.getElapsedTimeMilliSecs();
 						elapsedTimeString_forCurrRun = stopWatch_forCurrRun.getElapsedTimeString();
@@ -1305,18 +1400,18 @@ public class HillClimber {
 						
 					} else {
 						
-						if (noOfTimesParamsAreInc >= maxTimesParamsAreInc){
+						if ((noOfTimesParamsAreInc >= maxTimesParamsAreInc) || cancelled || isOutOfTime()){
 					
 							tryOtherParams = false;		
 						
 							fitness = new Double (currBestRetryDiag_fitness.doubleValue());
 							diagram = currBestRetryDiag_diagram.clone();
-							zoneVars = Utilities.cloneHashMap(currBestRetryDiag_zoneVars);
+							zoneVars = currBestRetryDiag_zoneVars.clone();
 							reasonForTermination = currBestRetryDiag_reasonForTerminating;
 							elapsedIterations_forCurrRun = currBestRetryDiag_elapsedIterations;
 							
-							if (animate){			
-								switchBoardPanel.updateEllipseDiagramPanel_updatedDiagram(zoneVars, fitness); 	
+							if (animate && (switchBoardPanel != null)){			
+								switchBoardPanel.updateEllipseDiagramPanel_updatedDiagram((zoneVars == null) ? null : zoneVars.toHashMap(), fitness); 	
 							}
 						} else {
 							
@@ -1337,12 +1432,12 @@ public class HillClimber {
 							}
 							diagram.ellipses=diagEllipses;
 							diagram.zoneAreasComputedSuccessfully = null;
-							zoneVars=diagram.computeFitnessOfAllRegions(requiredAreaSpecs, fitnessMeasure);
-							fitness = diagram.computeFitnessOfDiagram(requiredAreaSpecs, zoneVars, fitnessMeasure);
+							zoneVars=diagram.computeFitnessOfAllRegions(requiredAreaSpecsVector, fitnessMeasure);
+							fitness = diagram.computeFitnessOfDiagram(requiredAreaSpecsVector, zoneVars, fitnessMeasure);
 							
 							
-							if (animate){			
-								switchBoardPanel.updateEllipseDiagramPanel_updatedDiagram(zoneVars, fitness); 
+							if (animate && (switchBoardPanel != null)){			
+								switchBoardPanel.updateEllipseDiagramPanel_updatedDiagram((zoneVars == null) ? null : zoneVars.toHashMap(), fitness); 
 							}
 						}	
 					}
@@ -0,0 +1,367 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import uk.ac.kent.elliptic.areaproptool.EllipseDiagram.FitnessMeasure;
+
+
+/**
+ * To run the hill climber with all the increased parameters (as in HillClimber.RunType.RunWithIncParamsOnly and RunWithInitAndIncParams)
+ * and with randomised starting diagrams at the same time, stopping all the runs as soon as one of them obtains the desired area specification
+ *
+ */
+
+
+public class HillClimberScheduler {
+
+	// Static class fields
+
+	public static final int DEFAULT_NO_OF_RANDOM_STARTS = 0;
+	public static final int MAX_ATTEMPTS_TO_GENERATE_RANDOM_START = 50;
+
+	public static final String EXACT_DIAG_REASON_FOR_TERMINATION = "Obtained desired area specification";
+
+
+
+	// Data fields
+
+	// ... hill climber settings
+	protected double d = HillClimber.DEFAULT_D;
+	protected double s = HillClimber.DEFAULT_S;
+	protected double r = HillClimber.DEFAULT_R;
+	protected boolean restrictToCircles = HillClimber.DEFAULT_RESTRICT_TO_CIRLCES;
+	protected HashMap<String, Double> requiredAreaSpecs;
+	protected FitnessMeasure fitnessMeasure = EllipseDiagram.DEFAULT_FITNESS_MEASURE;
+	protected boolean forceToTerm = true;
+	protected int maxNoOfIterations;
+	protected HillClimber.RunType runType = HillClimber.RunType.RunWithInitAndIncParams;
+	protected double incParamsBy = HillClimber.DEFAULT_INCPARAMSBY;
+	protected double maxTimesParamsAreInc = HillClimber.DEFAULT_MAX_TIMES_PARAMS_ARE_INC;
+	protected double maxMinsFor1Run = HillClimber.DEFAULT_MAXMINSFOR1RUN;
+	protected boolean evaluateMovesInParallel = HillClimber.DEFAULT_EVALUATE_MOVES_IN_PARALLEL;
+
+	// ... randomised starting diagrams -> the initial diagram with every ellipse moved by up to d, scaled by up to s% and rotated by up to r degrees
+	protected int noOfRandomStarts = DEFAULT_NO_OF_RANDOM_STARTS;
+	protected long randomSeed = 0;
+
+	// ... number of hill climbers running at the same time
+	protected int noOfThreads = Runtime.getRuntime().availableProcessors();
+
+	// ... details of the last run
+	protected ArrayList<HillClimber> hillClimbers;
+	protected ArrayList<String> runDescriptions;
+	protected String[] reasonsForTermination;
+	protected HillClimber bestHillClimber;
+	protected int bestRunIndex = -1;
+	protected String reasonForTermination = "";
+
+
+
+	// Constructor
+
+	// ... when have a diagram made of circles
+	public HillClimberScheduler (double d, double s, HashMap<String, Double> requiredAreaSpecs, FitnessMeasure fitnessMeasure, boolean forceToTerm, int maxNoOfIterations, HillClimber.RunType runType){
+		init (d, s, 0, true, requiredAreaSpecs, fitnessMeasure, forceToTerm, maxNoOfIterations, runType);
+	}
+
+	// ... when have a diagram made of ellipses
+	public HillClimberScheduler (double d, double s, double r, HashMap<String, Double> requiredAreaSpecs, FitnessMeasure fitnessMeasure, boolean forceToTerm, int maxNoOfIterations, HillClimber.RunType runType){
+		init (d, s, r, false, requiredAreaSpecs, fitnessMeasure, forceToTerm, maxNoOfIterations, runType);
+	}
+
+	private void init (double d, double s, double r, boolean restrictToCircles, HashMap<String, Double> requiredAreaSpecs, FitnessMeasure fitnessMeasure, boolean forceToTerm, int maxNoOfIterations, HillClimber.RunType runType){
+		this.d = d;
+		this.s = s;
+		this.r = r;
+		this.restrictToCircles = restrictToCircles;
+		this.requiredAreaSpecs = requiredAreaSpecs;
+		this.fitnessMeasure = fitnessMeasure;
+		this.forceToTerm = forceToTerm;
+		this.maxNoOfIterations = maxNoOfIterations;
+		this.runType = runType;
+	}
+
+
+
+	// Properties -> getters and setters
+
+	public void setIncParams(double incParamsBy, double maxTimesParamsAreInc) {
+		this.incParamsBy = incParamsBy;
+		this.maxTimesParamsAreInc = maxTimesParamsAreInc;
+	}
+	public void setRandomStarts(int noOfRandomStarts, long randomSeed) {
+		this.noOfRandomStarts = noOfRandomStarts;
+		this.randomSeed = randomSeed;
+	}
+	public void setMaxMinsFor1Run(double maxMinsFor1Run) {
+		this.maxMinsFor1Run = maxMinsFor1Run;
+	}
+	public void setEvaluateMovesInParallel(boolean evaluateMovesInParallel) {
+		this.evaluateMovesInParallel = evaluateMovesInParallel;
+	}
+	public void setNoOfThreads(int noOfThreads) {
+		this.noOfThreads = (noOfThreads > 0) ? noOfThreads : Runtime.getRuntime().availableProcessors();
+	}
+	public ArrayList<HillClimber> getHillClimbers() {
+		return hillClimbers;
+	}
+	public ArrayList<String> getRunDescriptions() {
+		return runDescriptions;
+	}
+	public HillClimber getBestHillClimber() {
+		return bestHillClimber;
+	}
+	public int getBestRunIndex() {
+		return bestRunIndex;
+	}
+	public String getReasonForTermination() {
+		return reasonForTermination;
+	}
+
+
+
+	// Methods
+
+	/* Run all the hill climbers and return the diagram of the best run
+	 *    - as soon as one run obtains the desired area specification, all the other runs are cancelled and its diagram is returned
+	 *    - otherwise, the diagram with the smallest maximum difference between the regions' required and actual area proportion is returned (as in the retries of HillClimber.run_multipleChangesPerIter)
+	 */
+	public EllipseDiagram run (EllipseDiagram initDiag, boolean lockHCparams,
+			double maxRegionAreaAbsErrThreshold, double maxRegionAreaRelErrThreshold, double maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold, double maxRegionAreaAbsErrorOverReqTotThreshold){
+
+		hillClimbers = new ArrayList<HillClimber>();
+		runDescriptions = new ArrayList<String>();
+		bestHillClimber = null;
+		bestRunIndex = -1;
+		reasonForTermination = "";
+
+		if ((initDiag == null) || (requiredAreaSpecs == null)){
+			System.out.println("HillClimberScheduler.run: the initial diagram and the required area specifications cannot be null");
+			return null;
+		}
+
+		// ... a run for every set of parameters -> the same parameters used in the retries of HillClimber.run_multipleChangesPerIter
+		int firstTimeParamsAreInc = (runType == HillClimber.RunType.RunWithIncParamsOnly) ? 1 : 0;
+		int lastTimeParamsAreInc = (runType == HillClimber.RunType.RunWithInitParamsOnly) ? 0 : (int)maxTimesParamsAreInc;
+		double incFactor;
+		for (int n = firstTimeParamsAreInc; n <= lastTimeParamsAreInc; n++){
+			incFactor = Math.pow((1 + incParamsBy), n);
+			hillClimbers.add(createHillClimber(initDiag.clone(), d*incFactor, s*incFactor, r*incFactor));
+			runDescriptions.add("parameters increased " + n + " times: d=" + (d*incFactor) + ", s=" + (s*incFactor) + ", r=" + (r*incFactor));
+		}
+
+		// ... a run for every randomised starting diagram
+		Random random = new Random(randomSeed);
+		EllipseDiagram randomStartDiag;
+		for (int k = 0; k < noOfRandomStarts; k++){
+			randomStartDiag = generateRandomStartDiag(initDiag, random);
+			if (randomStartDiag == null){
+				System.out.println("HillClimberScheduler.run: could not generate valid random start " + k);
+				continue;
+			}
+			hillClimbers.add(createHillClimber(randomStartDiag, d, s, r));
+			runDescriptions.add("random start " + k + ": d=" + d + ", s=" + s + ", r=" + r);
+		}
+
+
+		// run all at the same time
+		int noOfRuns = hillClimbers.size();
+		reasonsForTermination = new String[noOfRuns];
+		if (noOfRuns == 0){
+			// e.g. only the runs with increased parameters but maxTimesParamsAreInc = 0, and no random start could be generated
+			System.out.println("HillClimberScheduler.run: there is no hill climber to run");
+			reasonForTermination = "Error: there is no hill climber to run (no parameters to run with and no valid random start)";
+			return null;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(noOfThreads, noOfRuns));
+		CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(pool);
+		for (int i = 0; i < noOfRuns; i++){
+			completionService.submit(createRunTask(i, lockHCparams, maxRegionAreaAbsErrThreshold, maxRegionAreaRelErrThreshold, maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold, maxRegionAreaAbsErrorOverReqTotThreshold));
+		}
+		pool.shutdown();
+
+		Integer exactRunIndex = null;
+		int runIndex;
+		try {
+			for (int i = 0; i < noOfRuns; i++){
+				Future<Integer> completedRun = completionService.take();
+				try {
+					runIndex = completedRun.get();
+				} catch (ExecutionException e) {
+					System.out.println("HillClimberScheduler.run: error while running the hill climber -> " + e.getCause());
+					continue;
+				}
+
+				if ((exactRunIndex == null) && (reasonsForTermination[runIndex] != null) && reasonsForTermination[runIndex].startsWith(EXACT_DIAG_REASON_FOR_TERMINATION)){
+					exactRunIndex = runIndex;
+					// the other hill climbers stop at the end of their current iteration
+					for (HillClimber hc : hillClimbers){
+						if (hc != hillClimbers.get(runIndex)){
+							hc.cancel();
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			System.out.println("HillClimberScheduler.run: interrupted while waiting for the hill climbers -> " + e);
+			for (HillClimber hc : hillClimbers){
+				hc.cancel();
+			}
+			Thread.currentThread().interrupt();
+		}
+
+
+		// choose the best run
+		if (exactRunIndex != null){
+			bestRunIndex = exactRunIndex;
+		} else {
+			double currMaxAbsDiff;
+			double bestMaxAbsDiff = 0;
+			for (int i = 0; i < noOfRuns; i++){
+				if (reasonsForTermination[i] == null){continue;}
+				currMaxAbsDiff = computeMaxAbsDiffBetweenReqActualAreaProportions(hillClimbers.get(i).getDiagram());
+				if (Double.isNaN(currMaxAbsDiff)){continue;}
+				if ((bestRunIndex < 0) || (currMaxAbsDiff < bestMaxAbsDiff)){
+					bestRunIndex = i;
+					bestMaxAbsDiff = currMaxAbsDiff;
+				}
+			}
+		}
+
+		if (bestRunIndex < 0){
+			reasonForTermination = "Error: none of the hill climbers terminated successfully";
+			return null;
+		}
+
+		bestHillClimber = hillClimbers.get(bestRunIndex);
+		reasonForTermination = reasonsForTermination[bestRunIndex];
+		return bestHillClimber.getDiagram();
+	}
+
+
+	protected HillClimber createHillClimber (EllipseDiagram diag, double d, double s, double r){
+		// every run is a single run with its own parameters -> the retries are the other runs
+		HillClimber hc;
+		if (restrictToCircles){
+			hc = new HillClimber(d, s, diag, requiredAreaSpecs, null, null, null, fitnessMeasure, forceToTerm, maxNoOfIterations, HillClimber.RunType.RunWithInitParamsOnly);
+		} else {
+			hc = new HillClimber(d, s, r, diag, requiredAreaSpecs, null, null, null, fitnessMeasure, forceToTerm, maxNoOfIterations, HillClimber.RunType.RunWithInitParamsOnly);
+		}
+		hc.setMaxMinsFor1Run(maxMinsFor1Run);
+		hc.setEvaluateMovesInParallel(evaluateMovesInParallel);
+		return hc;
+	}
+
+
+	private Callable<Integer> createRunTask (final int runIndex, final boolean lockHCparams,
+			final double maxRegionAreaAbsErrThreshold, final double maxRegionAreaRelErrThreshold, final double maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold, final double maxRegionAreaAbsErrorOverReqTotThreshold){
+
+		return new Callable<Integer>() {
+			public Integer call() {
+				reasonsForTermination[runIndex] = hillClimbers.get(runIndex).run_multipleChangesPerIter(lockHCparams, false, false, null, null, null, null,
+						maxRegionAreaAbsErrThreshold, maxRegionAreaRelErrThreshold, maxRegionAreaAbsDiffBetweenReqActualProportionsThreshold, maxRegionAreaAbsErrorOverReqTotThreshold);
+				return runIndex;
+			}
+		};
+	}
+
+
+	protected EllipseDiagram generateRandomStartDiag (EllipseDiagram initDiag, Random random){
+
+		EllipseDiagram randomStartDiag;
+		double scaleA;
+		double scaleB;
+
+		for (int attempt = 0; attempt < MAX_ATTEMPTS_TO_GENERATE_RANDOM_START; attempt++){
+			randomStartDiag = initDiag.clone();
+			for (Ellipse e : randomStartDiag.getEllipses()){
+				scaleA = 1 + (Utilities.randomNumberInRange(-s, s, random)/100);
+				scaleB = restrictToCircles ? scaleA : (1 + (Utilities.randomNumberInRange(-s, s, random)/100));
+
+				e.setXc(e.getXc() + Utilities.randomNumberInRange(-d, d, random));
+				e.setYc(e.getYc() + Utilities.randomNumberInRange(-d, d, random));
+				e.setA(e.getA() * scaleA);
+				e.setB(e.getB() * scaleB);
+				if (!restrictToCircles){
+					e.setRot(((e.getRot() + Utilities.randomNumberInRange(-r, r, random)) % 360 + 360) % 360);
+				}
+			}
+			randomStartDiag.zoneAreasComputedSuccessfully = null;
+			if (randomStartDiag.isValid()){
+				return randomStartDiag;
+			}
+		}
+		return null;
+	}
+
+
+	protected double computeMaxAbsDiffBetweenReqActualAreaProportions (EllipseDiagram diag){
+		// same measure as that used to choose the best retry in HillClimber.run_multipleChangesPerIter
+
+		if ((diag == null) || !diag.isValid()){return Double.NaN;}
+
+		HashMap<String, Double> zoneAreas = diag.getZoneAreas();
+		double totReqDiagArea = 0;
+		double totCurrDiagArea = 0;
+		for (String zl : diag.getZoneLabels()){
+			totReqDiagArea += requiredAreaSpecs.get(zl);
+			totCurrDiagArea += zoneAreas.get(zl);
+		}
+
+		double maxAbsDiff = 0;
+		double currAbsDiff;
+		for (String zl : diag.getZoneLabels()){
+			currAbsDiff = Math.abs((requiredAreaSpecs.get(zl)/totReqDiagArea) - (zoneAreas.get(zl)/totCurrDiagArea));
+			if (currAbsDiff > maxAbsDiff){
+				maxAbsDiff = currAbsDiff;
+			}
+		}
+		return maxAbsDiff;
+	}
+
+}
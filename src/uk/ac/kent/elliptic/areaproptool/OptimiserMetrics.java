@@ -0,0 +1,331 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/**
+ * To count what the hill climbers do (iterations, fitness evaluations, the candidate moves that are accepted, rejected or invalid) and the time spent
+ * computing intersection points, zone areas and fitness, for all the hill climbers running in this JVM (e.g. the workers of BatchDiagramRunner or DiagramService)
+ * -> exposed over JMX (see OptimiserMetricsMBean) and, if startReporting is invoked (e.g. with --metrics-interval), printed as a line of JSON on stderr at regular intervals
+ *    whereby the rates in every line are those since the previous line
+ *
+ * The counters are atomic and updated by the threads that evaluate the moves => there is only one instance (see getInstance)
+ *
+ */
+
+
+public class OptimiserMetrics implements OptimiserMetricsMBean {
+
+	// Static class fields
+
+	public static final String OBJECT_NAME = "uk.ac.kent.elliptic.areaproptool:type=OptimiserMetrics";
+
+	// ... the types of moves of the hill climber
+	public static final int MOVE_CENTRE = 0;
+	public static final int MOVE_AXES = 1;
+	public static final int MOVE_ROT = 2;
+	public static final String[] MOVE_TYPE_NAMES = {"centre", "axes", "rotation"};
+
+	// ... what happened to a candidate move
+	public static final int CANDIDATE_ACCEPTED = 0;
+	public static final int CANDIDATE_REJECTED = 1; // valid but the fitness did not improve (or another candidate improved it more)
+	public static final int CANDIDATE_INVALID = 2;
+
+	// ... the computations that are timed (the time of a computation excludes that of any other timed computation that it invokes, see EllipseDiagram.recordMetricsTime)
+	public static final int TIME_INTPNTS = 0;
+	public static final int TIME_ZONE_AREAS = 1;
+	public static final int TIME_FITNESS = 2;
+	public static final String[] TIME_NAMES = {"intersection", "area", "fitness"};
+
+	private static final OptimiserMetrics instance = new OptimiserMetrics();
+
+	// ... registered with JMX as soon as the class is loaded (e.g. when a hill climber records its first iteration),
+	//     whether or not the metrics are also printed on stderr (see startReporting)
+	static {
+		instance.registerMBean();
+	}
+
+
+
+	// Data fields
+
+	protected volatile long resetTimeNanos;
+	protected AtomicLong noOfIterations = new AtomicLong();
+	protected AtomicLong noOfFitnessEvaluations = new AtomicLong();
+	protected AtomicLongArray noOfCandidates = new AtomicLongArray(3*MOVE_TYPE_NAMES.length); // [3*moveType + outcome]
+	protected AtomicLongArray nanos = new AtomicLongArray(TIME_NAMES.length);
+
+	// ... reporting on stderr
+	protected Thread reportingThread = null;
+	protected long lastReportTimeNanos;
+	protected long lastReportNoOfIterations;
+	protected long lastReportNoOfFitnessEvaluations;
+
+
+
+	// Constructor
+
+	protected OptimiserMetrics (){
+		resetTimeNanos = System.nanoTime();
+	}
+
+	public static OptimiserMetrics getInstance(){
+		return instance;
+	}
+
+	private void registerMBean(){
+		try {
+			MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(OBJECT_NAME);
+			if (!mBeanServer.isRegistered(objectName)){
+				mBeanServer.registerMBean(this, objectName);
+			}
+		} catch (Exception e){
+			// e.g. not permitted when running as an applet -> the metrics are still counted
+			System.out.println("OptimiserMetrics.registerMBean: the metrics could not be registered with JMX -> " + e);
+		}
+	}
+
+
+
+	// Methods
+
+	// ... counting (invoked by the hill climber and the diagrams)
+
+	public static void recordIteration(){
+		instance.noOfIterations.incrementAndGet();
+	}
+	public static void recordFitnessEvaluation(){
+		instance.noOfFitnessEvaluations.incrementAndGet();
+	}
+	public static void recordCandidate(int moveType, int outcome){
+		instance.noOfCandidates.incrementAndGet(3*moveType + outcome);
+	}
+	public static void recordTime(int computation, long nanos){
+		instance.nanos.addAndGet(computation, nanos);
+	}
+
+
+	// ... MBean attributes
+
+	public double getSecondsSinceReset(){
+		return ((System.nanoTime() - resetTimeNanos) / 1e9);
+	}
+
+	public long getNoOfIterations(){
+		return noOfIterations.get();
+	}
+	public long getNoOfFitnessEvaluations(){
+		return noOfFitnessEvaluations.get();
+	}
+	public double getIterationsPerSec(){
+		return perSec(getNoOfIterations(), getSecondsSinceReset());
+	}
+	public double getFitnessEvaluationsPerSec(){
+		return perSec(getNoOfFitnessEvaluations(), getSecondsSinceReset());
+	}
+
+	public String[] getMoveTypeNames(){
+		return MOVE_TYPE_NAMES.clone();
+	}
+	public long[] getNoOfAcceptedCandidates(){
+		return getNoOfCandidates(CANDIDATE_ACCEPTED);
+	}
+	public long[] getNoOfRejectedCandidates(){
+		return getNoOfCandidates(CANDIDATE_REJECTED);
+	}
+	public long[] getNoOfInvalidCandidates(){
+		return getNoOfCandidates(CANDIDATE_INVALID);
+	}
+	private long[] getNoOfCandidates(int outcome){
+		long[] noOfCandidatesPerMoveType = new long[MOVE_TYPE_NAMES.length];
+		for (int m=0; m<MOVE_TYPE_NAMES.length; m++){
+			noOfCandidatesPerMoveType[m] = noOfCandidates.get(3*m + outcome);
+		}
+		return noOfCandidatesPerMoveType;
+	}
+	public double[] getCandidateRejectionRatios(){
+		// the candidates that are rejected or invalid over all the candidates of every move type (0 if there are no candidates)
+		double[] ratios = new double[MOVE_TYPE_NAMES.length];
+		long accepted;
+		long notAccepted;
+		for (int m=0; m<MOVE_TYPE_NAMES.length; m++){
+			accepted = noOfCandidates.get(3*m + CANDIDATE_ACCEPTED);
+			notAccepted = noOfCandidates.get(3*m + CANDIDATE_REJECTED) + noOfCandidates.get(3*m + CANDIDATE_INVALID);
+			ratios[m] = ((accepted + notAccepted) > 0) ? ((double)notAccepted / (accepted + notAccepted)) : 0;
+		}
+		return ratios;
+	}
+
+	public double getIntPntsMillisecs(){
+		return (nanos.get(TIME_INTPNTS) / 1e6);
+	}
+	public double getZoneAreasMillisecs(){
+		return (nanos.get(TIME_ZONE_AREAS) / 1e6);
+	}
+	public double getFitnessMillisecs(){
+		return (nanos.get(TIME_FITNESS) / 1e6);
+	}
+
+	public synchronized void reset(){
+		noOfIterations.set(0);
+		noOfFitnessEvaluations.set(0);
+		for (int i=0; i<noOfCandidates.length(); i++){
+			noOfCandidates.set(i, 0);
+		}
+		for (int i=0; i<nanos.length(); i++){
+			nanos.set(i, 0);
+		}
+		resetTimeNanos = System.nanoTime();
+		lastReportTimeNanos = resetTimeNanos;
+		lastReportNoOfIterations = 0;
+		lastReportNoOfFitnessEvaluations = 0;
+	}
+
+	private static double perSec(long count, double secs){
+		return ((secs > 0) ? (count / secs) : 0);
+	}
+
+
+	// ... as JSON
+
+	public String toJson(){
+		return toJson(getIterationsPerSec(), getFitnessEvaluationsPerSec());
+	}
+
+	protected String toJson(double iterationsPerSec, double fitnessEvaluationsPerSec){
+		StringBuffer json = new StringBuffer();
+		json.append("{\"metrics\": \"optimiser\", \"time\": " + System.currentTimeMillis() + ", \"secondsSinceReset\": " + formatDouble(getSecondsSinceReset()));
+		json.append(", \"iterations\": " + getNoOfIterations() + ", \"iterationsPerSec\": " + formatDouble(iterationsPerSec));
+		json.append(", \"fitnessEvaluations\": " + getNoOfFitnessEvaluations() + ", \"fitnessEvaluationsPerSec\": " + formatDouble(fitnessEvaluationsPerSec));
+
+		double[] rejectionRatios = getCandidateRejectionRatios();
+		json.append(", \"candidates\": {");
+		for (int m=0; m<MOVE_TYPE_NAMES.length; m++){
+			json.append(((m > 0) ? ", " : "") + "\"" + MOVE_TYPE_NAMES[m] + "\": {" +
+					    "\"accepted\": " + noOfCandidates.get(3*m + CANDIDATE_ACCEPTED) +
+					    ", \"rejected\": " + noOfCandidates.get(3*m + CANDIDATE_REJECTED) +
+					    ", \"invalid\": " + noOfCandidates.get(3*m + CANDIDATE_INVALID) +
+					    ", \"rejectionRatio\": " + formatDouble(rejectionRatios[m]) + "}");
+		}
+		json.append("}");
+
+		long totNanos = 0;
+		for (int t=0; t<TIME_NAMES.length; t++){
+			totNanos += nanos.get(t);
+		}
+		json.append(", \"timeMillisecs\": {");
+		for (int t=0; t<TIME_NAMES.length; t++){
+			json.append(((t > 0) ? ", " : "") + "\"" + TIME_NAMES[t] + "\": " + formatDouble(nanos.get(t) / 1e6));
+		}
+		json.append("}, \"timeSplit\": {");
+		for (int t=0; t<TIME_NAMES.length; t++){
+			json.append(((t > 0) ? ", " : "") + "\"" + TIME_NAMES[t] + "\": " + formatDouble((totNanos > 0) ? ((double)nanos.get(t) / totNanos) : 0));
+		}
+		json.append("}}");
+		return json.toString();
+	}
+
+	private static String formatDouble(double d){
+		// JSON has no NaN or infinity
+		if (Double.isNaN(d) || Double.isInfinite(d)){
+			return "0";
+		}
+		return String.format(java.util.Locale.ROOT, "%.3f", d);
+	}
+
+
+	// ... reporting on stderr
+
+	public synchronized void startReporting(final long intervalMillisecs){
+		// a daemon thread prints a line of JSON on stderr every intervalMillisecs (until stopReporting is invoked or the JVM exits)
+		if (reportingThread != null){
+			System.out.println("OptimiserMetrics.startReporting: the metrics are already reported");
+			return;
+		}
+		if (intervalMillisecs <= 0){
+			System.out.println("OptimiserMetrics.startReporting: the interval must be > 0 -> " + intervalMillisecs);
+			return;
+		}
+
+		lastReportTimeNanos = System.nanoTime();
+		lastReportNoOfIterations = getNoOfIterations();
+		lastReportNoOfFitnessEvaluations = getNoOfFitnessEvaluations();
+
+		reportingThread = new Thread("eulerAPE-metrics"){
+			public void run(){
+				while (!isInterrupted()){
+					try {
+						Thread.sleep(intervalMillisecs);
+					} catch (InterruptedException e) {
+						return;
+					}
+					report();
+				}
+			}
+		};
+		reportingThread.setDaemon(true);
+		reportingThread.start();
+	}
+
+	public synchronized void stopReporting(){
+		if (reportingThread == null){return;}
+		reportingThread.interrupt();
+		reportingThread = null;
+	}
+
+	public synchronized void report(){
+		// the rates since the previous line
+		long timeNanos = System.nanoTime();
+		long currNoOfIterations = getNoOfIterations();
+		long currNoOfFitnessEvaluations = getNoOfFitnessEvaluations();
+		double secs = (timeNanos - lastReportTimeNanos) / 1e9;
+
+		System.err.println(toJson(perSec(currNoOfIterations - lastReportNoOfIterations, secs), perSec(currNoOfFitnessEvaluations - lastReportNoOfFitnessEvaluations, secs)));
+
+		lastReportTimeNanos = timeNanos;
+		lastReportNoOfIterations = currNoOfIterations;
+		lastReportNoOfFitnessEvaluations = currNoOfFitnessEvaluations;
+	}
+
+}
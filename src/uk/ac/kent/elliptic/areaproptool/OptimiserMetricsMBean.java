@@ -0,0 +1,68 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+
+/**
+ * The attributes and operations of OptimiserMetrics that are exposed over JMX (e.g. in jconsole, under uk.ac.kent.elliptic.areaproptool:type=OptimiserMetrics)
+ * -> the rates are averages since the metrics were last reset and the candidates are indexed by move type (see getMoveTypeNames)
+ *
+ */
+
+
+public interface OptimiserMetricsMBean {
+
+	public double getSecondsSinceReset();
+
+	public long getNoOfIterations();
+	public long getNoOfFitnessEvaluations();
+	public double getIterationsPerSec();
+	public double getFitnessEvaluationsPerSec();
+
+	public String[] getMoveTypeNames();
+	public long[] getNoOfAcceptedCandidates();
+	public long[] getNoOfRejectedCandidates();
+	public long[] getNoOfInvalidCandidates();
+	public double[] getCandidateRejectionRatios();
+
+	public double getIntPntsMillisecs();
+	public double getZoneAreasMillisecs();
+	public double getFitnessMillisecs();
+
+	public String toJson();
+	public void reset();
+
+}
@@ -0,0 +1,477 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import jargs.gnu.CmdLineParser;  // this command-line parser by Steve Purcell (2005) is available at http://jargs.sourceforge.net
+
+import java.awt.geom.Point2D;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * To generate a library of valid random diagrams (an .eld, and for 3 ellipses a .png and an .svg, for every diagram) on all the cores, e.g.
+ *
+ * 		java uk.ac.kent.elliptic.areaproptool.RandomDiagramLibGenerator {-o,--output} a_dir_path {-n,--count} no_of_diags [{-e,--ellipses} no_of_ellipses] [{-t,--threads} no_of_threads] ...
+ *
+ * The random diagrams are sampled by a pool of workers (see EllipseDiagramOps.generateAValidRandomDiagram), every worker with its own Random stream split from the seed
+ * => worker w generates the diagrams w, w+n, w+2n, ... (n workers), so that the same seed and no of workers always generate the same library
+ * and are streamed through a bounded queue to a separate pool of writers that save (and draw) them, every writer with its own EllipseDiagramPanel
+ * (saving a diagram, in particular its .png and .svg, takes much longer than sampling it)
+ * -> the acceptance rate (the valid diagrams over all the diagrams sampled) and the diagrams per second are printed as the library is generated and at the end
+ *
+ */
+
+
+public class RandomDiagramLibGenerator {
+
+	// Static class fields
+
+	public static final String ELD_DIR_NAME = "eld";
+	public static final String PNG_DIR_NAME = "png";
+	public static final String SVG_DIR_NAME = "svg";
+
+	// ... no of diagrams waiting for the writer for every worker -> a worker waits when the queue is full, so the diagrams in memory are bounded
+	public static final int QUEUED_DIAGS_PER_WORKER = 16;
+
+	public static final long PROGRESS_INTERVAL_MILLISECS = 5000;
+
+	public static final String cmdlineOptions = "{-o,--output} a_dir_path {-n,--count} no_of_diags [{-e,--ellipses} no_of_ellipses] [{-t,--threads} no_of_threads] [{-w,--writers} no_of_writers] [{--seed} a_long] [{--circles}] [{--min-zone-area} an_area] [{--no-images}] [{-s,--silent}]";
+
+
+
+	// Data fields
+
+	// ... settings
+	protected File libDir;
+	protected int noOfElls;
+	protected double a_b_min;
+	protected double a_b_max;
+	protected Point2D.Double axisRange_min;
+	protected Point2D.Double axisRange_max;
+	protected boolean restrictToCircles = false;
+	protected boolean checkValidity = true;
+	protected boolean disallowDiagsWithCloseToEmptyZones = false;
+	protected boolean disallowDiagsWithCloseToDisconnectedZones = false;
+	protected Double minPolyAreaInZone = null;
+	protected boolean considerLessPrecisePossibleIntPnts = false;
+	protected int noOfWorkers = Runtime.getRuntime().availableProcessors();
+	protected int noOfWriters = Runtime.getRuntime().availableProcessors();
+	protected long seed = new Random().nextLong();
+	protected boolean saveImages = true;
+	protected EllipseDiagramPanel diagPanel = null; // the panel to draw the diagrams with (e.g. that of the eulerAPE window) -> if not null, there is only one writer, otherwise every writer creates its own panel
+	protected String fileNamePrefix = null; // if null, the date and time of the run
+	protected boolean silent = false;
+
+	// ... details of the last run
+	protected AtomicLong noOfSampledDiags = new AtomicLong();
+	protected AtomicLong noOfGeneratedDiags = new AtomicLong();
+	protected AtomicLong noOfWrittenDiags = new AtomicLong();
+	protected ArrayList<String> failures = new ArrayList<String>();
+	protected long wallTimeMillisecs = 0;
+
+
+
+	// Constructor
+
+	public RandomDiagramLibGenerator (File libDir, int noOfElls, double a_b_min, double a_b_max, Point2D.Double axisRange_min, Point2D.Double axisRange_max){
+		this.libDir = libDir;
+		this.noOfElls = noOfElls;
+		this.a_b_min = a_b_min;
+		this.a_b_max = a_b_max;
+		this.axisRange_min = axisRange_min;
+		this.axisRange_max = axisRange_max;
+	}
+
+
+
+	// Properties -> getters and setters
+
+	public int getNoOfWorkers() {
+		return noOfWorkers;
+	}
+	public void setNoOfWorkers(int noOfWorkers) {
+		this.noOfWorkers = Math.max(1, noOfWorkers);
+	}
+	public int getNoOfWriters() {
+		return noOfWriters;
+	}
+	public void setNoOfWriters(int noOfWriters) {
+		this.noOfWriters = Math.max(1, noOfWriters);
+	}
+	public long getSeed() {
+		return seed;
+	}
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	public void setRestrictToCircles(boolean restrictToCircles) {
+		this.restrictToCircles = restrictToCircles;
+	}
+	public void setCheckValidity(boolean checkValidity) {
+		this.checkValidity = checkValidity;
+	}
+	public void setDisallowedZones(boolean disallowDiagsWithCloseToEmptyZones, boolean disallowDiagsWithCloseToDisconnectedZones, Double minPolyAreaInZone) {
+		this.disallowDiagsWithCloseToEmptyZones = disallowDiagsWithCloseToEmptyZones;
+		this.disallowDiagsWithCloseToDisconnectedZones = disallowDiagsWithCloseToDisconnectedZones;
+		this.minPolyAreaInZone = minPolyAreaInZone;
+	}
+	public void setConsiderLessPrecisePossibleIntPnts(boolean considerLessPrecisePossibleIntPnts) {
+		this.considerLessPrecisePossibleIntPnts = considerLessPrecisePossibleIntPnts;
+	}
+	public void setSaveImages(boolean saveImages) {
+		this.saveImages = saveImages;
+	}
+	public void setDiagPanel(EllipseDiagramPanel diagPanel) {
+		this.diagPanel = diagPanel;
+	}
+	public void setFileNamePrefix(String fileNamePrefix) {
+		this.fileNamePrefix = fileNamePrefix;
+	}
+	public void setSilent(boolean silent) {
+		this.silent = silent;
+	}
+	public long getNoOfSampledDiags() {
+		return noOfSampledDiags.get();
+	}
+	public long getNoOfWrittenDiags() {
+		return noOfWrittenDiags.get();
+	}
+	public double getAcceptanceRate() {
+		// the diagrams generated over all the diagrams sampled
+		long noOfSampled = noOfSampledDiags.get();
+		return ((noOfSampled > 0) ? ((double)noOfGeneratedDiags.get() / noOfSampled) : 0);
+	}
+	public long getWallTimeMillisecs() {
+		return wallTimeMillisecs;
+	}
+	public double getDiagsPerSec() {
+		return ((wallTimeMillisecs > 0) ? (noOfWrittenDiags.get() * 1000.0 / wallTimeMillisecs) : 0);
+	}
+	public ArrayList<String> getFailures() {
+		synchronized (failures){
+			return new ArrayList<String>(failures);
+		}
+	}
+
+
+
+	// Methods
+
+	// ... a diagram waiting for the writer
+	protected static class GeneratedDiag {
+		protected int index;
+		protected EllipseDiagram diagram;
+
+		protected GeneratedDiag (int index, EllipseDiagram diagram){
+			this.index = index;
+			this.diagram = diagram;
+		}
+	}
+
+
+	/* Generate noOfDiags diagrams in libDir (in the sub-directories eld, png and svg)
+	 *    false is returned if the directories cannot be created or if not all the diagrams could be generated and saved (see getFailures)
+	 */
+	public boolean run (final int noOfDiags){
+
+		noOfSampledDiags.set(0);
+		noOfGeneratedDiags.set(0);
+		noOfWrittenDiags.set(0);
+		synchronized (failures){
+			failures.clear();
+		}
+
+		final boolean drawDiags = saveImages && (noOfElls == 3); // EllipseDiagramPanel draws diagrams with 3 ellipses only
+		File eldDir = new File(libDir, ELD_DIR_NAME);
+		File pngDir = new File(libDir, PNG_DIR_NAME);
+		File svgDir = new File(libDir, SVG_DIR_NAME);
+		if (!createDir(eldDir) || (drawDiags && (!createDir(pngDir) || !createDir(svgDir)))){
+			return false;
+		}
+		String prefix = (fileNamePrefix == null) ? Utilities.getCurrentDateTime() : fileNamePrefix;
+
+		final int noOfWorkersForRun = Math.max(1, Math.min(noOfWorkers, noOfDiags));
+		final int noOfWritersForRun = (diagPanel != null) ? 1 : Math.max(1, Math.min(noOfWriters, noOfDiags));
+		if (!silent){
+			System.out.println("eulerAPE is generating " + noOfDiags + " random diagrams with " + noOfElls + " " + (restrictToCircles ? "circles" : "ellipses") + " in " + libDir.getAbsolutePath() +
+					           " with " + noOfWorkersForRun + " workers (seed " + seed + ") and " + noOfWritersForRun + " writers ...");
+		}
+
+		long startTime = System.currentTimeMillis();
+
+
+		// sample the diagrams -> the Random stream of every worker is split from the seed
+		final ArrayBlockingQueue<GeneratedDiag> queue = new ArrayBlockingQueue<GeneratedDiag>(QUEUED_DIAGS_PER_WORKER * noOfWorkersForRun);
+		final CountDownLatch workersDone = new CountDownLatch(noOfWorkersForRun);
+		ExecutorService pool = Executors.newFixedThreadPool(noOfWorkersForRun);
+		Random seeds = new Random(seed);
+		for (int w = 0; w < noOfWorkersForRun; w++){
+			final int firstIndex = w;
+			final Random random = new Random(seeds.nextLong());
+			pool.execute(new Runnable() {
+				public void run() {
+					try {
+						sampleDiags(firstIndex, noOfWorkersForRun, noOfDiags, random, queue);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (RuntimeException e) {
+						addFailure("worker " + firstIndex + " stopped -> " + e);
+					} finally {
+						workersDone.countDown();
+					}
+				}
+			});
+		}
+		pool.shutdown();
+
+
+		// save the diagrams as they are generated (their file names are their indices, whichever worker and writer they went through)
+		final CountDownLatch writersDone = new CountDownLatch(noOfWritersForRun);
+		final File[] dirs = {eldDir, (drawDiags ? pngDir : null), (drawDiags ? svgDir : null)};
+		final String prefixForRun = prefix;
+		ExecutorService writersPool = Executors.newFixedThreadPool(noOfWritersForRun);
+		for (int w = 0; w < noOfWritersForRun; w++){
+			writersPool.execute(new Runnable() {
+				public void run() {
+					try {
+						writeDiags(queue, workersDone, dirs, prefixForRun);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (RuntimeException e) {
+						addFailure("writer stopped -> " + e);
+					} finally {
+						writersDone.countDown();
+					}
+				}
+			});
+		}
+		writersPool.shutdown();
+
+		// ... this thread only reports the progress
+		try {
+			while (!writersDone.await(PROGRESS_INTERVAL_MILLISECS, TimeUnit.MILLISECONDS)){
+				if (!silent){
+					printProgress(noOfDiags, System.currentTimeMillis() - startTime);
+				}
+			}
+		} catch (InterruptedException e) {
+			System.out.println("RandomDiagramLibGenerator.run: interrupted while generating the diagrams -> " + e);
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+			writersPool.shutdownNow();
+		}
+
+		wallTimeMillisecs = System.currentTimeMillis() - startTime;
+
+		if (noOfWrittenDiags.get() < noOfDiags){
+			addFailure((noOfDiags - noOfWrittenDiags.get()) + " of the " + noOfDiags + " diagrams were not generated");
+		}
+		if (!silent){
+			printSummary(noOfDiags);
+		}
+		synchronized (failures){
+			return failures.isEmpty();
+		}
+	}
+
+	// ... one worker -> the diagrams firstIndex, firstIndex+step, ... are sampled with the worker's own Random
+	protected void sampleDiags (int firstIndex, int step, int noOfDiags, Random random, ArrayBlockingQueue<GeneratedDiag> queue) throws InterruptedException {
+		EllipseDiagram randomValidDiag;
+		for (int index = firstIndex; index < noOfDiags; index += step){
+			if (Thread.currentThread().isInterrupted()){return;}
+			randomValidDiag = EllipseDiagramOps.generateAValidRandomDiagram(noOfElls, a_b_min, a_b_max, axisRange_min, axisRange_max, restrictToCircles, checkValidity,
+					                                                        disallowDiagsWithCloseToEmptyZones, disallowDiagsWithCloseToDisconnectedZones, minPolyAreaInZone,
+					                                                        considerLessPrecisePossibleIntPnts, random, noOfSampledDiags);
+			noOfGeneratedDiags.incrementAndGet();
+			queue.put(new GeneratedDiag(index, randomValidDiag));
+		}
+	}
+
+	// ... one writer -> until the workers are done and the queue is empty
+	protected void writeDiags (ArrayBlockingQueue<GeneratedDiag> queue, CountDownLatch workersDone, File[] dirs, String prefix) throws InterruptedException {
+		EllipseDiagramPanel panel = diagPanel;
+		GeneratedDiag generatedDiag;
+		String diagFileName;
+		while (true){
+			generatedDiag = queue.poll(100, TimeUnit.MILLISECONDS);
+			if (generatedDiag == null){
+				if ((workersDone.getCount() == 0) && queue.isEmpty()){
+					return;
+				}
+				continue;
+			}
+
+			diagFileName = prefix + "_" + generatedDiag.index;
+			if (!EllipseDiagramOps.saveDiagToFile(generatedDiag.diagram, new File(dirs[0], diagFileName + ".eld"))){
+				addFailure("could not save " + diagFileName + ".eld");
+				continue;
+			}
+			if (dirs[1] != null){
+				if (panel == null){
+					panel = new EllipseDiagramPanel(generatedDiag.diagram, null);
+					panel.setSize(EllipseDiagramPanel.ellipsePanelSize);
+				}
+				// update diag panel with the new diag before you save the diag to file
+				panel.setDiagram(generatedDiag.diagram);
+				if (!EllipseDiagramOps.saveDiagImgToFile(panel, new File(dirs[1], diagFileName + ".png")) ||
+					!EllipseDiagramOps.saveDiagToSVGFile(panel, new File(dirs[2], diagFileName + ".svg"))){
+					addFailure("could not save the images of " + diagFileName);
+					continue;
+				}
+			}
+			noOfWrittenDiags.incrementAndGet();
+		}
+	}
+
+	protected static boolean createDir (File dir){
+		if (!dir.exists() && !dir.mkdirs()){
+			System.out.println("RandomDiagramLibGenerator.createDir: could not create " + dir.getAbsolutePath());
+			return false;
+		}
+		if (!dir.isDirectory()){
+			System.out.println("RandomDiagramLibGenerator.createDir: " + dir.getAbsolutePath() + " is not a directory");
+			return false;
+		}
+		return true;
+	}
+
+	protected void addFailure (String reason){
+		synchronized (failures){
+			failures.add(reason);
+		}
+		if (!silent){
+			printLine("Failed: " + reason);
+		}
+	}
+
+	protected static synchronized void printLine (String line){
+		System.out.println(line);
+	}
+
+	protected void printProgress (int noOfDiags, long elapsedMillisecs){
+		printLine(noOfWrittenDiags.get() + " of " + noOfDiags + " diagrams written, " + noOfSampledDiags.get() + " sampled" +
+				  " (acceptance rate " + String.format("%.2f", 100*getAcceptanceRate()) + "%)" +
+				  ((elapsedMillisecs > 0) ? ", " + String.format("%.1f", noOfWrittenDiags.get() * 1000.0 / elapsedMillisecs) + " diagrams/s" : ""));
+	}
+
+	protected void printSummary (int noOfDiags){
+		ArrayList<String> failuresOfRun = getFailures();
+
+		System.out.println();
+		System.out.println("eulerAPE generated " + noOfWrittenDiags.get() + " of " + noOfDiags + " random diagrams: files are in " + libDir.getAbsolutePath());
+		System.out.println("Sampled " + noOfSampledDiags.get() + " diagrams, acceptance rate: " + String.format("%.2f", 100*getAcceptanceRate()) + "%");
+		System.out.println("Wall time: " + wallTimeMillisecs + "ms" +
+				           ((wallTimeMillisecs > 0) ? ", throughput: " + String.format("%.1f", getDiagsPerSec()) + " diagrams/s" : ""));
+		System.out.println(EllipseDiagram.getValidityStats());
+		if (!failuresOfRun.isEmpty()){
+			System.out.println("Failed:");
+			for (String failure : failuresOfRun){
+				System.out.println("  " + failure);
+			}
+		}
+	}
+
+
+
+	// Main
+
+	public static void main (String[] args){
+
+		CmdLineParser parser = new CmdLineParser();
+		CmdLineParser.Option parserOutput = parser.addStringOption('o', "output");
+		CmdLineParser.Option parserCount = parser.addIntegerOption('n', "count");
+		CmdLineParser.Option parserEllipses = parser.addIntegerOption('e', "ellipses");
+		CmdLineParser.Option parserThreads = parser.addIntegerOption('t', "threads");
+		CmdLineParser.Option parserWriters = parser.addIntegerOption('w', "writers");
+		CmdLineParser.Option parserSeed = parser.addLongOption("seed");
+		CmdLineParser.Option parserCircles = parser.addBooleanOption("circles");
+		CmdLineParser.Option parserMinZoneArea = parser.addDoubleOption("min-zone-area");
+		CmdLineParser.Option parserNoImages = parser.addBooleanOption("no-images");
+		CmdLineParser.Option parserSilent = parser.addBooleanOption('s', "silent");
+		try {
+			parser.parse(args);
+		} catch (CmdLineParser.OptionException e) {
+			System.err.println("Error in command-line arguments: " + e.getMessage());
+			System.err.println("Usage: Options " + cmdlineOptions);
+			System.exit(2);
+		}
+
+		String outputDirPath = (String)parser.getOptionValue(parserOutput);
+		Integer noOfDiags = (Integer)parser.getOptionValue(parserCount);
+		int noOfElls = (Integer)parser.getOptionValue(parserEllipses, Integer.valueOf(3));
+		int noOfThreads = (Integer)parser.getOptionValue(parserThreads, Integer.valueOf(Runtime.getRuntime().availableProcessors()));
+		int noOfWriters = (Integer)parser.getOptionValue(parserWriters, Integer.valueOf(noOfThreads));
+		Double minZoneArea = (Double)parser.getOptionValue(parserMinZoneArea);
+		Long seed = (Long)parser.getOptionValue(parserSeed);
+		if ((outputDirPath == null) || (noOfDiags == null) || (noOfDiags < 1) || (noOfElls < 2) || (noOfElls > EllipseDiagramOps.MAX_NO_OF_ELLIPSES) || (noOfThreads < 1) || (noOfWriters < 1) || ((minZoneArea != null) && (minZoneArea < 0))){
+			System.err.println("Error in command-line arguments: -o (or --output) and -n (or --count) >= 1 are required, -e (or --ellipses) must be between 2 and " + EllipseDiagramOps.MAX_NO_OF_ELLIPSES +
+					           ", -t (or --threads) and -w (or --writers) >= 1 and --min-zone-area >= 0");
+			System.err.println("Usage: Options " + cmdlineOptions);
+			System.exit(2);
+		}
+
+		// ... the same ranges as for the library generated from the eulerAPE window (see SwitchBoardPanel.generateRandomDiagLib)
+		double maxSemiAxis = EllipseDiagramPanel.ellipsePanelSize.getWidth()/4;
+		double minSemiAxis = maxSemiAxis*0.03;
+
+		RandomDiagramLibGenerator generator = new RandomDiagramLibGenerator(new File(outputDirPath), noOfElls, minSemiAxis, maxSemiAxis, EllipseDiagramPanel.min_xy, EllipseDiagramPanel.max_xy);
+		generator.setNoOfWorkers(noOfThreads);
+		generator.setNoOfWriters(noOfWriters);
+		generator.setRestrictToCircles((Boolean)parser.getOptionValue(parserCircles, Boolean.FALSE));
+		generator.setSaveImages(!(Boolean)parser.getOptionValue(parserNoImages, Boolean.FALSE));
+		generator.setSilent((Boolean)parser.getOptionValue(parserSilent, Boolean.FALSE));
+		if (seed != null){
+			generator.setSeed(seed.longValue());
+		}
+		if (minZoneArea != null){
+			generator.setDisallowedZones(true, true, minZoneArea);
+		}
+
+		if (!generator.run(noOfDiags)){
+			System.exit(1);
+		}
+	}
+
+}
@@ -47,6 +47,9 @@ import java.util.ArrayList;
 
 public class RootFinder {
 	
+	public static final int MAX_NEWTON_ITERATIONS = 8;
+	public static final int MAX_BISECTION_ITERATIONS = 128;
+	
 	
 	public static ArrayList<Double> solveLinear (ArrayList<Double> cs){
 		return solveLinear(Utilities.convertDblArrayListToArray(cs));
@@ -196,6 +199,258 @@ public class RootFinder {
 
 	
 	
+	// ... with primitive arrays
+	//     -> the coefficients are in ascending order of power (c[0] + c[1]x + c[2]x^2 + ...) as for the methods above,
+	//        the real roots are saved in s (which is not cleared) and the number of roots is returned
+	//     => no object is created, so that these can be invoked for every intersection of every move of the hill climber
+	//     -> the methods with the coefficients as doubles save the roots from s[o]
+	
+	public static int solveLinear (double[] c, double[] s){
+		return solveLinear(c[0], c[1], s, 0);
+	}
+	public static int solveQuadric (double[] c, double[] s){
+		return solveQuadric(c[0], c[1], c[2], s, 0);
+	}
+	public static int solveCubic (double[] c, double[] s){
+		// s must have at least 3 elements
+		return solveCubic(c[0], c[1], c[2], c[3], s, 0);
+	}
+	public static int solveQuartic (double[] c, double[] s){
+		// s must have at least 4 elements
+		return solveQuartic(c[0], c[1], c[2], c[3], c[4], s, 0);
+	}
+	
+	public static int solveLinear (double c0, double c1, double[] s, int o){
+		if (isZero(c1)){return 0;}
+		
+		s[o] = -c0/c1;
+		return 1;
+	}
+	
+	public static int solveQuadric (double c0, double c1, double c2, double[] s, int o){
+		
+		if (isZero(c2)){
+			return solveLinear(c0, c1, s, o);
+		}
+		
+		// normal for: x^2 + px + q
+		double p = c1 / (2.0 * c2);
+		double q = c0 / c2; 
+		double D = (p * p) - q;
+
+		if (isZero(D)){
+			// one double root
+			s[o] = -p;
+			s[o+1] = -p;
+			return 2;
+	    }
+
+		if (D < 0.0){
+			// no real root
+			return 0;
+		} else {
+			// two real roots
+			double sqrt_D = Math.sqrt(D);
+			s[o] = sqrt_D - p;
+			s[o+1] = -sqrt_D - p;
+			return 2;
+	    }
+	}
+	
+	public static int solveCubic (double c0, double c1, double c2, double c3, double[] s, int o){
+		// as solveCubic(double[]) above (the roots s rather than s_testFromClosePoints)
+		
+		// normalizing the equation:x ^ 3 + Ax ^ 2 + Bx  + C = 0
+		double A = c2 / c3;
+		double B = c1 / c3;
+		double C = c0 / c3;
+
+		// substituting x = y - (A / 3) to eliminate the quadric term: x^3 + px + q = 0
+		double sq_A = A * A;
+		double p = (1.0/3.0) * (((-1.0/3.0) * sq_A) + B);
+		double q = (1.0/2.0) * (((2.0/27.0) * A *sq_A) - ((1.0/3.0) * A * B) + C);
+		
+		// using Cardano's formula
+		double cb_p = p * p * p;
+		double D = (q * q) + cb_p;
+		
+		int num;
+		if (isZero(D)) {
+			if (isZero(q)) {
+				// one triple solution
+				s[o] = 0.0;
+				num = 1;
+			} else {
+				// one single and one double solution
+				double u = Math.cbrt(-q);
+				s[o] = 2.0 * u;
+				s[o+1] = - u;
+				num = 2;
+			}
+	    } else if (D < 0.0) {
+	    	// when get three real solutions
+	    	double phi = (1.0/3.0) * Math.acos(-q / Math.sqrt(-cb_p));
+	    	double t = 2.0 * Math.sqrt(-p);
+	    	s[o] = t * Math.cos(phi);
+	    	s[o+1] = -t * Math.cos(phi + (Math.PI / 3.0));
+	    	s[o+2] = -t * Math.cos(phi - (Math.PI / 3.0));
+	    	num = 3;
+		} else {
+			// one real solution
+			double u = Math.cbrt(Math.sqrt(D) + Math.abs(q));
+			s[o] = (q > 0.0) ? (- u + (p / u)) : (u - (p / u));
+			num = 1;
+		}
+		
+	    // resubstitute
+	    double sub = 1.0 / 3.0 * A;
+	    for (int i = 0; i < num; i++){
+	    	s[o+i] -= sub;
+	    }
+	    return num;
+	}
+	
+	public static int solveQuartic (double c0, double c1, double c2, double c3, double c4, double[] s, int o){
+		// Ferrari's method, also based on: 
+		// Jochen Schwarze (1990). Cubic and Quartic Roots. In Andrew S Glassner (ed.), Graphics Gems, Academic Press, San Diego, CA, USA, pp. 404-407.
+		
+		if (isZero(c4)){
+			return solveCubic(c0, c1, c2, c3, s, o);
+		}
+		
+		// normal form: x^4 + Ax^3 + Bx^2 + Cx + D = 0
+		double A = c3 / c4;
+		double B = c2 / c4;
+		double C = c1 / c4;
+		double D = c0 / c4;
+
+		// substituting x = y - A/4 to eliminate the cubic term: x^4 + px^2 + qx + r = 0
+		double sq_A = A * A;
+		double p = - 3.0/8.0 * sq_A + B;
+		double q = 1.0/8.0 * sq_A * A - 1.0/2.0 * A * B + C;
+		double r = - 3.0/256.0 * sq_A * sq_A + 1.0/16.0 * sq_A * B - 1.0/4.0 * A * C + D;
+
+		int num;
+		if (isZero(r)){
+			// no absolute term: y(y^3 + py + q) = 0
+			num = solveCubic(q, p, 0.0, 1.0, s, o);
+			s[o+num] = 0.0;
+			num++;
+			
+		} else {
+			// solve the resolvent cubic ...
+			solveCubic((1.0/2.0 * r * p) - (1.0/8.0 * q * q), -r, -1.0/2.0 * p, 1.0, s, o);
+			
+			// ... and take the one real solution ...
+			double z = s[o];
+			
+			// ... to build two quadric equations
+			double u = z * z - r;
+			double v = 2.0 * z - p;
+			
+			if (isZero(u)){
+				u = 0.0;
+			} else if (u > 0.0){
+				u = Math.sqrt(u);
+			} else {
+				return 0;
+			}
+			
+			if (isZero(v)){
+				v = 0.0;
+			} else if (v > 0.0){
+				v = Math.sqrt(v);
+			} else {
+				return 0;
+			}
+			
+			num = solveQuadric(z - u, (q < 0.0) ? -v : v, 1.0, s, o);
+			num += solveQuadric(z + u, (q < 0.0) ? v : -v, 1.0, s, o+num);
+		}
+		
+	    // resubstitute
+	    double sub = 1.0/4.0 * A;
+	    for (int i = 0; i < num; i++){
+	    	s[o+i] -= sub;
+	    }
+	    return num;
+	}
+	
+	public static double polishRoot (double[] c, int degree, double x){
+		return polishRoot(c, 0, degree, x);
+	}
+	public static double polishRoot (double[] c, int o, int degree, double x){
+		// Newton's method on c[o] + c[o+1]x + ... + c[o+degree]x^degree, starting from the root x found by one of the methods above
+		// -> stops as soon as the absolute value of the polynomial no longer decreases, so the returned root is never worse than x
+		
+		double bestX = x;
+		double bestY = Math.abs(evaluate(c, o, degree, x));
+		double y;
+		double dy;
+		for (int i = 0; (i < MAX_NEWTON_ITERATIONS) && (bestY > 0.0); i++){
+			y = c[o+degree];
+			dy = 0.0;
+			for (int k = degree-1; k >= 0; k--){
+				dy = dy * x + y;
+				y = y * x + c[o+k];
+			}
+			if (dy == 0.0){break;}
+			
+			x -= y / dy;
+			y = Math.abs(evaluate(c, o, degree, x));
+			if (!(y < bestY)){break;}
+			bestX = x;
+			bestY = y;
+		}
+		return bestX;
+	}
+	
+	public static double findRootBetween (double[] c, int o, int degree, double lo, double hi, double x){
+		// the root of c[o] + c[o+1]x + ... + c[o+degree]x^degree between lo and hi, where the polynomial has different signs at lo and hi
+		// -> Newton's method from x (e.g. an inaccurate root found by one of the methods above), but the interval is halved instead
+		//    whenever a step would leave it => a root is found even where the methods above lose it to rounding (e.g. 2 close roots read as a complex pair)
+		
+		boolean negAtLo = (evaluate(c, o, degree, lo) < 0.0);
+		if (!((x > lo) && (x < hi))){
+			x = lo + (hi - lo)/2;
+		}
+		double y;
+		double dy;
+		double nextX;
+		for (int i = 0; i < MAX_BISECTION_ITERATIONS; i++){
+			y = c[o+degree];
+			dy = 0.0;
+			for (int k = degree-1; k >= 0; k--){
+				dy = dy * x + y;
+				y = y * x + c[o+k];
+			}
+			if (y == 0.0){break;}
+			if ((y < 0.0) == negAtLo){
+				lo = x;
+			} else {
+				hi = x;
+			}
+			nextX = (dy == 0.0) ? Double.NaN : (x - y / dy);
+			if (!((nextX > lo) && (nextX < hi))){
+				nextX = lo + (hi - lo)/2;
+			}
+			if ((nextX == x) || (nextX <= lo) || (nextX >= hi)){break;}
+			x = nextX;
+		}
+		return x;
+	}
+	
+	public static double evaluate (double[] c, int o, int degree, double x){
+		// Horner's method
+		double y = c[o+degree];
+		for (int k = degree-1; k >= 0; k--){
+			y = y * x + c[o+k];
+		}
+		return y;
+	}
+	
+	
+	
 	private static boolean isZero(double x){
 		double EQN_EPS = 1e-11; 
 		return isZero(x, EQN_EPS);
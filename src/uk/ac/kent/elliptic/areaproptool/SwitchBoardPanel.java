@@ -160,12 +160,13 @@ public class SwitchBoardPanel extends JPanel {
 	protected JTextField message2Field;
 	protected JTextField message3Field;
 	
-	protected JTextField[] requiredAreaSpecsField = new JTextField[7];
-	protected JTextField[] requiredAreaSpecsPCField = new JTextField[7];
-	protected JTextField[] currAreaField = new JTextField[7];
-	protected JTextField[] currAreaPCField = new JTextField[7];
-	protected JTextField[] diffReqActualField = new JTextField[7];
-	protected JTextField[] diffReqActualPCField = new JTextField[7];
+	// ... one row for every zone of a diagram with noOfEllipses ellipses (see addWidgets)
+	protected JTextField[] requiredAreaSpecsField;
+	protected JTextField[] requiredAreaSpecsPCField;
+	protected JTextField[] currAreaField;
+	protected JTextField[] currAreaPCField;
+	protected JTextField[] diffReqActualField;
+	protected JTextField[] diffReqActualPCField;
 	
 	
 	protected JLabel rHCLabel;
@@ -431,6 +432,13 @@ public class SwitchBoardPanel extends JPanel {
 		Insets inTextfieldPadding = new Insets(1,5,1,5);
 		Insets inButtonfieldPadding = new Insets(0,1,0,1);
 		
+		requiredAreaSpecsField = new JTextField[zoneLabels.length];
+		requiredAreaSpecsPCField = new JTextField[zoneLabels.length];
+		currAreaField = new JTextField[zoneLabels.length];
+		currAreaPCField = new JTextField[zoneLabels.length];
+		diffReqActualField = new JTextField[zoneLabels.length];
+		diffReqActualPCField = new JTextField[zoneLabels.length];
+		
 		int z = 0;
 		for(String zl : zoneLabels) {
 			yLevel++;
@@ -1682,7 +1690,7 @@ public class SwitchBoardPanel extends JPanel {
 		
 		// delete the current ellipse diagram (if any) and clear the current area and differences columns and fitness (if any) 
 		if (ellipseDiagramPanel.getDiagram()!=null){
-			for (int i=0; i<7; i++){
+			for (int i=0; i<requiredAreaSpecsField.length; i++){
 				requiredAreaSpecsPCField[i].setText("");
 				currAreaField[i].setText("");
 				currAreaPCField[i].setText("");
@@ -1708,7 +1716,7 @@ public class SwitchBoardPanel extends JPanel {
 	
 	protected void genRandomAreaSpecsButton(){
 		
-		for (int i=0; i<7; i++){
+		for (int i=0; i<requiredAreaSpecsField.length; i++){
 			requiredAreaSpecsField[i].setText("");
 			requiredAreaSpecsPCField[i].setText("");
 			currAreaField[i].setText("");
@@ -1752,7 +1760,7 @@ public class SwitchBoardPanel extends JPanel {
 	}
 	protected void clearAllAreaSpecsButton(boolean clearReqAreaSpec){
 		
-		for (int i=0; i<7; i++){
+		for (int i=0; i<requiredAreaSpecsField.length; i++){
 			requiredAreaSpecsField[i].setText("");
 			requiredAreaSpecsPCField[i].setText("");
 			
@@ -2102,7 +2110,7 @@ public class SwitchBoardPanel extends JPanel {
 		boolean foundZAwithNoValue = false;
 		
 		
-		for (int i=0; i<7; i++){
+		for (int i=0; i<requiredAreaSpecsField.length; i++){
 			if (requiredAreaSpecsField[i].getText().trim().equals("")){
 				foundZAwithNoValue = true;
 				break;
@@ -2125,7 +2133,13 @@ public class SwitchBoardPanel extends JPanel {
 			}
 			return;
 		}	
-		if (Double.isNaN(ellDiag.getEllipses().get(2).getXc()) || Double.isNaN(ellDiag.getEllipses().get(2).getYc())){
+		boolean foundNaNCentre = false;
+		for (Ellipse e : ellDiag.getEllipses()){
+			if (Double.isNaN(e.getXc()) || Double.isNaN(e.getYc())){
+				foundNaNCentre = true;
+			}
+		}
+		if (foundNaNCentre){
 			String errmsg = "**Error finding appropriate initial diagram: a NaN was generated by EllipseDiagramOps.getArcAngleForOverlappingCircles() due to aCos(x) where x>1 when EllipseDiagramOps.areaOverlapSharedZoneWith3rdCircle() was invoked";
 			System.out.println(errmsg);
 			if (bwRunLogger != null){
@@ -2153,7 +2167,7 @@ public class SwitchBoardPanel extends JPanel {
 		File diagLibFile = new File (diagLibPath);
 		EllipseDiagram randomDiagram;
 		
-		if (RANDOM_DIAG__LOAD_FROM_LIB_IF_AVAILABLE && diagLibFile.exists() && (EllipseDiagramOps.getDiagFilesInDir(diagLibFile).length > 0)){
+		if (RANDOM_DIAG__LOAD_FROM_LIB_IF_AVAILABLE && diagLibFile.exists() && ((EllipseDiagramOps.getBinaryDiagLib(diagLibFile) != null) || (EllipseDiagramOps.getDiagFilesInDir(diagLibFile).length > 0))){
 			randomDiagram = EllipseDiagramOps.getARandomDiagFromLib(diagLibFile, considerLessPreciseIntPnts);
 		} else {
 			Random r = new Random();
@@ -2284,7 +2298,7 @@ public class SwitchBoardPanel extends JPanel {
 	protected boolean generateStartingDiagramButton(BufferedWriter bwDiagListFailedToGenInitDiag){
 		
 		boolean foundZAwithNoValue = false;
-		for (int i=0; i<7; i++){
+		for (int i=0; i<requiredAreaSpecsField.length; i++){
 			if (requiredAreaSpecsField[i].getText().trim().equals("")){
 				foundZAwithNoValue = true;
 				break;
@@ -2702,7 +2716,7 @@ public class SwitchBoardPanel extends JPanel {
 	private void runDrawDiag (boolean viewAnimation, String msgTitle, int runMode, boolean lockHCparams, boolean suppressFinalMsg, BufferedWriter bwRunLogger, BufferedWriter bwDiagListFailedToGenInitDiag, boolean updateStopWatch){
 		
 		msgTitle = "Searching for a Diagram";
-		hcRunAreaDetails = new String[7];
+		hcRunAreaDetails = new String[requiredAreaSpecsField.length];
 		
 		boolean saveDetailsWhenReachMaxRegionAreaThreshold = true;
 		double maxRegionAreaAbsErrThreshold = 0.001;
@@ -2713,7 +2727,7 @@ public class SwitchBoardPanel extends JPanel {
 		String errMsg;
 		
 		boolean foundZAwithNoValue = false;
-		for (int i=0; i<7; i++){
+		for (int i=0; i<requiredAreaSpecsField.length; i++){
 			if (requiredAreaSpecsField[i].getText().trim().equals("")){
 				foundZAwithNoValue = true;
 				break;
@@ -155,7 +155,7 @@ public class TransformationMatrix {
 	}
 	
 	// ... matrix to transform an ellipse to a circle and vice-versa 
-	//      -> these are invoked by Ellipse.getIntPnts_WithEllipse() (to find the intersection points of 2 ellipses)
+	//      -> these are invoked by Ellipse.getIntPnts_WithEllipse_AsConics() (to find the intersection points of 2 ellipses)
 	public static TransformationMatrix ellipseToCircleTransMatrix (Ellipse e){
 		return ellipseToCircleTransMatrix(e, TransformationMatrix.IdMatrix());
 	}
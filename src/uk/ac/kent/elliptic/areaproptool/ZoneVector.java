@@ -0,0 +1,203 @@
+/* 
+ * eulerAPE v3.0.0
+ * 
+ * 2013-11-18
+ *
+ * 
+ * 
+ * eulerAPE -- Drawing Area-Proportional Euler and Venn Diagrams Using Ellipses	    
+ * 		http://www.eulerdiagrams.org/eulerAPE
+ * 
+ * 
+ * 		Copyright (C) 2011-2013, Luana Micallef and Peter Rodgers. 
+ * 		All rights reserved.
+ * 		
+ * 
+ * 		This file is part of eulerAPE.
+ * 			
+ * 		eulerAPE is free software: you can redistribute it and/or modify
+ * 		it under the terms of the GNU General Public License as published 
+ * 		by the Free Software Foundation, either version 3 of the License, 
+ * 		or (at your option) any later version.
+	
+ * 		eulerAPE is distributed in the hope that it will be useful,
+ * 		but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * 		MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * 		GNU General Public License for more details.
+	
+ * 		A copy of the GNU General Public License is provided with 
+ * 		eulerAPE (in a file named COPYING). Alternatively, see 
+ * 		<http://www.gnu.org/licenses/gpl.html>.
+ * 			
+ */
+ 
+
+
+package uk.ac.kent.elliptic.areaproptool;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map.Entry;
+
+
+/**
+ * To instantiate, define and manage a value (e.g. the area or the fitness) for every zone of a diagram with n ellipses,
+ * whereby every zone is identified by a bitmask (one bit per ellipse: ellipse1Label -> bit 0, the next label -> bit 1 and so on)
+ * rather than by its label, so that no String hashing or boxing is required when the values are computed
+ *
+ */
+
+
+public class ZoneVector {
+
+	// Data fields
+
+	// ... the value of the zone with id z (1 <= z <= 2^n - 1) is values[z-1] and is Double.NaN if it has no value (the empty zone, z=0, is excluded)
+	protected int noOfEllipses;
+	protected double[] values;
+
+
+
+	// Constructor
+
+	public ZoneVector (int noOfEllipses){
+		this.noOfEllipses = noOfEllipses;
+		this.values = new double[(1 << noOfEllipses) - 1];
+		clear();
+	}
+
+	public ZoneVector (HashMap<String, Double> valuesOfZones, int noOfEllipses){
+		this(noOfEllipses);
+		setFrom(valuesOfZones);
+	}
+
+
+
+	// Properties -> getters and setters
+
+	public int getNoOfEllipses() {
+		return noOfEllipses;
+	}
+	public int getNoOfZones() {
+		return values.length;
+	}
+	public double[] getValues() {
+		return values;
+	}
+	public double get(int zoneId) {
+		return values[zoneId-1];
+	}
+	public void set(int zoneId, double value) {
+		values[zoneId-1] = value;
+	}
+	public boolean hasValue(int zoneId) {
+		return !Double.isNaN(values[zoneId-1]);
+	}
+	public double get(String zoneLabel) {
+		return values[getZoneId(zoneLabel)-1];
+	}
+
+
+
+	// Methods
+
+	// ... zone ids and labels
+
+	public static int getZoneId (String zoneLabel){
+		// e.g. "a" -> 1, "b" -> 2, "ab" -> 3, "abc" -> 7
+		int zoneId = 0;
+		for (int i=0; i<zoneLabel.length(); i++){
+			zoneId |= 1 << (zoneLabel.charAt(i) - EllipseDiagram.ellipse1Label);
+		}
+		return zoneId;
+	}
+
+	public static int[] getZoneIds (String[] zoneLabels){
+		int[] zoneIds = new int[zoneLabels.length];
+		for (int i=0; i<zoneLabels.length; i++){
+			zoneIds[i] = getZoneId(zoneLabels[i]);
+		}
+		return zoneIds;
+	}
+
+	public static String getZoneLabel (int zoneId){
+		// the labels of the ellipses are in ascending order, as in EllipseDiagramOps.getZoneLabels
+		StringBuffer zoneLabel = new StringBuffer();
+		for (int i=0; (zoneId >> i) != 0; i++){
+			if (((zoneId >> i) & 1) == 1){
+				zoneLabel.append((char)(EllipseDiagram.ellipse1Label + i));
+			}
+		}
+		return zoneLabel.toString();
+	}
+
+	public static boolean isZoneInEllipse (int zoneId, int ellipseZoneId){
+		return ((zoneId & ellipseZoneId) != 0);
+	}
+
+
+	// ... values
+
+	public void clear(){
+		fill(Double.NaN);
+	}
+	
+	public void fill(double value){
+		Arrays.fill(values, value);
+	}
+
+	public void copyFrom (ZoneVector zoneVector){
+		System.arraycopy(zoneVector.values, 0, this.values, 0, this.values.length);
+	}
+
+	public void setFrom (HashMap<String, Double> valuesOfZones){
+		clear();
+		if (valuesOfZones == null){return;}
+
+		int zoneId;
+		for (Entry<String, Double> valueOfZone : valuesOfZones.entrySet()){
+			if ((valueOfZone.getKey() == null) || (valueOfZone.getValue() == null)){continue;}
+			zoneId = getZoneId(valueOfZone.getKey());
+			if ((zoneId < 1) || (zoneId > values.length)){
+				System.out.println("ZoneVector.setFrom: zone "+valueOfZone.getKey()+" is not a zone of a diagram with "+noOfEllipses+" ellipses");
+				continue;
+			}
+			values[zoneId-1] = valueOfZone.getValue();
+		}
+	}
+
+	public HashMap<String, Double> toHashMap (){
+		// zones without a value are set to null
+		HashMap<String, Double> valuesOfZones = new HashMap<String, Double>();
+		for (int zoneId=1; zoneId<=values.length; zoneId++){
+			valuesOfZones.put(getZoneLabel(zoneId), hasValue(zoneId) ? values[zoneId-1] : null);
+		}
+		return valuesOfZones;
+	}
+
+	public double sum (int[] zoneIds){
+		double sum = 0;
+		for (int zoneId : zoneIds){
+			sum += values[zoneId-1];
+		}
+		return sum;
+	}
+
+	public ZoneVector clone(){
+		ZoneVector zoneVectorClone = new ZoneVector(noOfEllipses);
+		zoneVectorClone.copyFrom(this);
+		return zoneVectorClone;
+	}
+
+	public String toString(){
+		StringBuffer str = new StringBuffer();
+		for (int zoneId=1; zoneId<=values.length; zoneId++){
+			if (zoneId > 1){
+				str.append(", ");
+			}
+			str.append(getZoneLabel(zoneId) + "=" + values[zoneId-1]);
+		}
+		return str.toString();
+	}
+
+}